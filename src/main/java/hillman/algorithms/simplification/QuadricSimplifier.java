@@ -0,0 +1,582 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.simplification;
+
+import hillman.geometries.EdgeMap;
+import hillman.geometries.IndexedMesh;
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+/** Garland & Heckbert's quadric error metric simplification by edge collapse, for bringing heavily subdivided meshes
+ * down to the detail actually needed for display or transfer.
+ * 
+ * Every vertex carries the sum of the squared distance quadrics of it's triangles' planes (plus heavily weighted 
+ * planes through boundary edges, so open borders keep their shape). Every edge is a candidate collapse to the point 
+ * minimising the summed quadric of it's two ends, & candidates sit in a priority queue ordered by that error. The
+ * cheapest is collapsed, the survivor takes the summed quadric & the candidates around it are re-queued. Stale 
+ * entries are not removed from the queue; each remembers the versions of it's vertices & is skipped if either has 
+ * changed since, which keeps the whole run at O(n log n). Collapses that would flip a triangle or make the surface 
+ * non-manifold are refused.
+ * 
+ * Polygons are split into triangle fans first, so the result is always a triangle mesh & face counts are in triangles.
+ * 
+ * @author M Hillman
+ * @version 1.0 (02/03/2014)
+ */
+public class QuadricSimplifier {
+    
+    /** Weight of the planes that hold boundary edges in place. */
+    private static final double BOUNDARY_WEIGHT = 1000.0;
+    
+    /** Vertex positions. */
+    private final float[] xs, ys, zs;
+    
+    /** Quadric of each vertex: the 10 unique entries of a symmetric 4x4 matrix. */
+    private final double[] quadrics;
+    
+    /** Version of each vertex, bumped when it moves; -1 once the vertex has been collapsed away. */
+    private final int[] versions;
+    
+    /** Triangle corners, three per triangle; -1 in the first corner marks a removed triangle. */
+    private final int[] triangles;
+    
+    /** Triangles around each vertex (may include removed triangles, which are skipped). */
+    private final int[][] vertexTriangles;
+    
+    /** Number of triangles in each vertex's list. */
+    private final int[] vertexTriangleCounts;
+    
+    /** Candidate collapses, cheapest first. */
+    private final PriorityQueue<Candidate> queue;
+    
+    /** Number of triangles still in the mesh. */
+    private int liveTriangles;
+    
+    /** Error of the last collapse performed. */
+    private double lastError;
+    
+    /** Prepares a mesh for simplification: triangulates it, accumulates the vertex quadrics & queues a candidate for 
+     * every edge. The input mesh is not modified.
+     * 
+     * @param mesh IndexedMesh to simplify.
+     */
+    public QuadricSimplifier(IndexedMesh mesh) {
+        int vertexCount = mesh.getVertexCount();
+        xs = new float[vertexCount];
+        ys = new float[vertexCount];
+        zs = new float[vertexCount];
+        for(int v = 0; v < vertexCount; v++) {
+            xs[v] = mesh.getX(v);
+            ys[v] = mesh.getY(v);
+            zs[v] = mesh.getZ(v);
+        }
+        int triangleCount = 0;
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            triangleCount += Math.max(0, mesh.getFaceSize(f) - 2);
+        }
+        triangles = new int[3 * triangleCount];
+        int t = 0;
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            for(int k = 1; k + 1 < mesh.getFaceSize(f); k++) {
+                triangles[3 * t] = mesh.getFaceVertex(f, 0);
+                triangles[3 * t + 1] = mesh.getFaceVertex(f, k);
+                triangles[3 * t + 2] = mesh.getFaceVertex(f, k + 1);
+                t++;
+            }
+        }
+        liveTriangles = triangleCount;
+        versions = new int[vertexCount];
+        
+        vertexTriangleCounts = new int[vertexCount];
+        for(int i = 0; i < triangles.length; i++) {
+            vertexTriangleCounts[triangles[i]]++;
+        }
+        vertexTriangles = new int[vertexCount][];
+        for(int v = 0; v < vertexCount; v++) {
+            vertexTriangles[v] = new int[Math.max(1, vertexTriangleCounts[v])];
+            vertexTriangleCounts[v] = 0;
+        }
+        for(int i = 0; i < triangles.length; i++) {
+            int v = triangles[i];
+            vertexTriangles[v][vertexTriangleCounts[v]++] = i / 3;
+        }
+        
+        //Plane quadrics of every triangle, & boundary quadrics of edges used by only one triangle. Degenerate 
+        //triangles have no plane but still use their edges, so an edge shared with one is not taken for a boundary.
+        quadrics = new double[10 * vertexCount];
+        double[] plane = new double[4];
+        EdgeMap uses = new EdgeMap(triangles.length);
+        for(int tri = 0; tri < triangleCount; tri++) {
+            if(triangles[3 * tri] < 0) {
+                continue;
+            }
+            boolean planar = getPlane(tri, plane);
+            for(int k = 0; k < 3; k++) {
+                if(planar) {
+                    addQuadric(triangles[3 * tri + k], plane, 1.0);
+                }
+                long key = EdgeMap.key(triangles[3 * tri + k], triangles[3 * tri + (k + 1) % 3]);
+                int previous = uses.putIfAbsent(key, 1);
+                if(previous != EdgeMap.MISSING) {
+                    uses.put(key, previous + 1);
+                }
+            }
+        }
+        for(int tri = 0; tri < triangleCount; tri++) {
+            if(triangles[3 * tri] < 0 || !getPlane(tri, plane)) {
+                continue;
+            }
+            for(int k = 0; k < 3; k++) {
+                int a = triangles[3 * tri + k];
+                int b = triangles[3 * tri + (k + 1) % 3];
+                if(uses.get(a, b) == 1 && getBoundaryPlane(a, b, plane)) {
+                    addQuadric(a, plane, BOUNDARY_WEIGHT);
+                    addQuadric(b, plane, BOUNDARY_WEIGHT);
+                    getPlane(tri, plane);
+                }
+            }
+        }
+        
+        queue = new PriorityQueue<>(Math.max(1, uses.size()));
+        EdgeMap queued = new EdgeMap(triangles.length);
+        for(int i = 0; i < triangles.length; i++) {
+            int a = triangles[i];
+            int b = triangles[3 * (i / 3) + (i % 3 + 1) % 3];
+            if(queued.putIfAbsent(EdgeMap.key(a, b), 0) == EdgeMap.MISSING) {
+                queue.add(createCandidate(a, b));
+            }
+        }
+    }
+    
+    /** Simplifies a mesh to at most the target number of triangles.
+     * 
+     * @param mesh IndexedMesh to simplify.
+     * @param targetTriangles int, desired triangle count.
+     * @return IndexedMesh, the simplified triangle mesh.
+     */
+    public static IndexedMesh simplify(IndexedMesh mesh, int targetTriangles) {
+        return new QuadricSimplifier(mesh).simplify(targetTriangles, Double.POSITIVE_INFINITY);
+    }
+    
+    /** Collapses edges, cheapest first, until the mesh has at most the target number of triangles or the next 
+     * collapse would exceed the error bound (whichever comes first), then returns the result.
+     * 
+     * @param targetTriangles int, desired triangle count.
+     * @param maxError double, largest quadric error (squared distance) a collapse may introduce.
+     * @return IndexedMesh, the simplified triangle mesh.
+     */
+    public IndexedMesh simplify(int targetTriangles, double maxError) {
+        while(liveTriangles > targetTriangles && !queue.isEmpty()) {
+            Candidate candidate = queue.poll();
+            if(versions[candidate.a] != candidate.versionA || versions[candidate.b] != candidate.versionB) {
+                continue;
+            }
+            if(candidate.cost > maxError) {
+                break;
+            }
+            if(collapse(candidate)) {
+                lastError = candidate.cost;
+            }
+        }
+        return toMesh();
+    }
+    
+    /** Returns the number of triangles currently in the mesh.
+     * 
+     * @return int, triangle count.
+     */
+    public int getTriangleCount() {
+        return liveTriangles;
+    }
+    
+    /** Returns the error of the last collapse performed, a bound on how far the surface has moved locally.
+     * 
+     * @return double, quadric error (squared distance).
+     */
+    public double getLastError() {
+        return lastError;
+    }
+    
+    /** Collapses edge (a, b) into a at the candidate's position, if doing so keeps the surface manifold & flips no 
+     * triangle.
+     * 
+     * @param candidate Candidate to collapse.
+     * @return boolean, true if collapsed.
+     */
+    private boolean collapse(Candidate candidate) {
+        int a = candidate.a;
+        int b = candidate.b;
+        if(!isLinkValid(a, b) || flips(a, b, candidate) || flips(b, a, candidate)) {
+            return false;
+        }
+        
+        //Remove the triangles on the edge, re-point b's other triangles at a & merge the lists.
+        int[] merged = Arrays.copyOf(vertexTriangles[a], vertexTriangleCounts[a] + vertexTriangleCounts[b]);
+        int size = 0;
+        for(int i = 0; i < vertexTriangleCounts[a]; i++) {
+            int tri = vertexTriangles[a][i];
+            if(triangles[3 * tri] < 0) {
+                continue;
+            }
+            if(contains(tri, b)) {
+                triangles[3 * tri] = -1;
+                liveTriangles--;
+            } else {
+                merged[size++] = tri;
+            }
+        }
+        for(int i = 0; i < vertexTriangleCounts[b]; i++) {
+            int tri = vertexTriangles[b][i];
+            if(triangles[3 * tri] < 0) {
+                continue;
+            }
+            for(int k = 0; k < 3; k++) {
+                if(triangles[3 * tri + k] == b) {
+                    triangles[3 * tri + k] = a;
+                }
+            }
+            merged[size++] = tri;
+        }
+        vertexTriangles[a] = merged;
+        vertexTriangleCounts[a] = size;
+        vertexTriangles[b] = null;
+        vertexTriangleCounts[b] = 0;
+        
+        xs[a] = candidate.x;
+        ys[a] = candidate.y;
+        zs[a] = candidate.z;
+        for(int i = 0; i < 10; i++) {
+            quadrics[10 * a + i] += quadrics[10 * b + i];
+        }
+        versions[a]++;
+        versions[b] = -1;
+        
+        //Re-queue every edge around the survivor.
+        for(int v : getNeighbours(a)) {
+            queue.add(createCandidate(a, v));
+        }
+        return true;
+    }
+    
+    /** Checks the link condition: the vertices adjacent to both a & b must be exactly the apexes of the triangles on
+     * edge (a, b), otherwise the collapse would pinch the surface.
+     * 
+     * @param a int, surviving vertex.
+     * @param b int, removed vertex.
+     * @return boolean, true if the collapse keeps the surface manifold.
+     */
+    private boolean isLinkValid(int a, int b) {
+        int[] neighboursA = getNeighbours(a);
+        int[] neighboursB = getNeighbours(b);
+        int common = 0;
+        for(int v : neighboursB) {
+            if(v != a && Arrays.binarySearch(neighboursA, v) >= 0) {
+                common++;
+            }
+        }
+        int apexes = 0;
+        for(int i = 0; i < vertexTriangleCounts[a]; i++) {
+            int tri = vertexTriangles[a][i];
+            if(triangles[3 * tri] >= 0 && contains(tri, b)) {
+                apexes++;
+            }
+        }
+        return common == apexes;
+    }
+    
+    /** Returns the sorted, distinct neighbours of a vertex.
+     * 
+     * @param v int, vertex index.
+     * @return int[], neighbouring vertices.
+     */
+    private int[] getNeighbours(int v) {
+        int[] neighbours = new int[2 * vertexTriangleCounts[v]];
+        int size = 0;
+        for(int i = 0; i < vertexTriangleCounts[v]; i++) {
+            int tri = vertexTriangles[v][i];
+            if(triangles[3 * tri] < 0) {
+                continue;
+            }
+            for(int k = 0; k < 3; k++) {
+                if(triangles[3 * tri + k] != v) {
+                    neighbours[size++] = triangles[3 * tri + k];
+                }
+            }
+        }
+        Arrays.sort(neighbours, 0, size);
+        int distinct = 0;
+        for(int i = 0; i < size; i++) {
+            if(distinct == 0 || neighbours[distinct - 1] != neighbours[i]) {
+                neighbours[distinct++] = neighbours[i];
+            }
+        }
+        return Arrays.copyOf(neighbours, distinct);
+    }
+    
+    /** Returns true if moving vertex v to the candidate position would flip (or collapse to nothing) any of it's 
+     * triangles that do not also contain <code>other</code>.
+     * 
+     * @param v int, vertex being moved.
+     * @param other int, other end of the collapsing edge.
+     * @param candidate Candidate giving the new position.
+     * @return boolean, true if a triangle would flip.
+     */
+    private boolean flips(int v, int other, Candidate candidate) {
+        for(int i = 0; i < vertexTriangleCounts[v]; i++) {
+            int tri = vertexTriangles[v][i];
+            if(triangles[3 * tri] < 0 || contains(tri, other)) {
+                continue;
+            }
+            int k = 0;
+            while(triangles[3 * tri + k] != v) {
+                k++;
+            }
+            int p = triangles[3 * tri + (k + 1) % 3];
+            int q = triangles[3 * tri + (k + 2) % 3];
+            double[] before = getNormal(xs[v], ys[v], zs[v], p, q);
+            double[] after = getNormal(candidate.x, candidate.y, candidate.z, p, q);
+            double dot = before[0] * after[0] + before[1] * after[1] + before[2] * after[2];
+            double lengths = Math.sqrt((before[0] * before[0] + before[1] * before[1] + before[2] * before[2]) 
+                    * (after[0] * after[0] + after[1] * after[1] + after[2] * after[2]));
+            if(lengths == 0.0 || dot < 0.2 * lengths) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /** Returns the (unnormalised) normal of the triangle (v, p, q) with v at the input position.
+     * 
+     * @param x float, X of v.
+     * @param y float, Y of v.
+     * @param z float, Z of v.
+     * @param p int, second corner.
+     * @param q int, third corner.
+     * @return double[], normal vector.
+     */
+    private double[] getNormal(float x, float y, float z, int p, int q) {
+        double ux = xs[p] - x, uy = ys[p] - y, uz = zs[p] - z;
+        double wx = xs[q] - x, wy = ys[q] - y, wz = zs[q] - z;
+        return new double[] {uy * wz - uz * wy, uz * wx - ux * wz, ux * wy - uy * wx};
+    }
+    
+    /** Returns true if a triangle has the input vertex as a corner.
+     * 
+     * @param tri int, triangle index.
+     * @param v int, vertex index.
+     * @return boolean, true if present.
+     */
+    private boolean contains(int tri, int v) {
+        return triangles[3 * tri] == v || triangles[3 * tri + 1] == v || triangles[3 * tri + 2] == v;
+    }
+    
+    /** Creates the candidate collapse of an edge: the point minimising the summed quadric (solving the 3x3 linear
+     * system), or the best of the two ends & the midpoint when the system is singular (flat or straight regions).
+     * 
+     * @param a int, first vertex (survives the collapse).
+     * @param b int, second vertex.
+     * @return Candidate, the collapse & it's error.
+     */
+    private Candidate createCandidate(int a, int b) {
+        double[] q = new double[10];
+        for(int i = 0; i < 10; i++) {
+            q[i] = quadrics[10 * a + i] + quadrics[10 * b + i];
+        }
+        double det = q[0] * (q[4] * q[7] - q[5] * q[5]) - q[1] * (q[1] * q[7] - q[5] * q[2]) 
+                + q[2] * (q[1] * q[5] - q[4] * q[2]);
+        double scale = Math.abs(q[0]) + Math.abs(q[4]) + Math.abs(q[7]);
+        Candidate candidate = new Candidate(a, b, versions[a], versions[b]);
+        if(Math.abs(det) > 1e-10 * scale * scale * scale && scale > 0.0) {
+            double x = -(q[3] * (q[4] * q[7] - q[5] * q[5]) - q[1] * (q[6] * q[7] - q[5] * q[8]) 
+                    + q[2] * (q[6] * q[5] - q[4] * q[8])) / det;
+            double y = -(q[0] * (q[6] * q[7] - q[8] * q[5]) - q[3] * (q[1] * q[7] - q[5] * q[2]) 
+                    + q[2] * (q[1] * q[8] - q[6] * q[2])) / det;
+            double z = -(q[0] * (q[4] * q[8] - q[5] * q[6]) - q[1] * (q[1] * q[8] - q[6] * q[2]) 
+                    + q[3] * (q[1] * q[5] - q[4] * q[2])) / det;
+            candidate.set((float) x, (float) y, (float) z, getError(q, x, y, z));
+            return candidate;
+        }
+        double[][] options = {
+            {xs[a], ys[a], zs[a]}, 
+            {xs[b], ys[b], zs[b]}, 
+            {(xs[a] + xs[b]) / 2.0, (ys[a] + ys[b]) / 2.0, (zs[a] + zs[b]) / 2.0}
+        };
+        candidate.cost = Double.POSITIVE_INFINITY;
+        for(double[] option : options) {
+            double error = getError(q, option[0], option[1], option[2]);
+            if(error < candidate.cost) {
+                candidate.set((float) option[0], (float) option[1], (float) option[2], error);
+            }
+        }
+        return candidate;
+    }
+    
+    /** Evaluates a quadric at a point: [x y z 1] Q [x y z 1]^T.
+     * 
+     * @param q double[], the 10 quadric entries.
+     * @param x double, X.
+     * @param y double, Y.
+     * @param z double, Z.
+     * @return double, squared distance error (never negative).
+     */
+    private static double getError(double[] q, double x, double y, double z) {
+        double error = q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x 
+                + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y 
+                + q[7] * z * z + 2 * q[8] * z + q[9];
+        return Math.max(0.0, error);
+    }
+    
+    /** Computes a triangle's unit plane (nx, ny, nz, d) with n.p + d = 0.
+     * 
+     * @param tri int, triangle index.
+     * @param plane double[], receives the plane.
+     * @return boolean, false for degenerate triangles.
+     */
+    private boolean getPlane(int tri, double[] plane) {
+        int a = triangles[3 * tri], b = triangles[3 * tri + 1], c = triangles[3 * tri + 2];
+        double[] n = getNormal(xs[a], ys[a], zs[a], b, c);
+        double length = Math.sqrt(n[0] * n[0] + n[1] * n[1] + n[2] * n[2]);
+        if(length == 0.0) {
+            return false;
+        }
+        plane[0] = n[0] / length;
+        plane[1] = n[1] / length;
+        plane[2] = n[2] / length;
+        plane[3] = -(plane[0] * xs[a] + plane[1] * ys[a] + plane[2] * zs[a]);
+        return true;
+    }
+    
+    /** Turns a triangle's plane into the plane through boundary edge (a, b) perpendicular to it.
+     * 
+     * @param a int, edge start.
+     * @param b int, edge end.
+     * @param plane double[], triangle plane in, boundary plane out.
+     * @return boolean, false for degenerate edges.
+     */
+    private boolean getBoundaryPlane(int a, int b, double[] plane) {
+        double ex = xs[b] - xs[a], ey = ys[b] - ys[a], ez = zs[b] - zs[a];
+        double nx = ey * plane[2] - ez * plane[1];
+        double ny = ez * plane[0] - ex * plane[2];
+        double nz = ex * plane[1] - ey * plane[0];
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if(length == 0.0) {
+            return false;
+        }
+        plane[0] = nx / length;
+        plane[1] = ny / length;
+        plane[2] = nz / length;
+        plane[3] = -(plane[0] * xs[a] + plane[1] * ys[a] + plane[2] * zs[a]);
+        return true;
+    }
+    
+    /** Adds a weighted plane's quadric to a vertex.
+     * 
+     * @param v int, vertex index.
+     * @param p double[], plane (nx, ny, nz, d).
+     * @param weight double, weight of the plane.
+     */
+    private void addQuadric(int v, double[] p, double weight) {
+        int o = 10 * v;
+        quadrics[o] += weight * p[0] * p[0];
+        quadrics[o + 1] += weight * p[0] * p[1];
+        quadrics[o + 2] += weight * p[0] * p[2];
+        quadrics[o + 3] += weight * p[0] * p[3];
+        quadrics[o + 4] += weight * p[1] * p[1];
+        quadrics[o + 5] += weight * p[1] * p[2];
+        quadrics[o + 6] += weight * p[1] * p[3];
+        quadrics[o + 7] += weight * p[2] * p[2];
+        quadrics[o + 8] += weight * p[2] * p[3];
+        quadrics[o + 9] += weight * p[3] * p[3];
+    }
+    
+    /** Builds the simplified mesh from the live triangles, dropping collapsed vertices.
+     * 
+     * @return IndexedMesh, triangle mesh.
+     */
+    private IndexedMesh toMesh() {
+        int[] remap = new int[xs.length];
+        Arrays.fill(remap, -1);
+        int vertexCount = 0;
+        int[] offsets = new int[liveTriangles + 1];
+        int[] indices = new int[3 * liveTriangles];
+        int t = 0;
+        for(int tri = 0; 3 * tri < triangles.length; tri++) {
+            if(triangles[3 * tri] < 0) {
+                continue;
+            }
+            for(int k = 0; k < 3; k++) {
+                int v = triangles[3 * tri + k];
+                if(remap[v] < 0) {
+                    remap[v] = vertexCount++;
+                }
+                indices[3 * t + k] = remap[v];
+            }
+            offsets[++t] = 3 * t;
+        }
+        float[] x = new float[vertexCount], y = new float[vertexCount], z = new float[vertexCount];
+        for(int v = 0; v < xs.length; v++) {
+            if(remap[v] >= 0) {
+                x[remap[v]] = xs[v];
+                y[remap[v]] = ys[v];
+                z[remap[v]] = zs[v];
+            }
+        }
+        return new IndexedMesh(x, y, z, offsets, indices);
+    }
+    
+    /** A queued edge collapse, ordered by error. */
+    private static class Candidate implements Comparable<Candidate> {
+        
+        /** Surviving & removed vertex. */
+        private final int a, b;
+        
+        /** Vertex versions when the candidate was created. */
+        private final int versionA, versionB;
+        
+        /** Target position. */
+        private float x, y, z;
+        
+        /** Quadric error of the collapse. */
+        private double cost;
+        
+        Candidate(int a, int b, int versionA, int versionB) {
+            this.a = a;
+            this.b = b;
+            this.versionA = versionA;
+            this.versionB = versionB;
+        }
+        
+        /** Sets the target position & error.
+         * 
+         * @param x float, X.
+         * @param y float, Y.
+         * @param z float, Z.
+         * @param cost double, error.
+         */
+        void set(float x, float y, float z, double cost) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+            this.cost = cost;
+        }
+        
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(cost, other.cost);
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,44 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.IndexedMesh;
+
+/** Receives the faces of a subdivision level in batches as they are produced, e.g. so a renderer can show the level 
+ * filling in rather than waiting for the whole Polyhedron. Batches are delivered in order on the subdividing thread.
+ * 
+ * @author M Hillman
+ * @version 1.0 (22/02/2014)
+ */
+public interface FaceBatchListener {
+    
+    /** Called once before the first batch of a level.
+     * 
+     * @param faceCount int, number of faces the level will have.
+     */
+    void levelStarted(int faceCount);
+    
+    /** Called for each batch of finished faces. Only faces <code>from</code> to <code>to</code> (& those of earlier
+     * batches) & the positions of the vertices they use are guaranteed to be final; other vertices may not have been
+     * evaluated yet.
+     * 
+     * @param mesh IndexedMesh holding the level.
+     * @param from int, first face of the batch (inclusive).
+     * @param to int, last face of the batch (exclusive).
+     */
+    void facesProduced(IndexedMesh mesh, int from, int to);
+    
+}
+//End of class.
@@ -0,0 +1,88 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshStorage;
+
+/** A refined mesh whose vertex positions are computed on demand, a range of faces at a time. The connectivity of the
+ * whole level is written up front (it is a copy of the topology's tables), but a vertex is only evaluated the first 
+ * time a face that uses it is asked for, together with whatever intermediate points it depends on. Each vertex is 
+ * evaluated once & to the same value <code>RefinementTopology.evaluate</code> gives it, so once every face has been 
+ * evaluated the mesh is identical to a full evaluation.
+ * 
+ * @author M Hillman
+ * @version 1.0 (22/02/2014)
+ */
+public abstract class IncrementalEvaluation {
+    
+    /** Refined mesh being filled in. */
+    private final IndexedMesh mesh;
+    
+    /** True for each refined vertex whose position has been written. */
+    private final boolean[] evaluated;
+    
+    /** Wraps storage whose faces & indices have already been written.
+     * 
+     * @param storage MeshStorage of the refined level.
+     */
+    protected IncrementalEvaluation(MeshStorage storage) {
+        this.mesh = new IndexedMesh(storage);
+        this.evaluated = new boolean[storage.getVertexCount()];
+    }
+    
+    /** Returns the refined mesh. Only the vertices of faces that have been evaluated hold their final positions.
+     * 
+     * @return IndexedMesh, the refined level.
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+    
+    /** Evaluates every vertex used by a range of refined faces that has not been evaluated yet.
+     * 
+     * @param from int, first refined face (inclusive).
+     * @param to int, last refined face (exclusive).
+     */
+    public void evaluate(int from, int to) {
+        for(int f = from; f < to; f++) {
+            int offset = mesh.getFaceOffset(f);
+            int size = mesh.getFaceSize(f);
+            for(int k = 0; k < size; k++) {
+                require(mesh.getIndex(offset + k));
+            }
+        }
+    }
+    
+    /** Evaluates a refined vertex unless it already has been. Subclasses call this for the points a vertex depends 
+     * on (e.g. the face points around a vertex point) before reading them back from the storage.
+     * 
+     * @param vertex int, refined vertex index.
+     */
+    protected void require(int vertex) {
+        if(!evaluated[vertex]) {
+            compute(vertex);
+            evaluated[vertex] = true;
+        }
+    }
+    
+    /** Computes & writes the position of a single refined vertex.
+     * 
+     * @param vertex int, refined vertex index.
+     */
+    protected abstract void compute(int vertex);
+    
+}
+//End of class.
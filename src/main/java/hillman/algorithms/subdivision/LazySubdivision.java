@@ -0,0 +1,390 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.EdgeMap;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshRegion;
+import hillman.geometries.Polyhedron;
+import hillman.geometries.VertexAdjacency;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** Lazy view of level N of a control mesh, refining only the parts that are asked for. The level is split into 
+ * patches, one per control face, holding that face's descendants. A patch is made by growing the control face by the 
+ * scheme's support rings, refining just that region N times & keeping the faces descended from the control face, 
+ * which come out exactly (bit for bit) as they would from refining the whole mesh. Patches asked for together share 
+ * one region, so the cost of a query grows with the area it covers rather than with the 4^N blow up of the whole 
+ * level.
+ * 
+ * Patches are cached least recently used first, up to a limit on the level N faces they hold. Each patch vertex 
+ * carries a 63 bit key derived from how it was made (control vertex, edge point between two keys or face point of a 
+ * set of keys), independent of any numbering, so patches from different regions are welded back together exactly 
+ * where they share vertices.
+ * 
+ * @author M Hillman
+ * @version 1.0 (15/03/2014)
+ */
+public class LazySubdivision {
+    
+    /** Default limit on the faces held by cached patches. */
+    public static final long DEFAULT_CACHED_FACES = 1L << 20;
+    
+    /** Seeds keeping the keys of control vertices, edge points & face points apart. */
+    private static final long VERTEX_SEED = 0x9E3779B97F4A7C15L, EDGE_SEED = 0xC2B2AE3D27D4EB4FL, 
+            FACE_SEED = 0x165667B19E3779F9L;
+    
+    /** Control mesh. */
+    private final IndexedMesh control;
+    
+    /** Scheme applied. */
+    private final SubdivisionScheme scheme;
+    
+    /** Level viewed. */
+    private final int levels;
+    
+    /** Faces around each control vertex, for growing regions. */
+    private final VertexAdjacency adjacency;
+    
+    /** Cached patches by control face, in access order (eldest first). */
+    private final LinkedHashMap<Integer, Patch> patches = new LinkedHashMap<>(16, 0.75f, true);
+    
+    /** Limit on the faces held by cached patches. */
+    private final long maxCachedFaces;
+    
+    /** Faces held by cached patches. */
+    private long cachedFaces;
+    
+    /** Counters for the statistics. */
+    private long hits, misses, refinedFaces;
+    
+    /** Initialises a view with the default cache limit.
+     * 
+     * @param control IndexedMesh, control mesh (must not change while viewed).
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, level to view.
+     */
+    public LazySubdivision(IndexedMesh control, SubdivisionScheme scheme, int levels) {
+        this(control, scheme, levels, DEFAULT_CACHED_FACES);
+    }
+    
+    /** Initialises a view. Nothing is refined until a patch is asked for.
+     * 
+     * @param control IndexedMesh, control mesh (must not change while viewed).
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, level to view.
+     * @param maxCachedFaces long, limit on the level N faces held by cached patches.
+     */
+    public LazySubdivision(IndexedMesh control, SubdivisionScheme scheme, int levels, long maxCachedFaces) {
+        if(levels < 0) {
+            throw new IllegalArgumentException("Invalid level " + levels);
+        }
+        this.control = control;
+        this.scheme = scheme;
+        this.levels = levels;
+        this.maxCachedFaces = maxCachedFaces;
+        this.adjacency = new VertexAdjacency(control, new EdgeTable(control));
+    }
+    
+    /** Returns the control mesh.
+     * 
+     * @return IndexedMesh, control mesh.
+     */
+    public IndexedMesh getControl() {
+        return control;
+    }
+    
+    /** Returns the level viewed.
+     * 
+     * @return int, level.
+     */
+    public int getLevels() {
+        return levels;
+    }
+    
+    /** Returns the level N faces descended from one control face as a mesh of their own. The mesh is shared with the
+     * cache & must not be changed.
+     * 
+     * @param face int, control face.
+     * @return IndexedMesh, the face's patch.
+     */
+    public synchronized IndexedMesh getPatch(int face) {
+        return getPatches(new int[] {face})[0].mesh;
+    }
+    
+    /** Returns the level N faces descended from a set of control faces as one mesh, patches welded together where 
+     * they meet. Faces come in the order of the control faces given, each patch's faces in the scheme's order.
+     * 
+     * @param faces int[], control faces, each listed once.
+     * @return IndexedMesh, the region at level N.
+     */
+    public synchronized IndexedMesh getRegion(int[] faces) {
+        Patch[] parts = getPatches(faces);
+        int vertexBound = 0, faceCount = 0, indexCount = 0;
+        for(Patch patch : parts) {
+            vertexBound += patch.mesh.getVertexCount();
+            faceCount += patch.mesh.getFaceCount();
+            indexCount += patch.mesh.getIndexCount();
+        }
+        EdgeMap ids = new EdgeMap(vertexBound);
+        int[] vertexIds = new int[vertexBound];
+        float[] xs = new float[vertexBound], ys = new float[vertexBound], zs = new float[vertexBound];
+        int[] offsets = new int[faceCount + 1];
+        int[] indices = new int[indexCount];
+        int vertexCount = 0, face = 0, index = 0;
+        for(Patch patch : parts) {
+            IndexedMesh mesh = patch.mesh;
+            for(int v = 0; v < mesh.getVertexCount(); v++) {
+                int id = ids.putIfAbsent(patch.keys[v], vertexCount);
+                if(id == EdgeMap.MISSING) {
+                    id = vertexCount++;
+                    xs[id] = mesh.getX(v);
+                    ys[id] = mesh.getY(v);
+                    zs[id] = mesh.getZ(v);
+                }
+                vertexIds[v] = id;
+            }
+            for(int f = 0; f < mesh.getFaceCount(); f++) {
+                for(int k = mesh.getFaceOffset(f); k < mesh.getFaceOffset(f + 1); k++) {
+                    indices[index++] = vertexIds[mesh.getIndex(k)];
+                }
+                offsets[++face] = index;
+            }
+        }
+        return new IndexedMesh(Arrays.copyOf(xs, vertexCount), Arrays.copyOf(ys, vertexCount), 
+                Arrays.copyOf(zs, vertexCount), offsets, indices);
+    }
+    
+    /** Returns the level N faces descended from a set of control faces as a Polyhedron.
+     * 
+     * @param faces int[], control faces.
+     * @return Polyhedron, the region at level N.
+     */
+    public Polyhedron toPolyhedron(int[] faces) {
+        return getRegion(faces).toPolyhedron();
+    }
+    
+    /** Drops every cached patch. */
+    public synchronized void clear() {
+        patches.clear();
+        cachedFaces = 0;
+    }
+    
+    /** Returns the number of level N faces held by cached patches.
+     * 
+     * @return long, cached faces.
+     */
+    public synchronized long getCachedFaceCount() {
+        return cachedFaces;
+    }
+    
+    /** Returns the number of level N faces refined so far, including the descendants of the support rings that are 
+     * refined alongside each request & then thrown away.
+     * 
+     * @return long, refined faces.
+     */
+    public synchronized long getRefinedFaceCount() {
+        return refinedFaces;
+    }
+    
+    /** Returns a summary of the cache's use.
+     * 
+     * @return String, statistics.
+     */
+    public synchronized String getStatistics() {
+        return String.format("%s level %d: %d patch hits, %d misses, %d faces cached, %d faces refined", 
+                scheme.getName(), levels, hits, misses, cachedFaces, refinedFaces);
+    }
+    
+    /** Returns the patches of a set of control faces, refining all those not cached in one region.
+     * 
+     * @param faces int[], control faces.
+     * @return Patch[], patch of each face.
+     */
+    private Patch[] getPatches(int[] faces) {
+        Patch[] parts = new Patch[faces.length];
+        int[] missing = new int[faces.length];
+        int missingCount = 0;
+        for(int i = 0; i < faces.length; i++) {
+            if(faces[i] < 0 || faces[i] >= control.getFaceCount()) {
+                throw new IndexOutOfBoundsException("No control face " + faces[i]);
+            }
+            parts[i] = patches.get(faces[i]);
+            if(parts[i] != null) {
+                hits++;
+            } else {
+                missing[missingCount++] = faces[i];
+            }
+        }
+        if(missingCount == 0) {
+            return parts;
+        }
+        missing = Arrays.copyOf(missing, missingCount);
+        Arrays.sort(missing);
+        int distinct = 0;
+        for(int i = 0; i < missingCount; i++) {
+            if(i == 0 || missing[i] != missing[i - 1]) {
+                missing[distinct++] = missing[i];
+            }
+        }
+        missing = Arrays.copyOf(missing, distinct);
+        misses += distinct;
+        Patch[] made = refine(missing);
+        for(int i = 0; i < faces.length; i++) {
+            if(parts[i] == null) {
+                parts[i] = made[Arrays.binarySearch(missing, faces[i])];
+            }
+        }
+        for(Patch patch : made) {
+            patches.put(patch.face, patch);
+            cachedFaces += patch.mesh.getFaceCount();
+        }
+        Iterator<Map.Entry<Integer, Patch>> iterator = patches.entrySet().iterator();
+        while(cachedFaces > maxCachedFaces && iterator.hasNext()) {
+            cachedFaces -= iterator.next().getValue().mesh.getFaceCount();
+            iterator.remove();
+        }
+        return parts;
+    }
+    
+    /** Refines the region supporting a set of control faces & splits the result into their patches.
+     * 
+     * @param faces int[], control faces in ascending order.
+     * @return Patch[], patch of each face.
+     */
+    private Patch[] refine(int[] faces) {
+        MeshRegion region = MeshRegion.extract(control, MeshRegion.grow(control, adjacency, faces, 
+                scheme.getSupportRings(levels)));
+        IndexedMesh mesh = region.getMesh();
+        int[] owners = new int[mesh.getFaceCount()];
+        for(int f = 0; f < owners.length; f++) {
+            owners[f] = Arrays.binarySearch(faces, region.getSourceFace(f));
+        }
+        long[] keys = new long[mesh.getVertexCount()];
+        for(int v = 0; v < keys.length; v++) {
+            keys[v] = mix(VERTEX_SEED + region.getSourceVertex(v));
+        }
+        for(int level = 0; level < levels; level++) {
+            RefinementTopology topology = scheme.buildTopology(mesh);
+            IndexedMesh child = topology.evaluate(mesh, MeshAllocator.HEAP);
+            keys = getChildKeys(mesh, topology, keys);
+            int[] childOwners = new int[child.getFaceCount()];
+            for(int f = 0; f < childOwners.length; f++) {
+                childOwners[f] = owners[topology.getParentFace(f)];
+            }
+            owners = childOwners;
+            mesh = child;
+        }
+        refinedFaces += mesh.getFaceCount();
+        int[] counts = new int[faces.length + 1];
+        for(int owner : owners) {
+            if(owner >= 0) {
+                counts[owner + 1]++;
+            }
+        }
+        for(int i = 0; i < faces.length; i++) {
+            counts[i + 1] += counts[i];
+        }
+        int[] sorted = new int[counts[faces.length]];
+        int[] next = Arrays.copyOf(counts, faces.length);
+        for(int f = 0; f < owners.length; f++) {
+            if(owners[f] >= 0) {
+                sorted[next[owners[f]]++] = f;
+            }
+        }
+        Patch[] made = new Patch[faces.length];
+        for(int i = 0; i < faces.length; i++) {
+            MeshRegion part = MeshRegion.extract(mesh, Arrays.copyOfRange(sorted, counts[i], counts[i + 1]));
+            long[] partKeys = new long[part.getMesh().getVertexCount()];
+            for(int v = 0; v < partKeys.length; v++) {
+                partKeys[v] = keys[part.getSourceVertex(v)];
+            }
+            made[i] = new Patch(faces[i], part.getMesh(), partKeys);
+        }
+        return made;
+    }
+    
+    /** Returns the keys of a refined mesh's vertices, laid out [vertex points | edge points | face points]: a vertex 
+     * point keeps it's parent's key, an edge point mixes it's end keys & a face point it's corner keys, in either case
+     * regardless of order.
+     * 
+     * @param parent IndexedMesh, mesh refined.
+     * @param topology RefinementTopology of the refinement.
+     * @param keys long[], keys of the parent's vertices.
+     * @return long[], keys of the child's vertices.
+     */
+    private static long[] getChildKeys(IndexedMesh parent, RefinementTopology topology, long[] keys) {
+        EdgeTable edges = topology.getEdgeTable();
+        int vertexCount = parent.getVertexCount();
+        int faceCount = parent.getFaceCount();
+        boolean edgePoints = topology.getChildVertexCount() == vertexCount + edges.getEdgeCount() + faceCount;
+        long[] childKeys = Arrays.copyOf(keys, topology.getChildVertexCount());
+        int next = vertexCount;
+        if(edgePoints) {
+            for(int e = 0; e < edges.getEdgeCount(); e++) {
+                long a = keys[edges.getStart(e)];
+                long b = keys[edges.getEnd(e)];
+                childKeys[next++] = mix(mix(EDGE_SEED ^ Math.min(a, b)) + Math.max(a, b));
+            }
+        }
+        for(int f = 0; f < faceCount; f++) {
+            long sum = FACE_SEED;
+            for(int k = parent.getFaceOffset(f); k < parent.getFaceOffset(f + 1); k++) {
+                sum += mix(keys[parent.getIndex(k)]);
+            }
+            childKeys[next++] = mix(sum);
+        }
+        return childKeys;
+    }
+    
+    /** Scrambles a 64 bit value into a non-negative key (the murmur3 finaliser, top bit cleared).
+     * 
+     * @param h long, value to mix.
+     * @return long, mixed key.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE51A858BL;
+        h ^= h >>> 33;
+        return h & Long.MAX_VALUE;
+    }
+    
+    /** The level N faces descended from one control face. */
+    private static class Patch {
+        
+        /** Control face. */
+        private final int face;
+        
+        /** Patch mesh. */
+        private final IndexedMesh mesh;
+        
+        /** Key of each patch vertex. */
+        private final long[] keys;
+        
+        Patch(int face, IndexedMesh mesh, long[] keys) {
+            this.face = face;
+            this.mesh = mesh;
+            this.keys = keys;
+        }
+    }
+    
+}
+//End of class.
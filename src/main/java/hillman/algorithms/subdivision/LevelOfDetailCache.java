@@ -0,0 +1,459 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.Face3D;
+import hillman.geometries.Polyhedron;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/** Level of detail cache holding levels 1..N of any number of control meshes for a single subdivision scheme.
+ * Levels are evicted least-recently-used first once the estimated size of all cached levels exceeds the memory
+ * budget. A request for an evicted level is rebuilt from the nearest cached ancestor rather than from the control
+ * mesh. Control meshes (level 0) belong to the caller & are never held as cache entries.
+ * 
+ * Polyhedrons are tracked by identity, so a level handed out by this cache can be passed back in to 
+ * <code>next</code> or <code>previous</code> to move up or down from it. Once a level has been evicted it is
+ * treated as a new control mesh.
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/02/2014)
+ */
+public class LevelOfDetailCache {
+    
+    /** Default memory budget, a quarter of the maximum heap. */
+    public static final long DEFAULT_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+    
+    /** Rough per-object sizes (in bytes) used to weigh cached levels, based on a 64 bit JVM with compressed oops. */
+    private static final long FACE_BYTES = 16 + 48 + 64;
+    private static final long EDGE_BYTES = 24 + 32;
+    private static final long VERTEX_BYTES = 24;
+    
+    /** Scheme used to build missing levels. */
+    private final SubdivisionScheme scheme;
+    
+    /** Cached levels in access order (eldest first). */
+    private final LinkedHashMap<LevelKey, Level> levels;
+    
+    /** Reverse lookup from a cached Polyhedron to it's key. */
+    private final Map<Polyhedron, LevelKey> index;
+    
+    /** Levels being built, so concurrent requests for the same level wait for one build. */
+    private final Map<LevelKey, FutureTask<Polyhedron>> building;
+    
+    /** Memory budget in bytes. */
+    private long budget;
+    
+    /** Estimated bytes held by all cached levels. */
+    private long usedBytes;
+    
+    /** Initialises an empty cache for the input scheme using the default memory budget.
+     * 
+     * @param scheme SubdivisionScheme used to build levels.
+     */
+    public LevelOfDetailCache(SubdivisionScheme scheme) {
+        this(scheme, DEFAULT_BUDGET);
+    }
+    
+    /** Initialises an empty cache for the input scheme & memory budget.
+     * 
+     * @param scheme SubdivisionScheme used to build levels.
+     * @param budget long, memory budget in bytes.
+     */
+    public LevelOfDetailCache(SubdivisionScheme scheme, long budget) {
+        this.scheme = scheme;
+        this.budget = budget;
+        this.levels = new LinkedHashMap<>(16, 0.75f, true);
+        this.index = new IdentityHashMap<>();
+        this.building = new HashMap<>();
+    }
+    
+    /** Returns the requested level of the input control mesh, straight from the cache if present, otherwise
+     * subdivided from the nearest cached ancestor (caching each level built on the way).
+     * 
+     * @param control Polyhedron, level 0 control mesh.
+     * @param level int, desired level (0 returns the control mesh).
+     * @return Polyhedron, subdivided level.
+     */
+    public Polyhedron getLevel(Polyhedron control, int level) {
+        return getLevel(control, level, null);
+    }
+    
+    /** Returns the requested level of the input control mesh as <code>getLevel(control, level)</code> does, streaming 
+     * the faces of the requested level to the listener if it has to be built. Intermediate levels are built silently
+     * & a level served from the cache, or built by another caller at the same time, is not streamed at all.
+     * 
+     * Levels are built without holding the cache's lock, so other threads can query the cache meanwhile; a level 
+     * already being built by another thread is waited for rather than built twice.
+     * 
+     * @param control Polyhedron, level 0 control mesh.
+     * @param level int, desired level (0 returns the control mesh).
+     * @param listener FaceBatchListener to stream the requested level to (may be null).
+     * @return Polyhedron, subdivided level.
+     */
+    public Polyhedron getLevel(Polyhedron control, int level, FaceBatchListener listener) {
+        if(level < 0) {
+            throw new IllegalArgumentException("Level cannot be negative: " + level);
+        }
+        if(level == 0) {
+            return control;
+        }
+        int ancestor;
+        Polyhedron current = control;
+        synchronized(this) {
+            Level cached = levels.get(new LevelKey(control, level));
+            if(cached != null) {
+                return cached.polyhedron;
+            }
+            ancestor = level - 1;
+            while(ancestor > 0) {
+                Level found = levels.get(new LevelKey(control, ancestor));
+                if(found != null) {
+                    current = found.polyhedron;
+                    break;
+                }
+                ancestor--;
+            }
+        }
+        
+        for(int l = ancestor + 1; l <= level; l++) {
+            LevelKey key = new LevelKey(control, l);
+            FutureTask<Polyhedron> task;
+            boolean owner = false;
+            synchronized(this) {
+                Level cached = levels.get(key);
+                if(cached != null) {
+                    current = cached.polyhedron;
+                    continue;
+                }
+                task = building.get(key);
+                if(task == null) {
+                    task = new FutureTask<>(new Build(current, (l == level) ? listener : null));
+                    building.put(key, task);
+                    owner = true;
+                }
+            }
+            if(owner) {
+                //FutureTask.run captures anything the build throws, for every waiter to rethrow.
+                task.run();
+                long bytes = isBuilt(task) ? estimateBytes(await(task)) : -1L;
+                synchronized(this) {
+                    building.remove(key);
+                    if(bytes >= 0) {
+                        put(key, await(task), bytes);
+                    }
+                }
+            }
+            current = await(task);
+        }
+        return current;
+    }
+    
+    /** Returns true if a build finished without throwing.
+     * 
+     * @param task FutureTask that has run.
+     * @return boolean, true if it produced a level.
+     */
+    private static boolean isBuilt(FutureTask<Polyhedron> task) {
+        try {
+            task.get();
+            return true;
+        } catch(ExecutionException | InterruptedException e) {
+            return false;
+        }
+    }
+    
+    /** Waits for a level being built, rethrowing anything the build threw.
+     * 
+     * @param task FutureTask building the level.
+     * @return Polyhedron, the built level.
+     */
+    private static Polyhedron await(FutureTask<Polyhedron> task) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return task.get();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /** Returns the level above the input polyhedron. If the input was not handed out by this cache it is treated
+     * as a control mesh.
+     * 
+     * @param polyhedron Polyhedron, current level.
+     * @return Polyhedron, next finer level.
+     */
+    public Polyhedron next(Polyhedron polyhedron) {
+        return next(polyhedron, null);
+    }
+    
+    /** Returns the level above the input polyhedron, streaming it's faces to the listener if it has to be built.
+     * 
+     * @param polyhedron Polyhedron, current level.
+     * @param listener FaceBatchListener to stream the new level to (may be null).
+     * @return Polyhedron, next finer level.
+     */
+    public Polyhedron next(Polyhedron polyhedron, FaceBatchListener listener) {
+        LevelKey key;
+        synchronized(this) {
+            key = index.get(polyhedron);
+        }
+        if(key == null) {
+            return getLevel(polyhedron, 1, listener);
+        }
+        return getLevel(key.control, key.level + 1, listener);
+    }
+    
+    /** Returns true if the level above the input polyhedron is cached, i.e. <code>next</code> would not subdivide.
+     * 
+     * @param polyhedron Polyhedron, current level.
+     * @return boolean, true if the next level is cached.
+     */
+    public synchronized boolean containsNext(Polyhedron polyhedron) {
+        LevelKey key = index.get(polyhedron);
+        if(key == null) {
+            return levels.containsKey(new LevelKey(polyhedron, 1));
+        }
+        return levels.containsKey(new LevelKey(key.control, key.level + 1));
+    }
+    
+    /** Returns true if the level below the input polyhedron is at hand, i.e. <code>previous</code> would not 
+     * subdivide.
+     * 
+     * @param polyhedron Polyhedron, current level.
+     * @return boolean, true if the previous level is cached or is the control mesh.
+     */
+    public synchronized boolean containsPrevious(Polyhedron polyhedron) {
+        LevelKey key = index.get(polyhedron);
+        return key == null || key.level == 1 || levels.containsKey(new LevelKey(key.control, key.level - 1));
+    }
+    
+    /** Returns the level below the input polyhedron, or the input itself if it is a control mesh.
+     * 
+     * @param polyhedron Polyhedron, current level.
+     * @return Polyhedron, next coarser level.
+     */
+    public Polyhedron previous(Polyhedron polyhedron) {
+        LevelKey key;
+        synchronized(this) {
+            key = index.get(polyhedron);
+        }
+        if(key == null) {
+            return polyhedron;
+        }
+        return getLevel(key.control, key.level - 1);
+    }
+    
+    /** Returns the level of the input polyhedron, 0 if it was not handed out by this cache.
+     * 
+     * @param polyhedron Polyhedron to look up.
+     * @return int, subdivision level.
+     */
+    public synchronized int getLevelOf(Polyhedron polyhedron) {
+        LevelKey key = index.get(polyhedron);
+        return (key == null) ? 0 : key.level;
+    }
+    
+    /** Overwrites the memory budget, evicting immediately if the cache is now over budget.
+     * 
+     * @param budget long, memory budget in bytes.
+     */
+    public synchronized void setBudget(long budget) {
+        this.budget = budget;
+        evict(null);
+    }
+    
+    /** Returns the memory budget.
+     * 
+     * @return long, budget in bytes.
+     */
+    public synchronized long getBudget() {
+        return budget;
+    }
+    
+    /** Returns the estimated number of bytes currently held.
+     * 
+     * @return long, bytes in use.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    /** Drops every cached level. */
+    public synchronized void clear() {
+        levels.clear();
+        index.clear();
+        usedBytes = 0;
+    }
+    
+    /** Estimates the heap held by a Polyhedron object graph, from it's vertex, edge & face counts.
+     * 
+     * @param polyhedron Polyhedron to weigh.
+     * @return long, estimated size in bytes.
+     */
+    public static long estimateBytes(Polyhedron polyhedron) {
+        long faceEdges = 0;
+        for(Face3D face : polyhedron.getFaceList()) {
+            faceEdges += face.getNumberOfEdges();
+        }
+        return estimateBytes(polyhedron.getNumberOfVertices(), faceEdges, polyhedron.getNumberOfFaces());
+    }
+    
+    /** Estimates the heap a Polyhedron object graph of the given size would hold.
+     * 
+     * @param vertices long, number of vertices.
+     * @param faceEdges long, total number of Edge3D objects over all faces.
+     * @param faces long, number of faces.
+     * @return long, estimated size in bytes.
+     */
+    public static long estimateBytes(long vertices, long faceEdges, long faces) {
+        return faces * FACE_BYTES + faceEdges * EDGE_BYTES + vertices * VERTEX_BYTES;
+    }
+    
+    /** Adds a level to the cache & evicts older levels until back under budget.
+     * 
+     * @param key LevelKey of the new level.
+     * @param polyhedron Polyhedron, the level itself.
+     * @param bytes long, estimated size of the level.
+     */
+    private void put(LevelKey key, Polyhedron polyhedron, long bytes) {
+        Level level = new Level(polyhedron, bytes);
+        levels.put(key, level);
+        index.put(polyhedron, key);
+        usedBytes += level.bytes;
+        evict(key);
+    }
+    
+    /** Evicts least recently used levels until within budget, never evicting the input key.
+     * 
+     * @param keep LevelKey to retain (may be null).
+     */
+    private void evict(LevelKey keep) {
+        Iterator<Map.Entry<LevelKey, Level>> it = levels.entrySet().iterator();
+        while(usedBytes > budget && it.hasNext()) {
+            Map.Entry<LevelKey, Level> eldest = it.next();
+            if(eldest.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            index.remove(eldest.getValue().polyhedron);
+            usedBytes -= eldest.getValue().bytes;
+        }
+    }
+    
+    /** Builds one level from the level below it. */
+    private class Build implements Callable<Polyhedron> {
+        
+        /** Level below the one being built. */
+        private final Polyhedron parent;
+        
+        /** Listener to stream the new level to (may be null). */
+        private final FaceBatchListener listener;
+        
+        /** Initialises a build.
+         * 
+         * @param parent Polyhedron, level below the one being built.
+         * @param listener FaceBatchListener to stream the new level to (may be null).
+         */
+        Build(Polyhedron parent, FaceBatchListener listener) {
+            this.parent = parent;
+            this.listener = listener;
+        }
+        
+        @Override
+        public Polyhedron call() {
+            return (listener == null) ? scheme.refine(parent) : ProgressiveSubdivision.refine(scheme, parent, listener);
+        }
+    }
+    
+    /** Cache key of (control mesh identity, level). */
+    private static class LevelKey {
+        
+        /** Control mesh, compared by identity. */
+        private final Polyhedron control;
+        
+        /** Subdivision level. */
+        private final int level;
+        
+        /** Initialises with the control mesh & level.
+         * 
+         * @param control Polyhedron, level 0 mesh.
+         * @param level int, subdivision level.
+         */
+        LevelKey(Polyhedron control, int level) {
+            this.control = control;
+            this.level = level;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if(obj == null || !(obj instanceof LevelKey)) {
+                return false;
+            }
+            LevelKey key = (LevelKey) obj;
+            return control == key.control && level == key.level;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(control) + level;
+        }
+    }
+    
+    /** A cached level & it's estimated weight. */
+    private static class Level {
+        
+        /** The cached polyhedron. */
+        private final Polyhedron polyhedron;
+        
+        /** Estimated size in bytes. */
+        private final long bytes;
+        
+        /** Initialises with the polyhedron & it's weight.
+         * 
+         * @param polyhedron Polyhedron, cached level.
+         * @param bytes long, estimated size.
+         */
+        Level(Polyhedron polyhedron, long bytes) {
+            this.polyhedron = polyhedron;
+            this.bytes = bytes;
+        }
+    }
+    
+}
+//End of class.
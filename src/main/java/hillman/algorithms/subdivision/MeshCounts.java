@@ -0,0 +1,136 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.EdgeTable;
+import hillman.geometries.Face3D;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.Polyhedron;
+
+/** Immutable element counts of a mesh: vertices, edges, faces & face indices (the sum of the face sizes, i.e. the 
+ * number of face corners). Enough to predict how a subdivision level grows without building it; boundary edges & 
+ * the Euler characteristic follow from the four counts.
+ * 
+ * @author M Hillman
+ * @version 1.0 (24/02/2014)
+ */
+public class MeshCounts {
+    
+    /** Number of vertices. */
+    private final long vertices;
+    
+    /** Number of (undirected) edges. */
+    private final long edges;
+    
+    /** Number of faces. */
+    private final long faces;
+    
+    /** Number of face indices. */
+    private final long indices;
+    
+    /** Creates a set of counts.
+     * 
+     * @param vertices long, number of vertices.
+     * @param edges long, number of edges.
+     * @param faces long, number of faces.
+     * @param indices long, number of face indices.
+     */
+    public MeshCounts(long vertices, long edges, long faces, long indices) {
+        this.vertices = vertices;
+        this.edges = edges;
+        this.faces = faces;
+        this.indices = indices;
+    }
+    
+    /** Counts the elements of a Polyhedron, using it's cached counts.
+     * 
+     * @param polyhedron Polyhedron to count.
+     * @return MeshCounts, the polyhedron's counts.
+     */
+    public static MeshCounts of(Polyhedron polyhedron) {
+        long indices = 0;
+        for(Face3D face : polyhedron.getFaceList()) {
+            indices += face.getNumberOfEdges();
+        }
+        return new MeshCounts(polyhedron.getNumberOfVertices(), polyhedron.getNumberOfEdges(), 
+                polyhedron.getNumberOfFaces(), indices);
+    }
+    
+    /** Counts the elements of an IndexedMesh.
+     * 
+     * @param mesh IndexedMesh to count.
+     * @param edges EdgeTable of the mesh.
+     * @return MeshCounts, the mesh's counts.
+     */
+    public static MeshCounts of(IndexedMesh mesh, EdgeTable edges) {
+        return new MeshCounts(mesh.getVertexCount(), edges.getEdgeCount(), mesh.getFaceCount(), mesh.getIndexCount());
+    }
+    
+    /** Returns the number of vertices.
+     * 
+     * @return long, vertex count.
+     */
+    public long getVertices() {
+        return vertices;
+    }
+    
+    /** Returns the number of edges.
+     * 
+     * @return long, edge count.
+     */
+    public long getEdges() {
+        return edges;
+    }
+    
+    /** Returns the number of faces.
+     * 
+     * @return long, face count.
+     */
+    public long getFaces() {
+        return faces;
+    }
+    
+    /** Returns the number of face indices.
+     * 
+     * @return long, index count.
+     */
+    public long getIndices() {
+        return indices;
+    }
+    
+    /** Returns the number of boundary edges of an edge-manifold mesh: interior edges are used by two face corners &
+     * boundary edges by one, so indices = 2E - B.
+     * 
+     * @return long, boundary edge count.
+     */
+    public long getBoundaryEdges() {
+        return Math.max(0, 2 * edges - indices);
+    }
+    
+    /** Returns the Euler characteristic V - E + F, which subdivision leaves unchanged.
+     * 
+     * @return long, Euler characteristic.
+     */
+    public long getEulerCharacteristic() {
+        return vertices - edges + faces;
+    }
+    
+    @Override
+    public String toString() {
+        return "V=" + vertices + ", E=" + edges + ", F=" + faces;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,88 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshArena;
+import hillman.geometries.spatial.MortonOrder;
+
+/** Runs several levels of subdivision with every level held off-heap. Each intermediate level lives in it's own 
+ * MeshArena, which is closed (freeing it's memory immediately) as soon as the next level has been built, so at most
+ * two levels are resident at once & none of them are seen by the garbage collector. If a level fails, every 
+ * intermediate arena is closed before the exception is passed on. When reordering is enabled 
+ * (see <code>SubdivisionKernels</code>) each level is put in Morton order before it is refined.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public class OffHeapSubdivision {
+    
+    /** Subdivides the input mesh by the requested number of levels. The final level is allocated from the caller's 
+     * arena & stays valid until that arena is closed.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param mesh IndexedMesh, control mesh (left untouched).
+     * @param levels int, number of levels.
+     * @param result MeshArena to hold the final level.
+     * @return IndexedMesh, the final level.
+     */
+    public static IndexedMesh refine(SubdivisionScheme scheme, IndexedMesh mesh, int levels, MeshArena result) {
+        boolean reorder = SubdivisionKernels.isReorderingEnabled();
+        IndexedMesh current = reorder ? MortonOrder.reorder(mesh, MeshAllocator.HEAP) : mesh;
+        MeshArena previous = null;
+        MeshArena arena = null;
+        MeshArena ordered = null;
+        try {
+            for(int level = 1; level <= levels; level++) {
+                arena = (level == levels) ? result : new MeshArena();
+                IndexedMesh next = scheme.refine(current, arena);
+                if(reorder && level < levels) {
+                    //Reorder into a fresh arena & free the unordered copy straight away.
+                    ordered = new MeshArena();
+                    next = MortonOrder.reorder(next, ordered);
+                    arena.close();
+                    arena = ordered;
+                    ordered = null;
+                }
+                if(previous != null) {
+                    previous.close();
+                }
+                previous = (arena == result) ? null : arena;
+                arena = null;
+                current = next;
+            }
+        } finally {
+            //Only set if a level failed part way; the caller's arena is theirs to close.
+            close(previous, result);
+            close(arena, result);
+            close(ordered, result);
+        }
+        return current;
+    }
+    
+    /** Closes an intermediate arena, unless it is absent or is the caller's result arena.
+     * 
+     * @param arena MeshArena to close (may be null).
+     * @param result MeshArena holding the caller's final level, which is never closed here.
+     */
+    private static void close(MeshArena arena, MeshArena result) {
+        if(arena != null && arena != result) {
+            arena.close();
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,104 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.Face3D;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.Polyhedron;
+import hillman.geometries.Vertex3D;
+import hillman.geometries.spatial.MortonOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Performs one level of subdivision while handing the new faces to a <code>FaceBatchListener</code> a batch at a 
+ * time. The level's connectivity is written up front, then it's vertices are evaluated (see 
+ * <code>IncrementalEvaluation</code>) & converted to Face3D objects batch by batch, so the listener sees each batch 
+ * once the points it uses have been computed rather than after the whole level, & no second copy of the level is built
+ * for it. Meshes the indexed path cannot refine fall back to the scheme's own <code>refine</code>, delivered as a 
+ * single batch.
+ * 
+ * With reordering enabled (see <code>SubdivisionKernels</code>) the level is put in Morton order first, so each batch
+ * covers a compact region of the surface.
+ * 
+ * @author M Hillman
+ * @version 1.0 (22/02/2014)
+ */
+public class ProgressiveSubdivision {
+    
+    /** Default number of faces per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    
+    /** Performs one level of subdivision in batches of <code>DEFAULT_BATCH_SIZE</code> faces.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param polyhedron Polyhedron to subdivide.
+     * @param listener FaceBatchListener to notify.
+     * @return Polyhedron, next level of subdivision.
+     */
+    public static Polyhedron refine(SubdivisionScheme scheme, Polyhedron polyhedron, FaceBatchListener listener) {
+        return refine(scheme, polyhedron, listener, DEFAULT_BATCH_SIZE);
+    }
+    
+    /** Performs one level of subdivision, notifying the listener after every <code>batchSize</code> faces.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param polyhedron Polyhedron to subdivide.
+     * @param listener FaceBatchListener to notify.
+     * @param batchSize int, faces per batch.
+     * @return Polyhedron, next level of subdivision.
+     */
+    public static Polyhedron refine(SubdivisionScheme scheme, Polyhedron polyhedron, FaceBatchListener listener, 
+            int batchSize) {
+        if(batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        }
+        IndexedMesh mesh = IndexedMesh.fromPolyhedron(polyhedron);
+        if(SubdivisionKernels.isReorderingEnabled()) {
+            mesh = MortonOrder.reorder(mesh, MeshAllocator.HEAP);
+        }
+        RefinementTopology topology = null;
+        if(SubdivisionKernels.isEnabled()) {
+            try {
+                topology = scheme.buildTopology(mesh);
+            } catch(IllegalArgumentException e) {
+                topology = null;
+            }
+        }
+        if(topology == null) {
+            Polyhedron result = scheme.refine(polyhedron);
+            IndexedMesh child = IndexedMesh.fromPolyhedron(result);
+            listener.levelStarted(child.getFaceCount());
+            listener.facesProduced(child, 0, child.getFaceCount());
+            return result;
+        }
+        
+        IncrementalEvaluation evaluation = topology.beginEvaluation(mesh, MeshAllocator.HEAP);
+        IndexedMesh child = evaluation.getMesh();
+        int faceCount = child.getFaceCount();
+        listener.levelStarted(faceCount);
+        Vertex3D[] vertices = new Vertex3D[child.getVertexCount()];
+        List<Face3D> faces = new ArrayList<>(faceCount);
+        for(int from = 0; from < faceCount; from += batchSize) {
+            int to = Math.min(faceCount, from + batchSize);
+            evaluation.evaluate(from, to);
+            child.toFaces(vertices, from, to, faces);
+            listener.facesProduced(child, from, to);
+        }
+        return new Polyhedron(faces);
+    }
+    
+}
+//End of class.
@@ -0,0 +1,91 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+
+/** The connectivity half of one level of subdivision: everything about the next level that depends only on the 
+ * control mesh's topology (child faces, parent to child vertex maps, valences & the stencil weights they imply). 
+ * Building a topology is the expensive part of refinement; once built it can evaluate any number of meshes that 
+ * share the control mesh's connectivity but have different vertex positions, doing only the geometric work.
+ * 
+ * @author M Hillman
+ * @version 1.0 (20/02/2014)
+ */
+public interface RefinementTopology {
+    
+    /** Returns the number of vertices the control mesh must have.
+     * 
+     * @return int, parent vertex count.
+     */
+    int getParentVertexCount();
+    
+    /** Returns the number of faces the control mesh must have.
+     * 
+     * @return int, parent face count.
+     */
+    int getParentFaceCount();
+    
+    /** Returns the number of vertices in the refined mesh.
+     * 
+     * @return int, child vertex count.
+     */
+    int getChildVertexCount();
+    
+    /** Returns the number of faces in the refined mesh.
+     * 
+     * @return int, child face count.
+     */
+    int getChildFaceCount();
+    
+    /** Returns the control face a refined face was produced from.
+     * 
+     * @param childFace int, refined face index.
+     * @return int, parent face index.
+     */
+    int getParentFace(int childFace);
+    
+    /** Returns the edge table of the control mesh. Refined vertices are laid out as [vertex points | edge points | 
+     * face points], the edge points (if the scheme has any) in the order of this table.
+     * 
+     * @return EdgeTable, control edges.
+     */
+    EdgeTable getEdgeTable();
+    
+    /** Evaluates the refined mesh for a control mesh with this topology, i.e. the mesh this topology was built from 
+     * or any mesh with identical faces & new positions.
+     * 
+     * @param parent IndexedMesh, control mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, the refined mesh.
+     * @throws IllegalArgumentException if the mesh does not match this topology.
+     */
+    IndexedMesh evaluate(IndexedMesh parent, MeshAllocator allocator);
+    
+    /** Starts evaluating the refined mesh for a control mesh with this topology a range of faces at a time, so the 
+     * first faces can be used before the rest of the level has been computed. Storage for the whole level is 
+     * allocated & it's connectivity written straight away; positions are filled in by the returned evaluation.
+     * 
+     * @param parent IndexedMesh, control mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return IncrementalEvaluation, the refined mesh with no positions evaluated yet.
+     * @throws IllegalArgumentException if the mesh does not match this topology.
+     */
+    IncrementalEvaluation beginEvaluation(IndexedMesh parent, MeshAllocator allocator);
+    
+}
+//End of class.
@@ -0,0 +1,55 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+/** Where the levels of a subdivision are held, from the most to the least heap hungry. Each backend can estimate the
+ * bytes a mesh of given counts occupies in it.
+ * 
+ * @author M Hillman
+ * @version 1.0 (24/02/2014)
+ */
+public enum StorageBackend {
+    
+    /** Polyhedron / Face3D / Edge3D / Vertex3D objects, as drawn by <code>DrawingFrame</code>. */
+    OBJECT_GRAPH,
+    
+    /** Struct of arrays <code>IndexedMesh</code> on the heap. */
+    INDEXED_HEAP,
+    
+    /** Struct of arrays <code>IndexedMesh</code> in a <code>MeshArena</code>, outside the heap. */
+    OFF_HEAP;
+    
+    /** Estimates the bytes a mesh with the input counts occupies in this backend.
+     * 
+     * @param counts MeshCounts of the mesh.
+     * @return long, estimated size in bytes.
+     */
+    public long estimateBytes(MeshCounts counts) {
+        if(this == OBJECT_GRAPH) {
+            return LevelOfDetailCache.estimateBytes(counts.getVertices(), counts.getIndices(), counts.getFaces());
+        }
+        return 12 * counts.getVertices() + 4 * (counts.getFaces() + 1) + 4 * counts.getIndices();
+    }
+    
+    /** Returns true if meshes in this backend live on the heap.
+     * 
+     * @return boolean, true for heap backends.
+     */
+    public boolean isHeap() {
+        return this != OFF_HEAP;
+    }
+    
+}
+//End of class.
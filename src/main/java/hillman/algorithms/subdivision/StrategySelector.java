@@ -0,0 +1,602 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.algorithms.subdivision.distributed.ParallelSubdivision;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.IndexedMeshFactory;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshArena;
+import hillman.geometries.io.ObjFormat;
+import hillman.geometries.spatial.MortonOrder;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Picks how to run each subdivision call on this machine: sequentially, partitioned across a fork/join pool 
+ * (ParallelSubdivision) or out of core, in off-heap arenas (OffHeapSubdivision).
+ * 
+ * Memory decides first: every call is planned by a SubdivisionPlanner for heap arrays, & one the planner downgrades 
+ * to off-heap storage runs out of core. Otherwise each level runs on the fork/join pool if it's input has at least 
+ * the scheme's crossover face count & sequentially if not, since cutting out halos & stitching parts costs more than 
+ * it saves on small meshes such as the PolyhedronFactory cubes.
+ * 
+ * The crossover is measured for each scheme on first use, by timing one level of both strategies on random closed 
+ * triangulations of doubling size until the pool is reliably faster. Measuring takes seconds, so it runs without 
+ * holding the selector's lock; calls for other schemes carry on & calls for the same scheme wait for the one 
+ * measurement. Crossovers are kept in memory, & also in a calibration file (a properties file keyed by scheme name) 
+ * if one is given or named by the "hillman.subdivision.calibration" system property, so later runs start 
+ * calibrated. A file written for a different pool size is measured again. The choices made are counted in 
+ * <code>getMetrics</code> & recorded on every level's SubdivisionLevelEvent.
+ * 
+ * @author M Hillman
+ * @version 1.0 (16/03/2014)
+ */
+public class StrategySelector {
+    
+    /** Ways of running a subdivision call. */
+    public enum Strategy { SEQUENTIAL, FORK_JOIN, OUT_OF_CORE }
+    
+    /** Crossover meaning the fork/join pool never wins. */
+    public static final long NEVER = Long.MAX_VALUE;
+    
+    /** Calibration file named by the "hillman.subdivision.calibration" system property, or null if it is not set, 
+     * in which case crossovers are only kept in memory. */
+    public static final Path DEFAULT_CALIBRATION = (System.getProperty("hillman.subdivision.calibration") == null) 
+            ? null : Paths.get(System.getProperty("hillman.subdivision.calibration"));
+    
+    /** Calibration file key holding the pool size the crossovers were measured with. */
+    private static final String PARALLELISM_KEY = "parallelism";
+    
+    /** Suffix of the calibration file keys holding each scheme's crossover. */
+    private static final String CROSSOVER_SUFFIX = ".crossover";
+    
+    /** Faces of the smallest & largest calibration inputs. */
+    private static final int MIN_CALIBRATION_FACES = 1 << 13, MAX_CALIBRATION_FACES = 1 << 18;
+    
+    /** Untimed runs per calibration input, to let the JIT compile the hot loops. */
+    private static final int WARMUP_RUNS = 1;
+    
+    /** Timed runs per calibration input; the fastest is used, being the least disturbed by GC & other processes. */
+    private static final int TIMED_RUNS = 3;
+    
+    /** Speed up the pool must reach on two inputs in a row before it is chosen, so noise cannot pick it. */
+    private static final double MIN_SPEEDUP = 1.2;
+    
+    /** Seed of the calibration inputs. */
+    private static final long CALIBRATION_SEED = 42L;
+    
+    /** File the crossovers are loaded from & saved to, or null to measure every run. */
+    private final Path calibrationFile;
+    
+    /** Guards reading & rewriting the calibration file. */
+    private final Object fileLock = new Object();
+    
+    /** Admission control deciding between heap & off-heap storage. */
+    private final SubdivisionPlanner planner;
+    
+    /** Crossover of each scheme being measured, measured or loaded, by scheme name. */
+    private final Map<String, FutureTask<Long>> crossovers = new HashMap<>();
+    
+    /** Calls & levels run with each strategy. */
+    private final AtomicLong[] calls = new AtomicLong[Strategy.values().length], 
+            levels = new AtomicLong[Strategy.values().length];
+    
+    /** Faces produced & time spent by each strategy. */
+    private final AtomicLong[] faces = new AtomicLong[Strategy.values().length], 
+            nanos = new AtomicLong[Strategy.values().length];
+    
+    /** Initialises a selector using the default calibration file (if any) & planner. */
+    public StrategySelector() {
+        this(DEFAULT_CALIBRATION, new SubdivisionPlanner());
+    }
+    
+    /** Initialises a selector.
+     * 
+     * @param calibrationFile Path the crossovers are loaded from & saved to, or null to measure them every run.
+     * @param planner SubdivisionPlanner deciding between heap & off-heap storage.
+     */
+    public StrategySelector(Path calibrationFile, SubdivisionPlanner planner) {
+        this.calibrationFile = calibrationFile;
+        this.planner = planner;
+        for(int s = 0; s < calls.length; s++) {
+            calls[s] = new AtomicLong();
+            levels[s] = new AtomicLong();
+            faces[s] = new AtomicLong();
+            nanos[s] = new AtomicLong();
+        }
+    }
+    
+    /** Returns the face count from which a scheme's levels run on the fork/join pool, loading it from the 
+     * calibration file or measuring (& saving) it first if need be. A scheme being measured by another thread is 
+     * waited for rather than measured twice.
+     * 
+     * @param scheme SubdivisionScheme to look up.
+     * @return long, crossover face count, or NEVER.
+     */
+    public long getCrossover(final SubdivisionScheme scheme) {
+        FutureTask<Long> task;
+        boolean owner = false;
+        synchronized(this) {
+            task = crossovers.get(scheme.getName());
+            if(task == null) {
+                task = new FutureTask<>(new Callable<Long>() {
+                    @Override
+                    public Long call() {
+                        return loadOrCalibrate(scheme);
+                    }
+                });
+                crossovers.put(scheme.getName(), task);
+                owner = true;
+            }
+        }
+        if(owner) {
+            task.run();
+        }
+        try {
+            return getDone(task);
+        } catch(RuntimeException | Error e) {
+            //Let the next call measure again rather than failing forever.
+            synchronized(this) {
+                if(crossovers.get(scheme.getName()) == task) {
+                    crossovers.remove(scheme.getName());
+                }
+            }
+            throw e;
+        }
+    }
+    
+    /** Sets a scheme's crossover for this selector, skipping calibration. The calibration file is left untouched.
+     * 
+     * @param scheme SubdivisionScheme to set.
+     * @param crossover long, face count from which levels run on the fork/join pool, or NEVER.
+     */
+    public synchronized void setCrossover(SubdivisionScheme scheme, final long crossover) {
+        FutureTask<Long> task = new FutureTask<>(new Callable<Long>() {
+            @Override
+            public Long call() {
+                return crossover;
+            }
+        });
+        task.run();
+        crossovers.put(scheme.getName(), task);
+    }
+    
+    /** Loads a scheme's crossover from the calibration file, or measures it & adds it to the file.
+     * 
+     * @param scheme SubdivisionScheme to look up.
+     * @return long, crossover face count, or NEVER.
+     */
+    private long loadOrCalibrate(SubdivisionScheme scheme) {
+        String parallelism = String.valueOf(ParallelSubdivision.getSharedParallelism());
+        synchronized(fileLock) {
+            Properties calibration = load();
+            String value = calibration.getProperty(getKey(scheme));
+            if(value != null && parallelism.equals(calibration.getProperty(PARALLELISM_KEY))) {
+                return Long.parseLong(value);
+            }
+        }
+        long crossover = calibrate(scheme);
+        synchronized(fileLock) {
+            //Re-read, as other schemes may have been saved meanwhile; crossovers for another pool size are dropped.
+            Properties calibration = load();
+            if(!parallelism.equals(calibration.getProperty(PARALLELISM_KEY))) {
+                calibration.clear();
+            }
+            calibration.setProperty(PARALLELISM_KEY, parallelism);
+            calibration.setProperty(getKey(scheme), String.valueOf(crossover));
+            save(calibration);
+        }
+        return crossover;
+    }
+    
+    /** Waits for a crossover, rethrowing anything measuring it threw.
+     * 
+     * @param task FutureTask holding the crossover.
+     * @return long, crossover face count, or NEVER.
+     */
+    private static long getDone(FutureTask<Long> task) {
+        boolean interrupted = false;
+        try {
+            while(true) {
+                try {
+                    return task.get();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if(cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        } finally {
+            if(interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /** Measures a scheme's crossover: the smallest input of a doubling series on which the fork/join pool beats the 
+     * sequential path by MIN_SPEEDUP, as does the next input.
+     * 
+     * @param scheme SubdivisionScheme to measure.
+     * @return long, crossover face count, or NEVER if the pool never wins on two inputs in a row (or there is only 
+     * one thread).
+     */
+    public long calibrate(SubdivisionScheme scheme) {
+        ParallelSubdivision parallel = new ParallelSubdivision(scheme);
+        if(parallel.getParallelism() < 2) {
+            return NEVER;
+        }
+        long candidate = NEVER;
+        for(int target = MIN_CALIBRATION_FACES; target <= MAX_CALIBRATION_FACES; target *= 2) {
+            //A random triangulation of an n x n lattice has 2n^2 faces & suits every scheme.
+            int n = (int) Math.round(Math.sqrt(target / 2.0));
+            IndexedMesh input = IndexedMeshFactory.randomTriangulation(n, n, CALIBRATION_SEED);
+            long sequential = time(scheme, null, input);
+            long forkJoin = time(scheme, parallel, input);
+            if(sequential >= MIN_SPEEDUP * forkJoin) {
+                if(candidate != NEVER) {
+                    return candidate;
+                }
+                candidate = input.getFaceCount();
+            } else {
+                candidate = NEVER;
+            }
+        }
+        //A win on the largest input alone is not confirmed.
+        return NEVER;
+    }
+    
+    /** Times one level of a calibration input.
+     * 
+     * @param scheme SubdivisionScheme to refine with.
+     * @param parallel ParallelSubdivision to refine with, or null for the sequential path.
+     * @param input IndexedMesh to refine.
+     * @return long, fastest time in nanoseconds.
+     */
+    private static long time(SubdivisionScheme scheme, ParallelSubdivision parallel, IndexedMesh input) {
+        long best = Long.MAX_VALUE;
+        for(int run = 0; run < WARMUP_RUNS + TIMED_RUNS; run++) {
+            long start = System.nanoTime();
+            if(parallel == null) {
+                scheme.refine(input, MeshAllocator.HEAP);
+            } else {
+                parallel.refine(input, MeshAllocator.HEAP);
+            }
+            long elapsed = System.nanoTime() - start;
+            if(run >= WARMUP_RUNS) {
+                best = Math.min(best, elapsed);
+            }
+        }
+        return best;
+    }
+    
+    /** Chooses the strategy of a call without running it.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param mesh IndexedMesh, control mesh.
+     * @param levelCount int, number of levels.
+     * @return Strategy the call would run with: OUT_OF_CORE if it only fits off-heap, FORK_JOIN if any level 
+     * reaches the crossover, otherwise SEQUENTIAL.
+     * @throws IllegalStateException if the result would not fit in memory at all.
+     */
+    public Strategy select(SubdivisionScheme scheme, IndexedMesh mesh, int levelCount) {
+        SubdivisionPlan plan = plan(scheme, mesh, levelCount);
+        if(!plan.getBackend().isHeap()) {
+            return Strategy.OUT_OF_CORE;
+        }
+        long crossover = getCrossover(scheme);
+        for(int level = 0; level < levelCount; level++) {
+            if(plan.getLevels().get(level).getFaces() >= crossover) {
+                return Strategy.FORK_JOIN;
+            }
+        }
+        return Strategy.SEQUENTIAL;
+    }
+    
+    /** Plans a call on heap arrays.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param mesh IndexedMesh, control mesh.
+     * @param levelCount int, number of levels.
+     * @return SubdivisionPlan, admitted on heap arrays or downgraded to off-heap arenas.
+     * @throws IllegalStateException if the result would not fit in memory at all.
+     */
+    private SubdivisionPlan plan(SubdivisionScheme scheme, IndexedMesh mesh, int levelCount) {
+        SubdivisionPlan plan = planner.plan(MeshCounts.of(mesh, new EdgeTable(mesh)), scheme, levelCount, 
+                StorageBackend.INDEXED_HEAP);
+        if(!plan.isAdmitted()) {
+            throw new IllegalStateException(plan.toString());
+        }
+        return plan;
+    }
+    
+    /** Subdivides a mesh with the strategy this machine runs it fastest with. The control mesh is left untouched.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param mesh IndexedMesh, control mesh.
+     * @param levelCount int, number of levels.
+     * @return Execution holding the result, which must be closed once the result is no longer needed.
+     * @throws IllegalStateException if the result would not fit in memory at all.
+     */
+    public Execution refine(SubdivisionScheme scheme, IndexedMesh mesh, int levelCount) {
+        SubdivisionPlan plan = plan(scheme, mesh, levelCount);
+        long start = System.nanoTime();
+        if(!plan.getBackend().isHeap()) {
+            SubdivisionLevelEvent event = new SubdivisionLevelEvent(scheme.getName(), levelCount, mesh.getFaceCount());
+            event.setStrategy(Strategy.OUT_OF_CORE);
+            event.begin();
+            MeshArena arena = new MeshArena();
+            IndexedMesh result;
+            try {
+                result = OffHeapSubdivision.refine(scheme, mesh, levelCount, arena);
+            } catch(RuntimeException | Error e) {
+                arena.close();
+                throw e;
+            }
+            event.setOutputFaces(result.getFaceCount());
+            event.commit();
+            return finish(Strategy.OUT_OF_CORE, levelCount, result, start, arena);
+        }
+        
+        long crossover = getCrossover(scheme);
+        ParallelSubdivision parallel = new ParallelSubdivision(scheme);
+        boolean reorder = SubdivisionKernels.isReorderingEnabled();
+        Strategy strategy = Strategy.SEQUENTIAL;
+        IndexedMesh current = mesh;
+        for(int level = 0; level < levelCount; level++) {
+            Strategy levelStrategy = (current.getFaceCount() >= crossover) ? Strategy.FORK_JOIN : Strategy.SEQUENTIAL;
+            SubdivisionLevelEvent event = new SubdivisionLevelEvent(scheme.getName(), level + 1, 
+                    current.getFaceCount());
+            event.setStrategy(levelStrategy);
+            event.begin();
+            if(reorder) {
+                current = MortonOrder.reorder(current, MeshAllocator.HEAP);
+            }
+            if(levelStrategy == Strategy.FORK_JOIN) {
+                current = parallel.refine(current, MeshAllocator.HEAP);
+                strategy = Strategy.FORK_JOIN;
+            } else {
+                current = scheme.refine(current, MeshAllocator.HEAP);
+            }
+            event.setOutputFaces(current.getFaceCount());
+            event.commit();
+            levels[levelStrategy.ordinal()].incrementAndGet();
+        }
+        return finish(strategy, 0, current, start, null);
+    }
+    
+    /** Counts a finished call.
+     * 
+     * @param strategy Strategy of the call.
+     * @param levelCount int, levels to count against the strategy (those not already counted).
+     * @param result IndexedMesh, the result.
+     * @param start long, System.nanoTime() the call started.
+     * @param arena MeshArena holding the result, or null if it is on the heap.
+     * @return Execution, the finished call.
+     */
+    private Execution finish(Strategy strategy, int levelCount, IndexedMesh result, long start, MeshArena arena) {
+        long elapsed = System.nanoTime() - start;
+        calls[strategy.ordinal()].incrementAndGet();
+        levels[strategy.ordinal()].addAndGet(levelCount);
+        faces[strategy.ordinal()].addAndGet(result.getFaceCount());
+        nanos[strategy.ordinal()].addAndGet(elapsed);
+        return new Execution(result, strategy, elapsed, arena);
+    }
+    
+    /** Returns the number of calls that ran with a strategy.
+     * 
+     * @param strategy Strategy to count.
+     * @return long, calls.
+     */
+    public long getCalls(Strategy strategy) {
+        return calls[strategy.ordinal()].get();
+    }
+    
+    /** Returns the number of levels that ran with a strategy. A fork/join call runs it's small levels sequentially.
+     * 
+     * @param strategy Strategy to count.
+     * @return long, levels.
+     */
+    public long getLevels(Strategy strategy) {
+        return levels[strategy.ordinal()].get();
+    }
+    
+    /** Returns the choices made so far & the crossovers in use.
+     * 
+     * @return String, human readable metrics.
+     */
+    public String getMetrics() {
+        StringBuilder builder = new StringBuilder();
+        for(Strategy strategy : Strategy.values()) {
+            int s = strategy.ordinal();
+            builder.append(strategy.name().toLowerCase()).append(": ").append(calls[s].get()).append(" calls, ")
+                    .append(levels[s].get()).append(" levels, ").append(faces[s].get()).append(" faces out, ")
+                    .append(nanos[s].get() / 1000000L).append("ms\n");
+        }
+        builder.append("Crossovers (").append(ParallelSubdivision.getSharedParallelism()).append(" threads):");
+        synchronized(this) {
+            for(Map.Entry<String, FutureTask<Long>> entry : crossovers.entrySet()) {
+                builder.append(' ').append(entry.getKey()).append('=');
+                if(!entry.getValue().isDone()) {
+                    builder.append("measuring");
+                } else {
+                    try {
+                        long crossover = getDone(entry.getValue());
+                        builder.append(crossover == NEVER ? "never" : String.valueOf(crossover));
+                    } catch(RuntimeException | Error e) {
+                        builder.append("failed");
+                    }
+                }
+            }
+        }
+        return builder.toString();
+    }
+    
+    /** Returns the calibration file key of a scheme's crossover.
+     * 
+     * @param scheme SubdivisionScheme to look up.
+     * @return String, key.
+     */
+    private static String getKey(SubdivisionScheme scheme) {
+        return scheme.getName().replace(' ', '_') + CROSSOVER_SUFFIX;
+    }
+    
+    /** Loads the calibration file. A missing or unreadable file is treated as empty.
+     * 
+     * @return Properties, the calibration so far.
+     */
+    private Properties load() {
+        Properties calibration = new Properties();
+        if(calibrationFile != null && Files.isRegularFile(calibrationFile)) {
+            try(InputStream in = Files.newInputStream(calibrationFile)) {
+                calibration.load(in);
+            } catch(IOException | IllegalArgumentException e) {
+                System.err.println("Ignoring unreadable calibration " + calibrationFile + ": " + e);
+                calibration.clear();
+            }
+        }
+        return calibration;
+    }
+    
+    /** Saves the calibration file, reporting but otherwise ignoring failure as the crossovers are still held here.
+     * 
+     * @param calibration Properties to save.
+     */
+    private void save(Properties calibration) {
+        if(calibrationFile == null) {
+            return;
+        }
+        try {
+            if(calibrationFile.getParent() != null) {
+                Files.createDirectories(calibrationFile.getParent());
+            }
+            Path temporary = calibrationFile.resolveSibling(calibrationFile.getFileName() + ".tmp");
+            try(OutputStream out = Files.newOutputStream(temporary)) {
+                calibration.store(out, "Subdivision strategy crossovers, in input faces");
+            }
+            Files.move(temporary, calibrationFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch(IOException e) {
+            System.err.println("Could not save calibration " + calibrationFile + ": " + e);
+        }
+    }
+    
+    /** A finished subdivision call: it's result & how it was run. */
+    public static class Execution implements Closeable {
+        
+        /** The subdivided mesh. */
+        private final IndexedMesh mesh;
+        
+        /** Strategy the call ran with. */
+        private final Strategy strategy;
+        
+        /** Time taken. */
+        private final long nanos;
+        
+        /** Arena holding the result, or null if it is on the heap. */
+        private MeshArena arena;
+        
+        /** Creates an execution.
+         * 
+         * @param mesh IndexedMesh, the result.
+         * @param strategy Strategy the call ran with.
+         * @param nanos long, time taken.
+         * @param arena MeshArena holding the result, or null.
+         */
+        Execution(IndexedMesh mesh, Strategy strategy, long nanos, MeshArena arena) {
+            this.mesh = mesh;
+            this.strategy = strategy;
+            this.nanos = nanos;
+            this.arena = arena;
+        }
+        
+        /** Returns the subdivided mesh, valid until the execution is closed.
+         * 
+         * @return IndexedMesh, the result.
+         */
+        public IndexedMesh getMesh() {
+            return mesh;
+        }
+        
+        /** Returns the strategy the call ran with.
+         * 
+         * @return Strategy chosen.
+         */
+        public Strategy getStrategy() {
+            return strategy;
+        }
+        
+        /** Returns the time the call took.
+         * 
+         * @return long, nanoseconds.
+         */
+        public long getNanos() {
+            return nanos;
+        }
+        
+        /** Frees the result's off-heap memory, if it has any. */
+        @Override
+        public void close() {
+            if(arena != null) {
+                arena.close();
+                arena = null;
+            }
+        }
+    }
+    
+    /** Subdivides an OBJ file with the strategy chosen for it & prints the choice.
+     * 
+     * @param args String[], input file, output file, scheme, levels & optional calibration file (defaults to the 
+     * "hillman.subdivision.calibration" system property, if set).
+     * @throws IOException if the mesh cannot be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 4) {
+            System.err.println("Usage: StrategySelector <input.obj> <output.obj> <scheme> <levels> [calibration file]");
+            System.exit(1);
+        }
+        StrategySelector selector = new StrategySelector((args.length > 4) ? Paths.get(args[4]) : DEFAULT_CALIBRATION,
+                new SubdivisionPlanner());
+        IndexedMesh mesh = ObjFormat.read(Paths.get(args[0]));
+        try(Execution execution = selector.refine(SubdivisionSchemeFactory.getScheme(args[2]), mesh, 
+                Integer.parseInt(args[3]))) {
+            ObjFormat.write(execution.getMesh(), Paths.get(args[1]));
+            System.out.println("Refined " + mesh.getFaceCount() + " faces to " + execution.getMesh().getFaceCount() 
+                    + " faces " + execution.getStrategy() + " in " + execution.getNanos() / 1000000L + "ms");
+        }
+        System.out.println(selector.getMetrics());
+    }
+    
+}
+//End of class.
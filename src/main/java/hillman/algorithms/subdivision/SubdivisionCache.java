@@ -0,0 +1,286 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.io.BinaryMeshFormat;
+import hillman.geometries.io.MeshHash;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Persistent, content addressed cache of subdivision results. Each entry is a BinaryMeshFormat file named by the 
+ * (mesh hash, scheme, level) it holds, so a mesh that has been subdivided before - by this process or any other 
+ * sharing the directory - is served by mapping a file instead of being recomputed.
+ * 
+ * Entries are keyed by the control mesh's exact hash (see <code>MeshHash.hashExact</code>), which covers it's vertex 
+ * numbering & face order as well as it's shape, so a hit is bit-identical to refining the caller's own mesh & can be
+ * mapped back onto it. The same shape numbered differently is a different entry. Results refined with Morton 
+ * reordering between levels (see <code>SubdivisionKernels</code>) are numbered differently from unordered ones, so 
+ * they are stored under keys of their own & never returned for an unordered request, or vice versa.
+ * 
+ * The directory is bounded in size: once the files exceed the limit, the least recently used are deleted. Use is 
+ * tracked in memory & mirrored in the files' modification times, so the order survives a restart.
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/03/2014)
+ */
+public class SubdivisionCache {
+    
+    /** Default size limit, 4GB. */
+    public static final long DEFAULT_MAX_BYTES = 4L << 30;
+    
+    /** Extension of cache files. */
+    private static final String EXTENSION = ".mesh";
+    
+    /** Directory holding the cache files. */
+    private final Path directory;
+    
+    /** Size limit in bytes. */
+    private final long maxBytes;
+    
+    /** File sizes by file name, in access order (eldest first). */
+    private final LinkedHashMap<String, Long> entries;
+    
+    /** Bytes held by all cache files. */
+    private long usedBytes;
+    
+    /** Opens (creating if necessary) a cache directory with the default size limit.
+     * 
+     * @param directory Path of the cache directory.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public SubdivisionCache(Path directory) throws IOException {
+        this(directory, DEFAULT_MAX_BYTES);
+    }
+    
+    /** Opens (creating if necessary) a cache directory, picking up any files already in it.
+     * 
+     * @param directory Path of the cache directory.
+     * @param maxBytes long, size limit in bytes.
+     * @throws IOException if the directory cannot be created or listed.
+     */
+    public SubdivisionCache(Path directory, long maxBytes) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        Files.createDirectories(directory);
+        
+        final Map<Path, FileTime> times = new LinkedHashMap<>();
+        try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for(Path file : stream) {
+                times.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+        List<Path> files = new ArrayList<>(times.keySet());
+        Collections.sort(files, new Comparator<Path>() {
+            @Override
+            public int compare(Path a, Path b) {
+                return times.get(a).compareTo(times.get(b));
+            }
+        });
+        for(Path file : files) {
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            usedBytes += size;
+        }
+        synchronized(this) {
+            evict();
+        }
+    }
+    
+    /** Returns a cached result refined without reordering, mapped from it's file, or null if it is not cached.
+     * 
+     * @param hash String, exact hash of the control mesh (see MeshHash.hashExact).
+     * @param scheme SubdivisionScheme applied.
+     * @param level int, number of levels applied.
+     * @return IndexedMesh, cached result or null.
+     */
+    public IndexedMesh get(String hash, SubdivisionScheme scheme, int level) {
+        return get(hash, scheme, level, false);
+    }
+    
+    /** Returns a cached result, mapped from it's file, or null if it is not cached. A file that turns out to be
+     * unreadable is dropped from the cache.
+     * 
+     * @param hash String, exact hash of the control mesh (see MeshHash.hashExact).
+     * @param scheme SubdivisionScheme applied.
+     * @param level int, number of levels applied.
+     * @param reordered boolean, true for a result refined with Morton reordering between levels.
+     * @return IndexedMesh, cached result or null.
+     */
+    public IndexedMesh get(String hash, SubdivisionScheme scheme, int level, boolean reordered) {
+        String name = getFileName(hash, scheme, level, reordered);
+        synchronized(this) {
+            if(entries.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = directory.resolve(name);
+        try {
+            IndexedMesh mesh = BinaryMeshFormat.read(file);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return mesh;
+        } catch(IOException e) {
+            remove(name);
+            return null;
+        }
+    }
+    
+    /** Stores a result refined without reordering.
+     * 
+     * @param hash String, exact hash of the control mesh (see MeshHash.hashExact).
+     * @param scheme SubdivisionScheme applied.
+     * @param level int, number of levels applied.
+     * @param mesh IndexedMesh, the result.
+     * @throws IOException if the file cannot be written.
+     */
+    public void put(String hash, SubdivisionScheme scheme, int level, IndexedMesh mesh) throws IOException {
+        put(hash, scheme, level, false, mesh);
+    }
+    
+    /** Stores a result, replacing any existing entry for the same key, then evicts least recently used entries until
+     * the cache is back within it's limit. Results larger than the whole limit are not stored.
+     * 
+     * @param hash String, exact hash of the control mesh (see MeshHash.hashExact).
+     * @param scheme SubdivisionScheme applied.
+     * @param level int, number of levels applied.
+     * @param reordered boolean, true for a result refined with Morton reordering between levels.
+     * @param mesh IndexedMesh, the result.
+     * @throws IOException if the file cannot be written.
+     */
+    public void put(String hash, SubdivisionScheme scheme, int level, boolean reordered, IndexedMesh mesh) 
+            throws IOException {
+        long size = BinaryMeshFormat.getFileSize(mesh);
+        if(size > maxBytes) {
+            return;
+        }
+        String name = getFileName(hash, scheme, level, reordered);
+        Path temporary = Files.createTempFile(directory, "pending", ".tmp");
+        try {
+            BinaryMeshFormat.write(mesh, temporary);
+            Files.move(temporary, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, 
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        synchronized(this) {
+            Long previous = entries.put(name, size);
+            usedBytes += size - ((previous == null) ? 0L : previous);
+            evict();
+        }
+    }
+    
+    /** Returns the requested level of a control mesh, mapped from the cache if present, otherwise refined from the 
+     * deepest cached ancestor (or the control mesh) with every new level added to the cache on the way.
+     * 
+     * @param control IndexedMesh, level 0 control mesh.
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, number of levels.
+     * @return IndexedMesh, subdivided mesh.
+     * @throws IOException if a new level cannot be written to the cache.
+     */
+    public IndexedMesh refine(IndexedMesh control, SubdivisionScheme scheme, int levels) throws IOException {
+        String hash = MeshHash.hashExact(control);
+        IndexedMesh current = control;
+        int level = levels;
+        while(level > 0) {
+            IndexedMesh cached = get(hash, scheme, level);
+            if(cached != null) {
+                current = cached;
+                break;
+            }
+            level--;
+        }
+        while(level < levels) {
+            current = scheme.refine(current, MeshAllocator.HEAP);
+            put(hash, scheme, ++level, current);
+        }
+        return current;
+    }
+    
+    /** Returns the bytes held by all cache files.
+     * 
+     * @return long, cache size in bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+    
+    /** Returns the number of cached results.
+     * 
+     * @return int, number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /** Deletes least recently used files until the cache is within it's limit. */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while(usedBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            try {
+                Files.deleteIfExists(directory.resolve(eldest.getKey()));
+            } catch(IOException e) {
+                //Leave the file for the next eviction, but stop counting it.
+            }
+            usedBytes -= eldest.getValue();
+            iterator.remove();
+        }
+    }
+    
+    /** Drops an entry & it's file.
+     * 
+     * @param name String, file name of the entry.
+     */
+    private synchronized void remove(String name) {
+        Long size = entries.remove(name);
+        if(size != null) {
+            usedBytes -= size;
+        }
+        try {
+            Files.deleteIfExists(directory.resolve(name));
+        } catch(IOException e) {
+            //Already untracked; nothing more to do.
+        }
+    }
+    
+    /** Returns the file name of a cache key.
+     * 
+     * @param hash String, exact hash of the control mesh.
+     * @param scheme SubdivisionScheme applied.
+     * @param level int, number of levels applied.
+     * @param reordered boolean, true for a result refined with Morton reordering between levels.
+     * @return String, file name.
+     */
+    private static String getFileName(String hash, SubdivisionScheme scheme, int level, boolean reordered) {
+        String name = scheme.getName().toLowerCase().replaceAll("[^a-z0-9]", "");
+        return hash + "-" + name + "-" + level + (reordered ? "-morton" : "") + EXTENSION;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,154 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.HeapMeshStorage;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshStorage;
+
+/** Numerical kernels shared by the indexed subdivision schemes. All positions are held as struct of arrays (one
+ * float array per component) so each stage is a flat counted loop over primitive arrays, with no Vertex3D objects
+ * created. The linear stages (<code>weightedSum</code>) touch each array sequentially with no branches, which is the
+ * shape HotSpot's superword pass vectorises onto the host's SIMD units; the gather stages (face & edge averages) are
+ * plain scalar loops.
+ * 
+ * The kernels are used whenever <code>isEnabled</code> is true, which is the default. Setting the system property
+ * <code>hillman.subdivision.kernels=false</code> sends the schemes back down their original Polyhedron based path.
+ * 
+ * Setting <code>hillman.subdivision.reorder=true</code> makes the multi-level indexed runs put each level in Morton 
+ * order (see <code>MortonOrder</code>) before refining it further. This improves cache locality on large meshes but 
+ * changes the order floating point sums are gathered in, so results are no longer bit for bit identical to an 
+ * unordered run & it is off by default.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/02/2014)
+ */
+public class SubdivisionKernels {
+    
+    /** Whether the indexed kernels are enabled. */
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("hillman.subdivision.kernels"));
+    
+    /** Whether levels are reordered along a space filling curve between levels. */
+    private static final boolean REORDER = "true".equalsIgnoreCase(System.getProperty("hillman.subdivision.reorder"));
+    
+    /** Returns true if the schemes should use the indexed kernels.
+     * 
+     * @return boolean, true unless disabled by system property.
+     */
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+    
+    /** Returns true if multi-level indexed runs should reorder each level before refining it.
+     * 
+     * @return boolean, true if enabled by system property.
+     */
+    public static boolean isReorderingEnabled() {
+        return REORDER;
+    }
+    
+    /** Writes the centroid of every face of the mesh into the output storage, starting at the input base vertex.
+     * 
+     * @param mesh IndexedMesh to read faces from.
+     * @param out MeshStorage to write centroids to.
+     * @param base int, index of the first face's output vertex.
+     * @param from int, first face (inclusive).
+     * @param to int, last face (exclusive).
+     */
+    public static void faceAverages(IndexedMesh mesh, MeshStorage out, int base, int from, int to) {
+        for(int f = from; f < to; f++) {
+            int offset = mesh.getFaceOffset(f);
+            int size = mesh.getFaceSize(f);
+            float x = 0.0f; float y = 0.0f; float z = 0.0f;
+            for(int k = 0; k < size; k++) {
+                int v = mesh.getIndex(offset + k);
+                x += mesh.getX(v);
+                y += mesh.getY(v);
+                z += mesh.getZ(v);
+            }
+            out.setPosition(base + f, x / size, y / size, z / size);
+        }
+    }
+    
+    /** Writes <code>a * wa + b * wb + c * wc</code> per vertex into the output storage, starting at the input base
+     * vertex. Heap storage is handed to <code>weightedSum</code> one component at a time, other storage is written
+     * vertex by vertex.
+     * 
+     * @param out MeshStorage to write to.
+     * @param outBase int, index of the first output vertex.
+     * @param ax float[], first term X components.
+     * @param ay float[], first term Y components.
+     * @param az float[], first term Z components.
+     * @param wa float[], first term weights.
+     * @param bx float[], second term X components.
+     * @param by float[], second term Y components.
+     * @param bz float[], second term Z components.
+     * @param wb float[], second term weights.
+     * @param cx float[], third term X components (or null for a two term sum).
+     * @param cy float[], third term Y components.
+     * @param cz float[], third term Z components.
+     * @param wc float[], third term weights.
+     * @param count int, number of vertices.
+     */
+    public static void blend(MeshStorage out, int outBase, float[] ax, float[] ay, float[] az, float[] wa, 
+            float[] bx, float[] by, float[] bz, float[] wb, float[] cx, float[] cy, float[] cz, float[] wc, int count) {
+        if(out instanceof HeapMeshStorage) {
+            HeapMeshStorage heap = (HeapMeshStorage) out;
+            weightedSum(heap.getXArray(), outBase, ax, wa, bx, wb, cx, wc, count);
+            weightedSum(heap.getYArray(), outBase, ay, wa, by, wb, cy, wc, count);
+            weightedSum(heap.getZArray(), outBase, az, wa, bz, wb, cz, wc, count);
+            return;
+        }
+        for(int i = 0; i < count; i++) {
+            float x = ax[i] * wa[i] + bx[i] * wb[i];
+            float y = ay[i] * wa[i] + by[i] * wb[i];
+            float z = az[i] * wa[i] + bz[i] * wb[i];
+            if(cx != null) {
+                x += cx[i] * wc[i];
+                y += cy[i] * wc[i];
+                z += cz[i] * wc[i];
+            }
+            out.setPosition(outBase + i, x, y, z);
+        }
+    }
+    
+    /** Computes, per element, <code>out[outBase + i] = a[i] * wa[i] + b[i] * wb[i] + c[i] * wc[i]</code> for a single
+     * component. Passing the same weight array twice is allowed, as is a null <code>c</code> for a two term sum.
+     * 
+     * @param out float[], output component.
+     * @param outBase int, index of the first output.
+     * @param a float[], first term.
+     * @param wa float[], first term weights.
+     * @param b float[], second term.
+     * @param wb float[], second term weights.
+     * @param c float[], third term (or null).
+     * @param wc float[], third term weights (ignored when <code>c</code> is null).
+     * @param count int, number of elements.
+     */
+    public static void weightedSum(float[] out, int outBase, float[] a, float[] wa, float[] b, float[] wb, 
+            float[] c, float[] wc, int count) {
+        if(c == null) {
+            for(int i = 0; i < count; i++) {
+                out[outBase + i] = a[i] * wa[i] + b[i] * wb[i];
+            }
+        } else {
+            for(int i = 0; i < count; i++) {
+                out[outBase + i] = a[i] * wa[i] + b[i] * wb[i] + c[i] * wc[i];
+            }
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,98 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.events.Event;
+
+/** Event recorded for every level of subdivision produced for display: which scheme & level, the face counts in &
+ * out & whether the level came from the level of detail cache rather than being computed. Levels run through a 
+ * StrategySelector also record the execution strategy chosen.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/03/2014)
+ */
+public class SubdivisionLevelEvent extends Event {
+    
+    /** Scheme name. */
+    private final String scheme;
+    
+    /** Level being produced. */
+    private final int level;
+    
+    /** Faces of the input level. */
+    private final int inputFaces;
+    
+    /** Faces of the output level. */
+    private int outputFaces;
+    
+    /** True if the level was served from a cache. */
+    private boolean cached;
+    
+    /** Execution strategy the level ran with, if chosen by a StrategySelector. */
+    private StrategySelector.Strategy strategy;
+    
+    /** Initialises an event for one level.
+     * 
+     * @param scheme String, scheme name.
+     * @param level int, level being produced.
+     * @param inputFaces int, faces of the input level.
+     */
+    public SubdivisionLevelEvent(String scheme, int level, int inputFaces) {
+        this.scheme = scheme;
+        this.level = level;
+        this.inputFaces = inputFaces;
+    }
+    
+    /** Sets the number of faces produced.
+     * 
+     * @param outputFaces int, faces of the output level.
+     */
+    public void setOutputFaces(int outputFaces) {
+        this.outputFaces = outputFaces;
+    }
+    
+    /** Marks the level as served from a cache.
+     * 
+     * @param cached boolean, true if cached.
+     */
+    public void setCached(boolean cached) {
+        this.cached = cached;
+    }
+    
+    /** Sets the execution strategy the level ran with.
+     * 
+     * @param strategy StrategySelector.Strategy, strategy chosen.
+     */
+    public void setStrategy(StrategySelector.Strategy strategy) {
+        this.strategy = strategy;
+    }
+    
+    @Override
+    protected String getName() {
+        return "SubdivisionLevel";
+    }
+    
+    @Override
+    protected void appendFields(StringBuilder builder) {
+        builder.append("scheme=").append(scheme.replace(' ', '_')).append(" level=").append(level);
+        builder.append(" inputFaces=").append(inputFaces).append(" outputFaces=").append(outputFaces);
+        builder.append(" cached=").append(cached);
+        if(strategy != null) {
+            builder.append(" strategy=").append(strategy);
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,180 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import java.util.Collections;
+import java.util.List;
+
+/** The outcome of planning a subdivision request: the predicted counts of every level, the peak heap & off-heap 
+ * bytes needed to build them in the chosen backend, & whether the request may go ahead as asked, should run in a 
+ * leaner backend instead, or must not run at all.
+ * 
+ * @author M Hillman
+ * @version 1.0 (24/02/2014)
+ */
+public class SubdivisionPlan {
+    
+    /** Admission decision: run as requested, run in the (leaner) chosen backend, or refuse. */
+    public enum Decision { ACCEPT, DOWNGRADE, REJECT }
+    
+    /** Admission decision. */
+    private final Decision decision;
+    
+    /** Backend the request asked for. */
+    private final StorageBackend requested;
+    
+    /** Backend the request should run in (the requested one unless downgraded). */
+    private final StorageBackend backend;
+    
+    /** Predicted counts of levels 0 (the input) to N. */
+    private final List<MeshCounts> levels;
+    
+    /** Predicted peak heap use in the chosen backend. */
+    private final long peakHeapBytes;
+    
+    /** Predicted peak off-heap use in the chosen backend. */
+    private final long peakOffHeapBytes;
+    
+    /** Heap available when planned. */
+    private final long heapBudget;
+    
+    /** Off-heap memory available when planned. */
+    private final long offHeapBudget;
+    
+    /** Creates a plan.
+     * 
+     * @param decision Decision, admission decision.
+     * @param requested StorageBackend asked for.
+     * @param backend StorageBackend to run in.
+     * @param levels List<MeshCounts>, predicted counts per level.
+     * @param peakHeapBytes long, predicted peak heap use.
+     * @param peakOffHeapBytes long, predicted peak off-heap use.
+     * @param heapBudget long, heap available.
+     * @param offHeapBudget long, off-heap memory available.
+     */
+    public SubdivisionPlan(Decision decision, StorageBackend requested, StorageBackend backend, List<MeshCounts> levels,
+            long peakHeapBytes, long peakOffHeapBytes, long heapBudget, long offHeapBudget) {
+        this.decision = decision;
+        this.requested = requested;
+        this.backend = backend;
+        this.levels = Collections.unmodifiableList(levels);
+        this.peakHeapBytes = peakHeapBytes;
+        this.peakOffHeapBytes = peakOffHeapBytes;
+        this.heapBudget = heapBudget;
+        this.offHeapBudget = offHeapBudget;
+    }
+    
+    /** Returns the admission decision.
+     * 
+     * @return Decision, accept, downgrade or reject.
+     */
+    public Decision getDecision() {
+        return decision;
+    }
+    
+    /** Returns true if the request may run (as requested or downgraded).
+     * 
+     * @return boolean, true unless rejected.
+     */
+    public boolean isAdmitted() {
+        return decision != Decision.REJECT;
+    }
+    
+    /** Returns the backend the request asked for.
+     * 
+     * @return StorageBackend, requested backend.
+     */
+    public StorageBackend getRequestedBackend() {
+        return requested;
+    }
+    
+    /** Returns the backend the request should run in.
+     * 
+     * @return StorageBackend, chosen backend.
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+    
+    /** Returns the predicted counts of levels 0 to N.
+     * 
+     * @return List<MeshCounts>, unmodifiable list of counts.
+     */
+    public List<MeshCounts> getLevels() {
+        return levels;
+    }
+    
+    /** Returns the predicted counts of the final level.
+     * 
+     * @return MeshCounts, final level counts.
+     */
+    public MeshCounts getResult() {
+        return levels.get(levels.size() - 1);
+    }
+    
+    /** Returns the predicted peak heap use.
+     * 
+     * @return long, bytes.
+     */
+    public long getPeakHeapBytes() {
+        return peakHeapBytes;
+    }
+    
+    /** Returns the predicted peak off-heap use.
+     * 
+     * @return long, bytes.
+     */
+    public long getPeakOffHeapBytes() {
+        return peakOffHeapBytes;
+    }
+    
+    /** Returns the heap that was available when planned.
+     * 
+     * @return long, bytes.
+     */
+    public long getHeapBudget() {
+        return heapBudget;
+    }
+    
+    /** Returns the off-heap memory that was available when planned.
+     * 
+     * @return long, bytes.
+     */
+    public long getOffHeapBudget() {
+        return offHeapBudget;
+    }
+    
+    /** Returns a one line description of the plan, suitable for status messages.
+     * 
+     * @return String, plan summary.
+     */
+    @Override
+    public String toString() {
+        long mb = 1024 * 1024;
+        StringBuilder builder = new StringBuilder();
+        builder.append(decision).append(": level ").append(levels.size() - 1).append(" (").append(getResult());
+        builder.append(") needs ").append(peakHeapBytes / mb).append(" MB heap");
+        if(peakOffHeapBytes > 0) {
+            builder.append(" + ").append(peakOffHeapBytes / mb).append(" MB off-heap");
+        }
+        builder.append(" as ").append(backend).append(", ").append(heapBudget / mb).append(" MB heap free");
+        if(decision == Decision.DOWNGRADE) {
+            builder.append(" (").append(requested).append(" does not fit)");
+        }
+        return builder.toString();
+    }
+    
+}
+//End of class.
@@ -0,0 +1,211 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.MeshArena;
+import hillman.geometries.Polyhedron;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Admission control for subdivision requests. Predicts the counts of every requested level with the scheme's
+ * <code>predict</code> (the growth rules plus the Euler characteristic), weighs each level in the requested storage 
+ * backend & works out the peak memory of building the levels one after another: parent & child level, plus the 
+ * refinement tables & temporaries of the indexed path, plus both object graphs when the result has to be a Polyhedron.
+ * 
+ * A request that fits in the memory currently free is accepted. One that does not is downgraded to the first leaner 
+ * backend that fits (object graph, then indexed heap arrays, then off-heap arenas), or rejected if none do, before any
+ * work is started.
+ * 
+ * @author M Hillman
+ * @version 1.0 (24/02/2014)
+ */
+public class SubdivisionPlanner {
+    
+    /** Default fraction of the free memory a single request may plan to use. */
+    public static final double DEFAULT_HEADROOM = 0.8;
+    
+    /** Fraction of the free memory a single request may plan to use. */
+    private final double headroom;
+    
+    /** Number of requests expected to run at once, each getting an equal share of the free memory. */
+    private final int concurrency;
+    
+    /** Creates a planner for one request at a time, with the default headroom. */
+    public SubdivisionPlanner() {
+        this(DEFAULT_HEADROOM, 1);
+    }
+    
+    /** Creates a planner.
+     * 
+     * @param headroom double, fraction (0 to 1] of the free memory a request may use.
+     * @param concurrency int, number of requests expected to run at once.
+     */
+    public SubdivisionPlanner(double headroom, int concurrency) {
+        if(headroom <= 0.0 || headroom > 1.0 || concurrency < 1) {
+            throw new IllegalArgumentException("Invalid headroom or concurrency: " + headroom + ", " + concurrency);
+        }
+        this.headroom = headroom;
+        this.concurrency = concurrency;
+    }
+    
+    /** Plans subdividing a polyhedron against the memory currently free.
+     * 
+     * @param polyhedron Polyhedron, level 0.
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, number of levels.
+     * @param backend StorageBackend the caller would like to use.
+     * @return SubdivisionPlan, the admission decision & predictions.
+     */
+    public SubdivisionPlan plan(Polyhedron polyhedron, SubdivisionScheme scheme, int levels, StorageBackend backend) {
+        return plan(MeshCounts.of(polyhedron), scheme, levels, backend);
+    }
+    
+    /** Plans subdividing a mesh of the given counts against the memory currently free.
+     * 
+     * @param counts MeshCounts, level 0.
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, number of levels.
+     * @param backend StorageBackend the caller would like to use.
+     * @return SubdivisionPlan, the admission decision & predictions.
+     */
+    public SubdivisionPlan plan(MeshCounts counts, SubdivisionScheme scheme, int levels, StorageBackend backend) {
+        return plan(counts, scheme, levels, backend, (long) (getAvailableHeap() * headroom / concurrency), 
+                (long) (getAvailableOffHeap() * headroom / concurrency));
+    }
+    
+    /** Plans subdividing a mesh of the given counts against explicit memory budgets.
+     * 
+     * @param counts MeshCounts, level 0.
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, number of levels.
+     * @param backend StorageBackend the caller would like to use.
+     * @param heapBudget long, heap bytes the request may use.
+     * @param offHeapBudget long, off-heap bytes the request may use.
+     * @return SubdivisionPlan, the admission decision & predictions.
+     */
+    public static SubdivisionPlan plan(MeshCounts counts, SubdivisionScheme scheme, int levels, StorageBackend backend,
+            long heapBudget, long offHeapBudget) {
+        if(levels < 0) {
+            throw new IllegalArgumentException("Levels cannot be negative: " + levels);
+        }
+        List<MeshCounts> predicted = new ArrayList<>(levels + 1);
+        predicted.add(counts);
+        for(int level = 0; level < levels; level++) {
+            predicted.add(scheme.predict(predicted.get(level)));
+        }
+        
+        StorageBackend[] backends = StorageBackend.values();
+        for(int i = backend.ordinal(); i < backends.length; i++) {
+            long[] peak = getPeakBytes(predicted, backends[i]);
+            if(peak[0] <= heapBudget && peak[1] <= offHeapBudget) {
+                SubdivisionPlan.Decision decision = (backends[i] == backend) 
+                        ? SubdivisionPlan.Decision.ACCEPT : SubdivisionPlan.Decision.DOWNGRADE;
+                return new SubdivisionPlan(decision, backend, backends[i], predicted, peak[0], peak[1], 
+                        heapBudget, offHeapBudget);
+            }
+        }
+        long[] peak = getPeakBytes(predicted, backend);
+        return new SubdivisionPlan(SubdivisionPlan.Decision.REJECT, backend, backend, predicted, peak[0], peak[1], 
+                heapBudget, offHeapBudget);
+    }
+    
+    /** Works out the peak {heap, off-heap} bytes of building the levels in order in a backend. Level 0 is already 
+     * resident in the object graph case, so is not charged there.
+     * 
+     * @param levels List<MeshCounts>, counts of levels 0 to N.
+     * @param backend StorageBackend to build in.
+     * @return long[], peak heap & peak off-heap bytes.
+     */
+    private static long[] getPeakBytes(List<MeshCounts> levels, StorageBackend backend) {
+        long heap = 0;
+        long offHeap = 0;
+        for(int level = 0; level + 1 < levels.size(); level++) {
+            MeshCounts parent = levels.get(level);
+            MeshCounts child = levels.get(level + 1);
+            long tables = estimateTopologyBytes(parent, child);
+            long meshes = StorageBackend.INDEXED_HEAP.estimateBytes(parent) 
+                    + StorageBackend.INDEXED_HEAP.estimateBytes(child);
+            if(backend == StorageBackend.OBJECT_GRAPH) {
+                long objects = backend.estimateBytes(child) + ((level > 0) ? backend.estimateBytes(parent) : 0);
+                heap = Math.max(heap, tables + meshes + objects);
+            } else if(backend == StorageBackend.INDEXED_HEAP) {
+                heap = Math.max(heap, tables + meshes);
+            } else {
+                heap = Math.max(heap, tables);
+                offHeap = Math.max(offHeap, meshes);
+            }
+        }
+        return new long[] {heap, offHeap};
+    }
+    
+    /** Estimates the heap held by the refinement tables & evaluation temporaries of one level: the edge table & it's
+     * edge map, the vertex adjacency, per vertex weights & sums, & the child face tables.
+     * 
+     * @param parent MeshCounts of the level being refined.
+     * @param child MeshCounts of the level being built.
+     * @return long, estimated size in bytes.
+     */
+    public static long estimateTopologyBytes(MeshCounts parent, MeshCounts child) {
+        long edgeTable = 20 * parent.getIndices() + 24 * parent.getIndices();
+        long adjacency = 8 * (parent.getVertices() + 1) + 4 * parent.getIndices() + 8 * parent.getEdges();
+        long perVertex = 13 * parent.getVertices() + 36 * parent.getVertices();
+        long children = 4 * child.getIndices() + 4 * child.getFaces();
+        return edgeTable + adjacency + perVertex + children;
+    }
+    
+    /** Returns the heap that could still be allocated: the maximum heap less what is currently in use.
+     * 
+     * @return long, bytes.
+     */
+    public static long getAvailableHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+    
+    /** Returns the direct memory that could still be allocated: the direct memory limit (by default the maximum heap)
+     * capped by the free physical memory where the platform reports it, less what live MeshArenas hold.
+     * 
+     * @return long, bytes.
+     */
+    public static long getAvailableOffHeap() {
+        long limit = Runtime.getRuntime().maxMemory();
+        for(String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if(argument.startsWith("-XX:MaxDirectMemorySize=")) {
+                limit = parseSize(argument.substring(argument.indexOf('=') + 1));
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if(os instanceof com.sun.management.OperatingSystemMXBean) {
+            limit = Math.min(limit, ((com.sun.management.OperatingSystemMXBean) os).getFreePhysicalMemorySize());
+        }
+        return Math.max(0, limit - MeshArena.getLiveBytes());
+    }
+    
+    /** Parses a JVM memory size such as 512m or 4G.
+     * 
+     * @param size String, size with an optional k/m/g suffix.
+     * @return long, bytes.
+     */
+    private static long parseSize(String size) {
+        char unit = Character.toLowerCase(size.charAt(size.length() - 1));
+        long multiplier = (unit == 'k') ? 1L << 10 : (unit == 'm') ? 1L << 20 : (unit == 'g') ? 1L << 30 : 1;
+        String digits = (multiplier == 1) ? size : size.substring(0, size.length() - 1);
+        return Long.parseLong(digits) * multiplier;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,85 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.Polyhedron;
+
+/** A subdivision scheme that can refine a Polyhedron by one level synchronously, on the calling thread & without
+ * any drawing surface. Used wherever levels are produced outside of the on-screen <code>SubdivisionAlgorithm</code> 
+ * flow (caches, batch jobs etc.).
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/02/2014)
+ */
+public interface SubdivisionScheme {
+    
+    /** Returns the display name of this scheme.
+     * 
+     * @return String, scheme name.
+     */
+    String getName();
+    
+    /** Performs a single level of subdivision on the input polyhedron, which is left untouched.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
+     */
+    Polyhedron refine(Polyhedron polyhedron);
+    
+    /** Performs a single level of subdivision on the input polyhedron with the scheme's original Polyhedron object
+     * graph code, whether or not the <code>SubdivisionKernels</code> are enabled, e.g. to benchmark that code.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
+     */
+    Polyhedron refineObjectGraph(Polyhedron polyhedron);
+    
+    /** Performs a single level of subdivision on an indexed mesh, which is left untouched, holding the result in 
+     * storage from the input allocator.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, next level of subdivision.
+     */
+    IndexedMesh refine(IndexedMesh mesh, MeshAllocator allocator);
+    
+    /** Builds the topology phase of one level of subdivision for an indexed mesh. The result can evaluate the mesh, 
+     * or any mesh with the same faces & different positions, without repeating the connectivity work.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @return RefinementTopology, reusable refinement tables.
+     */
+    RefinementTopology buildTopology(IndexedMesh mesh);
+    
+    /** Predicts the element counts of the next level from the counts of the current one, without subdividing.
+     * 
+     * @param counts MeshCounts of the current level.
+     * @return MeshCounts, predicted counts of the next level.
+     */
+    MeshCounts predict(MeshCounts counts);
+    
+    /** Returns how many vertex rings (see MeshRegion.grow) around a control face decide it's descendants after the 
+     * input number of levels, so that a region grown that far refines those descendants exactly as the whole mesh 
+     * would.
+     * 
+     * @param levels int, levels of subdivision.
+     * @return int, rings of support.
+     */
+    int getSupportRings(int levels);
+    
+}
+//End of class.
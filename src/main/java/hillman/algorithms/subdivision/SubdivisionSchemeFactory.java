@@ -0,0 +1,51 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision;
+
+import hillman.algorithms.subdivision.catmull_clark.CatmullClark;
+import hillman.algorithms.subdivision.root_three.RootThree;
+
+/** This SubdivisionSchemeFactory class contains static methods to look up subdivision schemes by name, for use by
+ * command line & other non-GUI entry points.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/02/2014)
+ */
+public class SubdivisionSchemeFactory {
+    
+    /** Returns a new scheme instance for the input name. Matching ignores case, spaces, dashes & underscores so
+     * "Catmull-Clark", "catmull_clark" & "cc" are all accepted.
+     * 
+     * @param name String, scheme name.
+     * @return SubdivisionScheme, matching scheme.
+     * @throws IllegalArgumentException if the name is not recognised.
+     */
+    public static SubdivisionScheme getScheme(String name) {
+        String key = name.toLowerCase().replaceAll("[\\s_-]", "");
+        switch(key) {
+            case "catmullclark":
+            case "cc":
+                return new CatmullClark();
+            case "rootthree":
+            case "root3":
+            case "sqrt3":
+                return new RootThree();
+            default:
+                throw new IllegalArgumentException("Unknown subdivision scheme: " + name);
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,476 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.batch;
+
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.OffHeapSubdivision;
+import hillman.algorithms.subdivision.StorageBackend;
+import hillman.algorithms.subdivision.SubdivisionCache;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.algorithms.subdivision.SubdivisionPlan;
+import hillman.algorithms.subdivision.SubdivisionPlanner;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.algorithms.subdivision.SubdivisionSchemeFactory;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshArena;
+import hillman.geometries.Polyhedron;
+import hillman.geometries.QuantisedMeshStorage;
+import hillman.geometries.io.MeshHash;
+import hillman.geometries.spatial.MortonOrder;
+import hillman.geometries.io.ObjFormat;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Headless batch runner that subdivides every mesh in a directory (or listed in a manifest file) & writes the 
+ * results to an output directory, without opening a window or loading any native libraries.
+ * 
+ * Each asset passes through three stages: read (I/O pool) -> subdivide (CPU pool) -> write (I/O pool). Subdivision
+ * runs on a work-stealing ForkJoinPool sized to the available processors, file access on a separate, unbounded pool 
+ * of daemon threads so blocking reads & writes never occupy a CPU worker. A semaphore bounds the number of assets in
+ * flight so memory stays proportional to the pool size rather than the library size. A throughput summary is 
+ * written to <code>summary.txt</code> in the output directory once every asset has finished.
+ * 
+ * Every asset is planned by a <code>SubdivisionPlanner</code> before it is subdivided, on the indexed mesh it was read 
+ * into: by default assets are refined on indexed heap arrays, those too large for the heap are run in off-heap arenas
+ * instead, & assets too large for any backend are failed without being started. The Polyhedron object graph is only 
+ * used when asked for with <code>setBackend</code>, as it is far slower on large meshes.
+ * 
+ * With a SubdivisionCache attached, each asset is hashed as it is read & a cached result is written straight out 
+ * without visiting the CPU pool; new results are added to the cache as they are written, under keys that record 
+ * whether the levels were Morton reordered. Results refined on the object graph are numbered differently from the 
+ * indexed ones the cache holds, so they are not added to it.
+ * 
+ * With a quantisation error bound set, each result is moved into <code>QuantisedMeshStorage</code> as soon as it is
+ * subdivided, so results waiting to be written hold a half to two thirds of the memory for their positions. Quantised
+ * results are not added to the cache, which only holds exact levels.
+ * 
+ * Usage: BatchSubdivision &lt;input directory | manifest file&gt; &lt;output directory&gt; &lt;scheme&gt; &lt;levels&gt; [threads] 
+ * [cache directory] [max quantisation error] [backend]
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/02/2014)
+ */
+public class BatchSubdivision {
+    
+    /** Scheme applied to every asset. */
+    private final SubdivisionScheme scheme;
+    
+    /** Number of levels applied to every asset. */
+    private final int levels;
+    
+    /** Directory results are written to. */
+    private final Path outputDirectory;
+    
+    /** Pool for CPU-bound subdivision. */
+    private final ForkJoinPool cpuPool;
+    
+    /** Pool for blocking file I/O. */
+    private final ExecutorService ioPool;
+    
+    /** Bounds the number of assets held in memory at once. */
+    private final Semaphore inFlight;
+    
+    /** Admission control, sharing the free memory between the assets that can be subdivided at once. */
+    private final SubdivisionPlanner planner;
+    
+    /** Backend each asset is planned on first. */
+    private volatile StorageBackend backend = StorageBackend.INDEXED_HEAP;
+    
+    /** Persistent cache of results (may be null). */
+    private SubdivisionCache cache;
+    
+    /** Largest position error allowed when quantising results (0 to keep floats). */
+    private volatile float quantisationError;
+    
+    /** Counters for the summary. */
+    private final AtomicInteger completed = new AtomicInteger();
+    private final AtomicLong inputFaces = new AtomicLong();
+    private final AtomicLong outputFaces = new AtomicLong();
+    private final AtomicLong subdivisionNanos = new AtomicLong();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    
+    /** Assets that failed, with their error. */
+    private final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+    
+    /** Initialises a batch runner.
+     * 
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, levels of subdivision per asset.
+     * @param outputDirectory Path to write results to.
+     * @param threads int, size of the subdivision pool.
+     */
+    public BatchSubdivision(SubdivisionScheme scheme, int levels, Path outputDirectory, int threads) {
+        this.scheme = scheme;
+        this.levels = levels;
+        this.outputDirectory = outputDirectory;
+        this.cpuPool = new ForkJoinPool(threads);
+        this.ioPool = Executors.newCachedThreadPool(new DaemonThreadFactory("Batch I/O"));
+        this.inFlight = new Semaphore(threads * 2);
+        this.planner = new SubdivisionPlanner(SubdivisionPlanner.DEFAULT_HEADROOM, threads);
+    }
+    
+    /** Attaches a persistent cache that results are looked up in before subdividing & added to afterwards.
+     * 
+     * @param cache SubdivisionCache to use (null to disable caching).
+     */
+    public void setCache(SubdivisionCache cache) {
+        this.cache = cache;
+    }
+    
+    /** Sets the backend each asset is planned on first. The planner may still move an asset to a more compact backend 
+     * if it would not fit; <code>OBJECT_GRAPH</code> must be asked for explicitly.
+     * 
+     * @param backend StorageBackend to prefer (INDEXED_HEAP by default).
+     */
+    public void setBackend(StorageBackend backend) {
+        this.backend = backend;
+    }
+    
+    /** Sets the error bound results are quantised to before they are written.
+     * 
+     * @param maxError float, largest error of a position component (0 to keep floats).
+     */
+    public void setQuantisationError(float maxError) {
+        this.quantisationError = maxError;
+    }
+    
+    /** Processes every asset & returns the run summary. Blocks until all assets have been written or have failed.
+     * 
+     * @param assets List<Path> of OBJ files to process.
+     * @return String, throughput summary.
+     * @throws IOException if the output directory or summary cannot be written.
+     * @throws InterruptedException if interrupted while waiting for assets.
+     */
+    public String process(List<Path> assets) throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+        CountDownLatch done = new CountDownLatch(assets.size());
+        long start = System.nanoTime();
+        
+        try {
+            for(Path asset : assets) {
+                inFlight.acquire();
+                ioPool.execute(new ReadStage(asset, done));
+            }
+            done.await();
+        } finally {
+            cpuPool.shutdown();
+            ioPool.shutdown();
+        }
+        
+        String summary = summarise(assets.size(), System.nanoTime() - start);
+        Files.write(outputDirectory.resolve("summary.txt"), summary.getBytes(StandardCharsets.UTF_8));
+        return summary;
+    }
+    
+    /** Builds the textual throughput summary.
+     * 
+     * @param assets int, number of assets submitted.
+     * @param wallNanos long, elapsed wall time.
+     * @return String, summary text.
+     */
+    private String summarise(int assets, long wallNanos) {
+        double wallSeconds = wallNanos / 1e9;
+        double cpuSeconds = subdivisionNanos.get() / 1e9;
+        StringBuilder builder = new StringBuilder();
+        builder.append("Scheme: ").append(scheme.getName()).append(", levels: ").append(levels).append("\n");
+        builder.append("Assets: ").append(assets).append(", completed: ").append(completed.get());
+        builder.append(", failed: ").append(failures.size());
+        if(cache != null) {
+            builder.append(", cache hits: ").append(cacheHits.get());
+        }
+        builder.append("\n");
+        builder.append("Faces in: ").append(inputFaces.get()).append(", faces out: ").append(outputFaces.get()).append("\n");
+        builder.append(String.format("Wall time: %.3f s, subdivision time: %.3f s, pool: %d threads%n", 
+                wallSeconds, cpuSeconds, cpuPool.getParallelism()));
+        builder.append(String.format("Throughput: %.2f assets/s, %.0f output faces/s%n", 
+                completed.get() / wallSeconds, outputFaces.get() / wallSeconds));
+        synchronized(failures) {
+            for(String failure : failures) {
+                builder.append("FAILED ").append(failure).append("\n");
+            }
+        }
+        return builder.toString();
+    }
+    
+    /** Records a failed asset & releases it's slot. Every stage hands any Throwable it catches (Errors included) 
+     * to this method, so each asset is counted down exactly once & <code>process</code> cannot be left waiting.
+     * 
+     * @param asset Path of the asset.
+     * @param error Throwable raised while processing it.
+     * @param done CountDownLatch to count down.
+     */
+    private void fail(Path asset, Throwable error, CountDownLatch done) {
+        failures.add(asset + ": " + error);
+        inFlight.release();
+        done.countDown();
+    }
+    
+    /** Reads an asset, then hands it to the CPU pool. */
+    private class ReadStage implements Runnable {
+        
+        /** Asset to read. */
+        private final Path asset;
+        
+        /** Latch counted down when the asset is finished. */
+        private final CountDownLatch done;
+        
+        ReadStage(Path asset, CountDownLatch done) {
+            this.asset = asset;
+            this.done = done;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                IndexedMesh mesh = ObjFormat.read(asset);
+                String hash = null;
+                if(cache != null) {
+                    hash = MeshHash.hashExact(mesh);
+                    IndexedMesh cached = cache.get(hash, scheme, levels, SubdivisionKernels.isReorderingEnabled());
+                    if(cached != null) {
+                        cacheHits.incrementAndGet();
+                        inputFaces.addAndGet(mesh.getFaceCount());
+                        outputFaces.addAndGet(cached.getFaceCount());
+                        new WriteStage(asset, cached, null, null, false, done).run();
+                        return;
+                    }
+                }
+                cpuPool.execute(new SubdivideStage(asset, mesh, hash, done));
+            } catch(Throwable e) {
+                fail(asset, e, done);
+            }
+        }
+    }
+    
+    /** Subdivides an asset, then hands it back to the I/O pool for writing. */
+    private class SubdivideStage implements Runnable {
+        
+        /** Asset being processed. */
+        private final Path asset;
+        
+        /** Control mesh read from the asset. */
+        private final IndexedMesh mesh;
+        
+        /** Content hash of the control mesh, if the result is to be cached (may be null). */
+        private final String hash;
+        
+        /** Latch counted down when the asset is finished. */
+        private final CountDownLatch done;
+        
+        SubdivideStage(Path asset, IndexedMesh mesh, String hash, CountDownLatch done) {
+            this.asset = asset;
+            this.mesh = mesh;
+            this.hash = hash;
+            this.done = done;
+        }
+        
+        @Override
+        public void run() {
+            MeshArena arena = null;
+            try {
+                SubdivisionPlan plan = planner.plan(MeshCounts.of(mesh, new EdgeTable(mesh)), scheme, levels, backend);
+                if(!plan.isAdmitted()) {
+                    throw new IllegalStateException(plan.toString());
+                }
+                long start = System.nanoTime();
+                IndexedMesh result;
+                String cacheHash = hash;
+                if(plan.getBackend() == StorageBackend.OBJECT_GRAPH) {
+                    Polyhedron current = mesh.toPolyhedron();
+                    for(int level = 0; level < levels; level++) {
+                        current = scheme.refine(current);
+                    }
+                    result = IndexedMesh.fromPolyhedron(current);
+                    cacheHash = null;
+                } else if(plan.getBackend() == StorageBackend.INDEXED_HEAP) {
+                    result = mesh;
+                    for(int level = 0; level < levels; level++) {
+                        if(SubdivisionKernels.isReorderingEnabled()) {
+                            result = MortonOrder.reorder(result, MeshAllocator.HEAP);
+                        }
+                        result = scheme.refine(result, MeshAllocator.HEAP);
+                    }
+                } else {
+                    arena = new MeshArena();
+                    result = OffHeapSubdivision.refine(scheme, mesh, levels, arena);
+                }
+                if(quantisationError > 0.0f) {
+                    result = QuantisedMeshStorage.quantise(result, quantisationError);
+                    cacheHash = null;
+                    if(arena != null) {
+                        arena.close();
+                        arena = null;
+                    }
+                }
+                subdivisionNanos.addAndGet(System.nanoTime() - start);
+                inputFaces.addAndGet(mesh.getFaceCount());
+                outputFaces.addAndGet(result.getFaceCount());
+                boolean reordered = SubdivisionKernels.isReorderingEnabled();
+                ioPool.execute(new WriteStage(asset, result, arena, cacheHash, reordered, done));
+            } catch(Throwable e) {
+                if(arena != null) {
+                    arena.close();
+                }
+                fail(asset, e, done);
+            }
+        }
+    }
+    
+    /** Writes a subdivided asset & releases it's slot. */
+    private class WriteStage implements Runnable {
+        
+        /** Asset being processed. */
+        private final Path asset;
+        
+        /** Subdivided mesh to write. */
+        private final IndexedMesh mesh;
+        
+        /** Arena holding the mesh if it was built off-heap, closed once written (may be null). */
+        private final MeshArena arena;
+        
+        /** Content hash to cache the mesh under (may be null). */
+        private final String hash;
+        
+        /** True if the mesh was Morton reordered between levels. */
+        private final boolean reordered;
+        
+        /** Latch counted down when the asset is finished. */
+        private final CountDownLatch done;
+        
+        WriteStage(Path asset, IndexedMesh mesh, MeshArena arena, String hash, boolean reordered, CountDownLatch done) {
+            this.asset = asset;
+            this.mesh = mesh;
+            this.arena = arena;
+            this.hash = hash;
+            this.reordered = reordered;
+            this.done = done;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                ObjFormat.write(mesh, outputDirectory.resolve(asset.getFileName()));
+                if(cache != null && hash != null) {
+                    cache.put(hash, scheme, levels, reordered, mesh);
+                }
+                completed.incrementAndGet();
+                inFlight.release();
+                done.countDown();
+            } catch(Throwable e) {
+                fail(asset, e, done);
+            } finally {
+                if(arena != null) {
+                    arena.close();
+                }
+            }
+        }
+    }
+    
+    /** Names & daemonises I/O threads so an abandoned pool never holds the JVM open. */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        
+        /** Thread name prefix. */
+        private final String prefix;
+        
+        /** Threads created so far. */
+        private final AtomicInteger count = new AtomicInteger();
+        
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    /** Lists the assets named by the input path: every .obj file in a directory, or every non-blank, non-comment 
+     * line of a manifest file (resolved against the manifest's directory).
+     * 
+     * @param input Path of a directory or manifest file.
+     * @return List<Path> of assets.
+     * @throws IOException if the input cannot be read.
+     */
+    public static List<Path> listAssets(Path input) throws IOException {
+        List<Path> assets = new ArrayList<>();
+        if(Files.isDirectory(input)) {
+            try(DirectoryStream<Path> stream = Files.newDirectoryStream(input, "*.obj")) {
+                for(Path path : stream) {
+                    assets.add(path);
+                }
+            }
+            Collections.sort(assets);
+        } else {
+            Path base = input.toAbsolutePath().getParent();
+            for(String line : Files.readAllLines(input, StandardCharsets.UTF_8)) {
+                String entry = line.trim();
+                if(!entry.isEmpty() && !entry.startsWith("#")) {
+                    assets.add(base.resolve(entry));
+                }
+            }
+        }
+        return assets;
+    }
+    
+    /** Runs a batch from the command line & prints the summary.
+     * 
+     * @param args Command line arguments: input, output directory, scheme, levels, optional pool size, optional
+     * cache directory ("-" for none), optional quantisation error bound (0 for none) & optional backend 
+     * (OBJECT_GRAPH, INDEXED_HEAP or OFF_HEAP).
+     * @throws Exception if the batch cannot be run.
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 4) {
+            System.err.println("Usage: BatchSubdivision <input directory | manifest> <output directory> <scheme> <levels> [threads] [cache directory] [max quantisation error] [backend]");
+            System.exit(1);
+        }
+        int threads = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        BatchSubdivision batch = new BatchSubdivision(SubdivisionSchemeFactory.getScheme(args[2]), 
+                Integer.parseInt(args[3]), Paths.get(args[1]), threads);
+        if(args.length > 5 && !args[5].equals("-")) {
+            batch.setCache(new SubdivisionCache(Paths.get(args[5])));
+        }
+        if(args.length > 6) {
+            batch.setQuantisationError(Float.parseFloat(args[6]));
+        }
+        if(args.length > 7) {
+            batch.setBackend(StorageBackend.valueOf(args[7].toUpperCase(Locale.ROOT)));
+        }
+        System.out.print(batch.process(listAssets(Paths.get(args[0]))));
+    }
+    
+}
+//End of class.
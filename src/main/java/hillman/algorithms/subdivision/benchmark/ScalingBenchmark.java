@@ -0,0 +1,344 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.benchmark;
+
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.algorithms.subdivision.catmull_clark.CatmullClark;
+import hillman.algorithms.subdivision.root_three.RootThree;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.Polyhedron;
+import hillman.geometries.PolyhedronFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/** Macro benchmark that catches algorithmic (complexity) regressions in the subdivision schemes, which a benchmark
+ * at a single size cannot. Each scheme is timed refining one level of a series of inputs that grow geometrically (the
+ * scheme's own output, level after level), & the empirical scaling exponent k in <code>time ~ faces^k</code> is
+ * fitted by least squares on the log-log timings. A run fails if any exponent exceeds the declared bound, so an
+ * accidental O(F) scan inside a per-vertex loop (k near 2) is caught while a linear scheme (k near 1) passes.
+ * 
+ * Three series are measured per scheme: the original object graph code (<code>refineObjectGraph</code>, whatever
+ * the kernel setting), the Polyhedron entry point & the indexed entry point. The object graph code is far slower, so
+ * it is timed on smaller inputs, capped separately; so is the Polyhedron entry point when the kernels are disabled, as
+ * it then runs the same code. The object graph code currently fails the bound (it's neighbour lookups scan the 
+ * mesh), so a default run exits with status 1 until it is fixed. Run with a fixed heap (-Xms equal to -Xmx, about 3GB
+ * for the default sizes) so heap resizing does not distort the larger sizes.
+ * 
+ * Usage: ScalingBenchmark [max input faces] [bound] [max object graph input faces]. Exits with status 1 if any 
+ * exponent exceeds the bound.
+ * 
+ * @author M Hillman
+ * @version 1.0 (04/03/2014)
+ */
+public class ScalingBenchmark {
+    
+    /** Default bound on the scaling exponent. Linear schemes fit between 0.9 & 1.2 depending on how far the larger
+     * inputs spill out of the CPU caches, while a per-vertex scan of the mesh fits close to 2. */
+    public static final double DEFAULT_BOUND = 1.25;
+    
+    /** Default size of the largest input, in faces. */
+    public static final int DEFAULT_MAX_FACES = 400000;
+    
+    /** Default size of the largest input to the object graph code, in faces. */
+    public static final int DEFAULT_MAX_OBJECT_FACES = 2000;
+    
+    /** Inputs smaller than this are dominated by fixed overheads & are not timed. */
+    private static final int MIN_FACES = 1000;
+    
+    /** Smallest input timed through the object graph code, whose per-face cost dwarfs it's fixed overheads. */
+    private static final int MIN_OBJECT_FACES = 64;
+    
+    /** Untimed runs per input, to let the JIT compile the hot loops. */
+    private static final int WARMUP_RUNS = 2;
+    
+    /** Timed runs per input; the fastest is used, being the least disturbed by GC & other processes. */
+    private static final int TIMED_RUNS = 5;
+    
+    /** Size of the largest input, in faces. */
+    private final int maxFaces;
+    
+    /** Bound on the scaling exponent. */
+    private final double bound;
+    
+    /** Size of the largest input to the object graph code, in faces. */
+    private final int maxObjectFaces;
+    
+    /** Initialises a benchmark with the default object graph input cap.
+     * 
+     * @param maxFaces int, size of the largest input in faces.
+     * @param bound double, largest acceptable scaling exponent.
+     */
+    public ScalingBenchmark(int maxFaces, double bound) {
+        this(maxFaces, bound, DEFAULT_MAX_OBJECT_FACES);
+    }
+    
+    /** Initialises a benchmark.
+     * 
+     * @param maxFaces int, size of the largest input in faces.
+     * @param bound double, largest acceptable scaling exponent.
+     * @param maxObjectFaces int, size of the largest input to the object graph code in faces.
+     */
+    public ScalingBenchmark(int maxFaces, double bound, int maxObjectFaces) {
+        this.maxFaces = maxFaces;
+        this.bound = bound;
+        this.maxObjectFaces = maxObjectFaces;
+    }
+    
+    /** Measures the object graph code & both entry points of a scheme over inputs grown from the control mesh.
+     * 
+     * @param scheme SubdivisionScheme to measure.
+     * @param control Polyhedron the inputs are grown from.
+     * @return List<Result>, one result per series.
+     * @throws IllegalArgumentException if the control mesh cannot be grown to at least three timed sizes for a series.
+     */
+    public List<Result> run(SubdivisionScheme scheme, Polyhedron control) {
+        List<IndexedMesh> levels = new ArrayList<>();
+        IndexedMesh mesh = IndexedMesh.fromPolyhedron(control);
+        while(mesh.getFaceCount() <= Math.max(maxFaces, maxObjectFaces)) {
+            levels.add(mesh);
+            mesh = scheme.refine(mesh, MeshAllocator.HEAP);
+        }
+        int maxPolyhedronFaces = SubdivisionKernels.isEnabled() ? maxFaces : maxObjectFaces;
+        int minPolyhedronFaces = SubdivisionKernels.isEnabled() ? MIN_FACES : MIN_OBJECT_FACES;
+        
+        List<Result> results = new ArrayList<>();
+        results.add(run(Series.OBJECT_GRAPH, scheme, select(levels, MIN_OBJECT_FACES, maxObjectFaces)));
+        results.add(run(Series.POLYHEDRON, scheme, select(levels, minPolyhedronFaces, maxPolyhedronFaces)));
+        results.add(run(Series.INDEXED_MESH, scheme, select(levels, MIN_FACES, maxFaces)));
+        return results;
+    }
+    
+    /** Times one series.
+     * 
+     * @param series Series, the code to time.
+     * @param scheme SubdivisionScheme to time.
+     * @param inputs List<IndexedMesh>, inputs in increasing size.
+     * @return Result, timings & fitted exponent.
+     */
+    private Result run(Series series, SubdivisionScheme scheme, List<IndexedMesh> inputs) {
+        int[] faces = new int[inputs.size()];
+        long[] nanos = new long[inputs.size()];
+        for(int i = 0; i < inputs.size(); i++) {
+            IndexedMesh input = inputs.get(i);
+            faces[i] = input.getFaceCount();
+            if(series == Series.INDEXED_MESH) {
+                nanos[i] = time(scheme, input);
+            } else {
+                nanos[i] = time(scheme, input.toPolyhedron(), series == Series.OBJECT_GRAPH);
+            }
+        }
+        return new Result(scheme.getName() + " (" + series.label + ")", faces, nanos, bound);
+    }
+    
+    /** Returns the levels within a size range, requiring at least three so an exponent can be fitted.
+     * 
+     * @param levels List<IndexedMesh>, every level grown from the control mesh.
+     * @param minFaces int, smallest input (inclusive).
+     * @param maxFaces int, largest input (inclusive).
+     * @return List<IndexedMesh>, the levels in range.
+     * @throws IllegalArgumentException if fewer than three levels are in range.
+     */
+    private static List<IndexedMesh> select(List<IndexedMesh> levels, int minFaces, int maxFaces) {
+        List<IndexedMesh> inputs = new ArrayList<>();
+        for(IndexedMesh level : levels) {
+            if(level.getFaceCount() >= minFaces && level.getFaceCount() <= maxFaces) {
+                inputs.add(level);
+            }
+        }
+        if(inputs.size() < 3) {
+            throw new IllegalArgumentException("Need at least three input sizes between " + minFaces + " and " 
+                    + maxFaces + " faces to fit an exponent.");
+        }
+        return inputs;
+    }
+    
+    /** Returns the fastest time of one level of subdivision of a Polyhedron.
+     * 
+     * @param scheme SubdivisionScheme to time.
+     * @param input Polyhedron to subdivide.
+     * @param objectGraph boolean, true to time <code>refineObjectGraph</code> rather than <code>refine</code>.
+     * @return long, fastest run in nanoseconds.
+     */
+    private static long time(SubdivisionScheme scheme, Polyhedron input, boolean objectGraph) {
+        long[] nanos = new long[TIMED_RUNS];
+        for(int run = -WARMUP_RUNS; run < TIMED_RUNS; run++) {
+            System.gc();
+            long start = System.nanoTime();
+            if(objectGraph) {
+                scheme.refineObjectGraph(input);
+            } else {
+                scheme.refine(input);
+            }
+            if(run >= 0) {
+                nanos[run] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos[0];
+    }
+    
+    /** Returns the fastest time of one level of subdivision through the indexed entry point.
+     * 
+     * @param scheme SubdivisionScheme to time.
+     * @param input IndexedMesh to subdivide.
+     * @return long, fastest run in nanoseconds.
+     */
+    private static long time(SubdivisionScheme scheme, IndexedMesh input) {
+        long[] nanos = new long[TIMED_RUNS];
+        for(int run = -WARMUP_RUNS; run < TIMED_RUNS; run++) {
+            System.gc();
+            long start = System.nanoTime();
+            scheme.refine(input, MeshAllocator.HEAP);
+            if(run >= 0) {
+                nanos[run] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(nanos);
+        return nanos[0];
+    }
+    
+    /** Fits the exponent k of <code>time = c * faces^k</code> by least squares on the logs.
+     * 
+     * @param faces int[], input sizes.
+     * @param nanos long[], times.
+     * @return double, fitted exponent.
+     */
+    public static double fitExponent(int[] faces, long[] nanos) {
+        int n = faces.length;
+        double sx = 0, sy = 0, sxx = 0, sxy = 0;
+        for(int i = 0; i < n; i++) {
+            double x = Math.log(faces[i]);
+            double y = Math.log(Math.max(1L, nanos[i]));
+            sx += x;
+            sy += y;
+            sxx += x * x;
+            sxy += x * y;
+        }
+        return (n * sxy - sx * sy) / (n * sxx - sx * sx);
+    }
+    
+    /** The code paths timed for each scheme. */
+    private enum Series {
+        
+        /** <code>refineObjectGraph</code>, the original Polyhedron code. */
+        OBJECT_GRAPH("object graph"),
+        
+        /** <code>refine(Polyhedron)</code>, which uses the kernels when they are enabled. */
+        POLYHEDRON("Polyhedron"),
+        
+        /** <code>refine(IndexedMesh, MeshAllocator)</code>. */
+        INDEXED_MESH("IndexedMesh");
+        
+        /** Name shown in the results. */
+        private final String label;
+        
+        Series(String label) {
+            this.label = label;
+        }
+    }
+    
+    /** Timings & fitted exponent of one series of one scheme. */
+    public static class Result {
+        
+        /** Name of what was measured. */
+        private final String name;
+        
+        /** Input sizes in faces. */
+        private final int[] faces;
+        
+        /** Fastest time per input. */
+        private final long[] nanos;
+        
+        /** Fitted scaling exponent. */
+        private final double exponent;
+        
+        /** Declared bound on the exponent. */
+        private final double bound;
+        
+        /** Initialises a result & fits it's exponent.
+         * 
+         * @param name String, name of what was measured.
+         * @param faces int[], input sizes.
+         * @param nanos long[], fastest times.
+         * @param bound double, declared bound.
+         */
+        Result(String name, int[] faces, long[] nanos, double bound) {
+            this.name = name;
+            this.faces = faces;
+            this.nanos = nanos;
+            this.bound = bound;
+            this.exponent = fitExponent(faces, nanos);
+        }
+        
+        /** Returns the fitted scaling exponent.
+         * 
+         * @return double, exponent.
+         */
+        public double getExponent() {
+            return exponent;
+        }
+        
+        /** Returns true if the exponent is within the declared bound.
+         * 
+         * @return boolean, true if passed.
+         */
+        public boolean isWithinBound() {
+            return exponent <= bound;
+        }
+        
+        /** Returns the timings as a table followed by the verdict.
+         * 
+         * @return String, textual result.
+         */
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append("\n");
+            for(int i = 0; i < faces.length; i++) {
+                builder.append(String.format("  %10d faces %12.3f ms %10.1f ns/face%n", 
+                        faces[i], nanos[i] / 1e6, (double) nanos[i] / faces[i]));
+            }
+            builder.append(String.format("  exponent %.3f, bound %.3f: %s%n", 
+                    exponent, bound, isWithinBound() ? "PASS" : "FAIL"));
+            return builder.toString();
+        }
+    }
+    
+    /** Runs the benchmark over both schemes & exits with status 1 if any exponent exceeds the bound.
+     * 
+     * @param args Command line arguments: optional max input faces, optional bound & optional max object graph input
+     * faces.
+     */
+    public static void main(String[] args) {
+        int maxFaces = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_MAX_FACES;
+        double bound = (args.length > 1) ? Double.parseDouble(args[1]) : DEFAULT_BOUND;
+        int maxObjectFaces = (args.length > 2) ? Integer.parseInt(args[2]) : DEFAULT_MAX_OBJECT_FACES;
+        ScalingBenchmark benchmark = new ScalingBenchmark(maxFaces, bound, maxObjectFaces);
+        
+        List<Result> results = new ArrayList<>();
+        results.addAll(benchmark.run(new CatmullClark(), PolyhedronFactory.getSquareUnitCube()));
+        results.addAll(benchmark.run(new RootThree(), PolyhedronFactory.getTriangleUnitCube()));
+        boolean passed = true;
+        for(Result result : results) {
+            System.out.print(result);
+            passed &= result.isWithinBound();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+    
+}
+//End of class.
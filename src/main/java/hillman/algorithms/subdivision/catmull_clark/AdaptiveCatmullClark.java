@@ -0,0 +1,550 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.catmull_clark;
+
+import hillman.geometries.EdgeMap;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshRegion;
+import hillman.geometries.VertexAdjacency;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** Feature adaptive Catmull-Clark tessellation. Regular quads (see <code>BicubicPatch</code>) are turned into bicubic 
+ * patches & tessellated directly, so only the faces around extraordinary vertices, boundaries & non-quads are refined 
+ * recursively - & only those faces plus the two rings their stencils need, never the whole mesh.
+ * 
+ * Each level: every face still to be covered becomes a patch if it is regular, otherwise it is kept for refinement. 
+ * The kept faces are grown by two vertex rings, cut out with <code>MeshRegion</code> & refined by one level; their 
+ * children are the faces to cover at the next level. A patch found at level k is tessellated with 2^(levels - k) 
+ * segments per side, giving the density of a uniform refinement to the requested level, & the faces still irregular at
+ * the last level are output as quads. All output points lie on the limit surface: patches are evaluated & the last 
+ * level's vertices are moved to their limit positions, so patch & quad borders meet.
+ * 
+ * Bicubic patches are the limit of the standard Catmull-Clark rules, whose edge points average the edge's end points & 
+ * face points. <code>CatmullClark</code> averages the edge midpoint & face points instead, which does not converge to 
+ * B-splines, so every refinement here uses the standard rule (see <code>CatmullClarkTopology</code>) to keep the 
+ * refined regions & the patches on one surface.
+ * 
+ * Patches are tessellated in parallel on a ForkJoinPool, each into it's own slice of the output arrays, & the points
+ * patches & quads share along their borders are then welded into one vertex, so the output is a single surface. 
+ * Points are identified by key rather than position: each vertex carries a key through the levels (a vertex point 
+ * keeps it's parent's key, edge & face points mix their parents' keys), & a patch's border samples are keyed as the 
+ * vertices of uniform refinement along it's edges would be, so neighbours at any level agree on them.
+ * 
+ * @author M Hillman
+ * @version 1.0 (26/02/2014)
+ */
+public class AdaptiveCatmullClark {
+    
+    /** Pool used when none is supplied. */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    /** Patches per task below which tessellation is not split further. */
+    private static final int PATCHES_PER_TASK = 16;
+    
+    /** Seeds keeping edge & face point keys apart from vertex keys. */
+    private static final long EDGE_SEED = 0x5DEECE66DL, FACE_SEED = 0x2545F4914F6CDD1DL;
+    
+    /** Key of an output vertex no other patch or quad shares. */
+    private static final long UNSHARED = -1L;
+    
+    /** Tessellates the limit surface of a mesh at the density of the requested level of subdivision.
+     * 
+     * @param mesh IndexedMesh, control mesh (edge-manifold).
+     * @param levels int, equivalent level of uniform subdivision.
+     * @return IndexedMesh, quads on the limit surface.
+     */
+    public static IndexedMesh tessellate(IndexedMesh mesh, int levels) {
+        return tessellate(mesh, levels, POOL);
+    }
+    
+    /** Tessellates the limit surface of a mesh at the density of the requested level of subdivision, tessellating 
+     * patches on the input pool.
+     * 
+     * @param mesh IndexedMesh, control mesh (edge-manifold).
+     * @param levels int, equivalent level of uniform subdivision.
+     * @param pool ForkJoinPool to tessellate patches on.
+     * @return IndexedMesh, quads on the limit surface.
+     * @throws IllegalArgumentException if the mesh is non-manifold, or has non-quad faces & levels is 0.
+     */
+    public static IndexedMesh tessellate(IndexedMesh mesh, int levels, ForkJoinPool pool) {
+        if(levels < 0) {
+            throw new IllegalArgumentException("Levels cannot be negative: " + levels);
+        }
+        IndexedMesh current = mesh;
+        int remaining = levels;
+        if(!isAllQuads(current)) {
+            if(remaining == 0) {
+                throw new IllegalArgumentException("A mesh with non-quad faces needs at least one level!");
+            }
+            EdgeTable edges = new EdgeTable(current);
+            if(!IndexedCatmullClark.canRefine(edges)) {
+                throw new IllegalArgumentException("Cannot tessellate a non-manifold mesh!");
+            }
+            current = new CatmullClarkTopology(current, edges, true).evaluate(current, MeshAllocator.HEAP);
+            remaining--;
+        }
+        
+        long[] keys = new long[current.getVertexCount()];
+        for(int v = 0; v < keys.length; v++) {
+            keys[v] = mix(v);
+        }
+        List<BicubicPatch> patches = new ArrayList<>();
+        List<Integer> segments = new ArrayList<>();
+        List<long[]> corners = new ArrayList<>();
+        int[] cover = new int[current.getFaceCount()];
+        for(int f = 0; f < cover.length; f++) {
+            cover[f] = f;
+        }
+        IndexedMesh quads = null;
+        long[] quadKeys = null;
+        
+        while(cover.length > 0) {
+            EdgeTable edges = new EdgeTable(current);
+            if(!IndexedCatmullClark.canRefine(edges)) {
+                throw new IllegalArgumentException("Cannot tessellate a non-manifold mesh!");
+            }
+            VertexAdjacency adjacency = new VertexAdjacency(current, edges);
+            boolean[] boundary = getBoundary(current, edges);
+            
+            int[] irregular = new int[cover.length];
+            int irregularCount = 0;
+            for(int f : cover) {
+                BicubicPatch patch = BicubicPatch.gather(current, edges, adjacency, boundary, f);
+                if(patch != null) {
+                    patches.add(patch);
+                    segments.add(1 << remaining);
+                    long[] cornerKeys = new long[4];
+                    for(int k = 0; k < 4; k++) {
+                        cornerKeys[k] = keys[current.getFaceVertex(f, k)];
+                    }
+                    corners.add(cornerKeys);
+                } else {
+                    irregular[irregularCount++] = f;
+                }
+            }
+            irregular = Arrays.copyOf(irregular, irregularCount);
+            if(irregularCount == 0) {
+                break;
+            }
+            if(remaining == 0) {
+                MeshRegion region = MeshRegion.extract(current, irregular);
+                quads = getLimitFaces(current, edges, adjacency, boundary, region);
+                quadKeys = getRegionKeys(region, keys);
+                break;
+            }
+            
+            MeshRegion region = MeshRegion.extract(current, MeshRegion.grow(current, adjacency, irregular, 2));
+            CatmullClarkTopology topology = new CatmullClarkTopology(region.getMesh(), new EdgeTable(region.getMesh()), 
+                    true);
+            IndexedMesh next = topology.evaluate(region.getMesh(), MeshAllocator.HEAP);
+            keys = getChildKeys(region.getMesh(), topology, getRegionKeys(region, keys));
+            
+            BitSet kept = new BitSet(current.getFaceCount());
+            for(int f : irregular) {
+                kept.set(f);
+            }
+            int[] children = new int[next.getFaceCount()];
+            int childCount = 0;
+            for(int c = 0; c < next.getFaceCount(); c++) {
+                if(kept.get(region.getSourceFace(topology.getParentFace(c)))) {
+                    children[childCount++] = c;
+                }
+            }
+            cover = Arrays.copyOf(children, childCount);
+            current = next;
+            remaining--;
+        }
+        return assemble(patches, segments, corners, quads, quadKeys, pool);
+    }
+    
+    /** Returns true if every face of the mesh is a quad.
+     * 
+     * @param mesh IndexedMesh to check.
+     * @return boolean, true if all quads.
+     */
+    private static boolean isAllQuads(IndexedMesh mesh) {
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            if(mesh.getFaceSize(f) != 4) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** Returns the keys of a region's vertices.
+     * 
+     * @param region MeshRegion cut out of a mesh.
+     * @param keys long[], keys of the mesh's vertices.
+     * @return long[], keys of the region's vertices.
+     */
+    private static long[] getRegionKeys(MeshRegion region, long[] keys) {
+        long[] regionKeys = new long[region.getMesh().getVertexCount()];
+        for(int v = 0; v < regionKeys.length; v++) {
+            regionKeys[v] = keys[region.getSourceVertex(v)];
+        }
+        return regionKeys;
+    }
+    
+    /** Returns the keys of a refined mesh's vertices, laid out [vertex points | edge points | face points]: a vertex 
+     * point keeps it's parent's key, an edge point mixes it's end keys & a face point it's corner keys, in either case
+     * regardless of order.
+     * 
+     * @param parent IndexedMesh, mesh refined.
+     * @param topology CatmullClarkTopology of the refinement.
+     * @param keys long[], keys of the parent's vertices.
+     * @return long[], keys of the child's vertices.
+     */
+    private static long[] getChildKeys(IndexedMesh parent, CatmullClarkTopology topology, long[] keys) {
+        EdgeTable edges = topology.getEdgeTable();
+        long[] childKeys = Arrays.copyOf(keys, topology.getChildVertexCount());
+        int next = parent.getVertexCount();
+        for(int e = 0; e < edges.getEdgeCount(); e++) {
+            childKeys[next++] = getEdgeKey(keys[edges.getStart(e)], keys[edges.getEnd(e)]);
+        }
+        for(int f = 0; f < parent.getFaceCount(); f++) {
+            long sum = FACE_SEED;
+            for(int k = parent.getFaceOffset(f); k < parent.getFaceOffset(f + 1); k++) {
+                sum += mix(keys[parent.getIndex(k)]);
+            }
+            childKeys[next++] = mix(sum);
+        }
+        return childKeys;
+    }
+    
+    /** Returns the key of an edge's midpoint, whichever way round the edge is given.
+     * 
+     * @param a long, key of one end.
+     * @param b long, key of the other end.
+     * @return long, key of the edge point.
+     */
+    private static long getEdgeKey(long a, long b) {
+        return mix(mix(EDGE_SEED ^ Math.min(a, b)) + Math.max(a, b));
+    }
+    
+    /** Keys the samples along a patch edge as the vertices of uniform refinement along the edge: the midpoint is the 
+     * edge point, & each half is keyed the same way one level down.
+     * 
+     * @param a long, key of the first end.
+     * @param b long, key of the last end.
+     * @param segments int, number of segments (a power of two).
+     * @param out long[], keys of samples 0 to segments, written at the input offset.
+     * @param offset int, position of sample 0 in the output.
+     */
+    private static void getSampleKeys(long a, long b, int segments, long[] out, int offset) {
+        out[offset] = a;
+        out[offset + segments] = b;
+        if(segments > 1) {
+            int half = segments >>> 1;
+            long middle = getEdgeKey(a, b);
+            getSampleKeys(a, middle, half, out, offset);
+            getSampleKeys(middle, b, half, out, offset + half);
+        }
+    }
+    
+    /** Scrambles a 64 bit value into a non-negative key (the murmur3 finaliser, top bit cleared).
+     * 
+     * @param h long, value to mix.
+     * @return long, mixed key.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB93FE51A858BL;
+        h ^= h >>> 33;
+        return h & Long.MAX_VALUE;
+    }
+    
+    /** Flags the vertices on boundary edges.
+     * 
+     * @param mesh IndexedMesh to check.
+     * @param edges EdgeTable of the mesh.
+     * @return boolean[], true for boundary vertices.
+     */
+    private static boolean[] getBoundary(IndexedMesh mesh, EdgeTable edges) {
+        boolean[] boundary = new boolean[mesh.getVertexCount()];
+        for(int e = 0; e < edges.getEdgeCount(); e++) {
+            if(edges.isBoundary(e)) {
+                boundary[edges.getStart(e)] = true;
+                boundary[edges.getEnd(e)] = true;
+            }
+        }
+        return boundary;
+    }
+    
+    /** Moves every vertex of a region to it's Catmull-Clark limit position: 
+     * (n^2 P + 4 (sum of edge neighbours) + (sum of diagonal neighbours)) / (n (n + 5)) for interior vertices, or 
+     * (previous + 4P + next) / 6 along a boundary. The stencil assumes every face around the vertex is a quad, which 
+     * <code>tessellate</code> ensures by refining non-quad meshes at least once.
+     * 
+     * @param mesh IndexedMesh holding the faces (all quads).
+     * @param edges EdgeTable of the mesh.
+     * @param adjacency VertexAdjacency of the mesh.
+     * @param boundary boolean[], true for boundary vertices.
+     * @param region MeshRegion, faces to output.
+     * @return IndexedMesh, the faces on the limit surface.
+     */
+    private static IndexedMesh getLimitFaces(IndexedMesh mesh, EdgeTable edges, VertexAdjacency adjacency, 
+            boolean[] boundary, MeshRegion region) {
+        IndexedMesh out = region.getMesh();
+        for(int i = 0; i < out.getVertexCount(); i++) {
+            int v = region.getSourceVertex(i);
+            float x = 0.0f, y = 0.0f, z = 0.0f;
+            float weight;
+            if(boundary[v]) {
+                int neighbours = 0;
+                for(int j = 0; j < adjacency.getEdgeCount(v); j++) {
+                    int e = adjacency.getEdge(v, j);
+                    if(edges.isBoundary(e)) {
+                        int other = (edges.getStart(e) == v) ? edges.getEnd(e) : edges.getStart(e);
+                        x += mesh.getX(other);
+                        y += mesh.getY(other);
+                        z += mesh.getZ(other);
+                        neighbours++;
+                    }
+                }
+                if(neighbours != 2) {
+                    continue;
+                }
+                x += 4.0f * mesh.getX(v);
+                y += 4.0f * mesh.getY(v);
+                z += 4.0f * mesh.getZ(v);
+                weight = 6.0f;
+            } else {
+                float n = adjacency.getFaceCount(v);
+                for(int j = 0; j < adjacency.getEdgeCount(v); j++) {
+                    int e = adjacency.getEdge(v, j);
+                    int other = (edges.getStart(e) == v) ? edges.getEnd(e) : edges.getStart(e);
+                    x += 4.0f * mesh.getX(other);
+                    y += 4.0f * mesh.getY(other);
+                    z += 4.0f * mesh.getZ(other);
+                }
+                for(int j = 0; j < adjacency.getFaceCount(v); j++) {
+                    int f = adjacency.getFace(v, j);
+                    int offset = mesh.getFaceOffset(f);
+                    int size = mesh.getFaceSize(f);
+                    for(int k = 0; k < size; k++) {
+                        if(mesh.getIndex(offset + k) == v) {
+                            int diagonal = mesh.getIndex(offset + (k + 2) % size);
+                            x += mesh.getX(diagonal);
+                            y += mesh.getY(diagonal);
+                            z += mesh.getZ(diagonal);
+                        }
+                    }
+                }
+                x += n * n * mesh.getX(v);
+                y += n * n * mesh.getY(v);
+                z += n * n * mesh.getZ(v);
+                weight = n * (n + 5.0f);
+            }
+            out.setPosition(i, x / weight, y / weight, z / weight);
+        }
+        return out;
+    }
+    
+    /** Tessellates every patch into one output mesh, followed by the remaining quads, welding the points they 
+     * share. A shared point takes the position of the first patch (or quad) to produce it; neighbours evaluate it from 
+     * different control points, so their positions agree only to rounding.
+     * 
+     * @param patches List<BicubicPatch>, patches to tessellate.
+     * @param segments List<Integer>, segments per side of each patch.
+     * @param corners List<long[]>, keys of each patch's corners.
+     * @param quads IndexedMesh, remaining faces (may be null).
+     * @param quadKeys long[], keys of the remaining faces' vertices (null if there are none).
+     * @param pool ForkJoinPool to tessellate on.
+     * @return IndexedMesh, the tessellation.
+     */
+    private static IndexedMesh assemble(List<BicubicPatch> patches, List<Integer> segments, List<long[]> corners, 
+            IndexedMesh quads, long[] quadKeys, ForkJoinPool pool) {
+        int count = patches.size();
+        int[] vertexBase = new int[count + 1];
+        int[] faceBase = new int[count + 1];
+        int shared = 0;
+        for(int p = 0; p < count; p++) {
+            int s = segments.get(p);
+            vertexBase[p + 1] = vertexBase[p] + (s + 1) * (s + 1);
+            faceBase[p + 1] = faceBase[p] + s * s;
+            shared += 4 * s;
+        }
+        int extraVertices = (quads == null) ? 0 : quads.getVertexCount();
+        int extraFaces = (quads == null) ? 0 : quads.getFaceCount();
+        int extraIndices = (quads == null) ? 0 : quads.getIndexCount();
+        int slotCount = vertexBase[count] + extraVertices;
+        float[] xs = new float[slotCount], ys = new float[slotCount], zs = new float[slotCount];
+        long[] keys = new long[slotCount];
+        int[] offsets = new int[faceBase[count] + extraFaces + 1];
+        int[] indices = new int[4 * faceBase[count] + extraIndices];
+        
+        int[] sizes = new int[count];
+        for(int p = 0; p < count; p++) {
+            sizes[p] = segments.get(p);
+        }
+        pool.invoke(new TessellateTask(patches, sizes, corners, vertexBase, faceBase, 0, count, xs, ys, zs, keys, 
+                offsets, indices));
+        
+        if(quads != null) {
+            int v0 = vertexBase[count];
+            int f0 = faceBase[count];
+            for(int v = 0; v < extraVertices; v++) {
+                xs[v0 + v] = quads.getX(v);
+                ys[v0 + v] = quads.getY(v);
+                zs[v0 + v] = quads.getZ(v);
+                keys[v0 + v] = quadKeys[v];
+            }
+            for(int f = 0; f < extraFaces; f++) {
+                offsets[f0 + f] = 4 * f0 + quads.getFaceOffset(f);
+            }
+            for(int i = 0; i < extraIndices; i++) {
+                indices[4 * f0 + i] = v0 + quads.getIndex(i);
+            }
+        }
+        offsets[offsets.length - 1] = indices.length;
+        
+        //Weld: one vertex per key, keeping the first slot's position.
+        EdgeMap welded = new EdgeMap(shared + extraVertices);
+        int[] ids = new int[slotCount];
+        int vertexCount = 0;
+        for(int slot = 0; slot < slotCount; slot++) {
+            int id = (keys[slot] == UNSHARED) ? EdgeMap.MISSING : welded.putIfAbsent(keys[slot], vertexCount);
+            if(id == EdgeMap.MISSING) {
+                id = vertexCount;
+                xs[vertexCount] = xs[slot];
+                ys[vertexCount] = ys[slot];
+                zs[vertexCount] = zs[slot];
+                vertexCount++;
+            }
+            ids[slot] = id;
+        }
+        for(int i = 0; i < indices.length; i++) {
+            indices[i] = ids[indices[i]];
+        }
+        return new IndexedMesh(Arrays.copyOf(xs, vertexCount), Arrays.copyOf(ys, vertexCount), 
+                Arrays.copyOf(zs, vertexCount), offsets, indices);
+    }
+    
+    /** Tessellates a range of patches, splitting the range in half until it is small enough to run directly. */
+    private static class TessellateTask extends RecursiveAction {
+        
+        /** Serialisation version, as ForkJoinTask is Serializable. */
+        private static final long serialVersionUID = 1L;
+        
+        /** Patches to tessellate. */
+        private final List<BicubicPatch> patches;
+        
+        /** Segments per side of each patch. */
+        private final int[] segments;
+        
+        /** Keys of each patch's corners. */
+        private final List<long[]> corners;
+        
+        /** First output vertex of each patch. */
+        private final int[] vertexBase;
+        
+        /** First output face of each patch. */
+        private final int[] faceBase;
+        
+        /** Range of patches (from inclusive, to exclusive). */
+        private final int from, to;
+        
+        /** Output positions. */
+        private final float[] xs, ys, zs;
+        
+        /** Output vertex keys, UNSHARED inside patches. */
+        private final long[] keys;
+        
+        /** Output face offsets & indices. */
+        private final int[] offsets, indices;
+        
+        TessellateTask(List<BicubicPatch> patches, int[] segments, List<long[]> corners, int[] vertexBase, 
+                int[] faceBase, int from, int to, float[] xs, float[] ys, float[] zs, long[] keys, int[] offsets, 
+                int[] indices) {
+            this.patches = patches;
+            this.segments = segments;
+            this.corners = corners;
+            this.vertexBase = vertexBase;
+            this.faceBase = faceBase;
+            this.from = from;
+            this.to = to;
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.keys = keys;
+            this.offsets = offsets;
+            this.indices = indices;
+        }
+        
+        @Override
+        protected void compute() {
+            if(to - from > PATCHES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new TessellateTask(patches, segments, corners, vertexBase, faceBase, from, middle, xs, ys, 
+                        zs, keys, offsets, indices), new TessellateTask(patches, segments, corners, vertexBase, 
+                        faceBase, middle, to, xs, ys, zs, keys, offsets, indices));
+                return;
+            }
+            long[] side = new long[0];
+            for(int p = from; p < to; p++) {
+                int s = segments[p];
+                int base = vertexBase[p];
+                patches.get(p).tessellate(s, xs, ys, zs, base);
+                
+                //Key the border samples: u runs c0 -> c1 & c3 -> c2, v runs c0 -> c3 & c1 -> c2.
+                long[] cornerKeys = corners.get(p);
+                if(side.length < s + 1) {
+                    side = new long[s + 1];
+                }
+                Arrays.fill(keys, base, base + (s + 1) * (s + 1), UNSHARED);
+                getSampleKeys(cornerKeys[0], cornerKeys[1], s, side, 0);
+                for(int u = 0; u <= s; u++) {
+                    keys[base + u] = side[u];
+                }
+                getSampleKeys(cornerKeys[3], cornerKeys[2], s, side, 0);
+                for(int u = 0; u <= s; u++) {
+                    keys[base + s * (s + 1) + u] = side[u];
+                }
+                getSampleKeys(cornerKeys[0], cornerKeys[3], s, side, 0);
+                for(int t = 0; t <= s; t++) {
+                    keys[base + t * (s + 1)] = side[t];
+                }
+                getSampleKeys(cornerKeys[1], cornerKeys[2], s, side, 0);
+                for(int t = 0; t <= s; t++) {
+                    keys[base + t * (s + 1) + s] = side[t];
+                }
+                
+                int face = faceBase[p];
+                for(int t = 0; t < s; t++) {
+                    for(int u = 0; u < s; u++) {
+                        int corner = base + t * (s + 1) + u;
+                        offsets[face] = 4 * face;
+                        indices[4 * face] = corner;
+                        indices[4 * face + 1] = corner + 1;
+                        indices[4 * face + 2] = corner + s + 2;
+                        indices[4 * face + 3] = corner + s + 1;
+                        face++;
+                    }
+                }
+            }
+        }
+    }
+    
+}
+//End of class.
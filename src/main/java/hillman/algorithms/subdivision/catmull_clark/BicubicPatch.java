@@ -0,0 +1,237 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.catmull_clark;
+
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.VertexAdjacency;
+
+/** A uniform bicubic B-spline patch, which is exactly the Catmull-Clark limit surface of a regular quad: one whose 
+ * four corners are interior valence-4 vertices & whose eight neighbouring faces are all quads. The patch is defined 
+ * by the 4x4 grid of vertices made of the quad & it's one-ring, & can be evaluated at any (u, v) directly, with no 
+ * further refinement.
+ * 
+ * The quad's corners c0 -> c1 -> c2 -> c3 sit at grid points (1,1), (2,1), (2,2) & (1,2), so u runs from c0 to c1, 
+ * v from c0 to c3 & the patch keeps the face's winding.
+ * 
+ * @author M Hillman
+ * @version 1.0 (26/02/2014)
+ */
+public class BicubicPatch {
+    
+    /** Control points, XYZ interleaved, point (i, j) at 3 * (4j + i). */
+    private final float[] control;
+    
+    /** Creates a patch from it's control grid.
+     * 
+     * @param control float[], 16 XYZ control points, point (i, j) at 3 * (4j + i).
+     */
+    public BicubicPatch(float[] control) {
+        if(control.length != 48) {
+            throw new IllegalArgumentException("A bicubic patch needs 16 control points!");
+        }
+        this.control = control;
+    }
+    
+    /** Builds the patch of a mesh face if the face is regular, gathering the 4x4 control grid by walking across it's 
+     * edges: the face across each edge gives the two grid points beyond that edge, & the face across that face's
+     * outer edge at a corner gives the diagonal grid point.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param edges EdgeTable of the mesh.
+     * @param adjacency VertexAdjacency of the mesh.
+     * @param boundary boolean[], true for vertices on a boundary edge.
+     * @param f int, face index.
+     * @return BicubicPatch, the face's patch, or null if the face is not regular.
+     */
+    public static BicubicPatch gather(IndexedMesh mesh, EdgeTable edges, VertexAdjacency adjacency, 
+            boolean[] boundary, int f) {
+        if(mesh.getFaceSize(f) != 4) {
+            return null;
+        }
+        int[] corner = new int[4];
+        for(int k = 0; k < 4; k++) {
+            corner[k] = mesh.getFaceVertex(f, k);
+            if(boundary[corner[k]] || adjacency.getFaceCount(corner[k]) != 4 || adjacency.getEdgeCount(corner[k]) != 4) {
+                return null;
+            }
+        }
+        
+        //Per edge k (corner k -> k+1): the outer points next to corner k & corner k+1, & the diagonal at corner k.
+        int[] outerA = new int[4];
+        int[] outerB = new int[4];
+        int[] diagonal = new int[4];
+        for(int k = 0; k < 4; k++) {
+            int a = corner[k];
+            int b = corner[(k + 1) % 4];
+            int g = getAcross(mesh, edges, f, k);
+            if(g < 0 || mesh.getFaceSize(g) != 4) {
+                return null;
+            }
+            int pa = getPosition(mesh, g, a);
+            int pb = getPosition(mesh, g, b);
+            int na = ((pa + 1) % 4 == pb) ? (pa + 3) % 4 : (pa + 1) % 4;
+            int nb = ((pb + 1) % 4 == pa) ? (pb + 3) % 4 : (pb + 1) % 4;
+            outerA[k] = mesh.getFaceVertex(g, na);
+            outerB[k] = mesh.getFaceVertex(g, nb);
+            
+            int h = getAcross(mesh, edges, g, ((pa + 1) % 4 == na) ? pa : na);
+            if(h < 0 || mesh.getFaceSize(h) != 4) {
+                return null;
+            }
+            diagonal[k] = mesh.getFaceVertex(h, (getPosition(mesh, h, a) + 2) % 4);
+        }
+        
+        int[] grid = {
+            diagonal[0], outerA[0], outerB[0], diagonal[1],
+            outerB[3], corner[0], corner[1], outerA[1],
+            outerA[3], corner[3], corner[2], outerB[1],
+            diagonal[3], outerB[2], outerA[2], diagonal[2]
+        };
+        float[] points = new float[48];
+        for(int i = 0; i < 16; i++) {
+            points[3 * i] = mesh.getX(grid[i]);
+            points[3 * i + 1] = mesh.getY(grid[i]);
+            points[3 * i + 2] = mesh.getZ(grid[i]);
+        }
+        return new BicubicPatch(points);
+    }
+    
+    /** Evaluates the patch at a parameter pair.
+     * 
+     * @param u float, parameter from corner 0 towards corner 1 (0 to 1).
+     * @param v float, parameter from corner 0 towards corner 3 (0 to 1).
+     * @param out float[], receives the XYZ point.
+     * @param offset int, position in <code>out</code> to write to.
+     */
+    public void evaluate(float u, float v, float[] out, int offset) {
+        float[] bu = new float[4];
+        float[] bv = new float[4];
+        getBasis(u, bu);
+        getBasis(v, bv);
+        float x = 0.0f, y = 0.0f, z = 0.0f;
+        for(int j = 0; j < 4; j++) {
+            for(int i = 0; i < 4; i++) {
+                float w = bu[i] * bv[j];
+                int p = 3 * (4 * j + i);
+                x += w * control[p];
+                y += w * control[p + 1];
+                z += w * control[p + 2];
+            }
+        }
+        out[offset] = x;
+        out[offset + 1] = y;
+        out[offset + 2] = z;
+    }
+    
+    /** Evaluates a (segments + 1) x (segments + 1) grid of points, row by row (v outer, u inner), into the output 
+     * arrays. The u & v basis weights are computed once per column & row rather than per point.
+     * 
+     * @param segments int, number of segments along each side.
+     * @param xs float[], X output.
+     * @param ys float[], Y output.
+     * @param zs float[], Z output.
+     * @param base int, first output vertex.
+     */
+    public void tessellate(int segments, float[] xs, float[] ys, float[] zs, int base) {
+        int samples = segments + 1;
+        float[] basis = new float[4 * samples];
+        float[] weights = new float[4];
+        for(int s = 0; s < samples; s++) {
+            getBasis((float) s / segments, weights);
+            System.arraycopy(weights, 0, basis, 4 * s, 4);
+        }
+        //Blend the rows of the grid by v first, then each row result by u.
+        float[] row = new float[12];
+        int out = base;
+        for(int t = 0; t < samples; t++) {
+            for(int i = 0; i < 4; i++) {
+                float x = 0.0f, y = 0.0f, z = 0.0f;
+                for(int j = 0; j < 4; j++) {
+                    float w = basis[4 * t + j];
+                    int p = 3 * (4 * j + i);
+                    x += w * control[p];
+                    y += w * control[p + 1];
+                    z += w * control[p + 2];
+                }
+                row[3 * i] = x;
+                row[3 * i + 1] = y;
+                row[3 * i + 2] = z;
+            }
+            for(int s = 0; s < samples; s++) {
+                float x = 0.0f, y = 0.0f, z = 0.0f;
+                for(int i = 0; i < 4; i++) {
+                    float w = basis[4 * s + i];
+                    x += w * row[3 * i];
+                    y += w * row[3 * i + 1];
+                    z += w * row[3 * i + 2];
+                }
+                xs[out] = x;
+                ys[out] = y;
+                zs[out] = z;
+                out++;
+            }
+        }
+    }
+    
+    /** Calculates the four uniform cubic B-spline basis weights at a parameter.
+     * 
+     * @param t float, parameter (0 to 1).
+     * @param out float[], receives the four weights.
+     */
+    static void getBasis(float t, float[] out) {
+        float s = 1.0f - t;
+        float t2 = t * t;
+        float t3 = t2 * t;
+        out[0] = (s * s * s) / 6.0f;
+        out[1] = (3.0f * t3 - 6.0f * t2 + 4.0f) / 6.0f;
+        out[2] = (-3.0f * t3 + 3.0f * t2 + 3.0f * t + 1.0f) / 6.0f;
+        out[3] = t3 / 6.0f;
+    }
+    
+    /** Returns the face across one of a face's edges.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param edges EdgeTable of the mesh.
+     * @param f int, face index.
+     * @param k int, edge (corner k to corner k+1) of the face.
+     * @return int, face across the edge, or -1 on a boundary.
+     */
+    static int getAcross(IndexedMesh mesh, EdgeTable edges, int f, int k) {
+        int e = edges.getCornerEdge(mesh.getFaceOffset(f) + k);
+        if(edges.isBoundary(e)) {
+            return -1;
+        }
+        return (edges.getFace0(e) == f) ? edges.getFace1(e) : edges.getFace0(e);
+    }
+    
+    /** Returns the position of a vertex within a face.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param f int, face index.
+     * @param v int, vertex index.
+     * @return int, corner of the face holding the vertex, or -1 if absent.
+     */
+    private static int getPosition(IndexedMesh mesh, int f, int v) {
+        for(int k = 0; k < mesh.getFaceSize(f); k++) {
+            if(mesh.getFaceVertex(f, k) == v) {
+                return k;
+            }
+        }
+        return -1;
+    }
+    
+}
+//End of class.
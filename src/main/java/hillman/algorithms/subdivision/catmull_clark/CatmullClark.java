@@ -14,15 +14,26 @@
 */
 package hillman.algorithms.subdivision.catmull_clark;
 
+import hillman.algorithms.subdivision.LevelOfDetailCache;
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.RefinementTopology;
+import hillman.algorithms.subdivision.StorageBackend;
 import hillman.algorithms.subdivision.SubdivisionAlgorithm;
 import hillman.algorithms.subdivision.SubdivisionHandler;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.algorithms.subdivision.SubdivisionLevelEvent;
+import hillman.algorithms.subdivision.SubdivisionPlan;
+import hillman.algorithms.subdivision.SubdivisionPlanner;
+import hillman.algorithms.subdivision.SubdivisionScheme;
 import hillman.geometries.Edge3D;
+import hillman.geometries.EdgeTable;
 import hillman.geometries.Face3D;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
 import hillman.geometries.Polyhedron;
 import hillman.geometries.PolyhedronFactory;
 import hillman.geometries.Vertex3D;
 import hillman.opengl.DrawingFrame;
-import hillman.opengl.LibrarySetup;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -31,7 +42,7 @@ import java.util.List;
  * @author M Hillman
  * @version 1.0 (25/11/2013).
  */
-public class CatmullClark implements SubdivisionAlgorithm, Runnable {
+public class CatmullClark implements SubdivisionAlgorithm, SubdivisionScheme, Runnable {
     
     /** Polyhedron for subdivision. */
     private Polyhedron polyhedron;
@@ -42,15 +53,30 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
     /** DrawingFrame object used as target for resulting polyhedron. */
     private DrawingFrame frame;
     
+    /** Cache of previously computed levels, so stepping back down or re-showing a level is instant. */
+    private final LevelOfDetailCache levels = new LevelOfDetailCache(this);
+    
+    /** Admission control, so a level that cannot fit in memory is refused rather than started. */
+    private final SubdivisionPlanner planner = new SubdivisionPlanner();
+    
     /** Sets the Polyhedron object for subdivision, creates a CatmullClarkUtilities
      * object to handle additional mathematical calculation, finally creates a Thread
      * object and begins subdivision.
+     * A level that is not cached & that the planner predicts will not fit in memory is refused, with the reason shown 
+     * on the frame.
      * 
      * @param polyhedron Polyhedron for subdivision.
      * @param frame DrawingFrame to push resulting Polyhedron to.
      */
     @Override
     public void subdivide(Polyhedron polyhedron, DrawingFrame frame) {
+        if(!levels.containsNext(polyhedron)) {
+            SubdivisionPlan plan = planner.plan(polyhedron, this, 1, StorageBackend.OBJECT_GRAPH);
+            if(plan.getDecision() != SubdivisionPlan.Decision.ACCEPT) {
+                frame.drawString("Cannot subdivide - " + plan);
+                return;
+            }
+        }
         this.polyhedron = polyhedron;
         this.frame = frame;
         this.utils = new CatmullClarkUtils(polyhedron);
@@ -60,7 +86,101 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
         thread.start();
     }
     
-    /** Main logic for the Catmull-Clark algorithm, pushes final polyhedron to the DrawingFrame when done. In essence,
+    /** Replaces the input polyhedron on the DrawingFrame with the previous (coarser) level, taken from the
+     * level cache where possible. Does nothing if the polyhedron is a control mesh. A level that was evicted is 
+     * rebuilt on a thread of it's own, so the caller is not held up.
+     * 
+     * @param polyhedron Polyhedron currently on screen.
+     * @param frame DrawingFrame to push the coarser Polyhedron to.
+     */
+    public void coarsen(final Polyhedron polyhedron, final DrawingFrame frame) {
+        if(levels.containsPrevious(polyhedron)) {
+            show(levels.previous(polyhedron), polyhedron, frame);
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                frame.drawString("Rebuilding Catmull-Clark level...");
+                show(levels.previous(polyhedron), polyhedron, frame);
+                frame.drawString("");
+            }
+        });
+        thread.setName("Catmull-Clark Coarsening");
+        thread.start();
+    }
+    
+    /** Replaces the polyhedron on the DrawingFrame with the coarser level, unless they are the same.
+     * 
+     * @param previous Polyhedron, coarser level.
+     * @param polyhedron Polyhedron currently on screen.
+     * @param frame DrawingFrame to push the coarser Polyhedron to.
+     */
+    private static void show(Polyhedron previous, Polyhedron polyhedron, DrawingFrame frame) {
+        if(previous != polyhedron) {
+            frame.clearPolyhedrons();
+            frame.addPolyhedron(previous);
+        }
+    }
+    
+    /** Returns the level cache used by this instance, e.g. to adjust it's memory budget.
+     * 
+     * @return LevelOfDetailCache, cache of subdivided levels.
+     */
+    public LevelOfDetailCache getLevelCache() {
+        return levels;
+    }
+    
+    /** Streams the next level of the polyhedron to the DrawingFrame as it's faces are produced, re-using a cached 
+     * level if one exists (see <code>refine</code> for the algorithm itself).
+     */
+    @Override
+    public void run() {
+        frame.drawString("Running Catmull-Clark Subdivision...");
+        SubdivisionLevelEvent event = new SubdivisionLevelEvent(getName(), levels.getLevelOf(polyhedron) + 1, 
+                polyhedron.getNumberOfFaces());
+        event.setCached(levels.containsNext(polyhedron));
+        event.begin();
+        Polyhedron result = levels.next(polyhedron, frame.beginStream());
+        event.setOutputFaces(result.getNumberOfFaces());
+        event.commit();
+        frame.endStream(result);
+        frame.drawString("");
+    }
+    
+    /** Predicts the next level's counts: one vertex per vertex, edge & face, one quad per face corner & two edges per 
+     * edge plus one per face corner.
+     * 
+     * @param counts MeshCounts of the current level.
+     * @return MeshCounts, predicted counts of the next level.
+     */
+    @Override
+    public MeshCounts predict(MeshCounts counts) {
+        return new MeshCounts(counts.getVertices() + counts.getEdges() + counts.getFaces(), 
+                2 * counts.getEdges() + counts.getIndices(), counts.getIndices(), 4 * counts.getIndices());
+    }
+    
+    /** Returns the support of a face's descendants: one ring for any number of levels, as each level's stencils only 
+     * reach the faces around the corners of the previous level's faces, which all lie within the first ring.
+     * 
+     * @param levels int, levels of subdivision.
+     * @return int, rings of support.
+     */
+    @Override
+    public int getSupportRings(int levels) {
+        return (levels > 0) ? 1 : 0;
+    }
+    
+    /** Returns the scheme name.
+     * 
+     * @return String, "Catmull-Clark".
+     */
+    @Override
+    public String getName() {
+        return "Catmull-Clark";
+    }
+    
+    /** Main logic for the Catmull-Clark algorithm, returns the subdivided polyhedron. In essence,
      * this method fulfils the algorithm via the following steps:
      * 
      * 1. For every vertex in the original mesh (S), calculate the new weighted vertex point - 
@@ -73,18 +193,41 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
      * 3. For each of these faces, create a new face constructed of the following vertices:
      *      vertexPoint -> edgePoint1 -> facePoint -> edgePoint2 -> vertexPoint
      * 4. Plug new faces into a Polyhedron object.
+     * 
+     * When the <code>SubdivisionKernels</code> are enabled & the mesh is edge-manifold, the same steps are carried out 
+     * by <code>IndexedCatmullClark</code> instead, falling back to <code>refineObjectGraph</code> otherwise.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
      */
     @Override
-    public void run() {
-        frame.drawString("Running Catmull-Clark Subdivision...");
+    public Polyhedron refine(Polyhedron polyhedron) {
+        if(SubdivisionKernels.isEnabled()) {
+            IndexedMesh mesh = IndexedMesh.fromPolyhedron(polyhedron);
+            EdgeTable edges = new EdgeTable(mesh);
+            if(IndexedCatmullClark.canRefine(edges)) {
+                return IndexedCatmullClark.refine(mesh, edges).toPolyhedron();
+            }
+        }
+        return refineObjectGraph(polyhedron);
+    }
+    
+    /** Carries out the steps listed on <code>refine</code> directly on the Polyhedron's object graph.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
+     */
+    @Override
+    public Polyhedron refineObjectGraph(Polyhedron polyhedron) {
+        CatmullClarkUtils utils = new CatmullClarkUtils(polyhedron);
         List<Face3D> newFaces = new ArrayList<>();
         
         for(Vertex3D vertexS : polyhedron.getVertexList()) {
             
             float valence = utils.getValence(vertexS);
             
-            Vertex3D vertexF = getVertexF(vertexS);
-            Vertex3D vertexR = getVertexR(vertexS);
+            Vertex3D vertexF = getVertexF(utils, vertexS);
+            Vertex3D vertexR = getVertexR(utils, vertexS);
             
             vertexF = utils.getVertexDividedByScalar(vertexF, valence);
             vertexR = utils.getVertexDividedByScalar(utils.getVertexMultipliedByScalar(vertexR, 2), valence);
@@ -112,9 +255,28 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
                 newFaces.add(newFace);
             }
         }
-        frame.clearPolyhedrons();
-        frame.addPolyhedron(new Polyhedron(newFaces));
-        frame.drawString("");
+        return new Polyhedron(newFaces);
+    }
+    
+    /** Performs one level of Catmull-Clark subdivision on an indexed mesh (see <code>IndexedCatmullClark</code>).
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, next level of subdivision.
+     */
+    @Override
+    public IndexedMesh refine(IndexedMesh mesh, MeshAllocator allocator) {
+        return buildTopology(mesh).evaluate(mesh, allocator);
+    }
+    
+    /** Builds the reusable refinement tables for an indexed mesh's connectivity.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @return RefinementTopology, one level of refinement for the mesh's connectivity.
+     */
+    @Override
+    public RefinementTopology buildTopology(IndexedMesh mesh) {
+        return new CatmullClarkTopology(mesh, new EdgeTable(mesh));
     }
     
     /** Given an input vertex, this method returns a new vertex representing the average of all the face points of all
@@ -124,6 +286,26 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
      * @return Vertex3D, average of surrounding face points.
      */
     public Vertex3D getVertexF(Vertex3D vertexS) {
+        return getVertexF(utils, vertexS);
+    }
+    
+    /** Given an input vertex, this method returns a new vertex representing the average of all the edge mid-points of all
+     * the edges that contain the input vertex.
+     * 
+     * @param vertexS input vertex to get Catmull-Clark R value for.
+     * @return Vertex3D, average of surrounding edge mid-points.
+     */
+    public Vertex3D getVertexR(Vertex3D vertexS) {
+        return getVertexR(utils, vertexS);
+    }
+    
+    /** As <code>getVertexF(Vertex3D)</code>, using the input utilities object as the mesh source.
+     * 
+     * @param utils CatmullClarkUtils bound to the polyhedron being subdivided.
+     * @param vertexS input vertex to get Catmull-Clark F value for.
+     * @return Vertex3D, average of surrounding face points.
+     */
+    private Vertex3D getVertexF(CatmullClarkUtils utils, Vertex3D vertexS) {
         List<Vertex3D> facePoints = new ArrayList<>();
         for(Face3D face : utils.getSurroundingFaces(vertexS)) {
             facePoints.add(utils.getFacePoint(face));
@@ -131,13 +313,13 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
         return utils.getAverage(facePoints);
     }
     
-    /** Given an input vertex, this method returns a new vertex representing the average of all the edge mid-points of all
-     * the edges that contain the input vertex.
+    /** As <code>getVertexR(Vertex3D)</code>, using the input utilities object as the mesh source.
      * 
+     * @param utils CatmullClarkUtils bound to the polyhedron being subdivided.
      * @param vertexS input vertex to get Catmull-Clark R value for.
      * @return Vertex3D, average of surrounding edge mid-points.
      */
-    public Vertex3D getVertexR(Vertex3D vertexS) {
+    private Vertex3D getVertexR(CatmullClarkUtils utils, Vertex3D vertexS) {
         List<Vertex3D> edgeMids = new ArrayList<>();
         
         for(Edge3D edge : utils.getSurroundingEdges(vertexS)) {
@@ -151,7 +333,6 @@ public class CatmullClark implements SubdivisionAlgorithm, Runnable {
      * @param args Command line arguments. 
      */
     public static void main(String[] args) {
-        LibrarySetup.setPath();
         DrawingFrame frame = new DrawingFrame("Catmull-Clark Sudivision");
         frame.addKeyListener(new SubdivisionHandler(frame, new CatmullClark()));
         frame.addPolyhedron(PolyhedronFactory.getSquareUnitCube());
@@ -0,0 +1,368 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.catmull_clark;
+
+import hillman.algorithms.subdivision.IncrementalEvaluation;
+import hillman.algorithms.subdivision.RefinementTopology;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshStorage;
+import hillman.geometries.VertexAdjacency;
+
+/** The refinement tables for one level of Catmull-Clark subdivision of a given control topology: the edge table,
+ * vertex adjacency, boundary flags, vertex point weights (from the valences) & the child quads with the parent face
+ * of each. Evaluating the tables against a control mesh only computes positions, so meshes that share connectivity
+ * (an animated or edited control mesh) are refined without repeating any of the topology work.
+ * 
+ * Output vertices are laid out as [vertex points | edge points | face points], & the child quads of each parent face
+ * are stored together, in parent face order.
+ * 
+ * @author M Hillman
+ * @version 1.0 (20/02/2014)
+ */
+public class CatmullClarkTopology implements RefinementTopology {
+    
+    /** Number of vertices in the control mesh. */
+    private final int vertexCount;
+    
+    /** Number of faces in the control mesh. */
+    private final int faceCount;
+    
+    /** Number of face indices in the control mesh. */
+    private final int indexCount;
+    
+    /** Edges of the control mesh. */
+    private final EdgeTable edges;
+    
+    /** Faces & edges around each control vertex. */
+    private final VertexAdjacency adjacency;
+    
+    /** True for control vertices on a boundary edge. */
+    private final boolean[] boundary;
+    
+    /** Weight of each vertex's own position in it's vertex point. */
+    private final float[] weightS;
+    
+    /** Weight of the sum of surrounding face points in each vertex point. */
+    private final float[] weightF;
+    
+    /** Weight of the sum of surrounding edge midpoints (or boundary neighbours) in each vertex point. */
+    private final float[] weightR;
+    
+    /** True to use the standard edge point rule (a + b + f0 + f1) / 4 instead of this package's (mid + f0 + f1) / 3. */
+    private final boolean standardEdgePoints;
+    
+    /** Child quads, four indices each. */
+    private final int[] childIndices;
+    
+    /** Parent face of each child quad. */
+    private final int[] childParent;
+    
+    /** Builds the refinement tables for the input mesh's topology.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param edges EdgeTable of the mesh.
+     * @throws IllegalArgumentException if the mesh is non-manifold.
+     */
+    public CatmullClarkTopology(IndexedMesh mesh, EdgeTable edges) {
+        this(mesh, edges, false);
+    }
+    
+    /** Builds the refinement tables for the input mesh's topology, choosing the edge point rule. The standard rule, 
+     * the average of the edge's end points & face points, is the one under which regular regions converge to uniform 
+     * bicubic B-splines (see <code>AdaptiveCatmullClark</code>); <code>CatmullClark</code> itself averages the edge 
+     * midpoint & face points.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param edges EdgeTable of the mesh.
+     * @param standardEdgePoints boolean, true for (a + b + f0 + f1) / 4 edge points.
+     * @throws IllegalArgumentException if the mesh is non-manifold.
+     */
+    public CatmullClarkTopology(IndexedMesh mesh, EdgeTable edges, boolean standardEdgePoints) {
+        if(!IndexedCatmullClark.canRefine(edges)) {
+            throw new IllegalArgumentException("Cannot perform indexed Catmull-Clark subdivision on a non-manifold mesh!");
+        }
+        this.vertexCount = mesh.getVertexCount();
+        this.faceCount = mesh.getFaceCount();
+        this.indexCount = mesh.getIndexCount();
+        this.edges = edges;
+        this.adjacency = new VertexAdjacency(mesh, edges);
+        this.standardEdgePoints = standardEdgePoints;
+        
+        boundary = new boolean[vertexCount];
+        for(int e = 0; e < edges.getEdgeCount(); e++) {
+            if(edges.isBoundary(e)) {
+                boundary[edges.getStart(e)] = true;
+                boundary[edges.getEnd(e)] = true;
+            }
+        }
+        
+        //Vertex points: (F/n) + (2R/n) + ((n-3)S/n), or 3/4 S + 1/8 (sum of boundary neighbours) on a boundary.
+        weightS = new float[vertexCount];
+        weightF = new float[vertexCount];
+        weightR = new float[vertexCount];
+        for(int v = 0; v < vertexCount; v++) {
+            int faceValence = adjacency.getFaceCount(v);
+            if(boundary[v]) {
+                weightS[v] = 0.75f;
+                weightR[v] = 0.125f;
+            } else if(faceValence > 0) {
+                float n = faceValence;
+                weightS[v] = (n - 3.0f) / n;
+                weightF[v] = 1.0f / (n * n);
+                weightR[v] = 2.0f / (adjacency.getEdgeCount(v) * n);
+            } else {
+                weightS[v] = 1.0f;
+            }
+        }
+        
+        //Child quads: vertexPoint -> edgePoint(next) -> facePoint -> edgePoint(previous).
+        int edgeBase = vertexCount;
+        int faceBase = vertexCount + edges.getEdgeCount();
+        childIndices = new int[4 * indexCount];
+        childParent = new int[indexCount];
+        int child = 0;
+        for(int f = 0; f < faceCount; f++) {
+            int offset = mesh.getFaceOffset(f);
+            int size = mesh.getFaceSize(f);
+            for(int k = 0; k < size; k++) {
+                childIndices[4 * child] = mesh.getIndex(offset + k);
+                childIndices[4 * child + 1] = edgeBase + edges.getCornerEdge(offset + k);
+                childIndices[4 * child + 2] = faceBase + f;
+                childIndices[4 * child + 3] = edgeBase + edges.getCornerEdge(offset + (k + size - 1) % size);
+                childParent[child] = f;
+                child++;
+            }
+        }
+    }
+    
+    @Override
+    public int getParentVertexCount() {
+        return vertexCount;
+    }
+    
+    @Override
+    public int getParentFaceCount() {
+        return faceCount;
+    }
+    
+    @Override
+    public int getChildVertexCount() {
+        return vertexCount + edges.getEdgeCount() + faceCount;
+    }
+    
+    @Override
+    public int getChildFaceCount() {
+        return indexCount;
+    }
+    
+    @Override
+    public int getParentFace(int childFace) {
+        return childParent[childFace];
+    }
+    
+    /** Returns the edge table of the control mesh.
+     * 
+     * @return EdgeTable, control edges.
+     */
+    @Override
+    public EdgeTable getEdgeTable() {
+        return edges;
+    }
+    
+    @Override
+    public IndexedMesh evaluate(IndexedMesh mesh, MeshAllocator allocator) {
+        MeshStorage out = allocate(mesh, allocator);
+        int edgeCount = edges.getEdgeCount();
+        int faceBase = vertexCount + edgeCount;
+        
+        //Face points.
+        SubdivisionKernels.faceAverages(mesh, out, faceBase, 0, faceCount);
+        
+        //Edge points.
+        for(int e = 0; e < edgeCount; e++) {
+            setEdgePoint(mesh, out, e);
+        }
+        
+        //Per vertex sums of surrounding face points (F) & edge midpoints (R), or boundary neighbours for creases.
+        float[] posX = new float[vertexCount], posY = new float[vertexCount], posZ = new float[vertexCount];
+        float[] sumFX = new float[vertexCount], sumFY = new float[vertexCount], sumFZ = new float[vertexCount];
+        float[] sumRX = new float[vertexCount], sumRY = new float[vertexCount], sumRZ = new float[vertexCount];
+        float[] sums = new float[6];
+        for(int v = 0; v < vertexCount; v++) {
+            posX[v] = mesh.getX(v);
+            posY[v] = mesh.getY(v);
+            posZ[v] = mesh.getZ(v);
+            sumAround(mesh, out, v, sums);
+            sumFX[v] = sums[0];
+            sumFY[v] = sums[1];
+            sumFZ[v] = sums[2];
+            sumRX[v] = sums[3];
+            sumRY[v] = sums[4];
+            sumRZ[v] = sums[5];
+        }
+        SubdivisionKernels.blend(out, 0, posX, posY, posZ, weightS, sumFX, sumFY, sumFZ, weightF, 
+                sumRX, sumRY, sumRZ, weightR, vertexCount);
+        return new IndexedMesh(out);
+    }
+    
+    @Override
+    public IncrementalEvaluation beginEvaluation(IndexedMesh mesh, MeshAllocator allocator) {
+        return new Incremental(mesh, allocate(mesh, allocator));
+    }
+    
+    /** Checks the control mesh matches this topology, then allocates the refined level & writes it's faces.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return MeshStorage, refined level with connectivity but no positions.
+     * @throws IllegalArgumentException if the mesh does not match this topology.
+     */
+    private MeshStorage allocate(IndexedMesh mesh, MeshAllocator allocator) {
+        if(mesh.getVertexCount() != vertexCount || mesh.getFaceCount() != faceCount 
+                || mesh.getIndexCount() != indexCount) {
+            throw new IllegalArgumentException("Mesh does not match the refinement topology!");
+        }
+        MeshStorage out = allocator.allocate(getChildVertexCount(), indexCount, 4 * indexCount);
+        for(int child = 0; child < indexCount; child++) {
+            out.setFaceOffset(child, 4 * child);
+        }
+        for(int i = 0; i < childIndices.length; i++) {
+            out.setIndex(i, childIndices[i]);
+        }
+        return out;
+    }
+    
+    /** Writes the edge point of a control edge. The face points of the edge's faces must already be written.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param out MeshStorage, refined level.
+     * @param e int, control edge.
+     */
+    private void setEdgePoint(IndexedMesh mesh, MeshStorage out, int e) {
+        int edgeBase = vertexCount;
+        int faceBase = vertexCount + edges.getEdgeCount();
+        int a = edges.getStart(e);
+        int b = edges.getEnd(e);
+        float midX = (mesh.getX(a) + mesh.getX(b)) / 2.0f;
+        float midY = (mesh.getY(a) + mesh.getY(b)) / 2.0f;
+        float midZ = (mesh.getZ(a) + mesh.getZ(b)) / 2.0f;
+        if(edges.isBoundary(e)) {
+            out.setPosition(edgeBase + e, midX, midY, midZ);
+        } else if(standardEdgePoints) {
+            int f0 = faceBase + edges.getFace0(e);
+            int f1 = faceBase + edges.getFace1(e);
+            out.setPosition(edgeBase + e, (mesh.getX(a) + mesh.getX(b) + out.getX(f0) + out.getX(f1)) / 4.0f, 
+                    (mesh.getY(a) + mesh.getY(b) + out.getY(f0) + out.getY(f1)) / 4.0f, 
+                    (mesh.getZ(a) + mesh.getZ(b) + out.getZ(f0) + out.getZ(f1)) / 4.0f);
+        } else {
+            int f0 = faceBase + edges.getFace0(e);
+            int f1 = faceBase + edges.getFace1(e);
+            out.setPosition(edgeBase + e, (midX + out.getX(f0) + out.getX(f1)) / 3.0f, 
+                    (midY + out.getY(f0) + out.getY(f1)) / 3.0f, (midZ + out.getZ(f0) + out.getZ(f1)) / 3.0f);
+        }
+    }
+    
+    /** Sums the face points (F) & edge midpoints (R) around a control vertex, or it's boundary neighbours (R) if it 
+     * is on a crease. The face points around the vertex must already be written.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param out MeshStorage, refined level.
+     * @param v int, control vertex.
+     * @param sums float[], receives F (X, Y, Z) then R (X, Y, Z).
+     */
+    private void sumAround(IndexedMesh mesh, MeshStorage out, int v, float[] sums) {
+        int faceBase = vertexCount + edges.getEdgeCount();
+        float x = mesh.getX(v);
+        float y = mesh.getY(v);
+        float z = mesh.getZ(v);
+        float fx = 0.0f, fy = 0.0f, fz = 0.0f, rx = 0.0f, ry = 0.0f, rz = 0.0f;
+        for(int i = 0; i < adjacency.getFaceCount(v); i++) {
+            int f = faceBase + adjacency.getFace(v, i);
+            fx += out.getX(f);
+            fy += out.getY(f);
+            fz += out.getZ(f);
+        }
+        for(int i = 0; i < adjacency.getEdgeCount(v); i++) {
+            int e = adjacency.getEdge(v, i);
+            int other = edges.getStart(e) == v ? edges.getEnd(e) : edges.getStart(e);
+            if(!boundary[v]) {
+                rx += (x + mesh.getX(other)) / 2.0f;
+                ry += (y + mesh.getY(other)) / 2.0f;
+                rz += (z + mesh.getZ(other)) / 2.0f;
+            } else if(edges.isBoundary(e)) {
+                rx += mesh.getX(other);
+                ry += mesh.getY(other);
+                rz += mesh.getZ(other);
+            }
+        }
+        sums[0] = fx;
+        sums[1] = fy;
+        sums[2] = fz;
+        sums[3] = rx;
+        sums[4] = ry;
+        sums[5] = rz;
+    }
+    
+    /** Evaluates refined vertices on demand: face points directly, edge points & vertex points once the face points
+     * they depend on have been. */
+    private class Incremental extends IncrementalEvaluation {
+        
+        /** Control mesh. */
+        private final IndexedMesh parent;
+        
+        /** Refined level being filled in. */
+        private final MeshStorage out;
+        
+        /** Scratch sums for vertex points. */
+        private final float[] sums = new float[6];
+        
+        Incremental(IndexedMesh parent, MeshStorage out) {
+            super(out);
+            this.parent = parent;
+            this.out = out;
+        }
+        
+        @Override
+        protected void compute(int vertex) {
+            int edgeBase = vertexCount;
+            int faceBase = vertexCount + edges.getEdgeCount();
+            if(vertex >= faceBase) {
+                SubdivisionKernels.faceAverages(parent, out, faceBase, vertex - faceBase, vertex - faceBase + 1);
+            } else if(vertex >= edgeBase) {
+                int e = vertex - edgeBase;
+                if(!edges.isBoundary(e)) {
+                    require(faceBase + edges.getFace0(e));
+                    require(faceBase + edges.getFace1(e));
+                }
+                setEdgePoint(parent, out, e);
+            } else {
+                for(int i = 0; i < adjacency.getFaceCount(vertex); i++) {
+                    require(faceBase + adjacency.getFace(vertex, i));
+                }
+                sumAround(parent, out, vertex, sums);
+                //Same term order as SubdivisionKernels.weightedSum, so the result matches a full evaluation.
+                out.setPosition(vertex, 
+                        parent.getX(vertex) * weightS[vertex] + sums[0] * weightF[vertex] + sums[3] * weightR[vertex],
+                        parent.getY(vertex) * weightS[vertex] + sums[1] * weightF[vertex] + sums[4] * weightR[vertex],
+                        parent.getZ(vertex) * weightS[vertex] + sums[2] * weightF[vertex] + sums[5] * weightR[vertex]);
+            }
+        }
+    }
+    
+}
+//End of class.
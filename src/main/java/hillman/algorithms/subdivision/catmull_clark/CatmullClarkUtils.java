@@ -88,13 +88,8 @@ public class CatmullClarkUtils {
      * @param vertex Vertex3D to use for edge search.
      * @return Set<Edge3D> list of edges in the input face that contain the input vertex.
      */
-<<<<<<< HEAD
-    public List<Edge3D> getEdgesContainingVertex(Face3D face, Vertex3D vertex) {
-        List<Edge3D> edges = new ArrayList<>();
-=======
     public Set<Edge3D> getEdgesContainingVertex(Face3D face, Vertex3D vertex) {
         Set<Edge3D> edges = new HashSet<>();
->>>>>>> upstream/master
         for(Edge3D edge : face.getEdgeList()) {
             if(edge.containsVertex(vertex)) {
                 edges.add(edge);
@@ -108,13 +103,8 @@ public class CatmullClarkUtils {
      * @param vertex input vertex to find containing faces for.
      * @return Set<Face3D> all faces that contain the input vertex.
      */
-<<<<<<< HEAD
-    public List<Face3D> getSurroundingFaces(Vertex3D vertex) {
-        List<Face3D> faceList = new ArrayList<>();
-=======
     public Set<Face3D> getSurroundingFaces(Vertex3D vertex) {
         Set<Face3D> faceList = new HashSet<>();
->>>>>>> upstream/master
         for(Face3D face : polyhedron.getFaceList()) {
             if(face.containsVertex(vertex)) {
                 faceList.add(face);
@@ -128,15 +118,10 @@ public class CatmullClarkUtils {
      * @param vertex input vertex to find containing edge for.
      * @return Set<Edge3D> all edges that contain the input vertex.
      */
-<<<<<<< HEAD
-    public List<Edge3D> getSurroundingEdges(Vertex3D vertex) {
-        List<Edge3D> edgeList = new ArrayList<>();
-=======
     public Set<Edge3D> getSurroundingEdges(Vertex3D vertex) {
         Set<Edge3D> edgeList = new HashSet<>();
->>>>>>> upstream/master
         for(Edge3D edge : polyhedron.getEdgeList()) {
-            if(edge.containsVertex(vertex) && !edgeList.contains(edge.reverse())) {
+            if(edge.containsVertex(vertex)) {
                 edgeList.add(edge);
             }
         }
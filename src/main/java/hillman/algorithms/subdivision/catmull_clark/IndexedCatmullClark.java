@@ -0,0 +1,76 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.catmull_clark;
+
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+
+/** Catmull-Clark subdivision over an IndexedMesh, using the struct of arrays <code>SubdivisionKernels</code>. 
+ * Produces the same points as <code>CatmullClark</code> (edge points are the average of the edge midpoint & it's two
+ * face points), but with every stage a linear pass over the mesh instead of a search per vertex. Open meshes are
+ * supported: boundary edge points are edge midpoints & boundary vertices use the cubic B-spline crease rule.
+ * 
+ * Output vertices are laid out as [vertex points | edge points | face points], & the child quads of each parent face
+ * are stored together, in parent face order. Each call builds a <code>CatmullClarkTopology</code> & evaluates it once;
+ * callers refining many meshes with the same connectivity should keep the topology instead.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/02/2014)
+ */
+public class IndexedCatmullClark {
+    
+    /** Returns true if the mesh can be refined by this class (every edge is winged by at most two faces).
+     * 
+     * @param edges EdgeTable of the mesh.
+     * @return boolean, true if refinable.
+     */
+    public static boolean canRefine(EdgeTable edges) {
+        return !edges.isNonManifold();
+    }
+    
+    /** Performs one level of Catmull-Clark subdivision.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh) {
+        return refine(mesh, new EdgeTable(mesh));
+    }
+    
+    /** Performs one level of Catmull-Clark subdivision using a pre-built edge table, with the result on the heap.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param edges EdgeTable of the mesh.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh, EdgeTable edges) {
+        return refine(mesh, edges, MeshAllocator.HEAP);
+    }
+    
+    /** Performs one level of Catmull-Clark subdivision using a pre-built edge table, with the result held in storage
+     * from the input allocator.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param edges EdgeTable of the mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh, EdgeTable edges, MeshAllocator allocator) {
+        return new CatmullClarkTopology(mesh, edges).evaluate(mesh, allocator);
+    }
+    
+}
+//End of class.
@@ -0,0 +1,269 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.distributed;
+
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.algorithms.subdivision.SubdivisionSchemeFactory;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.VertexAdjacency;
+import hillman.geometries.io.BinaryMeshFormat;
+import hillman.geometries.io.ObjFormat;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/** Subdivides a mesh across several worker processes (<code>SubdivisionWorker</code> JVMs on this machine, standing 
+ * in for a cluster), exchanging parts through files in a shared work directory.
+ * 
+ * Each level the control mesh is split into one contiguous range of faces per worker, balanced by face indices. A 
+ * part is it's faces plus a one vertex ring halo - every face sharing a vertex with them - which holds the whole 
+ * stencil of every vertex, edge & face point the part's children use, so the halo is exchanged once per level & the 
+ * workers never talk to each other. The workers refine their parts in parallel & return only the children of their 
+ * own faces, numbered as in the whole refined mesh, which are stitched back in part order.
+ * 
+ * The result is bit-identical to refining the whole mesh in one process with <code>SubdivisionScheme.refine</code>:
+ * region faces keep their relative order, so every stencil sums the same values in the same order, & the children of 
+ * consecutive face ranges concatenate to the whole mesh's face order. Vertices on part borders are computed by both 
+ * parts, identically; every vertex & face of the refined mesh must be produced or the level fails, so the stitched 
+ * mesh is watertight. Workers inherit the "hillman." system properties, so they use the same kernels as this process.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/03/2014)
+ */
+public class DistributedSubdivision implements Closeable {
+    
+    /** Prefix of the system properties passed on to the workers. */
+    private static final String PROPERTY_PREFIX = "hillman.";
+    
+    /** The scheme to subdivide with. */
+    private final SubdivisionScheme scheme;
+    
+    /** Directory the parts are exchanged through. */
+    private final Path workDirectory;
+    
+    /** Worker processes. */
+    private final Process[] workers;
+    
+    /** Request stream of each worker. */
+    private final Writer[] requests;
+    
+    /** Reply stream of each worker. */
+    private final BufferedReader[] replies;
+    
+    /** Number of levels refined so far, used to name the part files. */
+    private int levelsRefined;
+    
+    /** Starts the worker processes.
+     * 
+     * @param scheme SubdivisionScheme to subdivide with.
+     * @param workerCount int, number of worker processes (& parts).
+     * @param workDirectory Path of a directory the workers can read & write.
+     * @throws IOException if a worker cannot be started.
+     */
+    public DistributedSubdivision(SubdivisionScheme scheme, int workerCount, Path workDirectory) throws IOException {
+        if(workerCount < 1) {
+            throw new IllegalArgumentException("At least one worker is required!");
+        }
+        this.scheme = scheme;
+        this.workDirectory = workDirectory;
+        this.workers = new Process[workerCount];
+        this.requests = new Writer[workerCount];
+        this.replies = new BufferedReader[workerCount];
+        Files.createDirectories(workDirectory);
+        
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        for(Map.Entry<Object, Object> property : System.getProperties().entrySet()) {
+            if(String.valueOf(property.getKey()).startsWith(PROPERTY_PREFIX)) {
+                command.add("-D" + property.getKey() + "=" + property.getValue());
+            }
+        }
+        command.add(SubdivisionWorker.class.getName());
+        command.add(scheme.getName());
+        try {
+            for(int w = 0; w < workerCount; w++) {
+                ProcessBuilder builder = new ProcessBuilder(command);
+                builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+                workers[w] = builder.start();
+                requests[w] = new OutputStreamWriter(workers[w].getOutputStream(), "UTF-8");
+                replies[w] = new BufferedReader(new InputStreamReader(workers[w].getInputStream(), "UTF-8"));
+            }
+        } catch(IOException e) {
+            close();
+            throw e;
+        }
+    }
+    
+    /** Performs a number of levels of subdivision on an indexed mesh, which is left untouched.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param levels int, number of levels.
+     * @param allocator MeshAllocator for the result & the levels in between.
+     * @return IndexedMesh, the subdivided mesh.
+     * @throws IOException if the parts cannot be exchanged or a worker fails.
+     */
+    public IndexedMesh refine(IndexedMesh mesh, int levels, MeshAllocator allocator) throws IOException {
+        IndexedMesh current = mesh;
+        for(int level = 0; level < levels; level++) {
+            current = refine(current, allocator);
+        }
+        return current;
+    }
+    
+    /** Performs a single level of subdivision on an indexed mesh, which is left untouched.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, next level of subdivision.
+     * @throws IOException if the parts cannot be exchanged or a worker fails.
+     * @throws IllegalStateException if the parts do not stitch into the whole refined mesh.
+     */
+    public IndexedMesh refine(IndexedMesh mesh, MeshAllocator allocator) throws IOException {
+        int level = levelsRefined++;
+        int faceCount = mesh.getFaceCount();
+        if(faceCount == 0) {
+            return scheme.refine(mesh, allocator);
+        }
+        EdgeTable edges = new EdgeTable(mesh);
+        VertexAdjacency adjacency = new VertexAdjacency(mesh, edges);
+        MeshCounts next = SubdivisionPart.predict(scheme, mesh, edges);
+        
+        //Split the faces into ranges of about equal index count & hand each to a worker as soon as it is written.
+        int parts = Math.min(workers.length, faceCount);
+        int[] bounds = SubdivisionPart.split(mesh, parts);
+        Path[] bases = new Path[parts];
+        boolean[] pending = new boolean[parts];
+        try {
+            for(int p = 0; p < parts; p++) {
+                if(bounds[p] == bounds[p + 1]) {
+                    continue;
+                }
+                bases[p] = workDirectory.resolve("level" + level + "-part" + p);
+                SubdivisionPart part = SubdivisionPart.cut(mesh, edges, adjacency, bounds[p], bounds[p + 1]);
+                BinaryMeshFormat.write(part.getRegion(), 
+                        SubdivisionWorker.getFile(bases[p], SubdivisionWorker.IN_MESH));
+                SubdivisionWorker.writeInts(part.getMap(), 
+                        SubdivisionWorker.getFile(bases[p], SubdivisionWorker.IN_MAP));
+                requests[p].write(bases[p] + "\n");
+                requests[p].flush();
+                pending[p] = true;
+            }
+            
+            //Stitch the parts in order as they finish.
+            SubdivisionPart.Stitcher stitcher = new SubdivisionPart.Stitcher(next, allocator);
+            for(int p = 0; p < parts; p++) {
+                if(bases[p] == null) {
+                    continue;
+                }
+                String reply = replies[p].readLine();
+                pending[p] = false;
+                if(!"ok".equals(reply)) {
+                    throw new IOException("Worker " + p + " failed: " + (reply == null ? "exited" : reply));
+                }
+                IndexedMesh part = BinaryMeshFormat.read(SubdivisionWorker.getFile(bases[p], SubdivisionWorker.OUT_MESH));
+                int[] ids = SubdivisionWorker.readInts(SubdivisionWorker.getFile(bases[p], SubdivisionWorker.OUT_IDS));
+                stitcher.add(new SubdivisionPart.Refined(part, ids), p);
+            }
+            return stitcher.finish();
+        } finally {
+            for(int p = 0; p < parts; p++) {
+                if(pending[p]) {
+                    replies[p].readLine();
+                }
+                if(bases[p] != null) {
+                    delete(bases[p]);
+                }
+            }
+        }
+    }
+    
+    /** Deletes a part's files. Files still mapped on platforms that refuse to delete them are left to the JVM's exit.
+     * 
+     * @param base Path, base path of the part's files.
+     */
+    private static void delete(Path base) {
+        String[] suffixes = {SubdivisionWorker.IN_MESH, SubdivisionWorker.IN_MAP, SubdivisionWorker.OUT_MESH, 
+            SubdivisionWorker.OUT_IDS};
+        for(String suffix : suffixes) {
+            Path file = SubdivisionWorker.getFile(base, suffix);
+            try {
+                Files.deleteIfExists(file);
+            } catch(IOException e) {
+                file.toFile().deleteOnExit();
+            }
+        }
+    }
+    
+    /** Asks the workers to exit & waits for them. */
+    @Override
+    public void close() {
+        for(int w = 0; w < workers.length; w++) {
+            if(workers[w] == null) {
+                continue;
+            }
+            try {
+                requests[w].write("exit\n");
+                requests[w].close();
+                workers[w].waitFor();
+            } catch(IOException e) {
+                workers[w].destroy();
+            } catch(InterruptedException e) {
+                workers[w].destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    /** Subdivides an OBJ file across worker processes.
+     * 
+     * @param args String[], input file, output file, scheme, levels, optional worker count & work directory.
+     * @throws Exception if the mesh cannot be read, subdivided or written.
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 4) {
+            System.err.println("Usage: DistributedSubdivision <input.obj> <output.obj> <scheme> <levels> [workers] [work directory]");
+            System.exit(1);
+        }
+        int workerCount = (args.length > 4) ? Integer.parseInt(args[4]) : Runtime.getRuntime().availableProcessors();
+        Path workDirectory = (args.length > 5) ? Paths.get(args[5]) : Files.createTempDirectory("subdivision");
+        IndexedMesh mesh = ObjFormat.read(Paths.get(args[0]));
+        long start = System.nanoTime();
+        IndexedMesh result;
+        try(DistributedSubdivision distributed = new DistributedSubdivision(SubdivisionSchemeFactory.getScheme(args[2]), 
+                workerCount, workDirectory)) {
+            result = distributed.refine(mesh, Integer.parseInt(args[3]), MeshAllocator.HEAP);
+        }
+        long millis = (System.nanoTime() - start) / 1000000L;
+        ObjFormat.write(result, Paths.get(args[1]));
+        System.out.println("Refined " + mesh.getFaceCount() + " faces to " + result.getFaceCount() + " faces on " 
+                + workerCount + " workers in " + millis + "ms");
+    }
+    
+}
+//End of class.
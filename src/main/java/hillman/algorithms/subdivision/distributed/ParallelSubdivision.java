@@ -0,0 +1,193 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.distributed;
+
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.VertexAdjacency;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/** Subdivides a mesh on a fork/join pool within this process, partitioned exactly as a DistributedSubdivision is: 
+ * each level the faces are split into contiguous ranges, each range is cut out with it's halo & refined by it's own 
+ * task, & the children of each range are stitched back in order. The result is bit-identical to refining the whole 
+ * mesh with <code>SubdivisionScheme.refine</code>.
+ * 
+ * Each thread gets a few parts so the pool can balance uneven ones, but no part is smaller than MIN_PART_FACES as 
+ * every part refines it's halo as well; levels too small to split are refined directly.
+ * 
+ * @author M Hillman
+ * @version 1.0 (16/03/2014)
+ */
+public class ParallelSubdivision {
+    
+    /** Pool shared by every instance not given one of it's own. */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    /** Parts per pool thread. */
+    private static final int PARTS_PER_THREAD = 4;
+    
+    /** Fewest faces in a part. */
+    private static final int MIN_PART_FACES = 4096;
+    
+    /** The scheme to subdivide with. */
+    private final SubdivisionScheme scheme;
+    
+    /** Pool the parts are refined on. */
+    private final ForkJoinPool pool;
+    
+    /** Initialises a parallel subdivision on the shared pool.
+     * 
+     * @param scheme SubdivisionScheme to subdivide with.
+     */
+    public ParallelSubdivision(SubdivisionScheme scheme) {
+        this(scheme, POOL);
+    }
+    
+    /** Initialises a parallel subdivision.
+     * 
+     * @param scheme SubdivisionScheme to subdivide with.
+     * @param pool ForkJoinPool to refine the parts on.
+     */
+    public ParallelSubdivision(SubdivisionScheme scheme, ForkJoinPool pool) {
+        this.scheme = scheme;
+        this.pool = pool;
+    }
+    
+    /** Returns the parallelism of the pool.
+     * 
+     * @return int, number of threads refining parts.
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+    
+    /** Returns the parallelism of the pool shared by instances not given one of their own.
+     * 
+     * @return int, number of threads refining parts.
+     */
+    public static int getSharedParallelism() {
+        return POOL.getParallelism();
+    }
+    
+    /** Performs a number of levels of subdivision on an indexed mesh, which is left untouched.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param levels int, number of levels.
+     * @param allocator MeshAllocator for the result & the levels in between.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public IndexedMesh refine(IndexedMesh mesh, int levels, MeshAllocator allocator) {
+        IndexedMesh current = mesh;
+        for(int level = 0; level < levels; level++) {
+            current = refine(current, allocator);
+        }
+        return current;
+    }
+    
+    /** Performs a single level of subdivision on an indexed mesh, which is left untouched.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, next level of subdivision.
+     * @throws IllegalStateException if the parts do not stitch into the whole refined mesh.
+     */
+    public IndexedMesh refine(IndexedMesh mesh, MeshAllocator allocator) {
+        int parts = Math.min(pool.getParallelism() * PARTS_PER_THREAD, mesh.getFaceCount() / MIN_PART_FACES);
+        if(parts < 2) {
+            return scheme.refine(mesh, allocator);
+        }
+        EdgeTable edges = new EdgeTable(mesh);
+        VertexAdjacency adjacency = new VertexAdjacency(mesh, edges);
+        MeshCounts next = SubdivisionPart.predict(scheme, mesh, edges);
+        int[] bounds = SubdivisionPart.split(mesh, parts);
+        
+        PartTask[] tasks = new PartTask[parts];
+        for(int p = 0; p < parts; p++) {
+            if(bounds[p] == bounds[p + 1]) {
+                continue;
+            }
+            tasks[p] = new PartTask(scheme, mesh, edges, adjacency, bounds[p], bounds[p + 1]);
+            pool.execute(tasks[p]);
+        }
+        try {
+            SubdivisionPart.Stitcher stitcher = new SubdivisionPart.Stitcher(next, allocator);
+            for(int p = 0; p < parts; p++) {
+                if(tasks[p] != null) {
+                    stitcher.add(tasks[p].join(), p);
+                }
+            }
+            return stitcher.finish();
+        } finally {
+            for(ForkJoinTask<?> task : tasks) {
+                if(task != null) {
+                    task.cancel(false);
+                }
+            }
+        }
+    }
+    
+    /** Cuts out & refines one part. */
+    private static class PartTask extends RecursiveTask<SubdivisionPart.Refined> {
+        
+        /** Serialisation version, as ForkJoinTask is Serializable. */
+        private static final long serialVersionUID = 1L;
+        
+        /** The scheme to subdivide with. */
+        private final SubdivisionScheme scheme;
+        
+        /** Mesh being refined. */
+        private final IndexedMesh mesh;
+        
+        /** Edges of the mesh. */
+        private final EdgeTable edges;
+        
+        /** Vertex adjacency of the mesh. */
+        private final VertexAdjacency adjacency;
+        
+        /** Faces of the part. */
+        private final int firstFace, endFace;
+        
+        /** Initialises a part task.
+         * 
+         * @param scheme SubdivisionScheme to subdivide with.
+         * @param mesh IndexedMesh being refined.
+         * @param edges EdgeTable of the mesh.
+         * @param adjacency VertexAdjacency of the mesh.
+         * @param firstFace int, first face of the part.
+         * @param endFace int, face after the last of the part.
+         */
+        PartTask(SubdivisionScheme scheme, IndexedMesh mesh, EdgeTable edges, VertexAdjacency adjacency, 
+                int firstFace, int endFace) {
+            this.scheme = scheme;
+            this.mesh = mesh;
+            this.edges = edges;
+            this.adjacency = adjacency;
+            this.firstFace = firstFace;
+            this.endFace = endFace;
+        }
+        
+        @Override
+        protected SubdivisionPart.Refined compute() {
+            return SubdivisionPart.cut(mesh, edges, adjacency, firstFace, endFace).refine(scheme);
+        }
+    }
+    
+}
+//End of class.
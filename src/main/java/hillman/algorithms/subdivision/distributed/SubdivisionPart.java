@@ -0,0 +1,344 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.distributed;
+
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.RefinementTopology;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshRegion;
+import hillman.geometries.MeshStorage;
+import hillman.geometries.VertexAdjacency;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/** One part of a mesh being refined a level at a time in parts, whether in worker processes (DistributedSubdivision)
+ * or on a fork/join pool (ParallelSubdivision). A part is a contiguous range of faces plus a one vertex ring halo - 
+ * every face sharing a vertex with them - cut out as a region mesh, along with a map of the region back to the whole 
+ * mesh:
+ * 
+ * <pre>
+ * int vertexCount, edgeCount, faceCount, firstOwnedFace, endOwnedFace of the whole mesh,
+ * int sourceVertex[regionVertices], sourceFace[regionFaces], sourceCornerEdge[regionIndices]
+ * </pre>
+ * 
+ * The halo holds the whole stencil of every vertex, edge & face point the owned faces' children use, so refining the 
+ * region & keeping the children of the owned faces gives exactly what refining the whole mesh would. Those children 
+ * come back with every vertex numbered as in the whole refined mesh & are stitched back in part order.
+ * 
+ * @author M Hillman
+ * @version 1.0 (16/03/2014)
+ */
+class SubdivisionPart {
+    
+    /** Number of header ints in a region map. */
+    static final int MAP_HEADER = 5;
+    
+    /** Vertex rings of halo around each part. */
+    private static final int HALO_RINGS = 1;
+    
+    /** The part's faces & halo as a mesh of their own. */
+    private final IndexedMesh region;
+    
+    /** Map of the region back to the whole mesh. */
+    private final int[] map;
+    
+    /** Creates a part.
+     * 
+     * @param region IndexedMesh, region mesh.
+     * @param map int[], region map.
+     */
+    SubdivisionPart(IndexedMesh region, int[] map) {
+        this.region = region;
+        this.map = map;
+    }
+    
+    /** Returns the region mesh.
+     * 
+     * @return IndexedMesh, region mesh.
+     */
+    IndexedMesh getRegion() {
+        return region;
+    }
+    
+    /** Returns the region map.
+     * 
+     * @return int[], region map.
+     */
+    int[] getMap() {
+        return map;
+    }
+    
+    /** Splits a mesh's faces into ranges of about equal index count.
+     * 
+     * @param mesh IndexedMesh to split.
+     * @param parts int, number of ranges.
+     * @return int[], parts + 1 bounds, range p being faces bounds[p] (inclusive) to bounds[p + 1] (exclusive).
+     */
+    static int[] split(IndexedMesh mesh, int parts) {
+        int faceCount = mesh.getFaceCount();
+        int[] bounds = new int[parts + 1];
+        bounds[parts] = faceCount;
+        for(int p = 1; p < parts; p++) {
+            long target = (long) mesh.getIndexCount() * p / parts;
+            int f = bounds[p - 1];
+            while(f < faceCount && mesh.getFaceOffset(f) < target) {
+                f++;
+            }
+            bounds[p] = f;
+        }
+        return bounds;
+    }
+    
+    /** Predicts the counts of a mesh's next level, checking they can be indexed.
+     * 
+     * @param scheme SubdivisionScheme refining the mesh.
+     * @param mesh IndexedMesh being refined.
+     * @param edges EdgeTable of the mesh.
+     * @return MeshCounts of the next level.
+     */
+    static MeshCounts predict(SubdivisionScheme scheme, IndexedMesh mesh, EdgeTable edges) {
+        MeshCounts next = scheme.predict(MeshCounts.of(mesh, edges));
+        if(next.getVertices() > Integer.MAX_VALUE || next.getIndices() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Refined mesh is too large to index: " + next);
+        }
+        return next;
+    }
+    
+    /** Cuts a range of faces & their halo out of a mesh.
+     * 
+     * @param mesh IndexedMesh being refined.
+     * @param edges EdgeTable of the mesh.
+     * @param adjacency VertexAdjacency of the mesh.
+     * @param firstFace int, first face of the part.
+     * @param endFace int, face after the last of the part.
+     * @return SubdivisionPart, the part.
+     */
+    static SubdivisionPart cut(IndexedMesh mesh, EdgeTable edges, VertexAdjacency adjacency, int firstFace, 
+            int endFace) {
+        int[] owned = new int[endFace - firstFace];
+        for(int f = firstFace; f < endFace; f++) {
+            owned[f - firstFace] = f;
+        }
+        MeshRegion region = MeshRegion.extract(mesh, MeshRegion.grow(mesh, adjacency, owned, HALO_RINGS));
+        IndexedMesh regionMesh = region.getMesh();
+        int vertexCount = regionMesh.getVertexCount();
+        int faceCount = regionMesh.getFaceCount();
+        int[] map = new int[MAP_HEADER + vertexCount + faceCount + regionMesh.getIndexCount()];
+        map[0] = mesh.getVertexCount();
+        map[1] = edges.getEdgeCount();
+        map[2] = mesh.getFaceCount();
+        map[3] = firstFace;
+        map[4] = endFace;
+        int i = MAP_HEADER;
+        for(int v = 0; v < vertexCount; v++) {
+            map[i++] = region.getSourceVertex(v);
+        }
+        for(int f = 0; f < faceCount; f++) {
+            map[i++] = region.getSourceFace(f);
+        }
+        for(int f = 0; f < faceCount; f++) {
+            int offset = mesh.getFaceOffset(region.getSourceFace(f));
+            for(int k = 0; k < regionMesh.getFaceSize(f); k++) {
+                map[i++] = edges.getCornerEdge(offset + k);
+            }
+        }
+        return new SubdivisionPart(regionMesh, map);
+    }
+    
+    /** Refines the region & returns the children of the owned faces, numbered as in the whole refined mesh.
+     * 
+     * @param scheme SubdivisionScheme to refine with.
+     * @return Refined, the owned children.
+     * @throws IllegalStateException if the halo does not cover the stencils of the owned faces.
+     */
+    Refined refine(SubdivisionScheme scheme) {
+        int vertexCount = map[0];
+        int edgeCount = map[1];
+        int firstOwned = map[3];
+        int endOwned = map[4];
+        int regionVertices = region.getVertexCount();
+        int regionFaces = region.getFaceCount();
+        int sourceFaces = MAP_HEADER + regionVertices;
+        int sourceCornerEdges = sourceFaces + regionFaces;
+        
+        RefinementTopology topology = scheme.buildTopology(region);
+        IndexedMesh refined = topology.evaluate(region, MeshAllocator.HEAP);
+        
+        //Number every refined vertex as in the whole mesh: [vertex points | edge points | face points].
+        int[] global = new int[refined.getVertexCount()];
+        Arrays.fill(global, -1);
+        int faceBase = refined.getVertexCount() - regionFaces;
+        boolean edgePoints = faceBase > regionVertices;
+        for(int v = 0; v < regionVertices; v++) {
+            global[v] = map[MAP_HEADER + v];
+        }
+        if(edgePoints) {
+            EdgeTable edges = topology.getEdgeTable();
+            for(int i = 0; i < region.getIndexCount(); i++) {
+                global[regionVertices + edges.getCornerEdge(i)] = vertexCount + map[sourceCornerEdges + i];
+            }
+        }
+        int globalFaceBase = vertexCount + (edgePoints ? edgeCount : 0);
+        for(int f = 0; f < regionFaces; f++) {
+            global[faceBase + f] = globalFaceBase + map[sourceFaces + f];
+        }
+        
+        //Keep the children of owned faces, renumbering their vertices compactly.
+        int[] local = new int[refined.getVertexCount()];
+        Arrays.fill(local, -1);
+        int[] ids = new int[refined.getVertexCount()];
+        int[] offsets = new int[refined.getFaceCount() + 1];
+        int[] indices = new int[refined.getIndexCount()];
+        int outVertices = 0;
+        int outFaces = 0;
+        int outIndices = 0;
+        for(int c = 0; c < refined.getFaceCount(); c++) {
+            int parent = map[sourceFaces + topology.getParentFace(c)];
+            if(parent < firstOwned || parent >= endOwned) {
+                continue;
+            }
+            int offset = refined.getFaceOffset(c);
+            for(int k = 0; k < refined.getFaceSize(c); k++) {
+                int v = refined.getIndex(offset + k);
+                if(local[v] < 0) {
+                    if(global[v] < 0) {
+                        throw new IllegalStateException("Refined vertex " + v + " has no source in the whole mesh!");
+                    }
+                    local[v] = outVertices;
+                    ids[outVertices++] = global[v];
+                }
+                indices[outIndices++] = local[v];
+            }
+            offsets[++outFaces] = outIndices;
+        }
+        float[] xs = new float[outVertices], ys = new float[outVertices], zs = new float[outVertices];
+        for(int v = 0; v < refined.getVertexCount(); v++) {
+            if(local[v] >= 0) {
+                xs[local[v]] = refined.getX(v);
+                ys[local[v]] = refined.getY(v);
+                zs[local[v]] = refined.getZ(v);
+            }
+        }
+        IndexedMesh out = new IndexedMesh(xs, ys, zs, Arrays.copyOf(offsets, outFaces + 1), 
+                Arrays.copyOf(indices, outIndices));
+        return new Refined(out, Arrays.copyOf(ids, outVertices));
+    }
+    
+    /** The children of a part's owned faces, with the number of each vertex in the whole refined mesh. */
+    static class Refined {
+        
+        /** Children, numbered compactly. */
+        private final IndexedMesh mesh;
+        
+        /** Whole mesh number of each vertex. */
+        private final int[] ids;
+        
+        /** Creates refined part.
+         * 
+         * @param mesh IndexedMesh, children numbered compactly.
+         * @param ids int[], whole mesh number of each vertex.
+         */
+        Refined(IndexedMesh mesh, int[] ids) {
+            this.mesh = mesh;
+            this.ids = ids;
+        }
+        
+        /** Returns the children, numbered compactly.
+         * 
+         * @return IndexedMesh, children.
+         */
+        IndexedMesh getMesh() {
+            return mesh;
+        }
+        
+        /** Returns the whole mesh number of each vertex.
+         * 
+         * @return int[], vertex numbers.
+         */
+        int[] getIds() {
+            return ids;
+        }
+    }
+    
+    /** Stitches refined parts, in part order, into the whole refined mesh. */
+    static class Stitcher {
+        
+        /** Counts the stitched mesh must reach. */
+        private final MeshCounts next;
+        
+        /** Storage of the stitched mesh. */
+        private final MeshStorage storage;
+        
+        /** Vertices written so far. */
+        private final BitSet produced;
+        
+        /** Faces & indices written so far. */
+        private int face, offset;
+        
+        /** Initialises a stitcher.
+         * 
+         * @param next MeshCounts of the whole refined mesh.
+         * @param allocator MeshAllocator for the refined mesh.
+         */
+        Stitcher(MeshCounts next, MeshAllocator allocator) {
+            this.next = next;
+            this.storage = allocator.allocate((int) next.getVertices(), (int) next.getFaces(), (int) next.getIndices());
+            this.produced = new BitSet((int) next.getVertices());
+        }
+        
+        /** Appends the next part.
+         * 
+         * @param part Refined part.
+         * @param p int, part number, for errors.
+         * @throws IllegalStateException if the part overflows the refined mesh.
+         */
+        void add(Refined part, int p) {
+            IndexedMesh mesh = part.getMesh();
+            int[] ids = part.getIds();
+            if(face + mesh.getFaceCount() > next.getFaces() || offset + mesh.getIndexCount() > next.getIndices()) {
+                throw new IllegalStateException("Part " + p + " produced more faces than the refined mesh has!");
+            }
+            for(int v = 0; v < mesh.getVertexCount(); v++) {
+                storage.setPosition(ids[v], mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+                produced.set(ids[v]);
+            }
+            for(int f = 0; f < mesh.getFaceCount(); f++) {
+                storage.setFaceOffset(face++, offset + mesh.getFaceOffset(f));
+            }
+            for(int i = 0; i < mesh.getIndexCount(); i++) {
+                storage.setIndex(offset + i, ids[mesh.getIndex(i)]);
+            }
+            offset += mesh.getIndexCount();
+        }
+        
+        /** Returns the stitched mesh once every part has been added.
+         * 
+         * @return IndexedMesh, the whole refined mesh.
+         * @throws IllegalStateException if the parts do not cover the refined mesh.
+         */
+        IndexedMesh finish() {
+            if(face != next.getFaces() || offset != next.getIndices() || produced.cardinality() != next.getVertices()) {
+                throw new IllegalStateException("Parts do not stitch into the refined mesh: " + face + " faces, " 
+                        + offset + " indices & " + produced.cardinality() + " vertices produced for " + next);
+            }
+            return new IndexedMesh(storage);
+        }
+    }
+    
+}
+//End of class.
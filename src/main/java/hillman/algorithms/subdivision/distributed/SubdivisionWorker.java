@@ -0,0 +1,169 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.distributed;
+
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.algorithms.subdivision.SubdivisionSchemeFactory;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.io.BinaryMeshFormat;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/** Worker process of a <code>DistributedSubdivision</code>. Refines one part of a control mesh per request: the part's
+ * faces plus their halo, cut out as a region mesh, along with a map of the region back to the whole mesh. Only the 
+ * children of the part's own faces are written back, with every vertex numbered as it is in the whole refined mesh.
+ * 
+ * A worker is started with the scheme name as it's only argument & reads one request per line on standard input, 
+ * the base path of a part's files, answering "ok" or "error &lt;message&gt;" on standard output. "exit" or the end 
+ * of the input stops it. The files of a part are:
+ * 
+ * <pre>
+ * base.in.mesh  region mesh (BinaryMeshFormat)
+ * base.in.map   region map (see SubdivisionPart)
+ * base.out.mesh children of the owned faces, in order (BinaryMeshFormat)
+ * base.out.ids  int refinedVertex[outVertices], index of each out vertex in the whole refined mesh
+ * </pre>
+ * 
+ * All int files are little endian, like the mesh files.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/03/2014)
+ */
+public class SubdivisionWorker {
+    
+    /** Suffix of a part's region mesh. */
+    static final String IN_MESH = ".in.mesh";
+    
+    /** Suffix of a part's region map. */
+    static final String IN_MAP = ".in.map";
+    
+    /** Suffix of a part's refined faces. */
+    static final String OUT_MESH = ".out.mesh";
+    
+    /** Suffix of a part's refined vertex numbers. */
+    static final String OUT_IDS = ".out.ids";
+    
+    /** Size of the buffer used to stream int files. */
+    private static final int BUFFER_BYTES = 1 << 20;
+    
+    /** Refines one part.
+     * 
+     * @param scheme SubdivisionScheme to refine with.
+     * @param base Path, base path of the part's files.
+     * @throws IOException if the part's files cannot be read or written.
+     * @throws IllegalStateException if the halo does not cover the stencils of the owned faces.
+     */
+    static void refinePart(SubdivisionScheme scheme, Path base) throws IOException {
+        IndexedMesh region = BinaryMeshFormat.read(getFile(base, IN_MESH));
+        int[] map = readInts(getFile(base, IN_MAP));
+        SubdivisionPart.Refined refined = new SubdivisionPart(region, map).refine(scheme);
+        BinaryMeshFormat.write(refined.getMesh(), getFile(base, OUT_MESH));
+        writeInts(refined.getIds(), getFile(base, OUT_IDS));
+    }
+    
+    /** Returns one of a part's files.
+     * 
+     * @param base Path, base path of the part's files.
+     * @param suffix String, file suffix.
+     * @return Path of the file.
+     */
+    static Path getFile(Path base, String suffix) {
+        return base.resolveSibling(base.getFileName() + suffix);
+    }
+    
+    /** Writes an int array to a little endian file, overwriting any existing file.
+     * 
+     * @param values int[] to write.
+     * @param file Path of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    static void writeInts(int[] values, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for(int i = 0; i < values.length; i += ints.capacity()) {
+                int count = Math.min(ints.capacity(), values.length - i);
+                ints.clear();
+                ints.put(values, i, count);
+                buffer.clear().limit(4 * count);
+                while(buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        }
+    }
+    
+    /** Reads a little endian file of ints.
+     * 
+     * @param file Path of the file.
+     * @return int[], the file's contents.
+     * @throws IOException if the file cannot be read.
+     */
+    static int[] readInts(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        IntBuffer ints = buffer.asIntBuffer();
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int[] values = new int[(int) (channel.size() / 4)];
+            int read = 0;
+            while(read < values.length) {
+                buffer.clear().limit(Math.min(BUFFER_BYTES, 4 * (values.length - read)));
+                while(buffer.hasRemaining()) {
+                    if(channel.read(buffer) < 0) {
+                        throw new IOException("Unexpected end of " + file);
+                    }
+                }
+                ints.clear().limit(buffer.limit() / 4);
+                ints.get(values, read, ints.limit());
+                read += ints.limit();
+            }
+            return values;
+        }
+    }
+    
+    /** Runs a worker, serving part requests from standard input until told to exit.
+     * 
+     * @param args String[], the scheme name.
+     * @throws IOException if standard input cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1) {
+            System.err.println("Usage: SubdivisionWorker <scheme>");
+            System.exit(1);
+        }
+        SubdivisionScheme scheme = SubdivisionSchemeFactory.getScheme(args[0]);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+        String line;
+        while((line = in.readLine()) != null && !line.equals("exit")) {
+            try {
+                refinePart(scheme, Paths.get(line));
+                System.out.println("ok");
+            } catch(IOException | RuntimeException e) {
+                System.out.println("error " + String.valueOf(e).replace('\n', ' '));
+            }
+            System.out.flush();
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,95 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.root_three;
+
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+
+/** Kobbelt's Root-Three subdivision over a triangular IndexedMesh, using the struct of arrays 
+ * <code>SubdivisionKernels</code>. Uses the same midpoint & relaxation rules as <code>RootThree</code>, but every stage 
+ * is a linear pass over the mesh instead of a search per vertex. Open meshes are supported: boundary vertices are not 
+ * relaxed & boundary edges are not flipped, each producing a single triangle with the face midpoint instead.
+ * 
+ * Output vertices are laid out as [relaxed vertices | face midpoints], & the child triangles of each edge are stored
+ * together, in edge order. Each call builds a <code>RootThreeTopology</code> & evaluates it once.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/02/2014)
+ */
+public class IndexedRootThree {
+    
+    /** Returns true if the mesh can be refined by this class (all faces are triangles & every edge is winged by at 
+     * most two faces).
+     * 
+     * @param mesh IndexedMesh to check.
+     * @param edges EdgeTable of the mesh.
+     * @return boolean, true if refinable.
+     */
+    public static boolean canRefine(IndexedMesh mesh, EdgeTable edges) {
+        if(edges.isNonManifold()) {
+            return false;
+        }
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            if(mesh.getFaceSize(f) != 3) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** Performs one level of Root-Three subdivision.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh) {
+        return refine(mesh, new EdgeTable(mesh));
+    }
+    
+    /** Performs one level of Root-Three subdivision using a pre-built edge table, with the result on the heap.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param edges EdgeTable of the mesh.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh, EdgeTable edges) {
+        return refine(mesh, edges, MeshAllocator.HEAP);
+    }
+    
+    /** Performs one level of Root-Three subdivision using a pre-built edge table, with the result held in storage 
+     * from the input allocator.
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param edges EdgeTable of the mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, the subdivided mesh.
+     */
+    public static IndexedMesh refine(IndexedMesh mesh, EdgeTable edges, MeshAllocator allocator) {
+        return new RootThreeTopology(mesh, edges).evaluate(mesh, allocator);
+    }
+    
+    /** Calculates Kobbelt's B scalar for a valence, exactly as <code>RootThree</code> does.
+     * 
+     * @param n float, vertex valence.
+     * @return float, Kobbelt's B scalar factor.
+     */
+    static float getB(float n) {
+        float cos = (float) (2.0f * Math.cos(2.0 * Math.PI));
+        return (4.0f - (cos / n)) / (9.0f * n);
+    }
+    
+}
+//End of class.
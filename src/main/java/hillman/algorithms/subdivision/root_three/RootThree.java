@@ -14,17 +14,29 @@
 */
 package hillman.algorithms.subdivision.root_three;
 
+import hillman.algorithms.subdivision.LevelOfDetailCache;
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.RefinementTopology;
+import hillman.algorithms.subdivision.StorageBackend;
 import hillman.algorithms.subdivision.SubdivisionAlgorithm;
 import hillman.algorithms.subdivision.SubdivisionHandler;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.algorithms.subdivision.SubdivisionLevelEvent;
+import hillman.algorithms.subdivision.SubdivisionPlan;
+import hillman.algorithms.subdivision.SubdivisionPlanner;
+import hillman.algorithms.subdivision.SubdivisionScheme;
 import hillman.geometries.Edge3D;
+import hillman.geometries.EdgeTable;
 import hillman.geometries.Face3D;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
 import hillman.geometries.Polyhedron;
 import hillman.geometries.PolyhedronFactory;
 import hillman.geometries.Vertex3D;
 import hillman.opengl.DrawingFrame;
-import hillman.opengl.LibrarySetup;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 /** This class holds the core logic & iteration loops for the Kobbelt's Root-Three subdivision algorithm.
@@ -32,36 +44,141 @@ import java.util.Set;
  * @author M Hillman
  * @version 1.0 (28/11/2013).
  */
-public class RootThree implements SubdivisionAlgorithm, Runnable {
+public class RootThree implements SubdivisionAlgorithm, SubdivisionScheme, Runnable {
 
     /** Polyhedron for subdivision. */
     private Polyhedron polyhedron;
     
-    /** <code>RootThreeUtilities</code> object used for additional geometric calculations. */
-    private RootThreeUtilities utils;
-    
     /** DrawingFrame object used as target for resulting polyhedron. */
     private DrawingFrame frame;
     
-    /** Sets the Polyhedron object for subdivision, creates a RootThreeUtilities
-     * object to handle additional mathematical calculations, finally creates a Thread
+    /** Cache of previously computed levels, so stepping back down or re-showing a level is instant. */
+    private final LevelOfDetailCache levels = new LevelOfDetailCache(this);
+    
+    /** Admission control, so a level that cannot fit in memory is refused rather than started. */
+    private final SubdivisionPlanner planner = new SubdivisionPlanner();
+    
+    /** Sets the Polyhedron object for subdivision, finally creates a Thread
      * object & starts the subdivision proceedure,
+     * A level that is not cached & that the planner predicts will not fit in memory is refused, with the reason shown 
+     * on the frame.
      * 
      * @param polyhedron Polyhedron for subdivision.
      * @param frame DrawingFrame to push resulting Polyhedron to.
      */
     @Override
     public void subdivide(Polyhedron polyhedron, DrawingFrame frame) {
+        if(!levels.containsNext(polyhedron)) {
+            SubdivisionPlan plan = planner.plan(polyhedron, this, 1, StorageBackend.OBJECT_GRAPH);
+            if(plan.getDecision() != SubdivisionPlan.Decision.ACCEPT) {
+                frame.drawString("Cannot subdivide - " + plan);
+                return;
+            }
+        }
         this.polyhedron = polyhedron;
         this.frame = frame;
-        this.utils = new RootThreeUtilities(polyhedron);
         
         Thread thread = new Thread(this);
-        thread.setName("Catmull-Clark Subdivision");
+        thread.setName("Root-Three Subdivision");
         thread.start();
     }
     
-    /** Main logic for the Kobbelt's Root-Three algorithm, pushes final polyhedron to the DrawingFrame when done. In essence,
+    /** Replaces the input polyhedron on the DrawingFrame with the previous (coarser) level, taken from the
+     * level cache where possible. Does nothing if the polyhedron is a control mesh. A level that was evicted is 
+     * rebuilt on a thread of it's own, so the caller is not held up.
+     * 
+     * @param polyhedron Polyhedron currently on screen.
+     * @param frame DrawingFrame to push the coarser Polyhedron to.
+     */
+    public void coarsen(final Polyhedron polyhedron, final DrawingFrame frame) {
+        if(levels.containsPrevious(polyhedron)) {
+            show(levels.previous(polyhedron), polyhedron, frame);
+            return;
+        }
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                frame.drawString("Rebuilding Root-Three level...");
+                show(levels.previous(polyhedron), polyhedron, frame);
+                frame.drawString("");
+            }
+        });
+        thread.setName("Root-Three Coarsening");
+        thread.start();
+    }
+    
+    /** Replaces the polyhedron on the DrawingFrame with the coarser level, unless they are the same.
+     * 
+     * @param previous Polyhedron, coarser level.
+     * @param polyhedron Polyhedron currently on screen.
+     * @param frame DrawingFrame to push the coarser Polyhedron to.
+     */
+    private static void show(Polyhedron previous, Polyhedron polyhedron, DrawingFrame frame) {
+        if(previous != polyhedron) {
+            frame.clearPolyhedrons();
+            frame.addPolyhedron(previous);
+        }
+    }
+    
+    /** Returns the level cache used by this instance, e.g. to adjust it's memory budget.
+     * 
+     * @return LevelOfDetailCache, cache of subdivided levels.
+     */
+    public LevelOfDetailCache getLevelCache() {
+        return levels;
+    }
+    
+    /** Streams the next level of the polyhedron to the DrawingFrame as it's faces are produced, re-using a cached 
+     * level if one exists (see <code>refine</code> for the algorithm itself).
+     */
+    @Override
+    public void run() {
+        frame.drawString("Running Root-Three Subdivision...");
+        SubdivisionLevelEvent event = new SubdivisionLevelEvent(getName(), levels.getLevelOf(polyhedron) + 1, 
+                polyhedron.getNumberOfFaces());
+        event.setCached(levels.containsNext(polyhedron));
+        event.begin();
+        Polyhedron result = levels.next(polyhedron, frame.beginStream());
+        event.setOutputFaces(result.getNumberOfFaces());
+        event.commit();
+        frame.endStream(result);
+        frame.drawString("");
+    }
+    
+    /** Predicts the next level's counts: one vertex per vertex & face, two triangles per interior edge & one per 
+     * boundary edge, with the edges following from the (unchanged) Euler characteristic.
+     * 
+     * @param counts MeshCounts of the current level.
+     * @return MeshCounts, predicted counts of the next level.
+     */
+    @Override
+    public MeshCounts predict(MeshCounts counts) {
+        long vertices = counts.getVertices() + counts.getFaces();
+        long faces = 2 * counts.getEdges() - counts.getBoundaryEdges();
+        return new MeshCounts(vertices, vertices + faces - counts.getEulerCharacteristic(), faces, 3 * faces);
+    }
+    
+    /** Returns the support of a face's descendants: one ring for a single level & two for more, as the flipped 
+     * triangles a face keeps reach into it's edge neighbours, whose far corners need the second ring.
+     * 
+     * @param levels int, levels of subdivision.
+     * @return int, rings of support.
+     */
+    @Override
+    public int getSupportRings(int levels) {
+        return Math.min(levels, 2);
+    }
+    
+    /** Returns the scheme name.
+     * 
+     * @return String, "Root-Three".
+     */
+    @Override
+    public String getName() {
+        return "Root-Three";
+    }
+    
+    /** Main logic for the Kobbelt's Root-Three algorithm, returns the subdivided polyhedron. In essence,
      * this method fulfils the algorithm via the following steps:
      * 
      * 1. For every face in the original mesh, we insert a midpoint (defined as the average of the face's three original points).
@@ -74,13 +191,37 @@ public class RootThree implements SubdivisionAlgorithm, Runnable {
      * 4. Next we create three new faces for each face, from the relaxed vertex based on each edge's start vertex -> midpoint ->
      * the relaxed vertex based on that edge's end vertex.
      * 5. Finally the old edges are flipped to connect pairs of midpoints.
-     * 6. All faces (carefully ignoring duplicates) are then added to a new polyhedron & pushed to the DrawingFrame
+     * 6. All faces (carefully ignoring duplicates) are then added to a new polyhedron.
      * 
      * Note: Throws an IllegalArgumentException is subdivision is attempted on a non-triangular input mesh.
+     * 
+     * When the <code>SubdivisionKernels</code> are enabled & the mesh is triangular & edge-manifold, the same steps are
+     * carried out by <code>IndexedRootThree</code> instead, falling back to <code>refineObjectGraph</code> otherwise.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
      */
     @Override
-    public void run() {
-        frame.drawString("Running Root-Three Subdivision...");
+    public Polyhedron refine(Polyhedron polyhedron) {
+        if(SubdivisionKernels.isEnabled()) {
+            IndexedMesh mesh = IndexedMesh.fromPolyhedron(polyhedron);
+            EdgeTable edges = new EdgeTable(mesh);
+            if(IndexedRootThree.canRefine(mesh, edges)) {
+                return IndexedRootThree.refine(mesh, edges).toPolyhedron();
+            }
+        }
+        return refineObjectGraph(polyhedron);
+    }
+    
+    /** Carries out the steps listed on <code>refine</code> directly on the Polyhedron's object graph.
+     * 
+     * @param polyhedron Polyhedron to subdivide.
+     * @return Polyhedron, next level of subdivision.
+     * @throws IllegalArgumentException if the polyhedron has a non-triangular face.
+     */
+    @Override
+    public Polyhedron refineObjectGraph(Polyhedron polyhedron) {
+        RootThreeUtilities utils = new RootThreeUtilities(polyhedron);
         List<Face3D> newFaces = new ArrayList<>();
         
         for(Face3D face : polyhedron.getFaceList()) {
@@ -91,8 +232,8 @@ public class RootThree implements SubdivisionAlgorithm, Runnable {
             Vertex3D midVertex = utils.getAverage(face.getVertexList());
             
             for(Edge3D originalEdge : face.getEdgeList()) {
-                Vertex3D relaxedStart = relaxVertex(originalEdge.getStart());
-                Vertex3D relaxedEnd = relaxVertex(originalEdge.getEnd());
+                Vertex3D relaxedStart = relaxVertex(utils, originalEdge.getStart());
+                Vertex3D relaxedEnd = relaxVertex(utils, originalEdge.getEnd());
                 
                 Vertex3D otherMidVertex = utils.getMidPointOfWingingFace(originalEdge, face);
                 
@@ -113,53 +254,67 @@ public class RootThree implements SubdivisionAlgorithm, Runnable {
                 }
             }
         }
-        frame.clearPolyhedrons();
-        frame.addPolyhedron(new Polyhedron(newFaces));
-        frame.drawString("");
+        return new Polyhedron(newFaces);
+    }
+    
+    /** Performs one level of Root-Three subdivision on an indexed mesh (see <code>IndexedRootThree</code>).
+     * 
+     * @param mesh IndexedMesh to subdivide.
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, next level of subdivision.
+     */
+    @Override
+    public IndexedMesh refine(IndexedMesh mesh, MeshAllocator allocator) {
+        return buildTopology(mesh).evaluate(mesh, allocator);
+    }
+    
+    /** Builds the reusable refinement tables for an indexed mesh's connectivity.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @return RefinementTopology, one level of refinement for the mesh's connectivity.
+     */
+    @Override
+    public RefinementTopology buildTopology(IndexedMesh mesh) {
+        return new RootThreeTopology(mesh, new EdgeTable(mesh));
     }
     
     /** Given an original vertex as input, this methods grabs the sum of it's
      * neighbouring vertices, applies the B scalar & returns the now relaxed vertex.
      * 
+     * @param utils RootThreeUtilities bound to the polyhedron being subdivided.
      * @param originalVertex original mesh vertex to relax.
      * @return Vertex3D, relaxed vertex.
      */
-    private Vertex3D relaxVertex(Vertex3D originalVertex) {
+    private Vertex3D relaxVertex(RootThreeUtilities utils, Vertex3D originalVertex) {
         float n = utils.getValence(originalVertex);
         Vertex3D relaxedVertex = new Vertex3D(0.0f, 0.0f, 0.0f);
-        float scalar = 1.0f - (n * getB(originalVertex));
+        float scalar = 1.0f - (n * getB(utils, originalVertex));
         
         relaxedVertex = utils.getVertexMultipliedByScalar(originalVertex, scalar);
         return utils.getVertexAddition(new ArrayList<>(
-                Arrays.asList(relaxedVertex, getSumOfNeighbours(originalVertex))));
+                Arrays.asList(relaxedVertex, getSumOfNeighbours(utils, originalVertex))));
     }
     
     /** Given an original vertex as input, this simply sums the values of
      * it's neighbouring vertices into one vertex.
      * 
+     * @param utils RootThreeUtilities bound to the polyhedron being subdivided.
      * @param originalVertex original mesh vertex.
      * @return Vertex3D, sum of neighbouring vertices.
      */
-    private Vertex3D getSumOfNeighbours(Vertex3D originalVertex) {
-        float scalar = getB(originalVertex);
-<<<<<<< HEAD
-        List<Vertex3D> vertexMask = utils.getSurroundingVertices(originalVertex);
-        for(int i = 0; i < vertexMask.size(); i++) {
-            vertexMask.set(i, utils.getVertexMultipliedByScalar(vertexMask.get(i), scalar));
-        }
-        return utils.getVertexAddition(vertexMask);
-=======
+    private Vertex3D getSumOfNeighbours(RootThreeUtilities utils, Vertex3D originalVertex) {
+        float scalar = getB(utils, originalVertex);
         Set<Vertex3D> vertexMask = utils.getSurroundingVertices(originalVertex);
         return utils.getVertexMultipliedByScalar(utils.getVertexAddition(vertexMask), scalar);
->>>>>>> upstream/master
     }
     
     /** Calculates Kobbelt's B scalar as a function of a vertex's valence.
      * 
+     * @param utils RootThreeUtilities bound to the polyhedron being subdivided.
      * @param originalVertex vertex to calculate B for.
      * @return float, Kobbelt's B scalar factor.
      */
-    private float getB(Vertex3D originalVertex) {
+    private float getB(RootThreeUtilities utils, Vertex3D originalVertex) {
         float n = utils.getValence(originalVertex);
         float cos = (float) (2.0f * Math.cos(2.0 * Math.PI));
         float b = (4.0f - (cos / n)) / (9.0f * n);
@@ -171,7 +326,6 @@ public class RootThree implements SubdivisionAlgorithm, Runnable {
      * @param args Command line arguments. 
      */
     public static void main(String[] args) {
-        LibrarySetup.setPath();
         DrawingFrame frame = new DrawingFrame("Root-Three Subdivision");
         frame.addKeyListener(new SubdivisionHandler(frame, new RootThree()));
         frame.addPolyhedron(PolyhedronFactory.getTriangleUnitCube());
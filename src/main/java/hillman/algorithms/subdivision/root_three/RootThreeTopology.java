@@ -0,0 +1,284 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.root_three;
+
+import hillman.algorithms.subdivision.IncrementalEvaluation;
+import hillman.algorithms.subdivision.RefinementTopology;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshStorage;
+import hillman.geometries.VertexAdjacency;
+
+/** The refinement tables for one level of Root-Three subdivision of a given triangular control topology: the edge 
+ * table, vertex adjacency, relaxation weights (from the valences) & the flipped child triangles with the parent face 
+ * of each. Evaluating the tables against a control mesh only computes positions.
+ * 
+ * Output vertices are laid out as [relaxed vertices | face midpoints]. The two triangles of a flipped interior edge 
+ * straddle both of it's faces & are credited to the first (the face that emits them).
+ * 
+ * @author M Hillman
+ * @version 1.0 (20/02/2014)
+ */
+public class RootThreeTopology implements RefinementTopology {
+    
+    /** Number of vertices in the control mesh. */
+    private final int vertexCount;
+    
+    /** Number of faces in the control mesh. */
+    private final int faceCount;
+    
+    /** Edges of the control mesh. */
+    private final EdgeTable edges;
+    
+    /** Edges around each control vertex. */
+    private final VertexAdjacency adjacency;
+    
+    /** Weight of each vertex's own position in it's relaxed position. */
+    private final float[] weightP;
+    
+    /** Weight of the sum of neighbouring vertices in each relaxed position. */
+    private final float[] weightM;
+    
+    /** Child triangles, three indices each. */
+    private final int[] childIndices;
+    
+    /** Parent face of each child triangle. */
+    private final int[] childParent;
+    
+    /** Builds the refinement tables for the input mesh's topology.
+     * 
+     * @param mesh IndexedMesh, triangular control mesh.
+     * @param edges EdgeTable of the mesh.
+     * @throws IllegalArgumentException if the mesh has non-triangular faces or is non-manifold.
+     */
+    public RootThreeTopology(IndexedMesh mesh, EdgeTable edges) {
+        if(!IndexedRootThree.canRefine(mesh, edges)) {
+            throw new IllegalArgumentException("Cannot perform Root-Three subdivision on a non-triangluar face!");
+        }
+        this.vertexCount = mesh.getVertexCount();
+        this.faceCount = mesh.getFaceCount();
+        this.edges = edges;
+        this.adjacency = new VertexAdjacency(mesh, edges);
+        
+        boolean[] boundary = new boolean[vertexCount];
+        int boundaryEdges = 0;
+        for(int e = 0; e < edges.getEdgeCount(); e++) {
+            if(edges.isBoundary(e)) {
+                boundary[edges.getStart(e)] = true;
+                boundary[edges.getEnd(e)] = true;
+                boundaryEdges++;
+            }
+        }
+        
+        //Relaxed vertices: S = (1 - nB)P + BM.
+        weightP = new float[vertexCount];
+        weightM = new float[vertexCount];
+        for(int v = 0; v < vertexCount; v++) {
+            int valence = adjacency.getFaceCount(v);
+            if(boundary[v] || valence == 0) {
+                weightP[v] = 1.0f;
+            } else {
+                float n = valence;
+                float b = IndexedRootThree.getB(n);
+                weightP[v] = 1.0f - (n * b);
+                weightM[v] = b;
+            }
+        }
+        
+        //Child triangles: two per flipped interior edge, one per boundary edge.
+        int childCount = 2 * (edges.getEdgeCount() - boundaryEdges) + boundaryEdges;
+        childIndices = new int[3 * childCount];
+        childParent = new int[childCount];
+        int child = 0;
+        for(int f = 0; f < faceCount; f++) {
+            for(int k = 0; k < 3; k++) {
+                int offset = mesh.getFaceOffset(f) + k;
+                int e = edges.getCornerEdge(offset);
+                int a = mesh.getIndex(offset);
+                int b = mesh.getIndex(mesh.getFaceOffset(f) + (k + 1) % 3);
+                int midF = vertexCount + f;
+                if(edges.isBoundary(e)) {
+                    child = addTriangle(child, f, a, b, midF);
+                } else if(edges.getFace0(e) == f) {
+                    int midG = vertexCount + edges.getFace1(e);
+                    child = addTriangle(child, f, a, midG, midF);
+                    child = addTriangle(child, f, b, midF, midG);
+                }
+            }
+        }
+    }
+    
+    /** Records a child triangle.
+     * 
+     * @param child int, index of the triangle to write.
+     * @param parent int, face the triangle is credited to.
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @param c int, third vertex.
+     * @return int, index of the next triangle.
+     */
+    private int addTriangle(int child, int parent, int a, int b, int c) {
+        childIndices[3 * child] = a;
+        childIndices[3 * child + 1] = b;
+        childIndices[3 * child + 2] = c;
+        childParent[child] = parent;
+        return child + 1;
+    }
+    
+    @Override
+    public int getParentVertexCount() {
+        return vertexCount;
+    }
+    
+    @Override
+    public int getParentFaceCount() {
+        return faceCount;
+    }
+    
+    @Override
+    public int getChildVertexCount() {
+        return vertexCount + faceCount;
+    }
+    
+    @Override
+    public int getChildFaceCount() {
+        return childParent.length;
+    }
+    
+    @Override
+    public int getParentFace(int childFace) {
+        return childParent[childFace];
+    }
+    
+    /** Returns the edge table of the control mesh.
+     * 
+     * @return EdgeTable, control edges.
+     */
+    @Override
+    public EdgeTable getEdgeTable() {
+        return edges;
+    }
+    
+    @Override
+    public IndexedMesh evaluate(IndexedMesh mesh, MeshAllocator allocator) {
+        MeshStorage out = allocate(mesh, allocator);
+        
+        //Neighbour sums (M).
+        float[] posX = new float[vertexCount], posY = new float[vertexCount], posZ = new float[vertexCount];
+        float[] sumX = new float[vertexCount], sumY = new float[vertexCount], sumZ = new float[vertexCount];
+        float[] sums = new float[3];
+        for(int v = 0; v < vertexCount; v++) {
+            posX[v] = mesh.getX(v);
+            posY[v] = mesh.getY(v);
+            posZ[v] = mesh.getZ(v);
+            sumNeighbours(mesh, v, sums);
+            sumX[v] = sums[0];
+            sumY[v] = sums[1];
+            sumZ[v] = sums[2];
+        }
+        SubdivisionKernels.blend(out, 0, posX, posY, posZ, weightP, sumX, sumY, sumZ, weightM, 
+                null, null, null, null, vertexCount);
+        
+        //Face midpoints.
+        SubdivisionKernels.faceAverages(mesh, out, vertexCount, 0, faceCount);
+        return new IndexedMesh(out);
+    }
+    
+    @Override
+    public IncrementalEvaluation beginEvaluation(IndexedMesh mesh, MeshAllocator allocator) {
+        return new Incremental(mesh, allocate(mesh, allocator));
+    }
+    
+    /** Checks the control mesh matches this topology, then allocates the refined level & writes it's faces.
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param allocator MeshAllocator for the result.
+     * @return MeshStorage, refined level with connectivity but no positions.
+     * @throws IllegalArgumentException if the mesh does not match this topology.
+     */
+    private MeshStorage allocate(IndexedMesh mesh, MeshAllocator allocator) {
+        if(mesh.getVertexCount() != vertexCount || mesh.getFaceCount() != faceCount 
+                || mesh.getIndexCount() != 3 * faceCount) {
+            throw new IllegalArgumentException("Mesh does not match the refinement topology!");
+        }
+        int childCount = childParent.length;
+        MeshStorage out = allocator.allocate(getChildVertexCount(), childCount, 3 * childCount);
+        for(int child = 0; child < childCount; child++) {
+            out.setFaceOffset(child, 3 * child);
+        }
+        for(int i = 0; i < childIndices.length; i++) {
+            out.setIndex(i, childIndices[i]);
+        }
+        return out;
+    }
+    
+    /** Sums the positions of a control vertex's neighbours (M).
+     * 
+     * @param mesh IndexedMesh, control mesh.
+     * @param v int, control vertex.
+     * @param sums float[], receives the X, Y & Z sums.
+     */
+    private void sumNeighbours(IndexedMesh mesh, int v, float[] sums) {
+        float x = 0.0f, y = 0.0f, z = 0.0f;
+        for(int i = 0; i < adjacency.getEdgeCount(v); i++) {
+            int e = adjacency.getEdge(v, i);
+            int other = edges.getStart(e) == v ? edges.getEnd(e) : edges.getStart(e);
+            x += mesh.getX(other);
+            y += mesh.getY(other);
+            z += mesh.getZ(other);
+        }
+        sums[0] = x;
+        sums[1] = y;
+        sums[2] = z;
+    }
+    
+    /** Evaluates refined vertices on demand: relaxed control vertices & face midpoints are independent of each other, 
+     * so each is computed straight from the control mesh. */
+    private class Incremental extends IncrementalEvaluation {
+        
+        /** Control mesh. */
+        private final IndexedMesh parent;
+        
+        /** Refined level being filled in. */
+        private final MeshStorage out;
+        
+        /** Scratch neighbour sums. */
+        private final float[] sums = new float[3];
+        
+        Incremental(IndexedMesh parent, MeshStorage out) {
+            super(out);
+            this.parent = parent;
+            this.out = out;
+        }
+        
+        @Override
+        protected void compute(int vertex) {
+            if(vertex >= vertexCount) {
+                SubdivisionKernels.faceAverages(parent, out, vertexCount, vertex - vertexCount, 
+                        vertex - vertexCount + 1);
+            } else {
+                sumNeighbours(parent, vertex, sums);
+                //Same term order as SubdivisionKernels.weightedSum, so the result matches a full evaluation.
+                out.setPosition(vertex, parent.getX(vertex) * weightP[vertex] + sums[0] * weightM[vertex], 
+                        parent.getY(vertex) * weightP[vertex] + sums[1] * weightM[vertex], 
+                        parent.getZ(vertex) * weightP[vertex] + sums[2] * weightM[vertex]);
+            }
+        }
+    }
+    
+}
+//End of class.
@@ -48,11 +48,7 @@ public class RootThreeUtilities {
      * @param vertices collection of input vertices.
      * @return resulting average vertex.
      */
-<<<<<<< HEAD
-    public Vertex3D getAverage(List<Vertex3D> vertices) {
-=======
     public Vertex3D getAverage(Collection<Vertex3D> vertices) {
->>>>>>> upstream/master
         float x = 0.0f; float y = 0.0f; float z = 0.0f;
         for(Vertex3D vertex : vertices) {
             x += vertex.getX();
@@ -68,13 +64,8 @@ public class RootThreeUtilities {
      * @param vertex input vertex to find containing edge for.
      * @return Set<Vertex3D> all neighbouring vertices.
      */
-<<<<<<< HEAD
-    public List<Vertex3D> getSurroundingVertices(Vertex3D vertex) {
-        List<Vertex3D> vertexList = new ArrayList<>();
-=======
     public Set<Vertex3D> getSurroundingVertices(Vertex3D vertex) {
         Set<Vertex3D> vertexList = new HashSet<>();
->>>>>>> upstream/master
         for(Edge3D edge : polyhedron.getEdgeList()) {
             if(edge.getStart().equals(vertex)) {
                 vertexList.add(edge.getEnd());
@@ -119,11 +110,7 @@ public class RootThreeUtilities {
      * @param vertices ArrayList<Vertex3D> to sum.
      * @return vertex representing the sum of input vertices.
      */
-<<<<<<< HEAD
-    public Vertex3D getVertexAddition(List<Vertex3D> vertices) {
-=======
     public Vertex3D getVertexAddition(Collection<Vertex3D> vertices) {
->>>>>>> upstream/master
         float x = 0.0f; float y = 0.0f; float z = 0.0f;
         for(Vertex3D vertex : vertices) {
             x += vertex.getX();
@@ -139,13 +126,8 @@ public class RootThreeUtilities {
      * @param edge input Edge3D to find winging faces for.
      * @return Set<Face3D> set of winging faces (size should always be 2).
      */
-<<<<<<< HEAD
-    public List<Face3D> getWingingFaces(Edge3D edge) {
-        List<Face3D> faces = new ArrayList<>();
-=======
     public Set<Face3D> getWingingFaces(Edge3D edge) {
         Set<Face3D> faces = new HashSet<>();
->>>>>>> upstream/master
         for(Face3D face : polyhedron.getFaceList()) {
             if(face.containsEdge(true, edge) && !faces.contains(face)) {
                 faces.add(face);
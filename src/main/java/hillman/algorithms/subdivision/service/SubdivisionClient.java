@@ -0,0 +1,172 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.service;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.io.BinaryMeshFormat;
+import hillman.geometries.io.MeshCodec;
+import hillman.geometries.io.ObjFormat;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.file.Paths;
+
+/** Client stub for a SubdivisionServer. Holds one connection, over which any number of requests are made one at a 
+ * time; use one client per thread for concurrent requests.
+ * 
+ * Usage: SubdivisionClient &lt;port&gt; &lt;input.obj&gt; &lt;output.obj&gt; &lt;scheme&gt; &lt;levels&gt; [max error]
+ * 
+ * @author M Hillman
+ * @version 1.0 (14/03/2014)
+ */
+public class SubdivisionClient implements Closeable {
+    
+    /** Connection to the server. */
+    private final Socket socket;
+    
+    /** Stream of replies. */
+    private final DataInputStream in;
+    
+    /** Stream of requests. */
+    private final DataOutputStream out;
+    
+    /** Where the result of the last refine came from. */
+    private SubdivisionServer.Source lastSource;
+    
+    /** Connects to a server.
+     * 
+     * @param host String, server host.
+     * @param port int, server port.
+     * @throws IOException if the connection fails.
+     */
+    public SubdivisionClient(String host, int port) throws IOException {
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 
+                SubdivisionProtocol.BUFFER_BYTES));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 
+                SubdivisionProtocol.BUFFER_BYTES));
+    }
+    
+    /** Returns the exact result of refining a mesh on the server, stored on the heap.
+     * 
+     * @param mesh IndexedMesh to refine.
+     * @param scheme String, scheme name (see SubdivisionSchemeFactory).
+     * @param levels int, levels of subdivision.
+     * @return IndexedMesh, the refined mesh.
+     * @throws IOException if the connection fails or the server refuses the request.
+     */
+    public IndexedMesh refine(IndexedMesh mesh, String scheme, int levels) throws IOException {
+        return refine(mesh, scheme, levels, 0.0f, MeshAllocator.HEAP);
+    }
+    
+    /** Returns the result of refining a mesh on the server. With a maxError above 0 the result is sent MeshCodec 
+     * compressed, so it's positions are only accurate to maxError.
+     * 
+     * @param mesh IndexedMesh to refine.
+     * @param scheme String, scheme name (see SubdivisionSchemeFactory).
+     * @param levels int, levels of subdivision.
+     * @param maxError float, largest position error allowed in transfer (0 for exact).
+     * @param allocator MeshAllocator storing the result.
+     * @return IndexedMesh, the refined mesh.
+     * @throws IOException if the connection fails or the server refuses the request.
+     */
+    public synchronized IndexedMesh refine(IndexedMesh mesh, String scheme, int levels, float maxError, 
+            MeshAllocator allocator) throws IOException {
+        out.writeInt(SubdivisionProtocol.MAGIC);
+        out.writeByte(SubdivisionProtocol.OP_REFINE);
+        out.writeUTF(scheme);
+        out.writeInt(levels);
+        out.writeFloat(maxError);
+        SubdivisionProtocol.ChunkedOutputStream body = new SubdivisionProtocol.ChunkedOutputStream(out);
+        BinaryMeshFormat.write(mesh, body);
+        body.finish();
+        checkStatus();
+        lastSource = SubdivisionServer.Source.values()[in.readByte()];
+        SubdivisionProtocol.ChunkedInputStream result = new SubdivisionProtocol.ChunkedInputStream(in);
+        try {
+            return (maxError > 0.0f) ? MeshCodec.decode(result, allocator) : BinaryMeshFormat.read(result, allocator);
+        } finally {
+            result.finish();
+        }
+    }
+    
+    /** Returns where the result of the last refine came from.
+     * 
+     * @return SubdivisionServer.Source, or null if nothing has been refined.
+     */
+    public synchronized SubdivisionServer.Source getLastSource() {
+        return lastSource;
+    }
+    
+    /** Returns the server's statistics.
+     * 
+     * @return String, statistics.
+     * @throws IOException if the connection fails.
+     */
+    public synchronized String getStatistics() throws IOException {
+        out.writeInt(SubdivisionProtocol.MAGIC);
+        out.writeByte(SubdivisionProtocol.OP_STATISTICS);
+        out.flush();
+        checkStatus();
+        return in.readUTF();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+    
+    /** Reads a reply status, throwing the server's reason if the request failed.
+     * 
+     * @throws IOException if the connection fails or the request failed.
+     */
+    private void checkStatus() throws IOException {
+        byte status = in.readByte();
+        if(status != SubdivisionProtocol.STATUS_OK) {
+            throw new IOException("Subdivision server refused request: " + in.readUTF());
+        }
+    }
+    
+    /** Refines an OBJ file on a local server & writes the result.
+     * 
+     * @param args Command line arguments: port, input, output, scheme, levels & optional transfer error bound.
+     * @throws Exception if the request fails.
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 5) {
+            System.err.println("Usage: SubdivisionClient <port> <input.obj> <output.obj> <scheme> <levels> [max error]");
+            System.exit(1);
+        }
+        float maxError = (args.length > 5) ? Float.parseFloat(args[5]) : 0.0f;
+        try(SubdivisionClient client = new SubdivisionClient(InetAddress.getLoopbackAddress().getHostAddress(), 
+                Integer.parseInt(args[0]))) {
+            long start = System.nanoTime();
+            IndexedMesh result = client.refine(ObjFormat.read(Paths.get(args[1])), args[3], Integer.parseInt(args[4]), 
+                    maxError, MeshAllocator.HEAP);
+            ObjFormat.write(result, Paths.get(args[2]));
+            System.out.println(String.format("%d faces (%s) in %.1f ms", result.getFaceCount(), 
+                    client.getLastSource().name().toLowerCase(), (System.nanoTime() - start) / 1e6));
+        }
+    }
+    
+}
+//End of class.
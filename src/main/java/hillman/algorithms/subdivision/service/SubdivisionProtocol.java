@@ -0,0 +1,215 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.service;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/** Constants & chunked streams of the protocol spoken between SubdivisionServer & SubdivisionClient. Every request 
+ * starts with int MAGIC ("HSUB") & a byte op code; framing fields are big endian (DataOutputStream). 
+ * 
+ * <pre>
+ * OP_REFINE:     UTF scheme, int levels, float maxError, chunked control mesh
+ *   reply:       byte STATUS_OK, byte source, chunked result  |  byte STATUS_ERROR, UTF message
+ * OP_STATISTICS: (nothing)
+ *   reply:       byte STATUS_OK, UTF statistics
+ * </pre>
+ * 
+ * Meshes travel as chunks of int length & that many bytes, ended by a chunk of length 0, so neither side needs to 
+ * know a mesh's size before it starts writing it. The control mesh & exact results are in BinaryMeshFormat; a result 
+ * requested with a maxError above 0 is MeshCodec output instead. Connections stay open for any number of requests.
+ * 
+ * @author M Hillman
+ * @version 1.0 (14/03/2014)
+ */
+final class SubdivisionProtocol {
+    
+    /** Request magic, "HSUB". */
+    static final int MAGIC = 0x42555348;
+    
+    /** Op code refining a mesh. */
+    static final byte OP_REFINE = 1;
+    
+    /** Op code fetching the server statistics. */
+    static final byte OP_STATISTICS = 2;
+    
+    /** Reply status of a request that succeeded. */
+    static final byte STATUS_OK = 0;
+    
+    /** Reply status of a request that failed, followed by the reason. */
+    static final byte STATUS_ERROR = 1;
+    
+    /** Largest chunk written. */
+    static final int CHUNK_BYTES = 1 << 16;
+    
+    /** Size of the socket stream buffers. */
+    static final int BUFFER_BYTES = 1 << 16;
+    
+    private SubdivisionProtocol() {
+    }
+    
+    /** Splits everything written to it into chunks. finish() must be called to end the chunks; closing it does not 
+     * close the underlying stream.
+     */
+    static class ChunkedOutputStream extends OutputStream {
+        
+        /** Stream the chunks are written to. */
+        private final DataOutputStream out;
+        
+        /** Bytes of the current chunk. */
+        private final byte[] chunk = new byte[CHUNK_BYTES];
+        
+        /** Bytes held in chunk. */
+        private int length;
+        
+        /** Total bytes written. */
+        private long count;
+        
+        ChunkedOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            if(length == chunk.length) {
+                writeChunk();
+            }
+            chunk[length++] = (byte) b;
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] bytes, int offset, int size) throws IOException {
+            while(size > 0) {
+                if(length == chunk.length) {
+                    writeChunk();
+                }
+                int part = Math.min(size, chunk.length - length);
+                System.arraycopy(bytes, offset, chunk, length, part);
+                length += part;
+                count += part;
+                offset += part;
+                size -= part;
+            }
+        }
+        
+        /** Writes any buffered bytes & the closing empty chunk, then flushes the underlying stream.
+         * 
+         * @throws IOException if the write fails.
+         */
+        void finish() throws IOException {
+            writeChunk();
+            out.writeInt(0);
+            out.flush();
+        }
+        
+        /** Returns the number of bytes written, not counting chunk lengths.
+         * 
+         * @return long, bytes written.
+         */
+        long getCount() {
+            return count;
+        }
+        
+        /** Writes the buffered bytes as a chunk.
+         * 
+         * @throws IOException if the write fails.
+         */
+        private void writeChunk() throws IOException {
+            if(length > 0) {
+                out.writeInt(length);
+                out.write(chunk, 0, length);
+                length = 0;
+            }
+        }
+    }
+    
+    /** Reads the bytes of a chunked stream up to it's closing empty chunk, then reports the end of the stream. */
+    static class ChunkedInputStream extends InputStream {
+        
+        /** Stream the chunks are read from. */
+        private final DataInputStream in;
+        
+        /** Bytes of the current chunk not read yet. */
+        private int left;
+        
+        /** True once the closing chunk has been read. */
+        private boolean ended;
+        
+        ChunkedInputStream(DataInputStream in) {
+            this.in = in;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            if(!nextChunk()) {
+                return -1;
+            }
+            left--;
+            return in.readUnsignedByte();
+        }
+        
+        @Override
+        public int read(byte[] bytes, int offset, int size) throws IOException {
+            if(size == 0) {
+                return 0;
+            }
+            if(!nextChunk()) {
+                return -1;
+            }
+            int read = in.read(bytes, offset, Math.min(size, left));
+            if(read < 0) {
+                throw new EOFException("Chunked stream ended inside a chunk");
+            }
+            left -= read;
+            return read;
+        }
+        
+        /** Reads & discards whatever is left up to the closing chunk, leaving the underlying stream at the next 
+         * request or reply.
+         * 
+         * @throws IOException if the read fails.
+         */
+        void finish() throws IOException {
+            while(nextChunk()) {
+                in.readFully(new byte[left]);
+                left = 0;
+            }
+        }
+        
+        /** Moves on to the next chunk once the current one is used up.
+         * 
+         * @return boolean, false if the closing chunk has been reached.
+         * @throws IOException if the read fails or a chunk length is invalid.
+         */
+        private boolean nextChunk() throws IOException {
+            while(left == 0 && !ended) {
+                int length = in.readInt();
+                if(length < 0 || length > CHUNK_BYTES) {
+                    throw new IOException("Invalid chunk length " + length);
+                }
+                left = length;
+                ended = (length == 0);
+            }
+            return !ended;
+        }
+    }
+    
+}
+//End of class.
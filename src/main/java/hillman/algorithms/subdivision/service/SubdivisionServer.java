@@ -0,0 +1,506 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.algorithms.subdivision.service;
+
+import hillman.algorithms.subdivision.MeshCounts;
+import hillman.algorithms.subdivision.StorageBackend;
+import hillman.algorithms.subdivision.SubdivisionCache;
+import hillman.algorithms.subdivision.SubdivisionKernels;
+import hillman.algorithms.subdivision.SubdivisionPlan;
+import hillman.algorithms.subdivision.SubdivisionPlanner;
+import hillman.algorithms.subdivision.SubdivisionScheme;
+import hillman.algorithms.subdivision.SubdivisionSchemeFactory;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.io.BinaryMeshFormat;
+import hillman.geometries.io.MeshCodec;
+import hillman.geometries.io.MeshHash;
+import hillman.geometries.spatial.MortonOrder;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Local subdivision server, letting many tools share one warmed up JVM instead of each embedding the schemes. 
+ * Clients (see SubdivisionClient) connect over a loopback socket, send control meshes in BinaryMeshFormat & get the 
+ * refined mesh streamed back in chunks, exact or MeshCodec compressed; see SubdivisionProtocol for the wire format.
+ * 
+ * Results are keyed by the control mesh's exact MeshHash, the scheme & the level count. A request matching one that
+ * is still being computed waits for that computation rather than starting another (coalescing), & one matching a 
+ * recent result is answered from memory (reuse). The exact hash covers the control mesh's vertex numbering & face 
+ * order, so a coalesced or reused result is bit-identical to refining the client's own mesh. Finished results are 
+ * held least recently used first up to a memory budget; failed ones are dropped so the next request tries again. 
+ * With a SubdivisionCache attached, results also persist on disk & are looked up there before computing, keyed as 
+ * well on whether this server Morton reorders between levels, so ordered & unordered results never mix.
+ * 
+ * Each connection is served by it's own daemon thread, while refinement runs on a work-stealing ForkJoinPool sized 
+ * to the requested threads. Requests are planned by a SubdivisionPlanner first & refused if the result would not fit
+ * on the heap; held results outlive the request, so they are never moved off-heap.
+ * 
+ * Usage: SubdivisionServer [port] [threads] [cache directory]
+ * 
+ * @author M Hillman
+ * @version 1.0 (14/03/2014)
+ */
+public class SubdivisionServer implements Closeable {
+    
+    /** Default memory budget for held results, a quarter of the maximum heap. */
+    public static final long DEFAULT_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+    
+    /** Where the result of a request came from. */
+    public enum Source { 
+        /** Refined for this request. */
+        COMPUTED, 
+        /** Shared with an identical request that was already being refined. */
+        COALESCED, 
+        /** Held in memory from an earlier request. */
+        REUSED, 
+        /** Mapped from the on-disk cache. */
+        CACHED 
+    }
+    
+    /** Socket accepting connections. */
+    private final ServerSocket serverSocket;
+    
+    /** Pool for CPU-bound refinement. */
+    private final ForkJoinPool cpuPool;
+    
+    /** Threads serving connections. */
+    private final ExecutorService connectionPool;
+    
+    /** Admission control for new computations. */
+    private final SubdivisionPlanner planner;
+    
+    /** Results by key, running & finished, in access order (eldest first). Guards usedBytes too. */
+    private final LinkedHashMap<String, Result> results = new LinkedHashMap<>(16, 0.75f, true);
+    
+    /** Memory budget for finished results in bytes. */
+    private final long budget;
+    
+    /** Estimated bytes held by finished results. */
+    private long usedBytes;
+    
+    /** Open connections, closed with the server. */
+    private final Set<Socket> connections = Collections.synchronizedSet(new HashSet<Socket>());
+    
+    /** Persistent cache of results (may be null). */
+    private volatile SubdivisionCache cache;
+    
+    /** True once closed. */
+    private volatile boolean closed;
+    
+    /** Counters for the statistics. */
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong[] sources = new AtomicLong[Source.values().length];
+    
+    /** Initialises a server on a loopback port. Connections are not accepted until start() is called.
+     * 
+     * @param port int, port to listen on (0 for any free port).
+     * @param threads int, size of the refinement pool.
+     * @param budget long, memory budget for held results in bytes.
+     * @throws IOException if the port cannot be bound.
+     */
+    public SubdivisionServer(int port, int threads, long budget) throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.cpuPool = new ForkJoinPool(threads);
+        this.connectionPool = Executors.newCachedThreadPool(new DaemonThreadFactory("Subdivision connection"));
+        this.planner = new SubdivisionPlanner(SubdivisionPlanner.DEFAULT_HEADROOM, threads);
+        this.budget = budget;
+        for(int i = 0; i < sources.length; i++) {
+            sources[i] = new AtomicLong();
+        }
+    }
+    
+    /** Attaches a persistent cache that results are looked up in before refining & added to afterwards.
+     * 
+     * @param cache SubdivisionCache to use (null to disable).
+     */
+    public void setCache(SubdivisionCache cache) {
+        this.cache = cache;
+    }
+    
+    /** Returns the port the server is listening on.
+     * 
+     * @return int, port number.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    /** Starts accepting connections on a daemon thread. */
+    public void start() {
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while(!closed) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        socket.setTcpNoDelay(true);
+                        connections.add(socket);
+                        connectionPool.execute(new Connection(socket));
+                    } catch(IOException e) {
+                        if(!closed) {
+                            System.err.println("Subdivision server failed to accept a connection: " + e);
+                        }
+                    }
+                }
+            }
+        }, "Subdivision server " + getPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    /** Returns the refined mesh for a request, joining or reusing an identical one where possible. Held results are
+     * shared between requests, so callers must not change them.
+     * 
+     * @param control IndexedMesh to refine.
+     * @param scheme SubdivisionScheme to apply.
+     * @param levels int, levels of subdivision.
+     * @param source Source[] of length 1 set to where the result came from.
+     * @return IndexedMesh, the refined mesh.
+     * @throws ExecutionException if refinement failed or was refused.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public IndexedMesh refine(IndexedMesh control, SubdivisionScheme scheme, int levels, Source[] source) 
+            throws ExecutionException, InterruptedException {
+        requests.incrementAndGet();
+        String hash = MeshHash.hashExact(control);
+        String key = hash + "/" + scheme.getName() + "/" + levels;
+        Result result;
+        boolean owner = false;
+        synchronized(results) {
+            result = results.get(key);
+            if(result == null) {
+                result = new Result(new Refinement(control, scheme, levels, hash));
+                results.put(key, result);
+                owner = true;
+            }
+        }
+        if(owner) {
+            cpuPool.execute(result);
+        } else {
+            source[0] = result.isDone() ? Source.REUSED : Source.COALESCED;
+        }
+        IndexedMesh mesh;
+        try {
+            mesh = result.get();
+        } catch(ExecutionException e) {
+            failures.incrementAndGet();
+            synchronized(results) {
+                if(results.get(key) == result) {
+                    results.remove(key);
+                }
+            }
+            throw e;
+        }
+        if(owner) {
+            source[0] = result.cached ? Source.CACHED : Source.COMPUTED;
+            hold(result, mesh);
+        }
+        sources[source[0].ordinal()].incrementAndGet();
+        return mesh;
+    }
+    
+    /** Returns a summary of the requests served so far.
+     * 
+     * @return String, statistics.
+     */
+    public String getStatistics() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Requests: ").append(requests.get()).append(", failed: ").append(failures.get());
+        for(Source source : Source.values()) {
+            builder.append(", ").append(source.name().toLowerCase()).append(": ")
+                    .append(sources[source.ordinal()].get());
+        }
+        synchronized(results) {
+            builder.append("\nHeld: ").append(results.size()).append(" results, ").append(usedBytes / 1024)
+                    .append(" KB of ").append(budget / 1024).append(" KB");
+        }
+        builder.append(", sent: ").append(bytesSent.get() / 1024).append(" KB");
+        return builder.toString();
+    }
+    
+    /** Stops accepting connections, closes open ones & shuts down the pools. Held results are dropped. */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        synchronized(connections) {
+            for(Socket socket : connections) {
+                socket.close();
+            }
+        }
+        connectionPool.shutdownNow();
+        cpuPool.shutdownNow();
+        synchronized(results) {
+            results.clear();
+            usedBytes = 0;
+        }
+    }
+    
+    /** Weighs a finished result & evicts finished results, eldest first, until the held results fit the budget. 
+     * Running results are never evicted.
+     * 
+     * @param result Result that has just finished.
+     * @param mesh IndexedMesh it holds.
+     */
+    private void hold(Result result, IndexedMesh mesh) {
+        synchronized(results) {
+            if(!results.containsValue(result)) {
+                return;
+            }
+            result.bytes = 12L * mesh.getVertexCount() + 4L * (mesh.getFaceCount() + 1) + 4L * mesh.getIndexCount();
+            usedBytes += result.bytes;
+            Iterator<Map.Entry<String, Result>> iterator = results.entrySet().iterator();
+            while(usedBytes > budget && iterator.hasNext()) {
+                Result eldest = iterator.next().getValue();
+                if(eldest.bytes > 0) {
+                    usedBytes -= eldest.bytes;
+                    iterator.remove();
+                }
+            }
+        }
+    }
+    
+    /** A running or finished refinement shared by every request for the same key. */
+    private static class Result extends FutureTask<IndexedMesh> {
+        
+        /** Estimated bytes held once finished & accounted for (0 until then). Guarded by the results map. */
+        private long bytes;
+        
+        /** True if the result was mapped from the on-disk cache. */
+        private volatile boolean cached;
+        
+        Result(Refinement refinement) {
+            super(refinement);
+            refinement.result = this;
+        }
+    }
+    
+    /** Refines a control mesh, reading from & writing to the on-disk cache if one is attached. */
+    private class Refinement implements Callable<IndexedMesh> {
+        
+        /** Control mesh. */
+        private final IndexedMesh control;
+        
+        /** Scheme to apply. */
+        private final SubdivisionScheme scheme;
+        
+        /** Levels of subdivision. */
+        private final int levels;
+        
+        /** Exact hash of the control mesh. */
+        private final String hash;
+        
+        /** Result this refinement runs for. */
+        private Result result;
+        
+        Refinement(IndexedMesh control, SubdivisionScheme scheme, int levels, String hash) {
+            this.control = control;
+            this.scheme = scheme;
+            this.levels = levels;
+            this.hash = hash;
+        }
+        
+        @Override
+        public IndexedMesh call() throws IOException {
+            SubdivisionCache disk = cache;
+            boolean reorder = SubdivisionKernels.isReorderingEnabled();
+            if(disk != null) {
+                IndexedMesh cached = disk.get(hash, scheme, levels, reorder);
+                if(cached != null) {
+                    result.cached = true;
+                    return cached;
+                }
+            }
+            SubdivisionPlan plan = planner.plan(MeshCounts.of(control, new EdgeTable(control)), scheme, levels, 
+                    StorageBackend.INDEXED_HEAP);
+            if(!plan.isAdmitted() || plan.getBackend() != StorageBackend.INDEXED_HEAP) {
+                throw new IllegalStateException("Result would not fit on the heap: " + plan);
+            }
+            IndexedMesh mesh = control;
+            for(int level = 0; level < levels; level++) {
+                if(reorder) {
+                    mesh = MortonOrder.reorder(mesh, MeshAllocator.HEAP);
+                }
+                mesh = scheme.refine(mesh, MeshAllocator.HEAP);
+            }
+            if(disk != null) {
+                disk.put(hash, scheme, levels, reorder, mesh);
+            }
+            return mesh;
+        }
+    }
+    
+    /** Serves the requests of one connection until the client closes it. */
+    private class Connection implements Runnable {
+        
+        /** Socket of the connection. */
+        private final Socket socket;
+        
+        Connection(Socket socket) {
+            this.socket = socket;
+        }
+        
+        @Override
+        public void run() {
+            try(Socket s = socket) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream(), 
+                        SubdivisionProtocol.BUFFER_BYTES));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream(), 
+                        SubdivisionProtocol.BUFFER_BYTES));
+                while(!closed) {
+                    int magic;
+                    try {
+                        magic = in.readInt();
+                    } catch(EOFException e) {
+                        return;
+                    }
+                    if(magic != SubdivisionProtocol.MAGIC) {
+                        throw new IOException("Not a subdivision request");
+                    }
+                    byte op = in.readByte();
+                    if(op == SubdivisionProtocol.OP_REFINE) {
+                        serveRefine(in, out);
+                    } else if(op == SubdivisionProtocol.OP_STATISTICS) {
+                        out.writeByte(SubdivisionProtocol.STATUS_OK);
+                        out.writeUTF(getStatistics());
+                        out.flush();
+                    } else {
+                        throw new IOException("Unknown op code " + op);
+                    }
+                }
+            } catch(IOException e) {
+                if(!closed) {
+                    System.err.println("Subdivision connection dropped: " + e);
+                }
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                connections.remove(socket);
+            }
+        }
+        
+        /** Reads a refine request, then writes the result or the reason it failed.
+         * 
+         * @param in DataInputStream positioned after the op code.
+         * @param out DataOutputStream to reply on.
+         * @throws IOException if the connection fails.
+         * @throws InterruptedException if interrupted while waiting for the result.
+         */
+        private void serveRefine(DataInputStream in, DataOutputStream out) throws IOException, InterruptedException {
+            String schemeName = in.readUTF();
+            int levels = in.readInt();
+            float maxError = in.readFloat();
+            SubdivisionProtocol.ChunkedInputStream body = new SubdivisionProtocol.ChunkedInputStream(in);
+            IndexedMesh control;
+            try {
+                control = BinaryMeshFormat.read(body, MeshAllocator.HEAP);
+            } finally {
+                body.finish();
+            }
+            Source[] source = new Source[1];
+            IndexedMesh mesh;
+            try {
+                if(levels < 0) {
+                    throw new IllegalArgumentException("Invalid level count " + levels);
+                }
+                mesh = refine(control, SubdivisionSchemeFactory.getScheme(schemeName), levels, source);
+            } catch(ExecutionException | RuntimeException e) {
+                Throwable cause = (e instanceof ExecutionException && e.getCause() != null) ? e.getCause() : e;
+                out.writeByte(SubdivisionProtocol.STATUS_ERROR);
+                out.writeUTF(String.valueOf(cause));
+                out.flush();
+                return;
+            }
+            out.writeByte(SubdivisionProtocol.STATUS_OK);
+            out.writeByte(source[0].ordinal());
+            SubdivisionProtocol.ChunkedOutputStream result = new SubdivisionProtocol.ChunkedOutputStream(out);
+            if(maxError > 0.0f) {
+                MeshCodec.encode(mesh, maxError, result);
+            } else {
+                BinaryMeshFormat.write(mesh, result);
+            }
+            result.finish();
+            bytesSent.addAndGet(result.getCount());
+        }
+    }
+    
+    /** Names & daemonises connection threads so an abandoned server never holds the JVM open. */
+    private static class DaemonThreadFactory implements ThreadFactory {
+        
+        /** Thread name prefix. */
+        private final String prefix;
+        
+        /** Threads created so far. */
+        private final AtomicInteger count = new AtomicInteger();
+        
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+        
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + " " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+    
+    /** Runs a server until the JVM is stopped, printing it's port.
+     * 
+     * @param args Command line arguments: optional port (default any free port), optional pool size & optional 
+     * cache directory.
+     * @throws Exception if the server cannot be started.
+     */
+    public static void main(String[] args) throws Exception {
+        int port = (args.length > 0) ? Integer.parseInt(args[0]) : 0;
+        int threads = (args.length > 1) ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        SubdivisionServer server = new SubdivisionServer(port, threads, DEFAULT_BUDGET);
+        if(args.length > 2) {
+            server.setCache(new SubdivisionCache(Paths.get(args[2])));
+        }
+        server.start();
+        System.out.println("Subdivision server listening on port " + server.getPort());
+        Thread.sleep(Long.MAX_VALUE);
+    }
+    
+}
+//End of class.
@@ -0,0 +1,130 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.events;
+
+/** Base class of timed events recorded by the EventRecorder, shaped like Flight Recorder's events: create one, call
+ * <code>begin</code> before the work, <code>end</code> after it, set any fields & <code>commit</code>. While 
+ * recording is disabled every call returns immediately, so events can be left in hot paths permanently.
+ * 
+ * Besides it's duration, every event records the bytes allocated by the calling thread (where the JVM can tell) & 
+ * the garbage collections that ran while it was open, so slow events can be matched to GC activity directly.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/03/2014)
+ */
+public abstract class Event {
+    
+    /** Wall clock time the event began (ms since the epoch). */
+    private long startMillis;
+    
+    /** Monotonic time the event began & it's duration. */
+    private long startNanos, durationNanos;
+    
+    /** Allocated bytes, collection count & collection time at the start, replaced by the deltas at the end. */
+    private long allocatedBytes, collections, collectionMillis;
+    
+    /** State of the event: began, ended. */
+    private boolean began, ended;
+    
+    /** Starts timing, if recording is enabled. */
+    public void begin() {
+        if(!EventRecorder.isEnabled()) {
+            return;
+        }
+        began = true;
+        startMillis = System.currentTimeMillis();
+        allocatedBytes = EventRecorder.getAllocatedBytes();
+        collections = EventRecorder.getCollectionCount();
+        collectionMillis = EventRecorder.getCollectionMillis();
+        startNanos = System.nanoTime();
+    }
+    
+    /** Stops timing. Called by <code>commit</code> if not called before. */
+    public void end() {
+        if(!began || ended) {
+            return;
+        }
+        durationNanos = System.nanoTime() - startNanos;
+        long allocated = EventRecorder.getAllocatedBytes();
+        allocatedBytes = (allocated < 0 || allocatedBytes < 0) ? -1L : allocated - allocatedBytes;
+        collections = EventRecorder.getCollectionCount() - collections;
+        collectionMillis = EventRecorder.getCollectionMillis() - collectionMillis;
+        ended = true;
+    }
+    
+    /** Ends the event if necessary & hands it to the recorder. Does nothing if <code>begin</code> was not called 
+     * while recording was enabled. */
+    public void commit() {
+        if(!began) {
+            return;
+        }
+        end();
+        EventRecorder.record(this);
+    }
+    
+    /** Returns the event's name, as written to the recording.
+     * 
+     * @return String, event name.
+     */
+    protected abstract String getName();
+    
+    /** Appends the event's own fields, as space separated <code>name=value</code> pairs.
+     * 
+     * @param builder StringBuilder to append to.
+     */
+    protected abstract void appendFields(StringBuilder builder);
+    
+    /** Returns the wall clock time the event began.
+     * 
+     * @return long, ms since the epoch.
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+    
+    /** Returns the event's duration.
+     * 
+     * @return long, nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+    
+    /** Returns the bytes allocated by the thread that began the event while it was open.
+     * 
+     * @return long, bytes, or -1 if the JVM cannot measure allocation.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+    
+    /** Returns the number of garbage collections that ran while the event was open (on any thread).
+     * 
+     * @return long, collections.
+     */
+    public long getCollections() {
+        return collections;
+    }
+    
+    /** Returns the time spent in garbage collection while the event was open.
+     * 
+     * @return long, ms.
+     */
+    public long getCollectionMillis() {
+        return collectionMillis;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,182 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.events;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/** Collects committed Events into a bounded in-memory recording (the oldest are dropped once it is full) & writes it
+ * out as text, one event per line:
+ * 
+ * <pre>
+ * &lt;start ms&gt; &lt;name&gt; duration=&lt;ms&gt; &lt;fields...&gt; allocated=&lt;bytes&gt; gcs=&lt;count&gt; gcTime=&lt;ms&gt;
+ * </pre>
+ * 
+ * Recording is off by default. Launching with <code>-Dhillman.events=&lt;file&gt;</code> turns it on & writes the 
+ * recording to that file when the JVM exits; <code>setEnabled</code> & <code>dump</code> control it at runtime.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/03/2014)
+ */
+public class EventRecorder {
+    
+    /** System property naming the file the recording is written to at exit. */
+    public static final String PROPERTY = "hillman.events";
+    
+    /** Maximum number of events held. */
+    public static final int CAPACITY = 1 << 16;
+    
+    /** Recorded events, formatted, oldest first. */
+    private static final ArrayDeque<String> EVENTS = new ArrayDeque<>();
+    
+    /** Thread MXBean, for per-thread allocation counts where the JVM supports them. */
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    
+    /** Garbage collector MXBeans. */
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+    
+    /** Whether events are being recorded. */
+    private static volatile boolean enabled;
+    
+    static {
+        final String file = System.getProperty(PROPERTY);
+        if(file != null) {
+            enabled = true;
+            Runtime.getRuntime().addShutdownHook(new Thread("Event recording writer") {
+                @Override
+                public void run() {
+                    try {
+                        dump(Paths.get(file));
+                    } catch(IOException e) {
+                        System.err.println("Cannot write event recording to " + file + ": " + e);
+                    }
+                }
+            });
+        }
+    }
+    
+    /** Returns true if events are being recorded.
+     * 
+     * @return boolean, true if enabled.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+    
+    /** Turns recording on or off. Events already begun while off are not recorded.
+     * 
+     * @param enabled boolean, true to record.
+     */
+    public static void setEnabled(boolean enabled) {
+        EventRecorder.enabled = enabled;
+    }
+    
+    /** Adds a committed event to the recording.
+     * 
+     * @param event Event to record.
+     */
+    static void record(Event event) {
+        StringBuilder builder = new StringBuilder(128);
+        builder.append(event.getStartMillis()).append(' ').append(event.getName());
+        builder.append(String.format(Locale.ROOT, " duration=%.3f ", event.getDurationNanos() / 1e6));
+        event.appendFields(builder);
+        builder.append(" allocated=").append(event.getAllocatedBytes());
+        builder.append(" gcs=").append(event.getCollections());
+        builder.append(" gcTime=").append(event.getCollectionMillis());
+        String line = builder.toString();
+        synchronized(EVENTS) {
+            if(EVENTS.size() == CAPACITY) {
+                EVENTS.removeFirst();
+            }
+            EVENTS.addLast(line);
+        }
+    }
+    
+    /** Returns a copy of the recording, oldest first.
+     * 
+     * @return List<String>, formatted events.
+     */
+    public static List<String> getEvents() {
+        synchronized(EVENTS) {
+            return new ArrayList<>(EVENTS);
+        }
+    }
+    
+    /** Writes the recording to a file, overwriting any existing file.
+     * 
+     * @param file Path to write to.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void dump(Path file) throws IOException {
+        Files.write(file, getEvents(), StandardCharsets.UTF_8);
+    }
+    
+    /** Empties the recording. */
+    public static void clear() {
+        synchronized(EVENTS) {
+            EVENTS.clear();
+        }
+    }
+    
+    /** Returns the bytes allocated so far by the current thread.
+     * 
+     * @return long, bytes, or -1 if the JVM cannot measure allocation.
+     */
+    static long getAllocatedBytes() {
+        if(THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1L;
+    }
+    
+    /** Returns the number of garbage collections so far, over all collectors.
+     * 
+     * @return long, collections.
+     */
+    static long getCollectionCount() {
+        long count = 0L;
+        for(GarbageCollectorMXBean collector : COLLECTORS) {
+            count += Math.max(0L, collector.getCollectionCount());
+        }
+        return count;
+    }
+    
+    /** Returns the time spent in garbage collection so far, over all collectors.
+     * 
+     * @return long, ms.
+     */
+    static long getCollectionMillis() {
+        long millis = 0L;
+        for(GarbageCollectorMXBean collector : COLLECTORS) {
+            millis += Math.max(0L, collector.getCollectionTime());
+        }
+        return millis;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,165 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * MeshStorage held off-heap in direct buffers owned by a MeshArena, so the garbage collector never scans or copies 
+ * mesh data no matter how large the mesh is. Each column is split into chunks of 2^28 elements to stay within the 
+ * 2GB limit of a single buffer.
+ * 
+ * Instances are created through <code>MeshArena.allocate</code> & become unusable once their arena is closed.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public class DirectMeshStorage implements MeshStorage {
+    
+    /** Log2 of the number of elements per chunk. */
+    private static final int CHUNK_SHIFT = 28;
+    
+    /** Mask for the element offset within a chunk. */
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    
+    /** Position component chunks. */
+    private FloatBuffer[] x, y, z;
+    
+    /** Face offset & index chunks. */
+    private IntBuffer[] faceOffsets, indices;
+    
+    /** Sizes. */
+    private final int vertexCount, faceCount, indexCount;
+    
+    /** Allocates zero-filled storage of the input size from the arena.
+     * 
+     * @param arena MeshArena owning the memory.
+     * @param vertexCount int, number of vertices.
+     * @param faceCount int, number of faces.
+     * @param indexCount int, number of face vertex indices.
+     */
+    DirectMeshStorage(MeshArena arena, int vertexCount, int faceCount, int indexCount) {
+        this.vertexCount = vertexCount;
+        this.faceCount = faceCount;
+        this.indexCount = indexCount;
+        this.x = floatChunks(arena, vertexCount);
+        this.y = floatChunks(arena, vertexCount);
+        this.z = floatChunks(arena, vertexCount);
+        this.faceOffsets = intChunks(arena, faceCount + 1);
+        this.indices = intChunks(arena, indexCount);
+        setFaceOffset(faceCount, indexCount);
+    }
+    
+    /** Allocates float chunks covering the input element count.
+     * 
+     * @param arena MeshArena owning the memory.
+     * @param count int, number of elements.
+     * @return FloatBuffer[], chunks.
+     */
+    private static FloatBuffer[] floatChunks(MeshArena arena, int count) {
+        FloatBuffer[] chunks = new FloatBuffer[Math.max(1, ((count - 1) >>> CHUNK_SHIFT) + 1)];
+        for(int i = 0; i < chunks.length; i++) {
+            int elements = Math.min(CHUNK_MASK + 1, count - (i << CHUNK_SHIFT));
+            chunks[i] = arena.allocateBuffer(4 * Math.max(0, elements)).asFloatBuffer();
+        }
+        return chunks;
+    }
+    
+    /** Allocates int chunks covering the input element count.
+     * 
+     * @param arena MeshArena owning the memory.
+     * @param count int, number of elements.
+     * @return IntBuffer[], chunks.
+     */
+    private static IntBuffer[] intChunks(MeshArena arena, int count) {
+        IntBuffer[] chunks = new IntBuffer[Math.max(1, ((count - 1) >>> CHUNK_SHIFT) + 1)];
+        for(int i = 0; i < chunks.length; i++) {
+            int elements = Math.min(CHUNK_MASK + 1, count - (i << CHUNK_SHIFT));
+            chunks[i] = arena.allocateBuffer(4 * Math.max(0, elements)).asIntBuffer();
+        }
+        return chunks;
+    }
+    
+    /** Drops all buffer references, called by the arena just before it frees the memory. */
+    void detach() {
+        x = null;
+        y = null;
+        z = null;
+        faceOffsets = null;
+        indices = null;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    @Override
+    public int getIndexCount() {
+        return indexCount;
+    }
+
+    @Override
+    public float getX(int vertex) {
+        return x[vertex >>> CHUNK_SHIFT].get(vertex & CHUNK_MASK);
+    }
+
+    @Override
+    public float getY(int vertex) {
+        return y[vertex >>> CHUNK_SHIFT].get(vertex & CHUNK_MASK);
+    }
+
+    @Override
+    public float getZ(int vertex) {
+        return z[vertex >>> CHUNK_SHIFT].get(vertex & CHUNK_MASK);
+    }
+
+    @Override
+    public void setPosition(int vertex, float x, float y, float z) {
+        int chunk = vertex >>> CHUNK_SHIFT;
+        int offset = vertex & CHUNK_MASK;
+        this.x[chunk].put(offset, x);
+        this.y[chunk].put(offset, y);
+        this.z[chunk].put(offset, z);
+    }
+
+    @Override
+    public int getFaceOffset(int face) {
+        return faceOffsets[face >>> CHUNK_SHIFT].get(face & CHUNK_MASK);
+    }
+
+    @Override
+    public void setFaceOffset(int face, int offset) {
+        faceOffsets[face >>> CHUNK_SHIFT].put(face & CHUNK_MASK, offset);
+    }
+
+    @Override
+    public int getIndex(int offset) {
+        return indices[offset >>> CHUNK_SHIFT].get(offset & CHUNK_MASK);
+    }
+
+    @Override
+    public void setIndex(int offset, int vertex) {
+        indices[offset >>> CHUNK_SHIFT].put(offset & CHUNK_MASK, vertex);
+    }
+    
+}
+//End of class.
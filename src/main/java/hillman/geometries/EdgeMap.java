@@ -0,0 +1,192 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from an undirected edge, packed into a single long as (lower vertex id, higher vertex id),
+ * to an int (typically the edge's index). Keys & values sit in two primitive arrays probed linearly, so lookups & 
+ * inserts create no objects & box nothing.
+ * 
+ * @author M Hillman
+ * @version 1.0 (17/02/2014)
+ */
+public class EdgeMap {
+    
+    /** Marks an empty slot; never a valid key since vertex ids are non-negative. */
+    private static final long EMPTY = -1L;
+    
+    /** Returned by lookups that find no entry. */
+    public static final int MISSING = -1;
+    
+    /** Slot keys. */
+    private long[] keys;
+    
+    /** Slot values. */
+    private int[] values;
+    
+    /** Number of entries. */
+    private int size;
+    
+    /** Slot count - 1 (slot count is a power of two). */
+    private int mask;
+    
+    /** Constructor that sizes the map for the expected number of entries, at most half full.
+     * 
+     * @param expected int, expected number of entries.
+     */
+    public EdgeMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        allocate(capacity);
+    }
+    
+    /** Packs an undirected vertex pair into a single key, lower index in the high word.
+     * 
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @return long, undirected edge key.
+     */
+    public static long key(int a, int b) {
+        int lo = Math.min(a, b);
+        int hi = Math.max(a, b);
+        return ((long) lo << 32) | (hi & 0xFFFFFFFFL);
+    }
+    
+    /** Returns the value stored for the edge between the input vertices.
+     * 
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @return int, stored value or MISSING.
+     */
+    public int get(int a, int b) {
+        return get(key(a, b));
+    }
+    
+    /** Returns the value stored for a packed edge key.
+     * 
+     * @param key long, packed edge key.
+     * @return int, stored value or MISSING.
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while(keys[slot] != EMPTY) {
+            if(keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+    
+    /** Stores a value for a packed edge key unless one is already present.
+     * 
+     * @param key long, packed edge key.
+     * @param value int, value to store.
+     * @return int, the existing value, or MISSING if the input value was stored.
+     */
+    public int putIfAbsent(long key, int value) {
+        int slot = slot(key);
+        while(keys[slot] != EMPTY) {
+            if(keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if(++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        return MISSING;
+    }
+    
+    /** Stores a value for a packed edge key, replacing any existing value.
+     * 
+     * @param key long, packed edge key.
+     * @param value int, value to store.
+     */
+    public void put(long key, int value) {
+        int slot = slot(key);
+        while(keys[slot] != EMPTY) {
+            if(keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if(++size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+    
+    /** Returns the number of entries.
+     * 
+     * @return int, entry count.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /** Returns the home slot of a key, using the 64 bit finaliser from MurmurHash3 to spread the packed ids.
+     * 
+     * @param key long, packed edge key.
+     * @return int, slot index.
+     */
+    private int slot(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+    
+    /** Allocates empty slot arrays.
+     * 
+     * @param capacity int, slot count (a power of two).
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+    
+    /** Moves every entry into larger slot arrays.
+     * 
+     * @param capacity int, new slot count (a power of two).
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                while(keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,151 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+/**
+ * This class holds the undirected edges of an IndexedMesh along with the (up to two) faces winging each edge & the
+ * edge used by every face corner. Edges are numbered in order of first appearance when walking the faces in order,
+ * so the numbering is deterministic for a given mesh. Edge identity is resolved through an EdgeMap, so building the 
+ * table allocates nothing per edge.
+ * 
+ * @author M Hillman
+ * @version 1.0 (10/02/2014)
+ */
+public class EdgeTable {
+    
+    /** Lower & higher vertex index of each edge. */
+    private int[] edgeStart, edgeEnd;
+    
+    /** First & second winging face of each edge (second is -1 for boundary edges). */
+    private int[] edgeFace0, edgeFace1;
+    
+    /** Edge running from each face corner to the next corner, aligned with the mesh's index list. */
+    private int[] cornerEdge;
+    
+    /** Number of edges. */
+    private int edgeCount;
+    
+    /** True if any edge is winged by more than two faces. */
+    private boolean nonManifold;
+    
+    /** Builds the edge table of the input mesh.
+     * 
+     * @param mesh IndexedMesh to build edges for.
+     */
+    public EdgeTable(IndexedMesh mesh) {
+        int capacity = mesh.getIndexCount();
+        edgeStart = new int[capacity];
+        edgeEnd = new int[capacity];
+        edgeFace0 = new int[capacity];
+        edgeFace1 = new int[capacity];
+        cornerEdge = new int[capacity];
+        EdgeMap ids = new EdgeMap(capacity / 2);
+        
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            int offset = mesh.getFaceOffset(f);
+            int size = mesh.getFaceSize(f);
+            for(int k = 0; k < size; k++) {
+                int a = mesh.getIndex(offset + k);
+                int b = mesh.getIndex(offset + (k + 1) % size);
+                int id = ids.putIfAbsent(EdgeMap.key(a, b), edgeCount);
+                if(id == EdgeMap.MISSING) {
+                    id = edgeCount++;
+                    edgeStart[id] = Math.min(a, b);
+                    edgeEnd[id] = Math.max(a, b);
+                    edgeFace0[id] = f;
+                    edgeFace1[id] = -1;
+                } else if(edgeFace1[id] == -1) {
+                    edgeFace1[id] = f;
+                } else {
+                    nonManifold = true;
+                }
+                cornerEdge[offset + k] = id;
+            }
+        }
+    }
+    
+    /** Returns the number of edges.
+     * 
+     * @return int, edge count.
+     */
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+    
+    /** Returns the lower vertex index of an edge.
+     * 
+     * @param edge int, edge index.
+     * @return int, vertex index.
+     */
+    public int getStart(int edge) {
+        return edgeStart[edge];
+    }
+    
+    /** Returns the higher vertex index of an edge.
+     * 
+     * @param edge int, edge index.
+     * @return int, vertex index.
+     */
+    public int getEnd(int edge) {
+        return edgeEnd[edge];
+    }
+    
+    /** Returns the first face winging an edge.
+     * 
+     * @param edge int, edge index.
+     * @return int, face index.
+     */
+    public int getFace0(int edge) {
+        return edgeFace0[edge];
+    }
+    
+    /** Returns the second face winging an edge, or -1 if the edge is on a boundary.
+     * 
+     * @param edge int, edge index.
+     * @return int, face index or -1.
+     */
+    public int getFace1(int edge) {
+        return edgeFace1[edge];
+    }
+    
+    /** Returns true if the edge has only one winging face.
+     * 
+     * @param edge int, edge index.
+     * @return boolean, true for boundary edges.
+     */
+    public boolean isBoundary(int edge) {
+        return edgeFace1[edge] == -1;
+    }
+    
+    /** Returns the edge running from the corner at the input offset of the mesh's index list to the next corner of 
+     * the same face.
+     * 
+     * @param offset int, offset into the mesh's index list.
+     * @return int, edge index.
+     */
+    public int getCornerEdge(int offset) {
+        return cornerEdge[offset];
+    }
+    
+    /** Returns true if any edge is winged by more than two faces, which the indexed schemes cannot refine.
+     * 
+     * @return boolean, true if the mesh is not edge-manifold.
+     */
+    public boolean isNonManifold() {
+        return nonManifold;
+    }
+    
+}
+//End of class.
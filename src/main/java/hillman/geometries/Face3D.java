@@ -17,6 +17,7 @@ package hillman.geometries;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 
@@ -62,6 +63,42 @@ public class Face3D {
         return vertices;
     }
     
+    /** Returns the vertices of this face in loop order, found by chaining each edge's end to the next edge's start
+     * (edges running against the loop are followed in reverse). The loop starts at an arbitrary vertex.
+     * 
+     * @return List<Vertex3D>, vertices in loop order.
+     */
+    public List<Vertex3D> getOrderedVertexList() {
+        List<Edge3D> remaining = new ArrayList<>(getEdgeList());
+        List<Vertex3D> loop = new ArrayList<>();
+        if(remaining.isEmpty()) {
+            return loop;
+        }
+        Edge3D first = remaining.remove(0);
+        loop.add(first.getStart());
+        Vertex3D current = first.getEnd();
+        while(!remaining.isEmpty()) {
+            loop.add(current);
+            Vertex3D next = null;
+            for(int i = 0; i < remaining.size() && next == null; i++) {
+                Edge3D edge = remaining.get(i);
+                if(edge.getStart().equals(current)) {
+                    next = edge.getEnd();
+                } else if(edge.getEnd().equals(current)) {
+                    next = edge.getStart();
+                }
+                if(next != null) {
+                    remaining.remove(i);
+                }
+            }
+            if(next == null) {
+                throw new IllegalStateException("Face edges do not form a closed loop: " + toString());
+            }
+            current = next;
+        }
+        return loop;
+    }
+    
     /** Returns the number of edges comprising this face.
      * 
      * @return int, number of edges (0 is edge array list is null).
@@ -81,7 +118,7 @@ public class Face3D {
             if(e.equals(edge)) {
                 return true;
             }
-            if(bidirectional && e.equals(edge.reverse())) {
+            if(bidirectional && e.getStart().equals(edge.getEnd()) && e.getEnd().equals(edge.getStart())) {
                 return true;
             }
         }
@@ -0,0 +1,144 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+/**
+ * MeshStorage held in plain Java arrays on the heap, one float array per position component. The arrays themselves
+ * are exposed so kernels can run flat loops over them directly.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public class HeapMeshStorage implements MeshStorage {
+    
+    /** Vertex position components. */
+    private final float[] x, y, z;
+    
+    /** Face offsets (face count + 1 entries). */
+    private final int[] faceOffsets;
+    
+    /** Face vertex indices. */
+    private final int[] indices;
+    
+    /** Constructor that allocates zero-filled arrays of the input size.
+     * 
+     * @param vertexCount int, number of vertices.
+     * @param faceCount int, number of faces.
+     * @param indexCount int, number of face vertex indices.
+     */
+    public HeapMeshStorage(int vertexCount, int faceCount, int indexCount) {
+        this(new float[vertexCount], new float[vertexCount], new float[vertexCount], new int[faceCount + 1], new int[indexCount]);
+        faceOffsets[faceCount] = indexCount;
+    }
+    
+    /** Constructor that wraps existing arrays (which are not copied).
+     * 
+     * @param x float[], X components.
+     * @param y float[], Y components.
+     * @param z float[], Z components.
+     * @param faceOffsets int[], face start offsets (face count + 1 entries).
+     * @param indices int[], face vertex indices.
+     */
+    public HeapMeshStorage(float[] x, float[] y, float[] z, int[] faceOffsets, int[] indices) {
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.faceOffsets = faceOffsets;
+        this.indices = indices;
+    }
+    
+    /** Returns the X component array.
+     * 
+     * @return float[], X components.
+     */
+    public float[] getXArray() {
+        return x;
+    }
+    
+    /** Returns the Y component array.
+     * 
+     * @return float[], Y components.
+     */
+    public float[] getYArray() {
+        return y;
+    }
+    
+    /** Returns the Z component array.
+     * 
+     * @return float[], Z components.
+     */
+    public float[] getZArray() {
+        return z;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return x.length;
+    }
+
+    @Override
+    public int getFaceCount() {
+        return faceOffsets.length - 1;
+    }
+
+    @Override
+    public int getIndexCount() {
+        return indices.length;
+    }
+
+    @Override
+    public float getX(int vertex) {
+        return x[vertex];
+    }
+
+    @Override
+    public float getY(int vertex) {
+        return y[vertex];
+    }
+
+    @Override
+    public float getZ(int vertex) {
+        return z[vertex];
+    }
+
+    @Override
+    public void setPosition(int vertex, float x, float y, float z) {
+        this.x[vertex] = x;
+        this.y[vertex] = y;
+        this.z[vertex] = z;
+    }
+
+    @Override
+    public int getFaceOffset(int face) {
+        return faceOffsets[face];
+    }
+
+    @Override
+    public void setFaceOffset(int face, int offset) {
+        faceOffsets[face] = offset;
+    }
+
+    @Override
+    public int getIndex(int offset) {
+        return indices[offset];
+    }
+
+    @Override
+    public void setIndex(int offset, int vertex) {
+        indices[offset] = vertex;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,257 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class represents a polygon mesh in compact indexed form: vertex positions are held per component (struct of 
+ * arrays) & faces as runs of vertex indices, delimited by an offsets list. Unlike Polyhedron there is one object per 
+ * mesh rather than per vertex, edge & face, & face vertex order is preserved. The data itself lives in a MeshStorage,
+ * either heap arrays or off-heap buffers.
+ * 
+ * @author M Hillman
+ * @version 1.1 (13/02/2014)
+ */
+public class IndexedMesh {
+    
+    /** Positions & indices of this mesh. */
+    private final MeshStorage storage;
+    
+    /** Constructor that initialises with pre-built position & index arrays (which are not copied), held on the heap.
+     * 
+     * @param x float[], X components.
+     * @param y float[], Y components.
+     * @param z float[], Z components.
+     * @param faceOffsets int[], face start offsets (face count + 1 entries).
+     * @param faceVertices int[], face vertex indices.
+     */
+    public IndexedMesh(float[] x, float[] y, float[] z, int[] faceOffsets, int[] faceVertices) {
+        if(x.length != y.length || x.length != z.length) {
+            throw new IllegalArgumentException("Position arrays differ in length.");
+        }
+        if(faceOffsets.length == 0 || faceOffsets[faceOffsets.length - 1] != faceVertices.length) {
+            throw new IllegalArgumentException("Face offsets do not match the index count.");
+        }
+        this.storage = new HeapMeshStorage(x, y, z, faceOffsets, faceVertices);
+    }
+    
+    /** Constructor that wraps existing storage.
+     * 
+     * @param storage MeshStorage holding the positions & indices.
+     */
+    public IndexedMesh(MeshStorage storage) {
+        this.storage = storage;
+    }
+    
+    /** Returns the storage backing this mesh.
+     * 
+     * @return MeshStorage, positions & indices.
+     */
+    public MeshStorage getStorage() {
+        return storage;
+    }
+    
+    /** Returns the number of vertices.
+     * 
+     * @return int, vertex count.
+     */
+    public int getVertexCount() {
+        return storage.getVertexCount();
+    }
+    
+    /** Returns the number of faces.
+     * 
+     * @return int, face count.
+     */
+    public int getFaceCount() {
+        return storage.getFaceCount();
+    }
+    
+    /** Returns the total number of face vertex indices (the sum of all face sizes).
+     * 
+     * @return int, index count.
+     */
+    public int getIndexCount() {
+        return storage.getIndexCount();
+    }
+    
+    /** Returns the offset of a face's first index.
+     * 
+     * @param face int, face index.
+     * @return int, offset into the index list.
+     */
+    public int getFaceOffset(int face) {
+        return storage.getFaceOffset(face);
+    }
+    
+    /** Returns the number of vertices (equally edges) of a face.
+     * 
+     * @param face int, face index.
+     * @return int, face size.
+     */
+    public int getFaceSize(int face) {
+        return storage.getFaceOffset(face + 1) - storage.getFaceOffset(face);
+    }
+    
+    /** Returns the vertex index at a corner of a face.
+     * 
+     * @param face int, face index.
+     * @param corner int, corner within the face (0 to size - 1).
+     * @return int, vertex index.
+     */
+    public int getFaceVertex(int face, int corner) {
+        return storage.getIndex(storage.getFaceOffset(face) + corner);
+    }
+    
+    /** Returns the vertex index at a position in the flat index list.
+     * 
+     * @param offset int, offset into the index list.
+     * @return int, vertex index.
+     */
+    public int getIndex(int offset) {
+        return storage.getIndex(offset);
+    }
+    
+    /** Returns the X component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, X component.
+     */
+    public float getX(int vertex) {
+        return storage.getX(vertex);
+    }
+    
+    /** Returns the Y component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, Y component.
+     */
+    public float getY(int vertex) {
+        return storage.getY(vertex);
+    }
+    
+    /** Returns the Z component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, Z component.
+     */
+    public float getZ(int vertex) {
+        return storage.getZ(vertex);
+    }
+    
+    /** Overwrites the position of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @param x float, X component.
+     * @param y float, Y component.
+     * @param z float, Z component.
+     */
+    public void setPosition(int vertex, float x, float y, float z) {
+        storage.setPosition(vertex, x, y, z);
+    }
+    
+    /** Converts a Polyhedron into indexed form. Vertices are merged by equality & each face's vertices are stored in
+     * loop order.
+     * 
+     * @param polyhedron Polyhedron to convert.
+     * @return IndexedMesh, indexed copy of the polyhedron.
+     */
+    public static IndexedMesh fromPolyhedron(Polyhedron polyhedron) {
+        Map<Vertex3D, Integer> ids = new HashMap<>();
+        List<Vertex3D> vertices = new ArrayList<>();
+        int[] offsets = new int[polyhedron.getNumberOfFaces() + 1];
+        int[] indices = new int[16];
+        int count = 0;
+        int face = 0;
+        
+        for(Face3D f : polyhedron.getFaceList()) {
+            offsets[face++] = count;
+            for(Vertex3D vertex : f.getOrderedVertexList()) {
+                Integer id = ids.get(vertex);
+                if(id == null) {
+                    id = vertices.size();
+                    ids.put(vertex, id);
+                    vertices.add(vertex);
+                }
+                if(count == indices.length) {
+                    indices = Arrays.copyOf(indices, count * 2);
+                }
+                indices[count++] = id;
+            }
+        }
+        offsets[face] = count;
+        
+        float[] xs = new float[vertices.size()];
+        float[] ys = new float[vertices.size()];
+        float[] zs = new float[vertices.size()];
+        for(int i = 0; i < vertices.size(); i++) {
+            xs[i] = vertices.get(i).getX();
+            ys[i] = vertices.get(i).getY();
+            zs[i] = vertices.get(i).getZ();
+        }
+        return new IndexedMesh(xs, ys, zs, offsets, Arrays.copyOf(indices, count));
+    }
+    
+    /** Converts this mesh into a Polyhedron object graph, with one shared Vertex3D per vertex.
+     * 
+     * @return Polyhedron, object form of this mesh.
+     */
+    public Polyhedron toPolyhedron() {
+        List<Face3D> faces = new ArrayList<>(getFaceCount());
+        toFaces(new Vertex3D[getVertexCount()], 0, getFaceCount(), faces);
+        return new Polyhedron(faces);
+    }
+    
+    /** Converts a range of faces into Face3D objects, so a Polyhedron can be built a batch at a time. Vertices are 
+     * created on first use & stored in the input array, which must be shared by every batch of the same mesh for the 
+     * faces to share Vertex3D objects.
+     * 
+     * @param vertices Vertex3D[], one slot per vertex, null until first used.
+     * @param from int, first face (inclusive).
+     * @param to int, last face (exclusive).
+     * @param faces List<Face3D> to append the new faces to.
+     */
+    public void toFaces(Vertex3D[] vertices, int from, int to, List<Face3D> faces) {
+        for(int f = from; f < to; f++) {
+            int size = getFaceSize(f);
+            Edge3D[] edges = new Edge3D[size];
+            for(int k = 0; k < size; k++) {
+                edges[k] = new Edge3D(getVertex(vertices, getFaceVertex(f, k)), 
+                        getVertex(vertices, getFaceVertex(f, (k + 1) % size)));
+            }
+            faces.add(new Face3D(edges));
+        }
+    }
+    
+    /** Returns the Vertex3D for a vertex index, creating it if the slot is still empty.
+     * 
+     * @param vertices Vertex3D[], vertex slots.
+     * @param v int, vertex index.
+     * @return Vertex3D, the shared vertex object.
+     */
+    private Vertex3D getVertex(Vertex3D[] vertices, int v) {
+        if(vertices[v] == null) {
+            vertices[v] = new Vertex3D(getX(v), getY(v), getZ(v));
+        }
+        return vertices[v];
+    }
+    
+}
+//End of class.
@@ -0,0 +1,637 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+
+package hillman.geometries;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** This IndexedMeshFactory class contains static methods to generate large parametric IndexedMesh objects. Unlike 
+ * PolyhedronFactory nothing goes through Vertex3D/Face3D objects; each generator works out it's vertex, face & index 
+ * counts up front, allocates the storage once and then fills it row by row on a fork/join pool, so million-face 
+ * inputs for benchmarks & tests cost little more than the memory they occupy. Output is the same for a given set of 
+ * arguments however many threads take part.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/03/2014)
+ */
+public class IndexedMeshFactory {
+    
+    /** Pool running the row tasks. */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    /** Roughly how many vertices & faces one task writes before it stops splitting. */
+    private static final int ELEMENTS_PER_TASK = 16384;
+    
+    /** Fewest lattice rows in each stripe of the random triangulation's edge flips. */
+    private static final int MIN_STRIPE_ROWS = 4;
+    
+    /** Most stripes the random triangulation's edge flips are split into. */
+    private static final int MAX_STRIPES = 64;
+    
+    /** Furthest apart (in lattice columns) the ends of a flipped edge may be. */
+    private static final int MAX_COLUMN_SPAN = 2;
+    
+    /** Smallest lattice accepted by the random triangulation. */
+    private static final int MIN_RANDOM_SIZE = 5;
+    
+    /** Torus radii the random triangulation is laid out on. */
+    private static final float RANDOM_MAJOR_RADIUS = 0.35f, RANDOM_MINOR_RADIUS = 0.15f;
+    
+    /** Returns an n by m grid of quads on the heap, see grid(int, int, MeshAllocator).
+     * 
+     * @param n int, quads along x.
+     * @param m int, quads along y.
+     * @return IndexedMesh, the grid.
+     */
+    public static IndexedMesh grid(int n, int m) {
+        return grid(n, m, MeshAllocator.HEAP);
+    }
+    
+    /** Returns an open n by m grid of quads covering the unit square centred at the origin in the z = 0 plane, with 
+     * faces wound anti-clockwise seen from +z. Vertex (i, j) is number i * (m + 1) + j and quad (i, j) is face i * m + j.
+     * 
+     * @param n int, quads along x.
+     * @param m int, quads along y.
+     * @param allocator MeshAllocator, where the grid is stored.
+     * @return IndexedMesh, the grid.
+     */
+    public static IndexedMesh grid(final int n, final int m, MeshAllocator allocator) {
+        if(n < 1 || m < 1) {
+            throw new IllegalArgumentException("A grid needs at least one quad each way, not " + n + "x" + m);
+        }
+        final MeshStorage storage = allocator.allocate(toCount((n + 1L) * (m + 1L)), toCount((long) n * m), 
+                toCount(4L * n * m));
+        run(n + 1, 2 * m + 1, new RowWriter() {
+            @Override
+            public void write(int i) {
+                int base = i * (m + 1);
+                float x = (float) i / n - 0.5f;
+                for(int j = 0; j <= m; j++) {
+                    storage.setPosition(base + j, x, (float) j / m - 0.5f, 0f);
+                }
+                if(i < n) {
+                    for(int j = 0; j < m; j++) {
+                        int face = i * m + j;
+                        int corner = base + j;
+                        setQuad(storage, face, 4 * face, corner, corner + m + 1, corner + m + 2, corner + 1);
+                    }
+                }
+            }
+        });
+        return new IndexedMesh(storage);
+    }
+    
+    /** Returns a UV sphere on the heap, see uvSphere(int, int, MeshAllocator).
+     * 
+     * @param segments int, vertices around each ring of latitude.
+     * @param rings int, bands of faces from pole to pole.
+     * @return IndexedMesh, the sphere.
+     */
+    public static IndexedMesh uvSphere(int segments, int rings) {
+        return uvSphere(segments, rings, MeshAllocator.HEAP);
+    }
+    
+    /** Returns a closed UV sphere of radius 0.5 centred at the origin with it's poles on the z axis. The two bands 
+     * touching the poles are triangle fans around a single pole vertex and every other band is quads, all wound 
+     * anti-clockwise seen from outside. Vertex 0 is the north pole, ring k (1 to rings - 1) holds vertices 
+     * 1 + (k - 1) * segments onwards and the south pole comes last; band k holds faces k * segments onwards.
+     * 
+     * @param segments int, vertices around each ring of latitude (at least 3).
+     * @param rings int, bands of faces from pole to pole (at least 2).
+     * @param allocator MeshAllocator, where the sphere is stored.
+     * @return IndexedMesh, the sphere.
+     */
+    public static IndexedMesh uvSphere(final int segments, final int rings, MeshAllocator allocator) {
+        if(segments < 3 || rings < 2) {
+            throw new IllegalArgumentException("A sphere needs at least 3 segments & 2 rings, not " + segments + "x" 
+                    + rings);
+        }
+        final int south = toCount((rings - 1L) * segments + 1L);
+        final MeshStorage storage = allocator.allocate(south + 1, toCount((long) rings * segments), 
+                toCount(6L * segments + 4L * segments * (rings - 2)));
+        run(rings, 2 * segments, new RowWriter() {
+            @Override
+            public void write(int k) {
+                if(k == 0) {
+                    storage.setPosition(0, 0f, 0f, 0.5f);
+                } else {
+                    double theta = Math.PI * k / rings;
+                    float z = (float) (0.5 * Math.cos(theta));
+                    double radius = 0.5 * Math.sin(theta);
+                    int base = 1 + (k - 1) * segments;
+                    for(int j = 0; j < segments; j++) {
+                        double phi = 2.0 * Math.PI * j / segments;
+                        storage.setPosition(base + j, (float) (radius * Math.cos(phi)), (float) (radius * Math.sin(phi)), 
+                                z);
+                    }
+                }
+                if(k == rings - 1) {
+                    storage.setPosition(south, 0f, 0f, -0.5f);
+                }
+                int above = 1 + (k - 1) * segments;
+                int below = 1 + k * segments;
+                for(int j = 0; j < segments; j++) {
+                    int face = k * segments + j;
+                    int next = (j + 1) % segments;
+                    if(k == 0) {
+                        setTriangle(storage, face, 3 * j, 0, below + j, below + next);
+                    } else if(k == rings - 1) {
+                        setTriangle(storage, face, 3 * segments + 4 * (k - 1) * segments + 3 * j, above + j, south, 
+                                above + next);
+                    } else {
+                        setQuad(storage, face, 3 * segments + 4 * ((k - 1) * segments + j), above + j, below + j, 
+                                below + next, above + next);
+                    }
+                }
+            }
+        });
+        return new IndexedMesh(storage);
+    }
+    
+    /** Returns a quad torus on the heap, see torus(int, int, float, float, MeshAllocator).
+     * 
+     * @param n int, quads around the major circle.
+     * @param m int, quads around the tube.
+     * @param majorRadius float, distance from the origin to the centre of the tube.
+     * @param minorRadius float, radius of the tube.
+     * @return IndexedMesh, the torus.
+     */
+    public static IndexedMesh torus(int n, int m, float majorRadius, float minorRadius) {
+        return torus(n, m, majorRadius, minorRadius, MeshAllocator.HEAP);
+    }
+    
+    /** Returns a closed torus of n by m quads centred at the origin around the z axis, wound anti-clockwise seen from 
+     * outside. Every vertex has valence four. Vertex (i, j) is number i * m + j, i going around the major circle & j 
+     * around the tube, and quad (i, j) is face i * m + j.
+     * 
+     * @param n int, quads around the major circle (at least 3).
+     * @param m int, quads around the tube (at least 3).
+     * @param majorRadius float, distance from the origin to the centre of the tube.
+     * @param minorRadius float, radius of the tube.
+     * @param allocator MeshAllocator, where the torus is stored.
+     * @return IndexedMesh, the torus.
+     */
+    public static IndexedMesh torus(final int n, final int m, final float majorRadius, final float minorRadius, 
+            MeshAllocator allocator) {
+        if(n < 3 || m < 3) {
+            throw new IllegalArgumentException("A torus needs at least 3x3 quads, not " + n + "x" + m);
+        }
+        final MeshStorage storage = allocator.allocate(toCount((long) n * m), toCount((long) n * m), 
+                toCount(4L * n * m));
+        run(n, 2 * m, new RowWriter() {
+            @Override
+            public void write(int i) {
+                writeTorusRow(storage, n, m, i, majorRadius, minorRadius);
+                int row = i * m;
+                int nextRow = ((i + 1) % n) * m;
+                for(int j = 0; j < m; j++) {
+                    int next = (j + 1) % m;
+                    setQuad(storage, row + j, 4 * (row + j), row + j, nextRow + j, nextRow + next, row + next);
+                }
+            }
+        });
+        return new IndexedMesh(storage);
+    }
+    
+    /** Returns a random closed triangulation on the heap with flips attempted once per edge and valences kept 
+     * between 4 & 8, see randomTriangulation(int, int, double, int, int, long, MeshAllocator).
+     * 
+     * @param n int, lattice rows.
+     * @param m int, lattice columns.
+     * @param seed long, random seed.
+     * @return IndexedMesh, the triangulation.
+     */
+    public static IndexedMesh randomTriangulation(int n, int m, long seed) {
+        return randomTriangulation(n, m, 1.0, 4, 8, seed, MeshAllocator.HEAP);
+    }
+    
+    /** Returns a random closed triangulated surface with n * m vertices. It starts as an n by m torus lattice split 
+     * into 2 * n * m triangles, where every vertex has valence six, and then tries irregularity * 3 * n * m random edge 
+     * flips. A flip is only made if the four valences it changes stay within [minValence, maxValence], the quad it 
+     * flips is convex on the lattice (so no triangle folds over) and the new edge doesn't already exist; irregularity 
+     * & the valence range therefore set how far the valence distribution spreads from all-six. 
+     * 
+     * The flips run in parallel over stripes of lattice rows, each with it's own generator seeded from seed & the 
+     * stripe. Only edges whose quads lie wholly inside a stripe are flipped and no edge ever spans more than one row, 
+     * so stripes never touch the same triangles and the result depends on the seed alone. A second pass with the 
+     * stripes shifted by half a stripe flips the edges the first pass left alone.
+     * 
+     * @param n int, lattice rows (at least 5).
+     * @param m int, lattice columns (at least 5).
+     * @param irregularity double, flips attempted per edge.
+     * @param minValence int, smallest valence allowed (3 to 6).
+     * @param maxValence int, largest valence allowed (6 or more).
+     * @param seed long, random seed.
+     * @param allocator MeshAllocator, where the triangulation is stored.
+     * @return IndexedMesh, the triangulation.
+     */
+    public static IndexedMesh randomTriangulation(final int n, final int m, double irregularity, final int minValence, 
+            final int maxValence, final long seed, MeshAllocator allocator) {
+        if(n < MIN_RANDOM_SIZE || m < MIN_RANDOM_SIZE) {
+            throw new IllegalArgumentException("A random triangulation needs at least a " + MIN_RANDOM_SIZE + "x" 
+                    + MIN_RANDOM_SIZE + " lattice, not " + n + "x" + m);
+        }
+        if(minValence < 3 || minValence > 6 || maxValence < 6 || irregularity < 0 || Double.isNaN(irregularity)) {
+            throw new IllegalArgumentException("Invalid irregularity " + irregularity + " or valence range [" 
+                    + minValence + ", " + maxValence + "]");
+        }
+        final int vertexCount = toCount((long) n * m);
+        final int faceCount = toCount(2L * n * m);
+        final Lattice lattice = new Lattice(n, m, toCount(3L * faceCount));
+        run(n, 2 * m, new RowWriter() {
+            @Override
+            public void write(int i) {
+                lattice.buildRow(i);
+            }
+        });
+        final int stripes = Math.max(1, Math.min(MAX_STRIPES, n / MIN_STRIPE_ROWS));
+        final int stripeRows = n / stripes;
+        final double attemptsPerRow = irregularity * 3.0 * m / 2.0;
+        for(int pass = 0; pass < 2; pass++) {
+            final int shift = pass * (stripeRows / 2);
+            final int phase = pass;
+            run(stripes, Integer.MAX_VALUE, new RowWriter() {
+                @Override
+                public void write(int stripe) {
+                    int rows = (stripe == stripes - 1) ? n - stripe * stripeRows : stripeRows;
+                    int first = (shift + stripe * stripeRows) % n;
+                    Random random = new Random(seed ^ (0x9E3779B97F4A7C15L * (2L * stripe + phase + 1)));
+                    long attempts = Math.round(attemptsPerRow * rows);
+                    for(long a = 0; a < attempts; a++) {
+                        int row = (first + random.nextInt(rows)) % n;
+                        int triangle = 2 * (row * m + random.nextInt(m)) + random.nextInt(2);
+                        lattice.tryFlip(triangle, random.nextInt(3), first, rows, minValence, maxValence);
+                    }
+                }
+            });
+        }
+        final MeshStorage storage = allocator.allocate(vertexCount, faceCount, toCount(3L * faceCount));
+        run(n, 4 * m, new RowWriter() {
+            @Override
+            public void write(int i) {
+                writeTorusRow(storage, n, m, i, RANDOM_MAJOR_RADIUS, RANDOM_MINOR_RADIUS);
+                for(int face = 2 * i * m; face < 2 * (i + 1) * m; face++) {
+                    setTriangle(storage, face, 3 * face, lattice.triangles[3 * face], lattice.triangles[3 * face + 1], 
+                            lattice.triangles[3 * face + 2]);
+                }
+            }
+        });
+        return new IndexedMesh(storage);
+    }
+    
+    /** Writes the positions of one ring of a torus, ring i holding vertices i * m to i * m + m - 1.
+     * 
+     * @param storage MeshStorage, storage to write to.
+     * @param n int, rings around the major circle.
+     * @param m int, vertices around the tube.
+     * @param i int, ring to write.
+     * @param majorRadius float, distance from the origin to the centre of the tube.
+     * @param minorRadius float, radius of the tube.
+     */
+    private static void writeTorusRow(MeshStorage storage, int n, int m, int i, float majorRadius, float minorRadius) {
+        double u = 2.0 * Math.PI * i / n;
+        double cosU = Math.cos(u);
+        double sinU = Math.sin(u);
+        for(int j = 0; j < m; j++) {
+            double v = 2.0 * Math.PI * j / m;
+            double ring = majorRadius + minorRadius * Math.cos(v);
+            storage.setPosition(i * m + j, (float) (ring * cosU), (float) (ring * sinU), 
+                    (float) (minorRadius * Math.sin(v)));
+        }
+    }
+    
+    /** Writes a triangle into storage.
+     * 
+     * @param storage MeshStorage, storage to write to.
+     * @param face int, face number.
+     * @param offset int, index offset of the face.
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @param c int, third vertex.
+     */
+    private static void setTriangle(MeshStorage storage, int face, int offset, int a, int b, int c) {
+        storage.setFaceOffset(face, offset);
+        storage.setIndex(offset, a);
+        storage.setIndex(offset + 1, b);
+        storage.setIndex(offset + 2, c);
+    }
+    
+    /** Writes a quad into storage.
+     * 
+     * @param storage MeshStorage, storage to write to.
+     * @param face int, face number.
+     * @param offset int, index offset of the face.
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @param c int, third vertex.
+     * @param d int, fourth vertex.
+     */
+    private static void setQuad(MeshStorage storage, int face, int offset, int a, int b, int c, int d) {
+        setTriangle(storage, face, offset, a, b, c);
+        storage.setIndex(offset + 3, d);
+    }
+    
+    /** Checks a vertex, face or index count fits in an int.
+     * 
+     * @param count long, count to check.
+     * @return int, the count.
+     */
+    private static int toCount(long count) {
+        if(count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Mesh too large for int indices: " + count + " elements");
+        }
+        return (int) count;
+    }
+    
+    /** Calls writer for rows 0 to rows - 1 on the pool, splitting so that each task covers about ELEMENTS_PER_TASK 
+     * elements.
+     * 
+     * @param rows int, number of rows.
+     * @param rowSize int, elements written per row.
+     * @param writer RowWriter, writes one row.
+     */
+    private static void run(int rows, int rowSize, RowWriter writer) {
+        POOL.invoke(new RowTask(writer, 0, rows, Math.max(1, ELEMENTS_PER_TASK / rowSize)));
+    }
+    
+    /** Writes one row of a generated mesh. Rows are written concurrently so must not share output elements. */
+    private interface RowWriter {
+        
+        /** Writes a row.
+         * 
+         * @param row int, row to write.
+         */
+        void write(int row);
+        
+    }
+    
+    /** Runs a range of rows, splitting the range in half until it is small enough to run directly. */
+    private static class RowTask extends RecursiveAction {
+        
+        /** Serialisation version, as ForkJoinTask is Serializable. */
+        private static final long serialVersionUID = 1L;
+        
+        /** Writes each row. */
+        private final RowWriter writer;
+        
+        /** Range of rows (from inclusive, to exclusive). */
+        private final int from, to;
+        
+        /** Most rows run directly. */
+        private final int grain;
+        
+        RowTask(RowWriter writer, int from, int to, int grain) {
+            this.writer = writer;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+        
+        @Override
+        protected void compute() {
+            if(to - from > grain) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new RowTask(writer, from, middle, grain), new RowTask(writer, middle, to, grain));
+                return;
+            }
+            for(int row = from; row < to; row++) {
+                writer.write(row);
+            }
+        }
+    }
+    
+    /** Triangles of a torus lattice with neighbours across each edge, valences & one triangle per vertex, enough to 
+     * flip edges in place. Vertex (i, j) is number i * m + j and lattice cell (i, j) starts as triangles 
+     * 2 * (i * m + j) & 2 * (i * m + j) + 1.
+     */
+    private static class Lattice {
+        
+        /** Lattice rows & columns. */
+        private final int n, m;
+        
+        /** Three vertices per triangle, anti-clockwise. */
+        private final int[] triangles;
+        
+        /** Triangle across the edge from corner k to corner k + 1, three per triangle. */
+        private final int[] neighbours;
+        
+        /** Valence of each vertex. */
+        private final int[] valences;
+        
+        /** A triangle containing each vertex. */
+        private final int[] vertexTriangles;
+        
+        Lattice(int n, int m, int indexCount) {
+            this.n = n;
+            this.m = m;
+            triangles = new int[indexCount];
+            neighbours = new int[indexCount];
+            valences = new int[n * m];
+            vertexTriangles = new int[n * m];
+        }
+        
+        /** Splits every cell of lattice row i along it's (i, j) to (i + 1, j + 1) diagonal.
+         * 
+         * @param i int, row to build.
+         */
+        void buildRow(int i) {
+            int up = (i + 1) % n;
+            int down = (i + n - 1) % n;
+            for(int j = 0; j < m; j++) {
+                int right = (j + 1) % m;
+                int left = (j + m - 1) % m;
+                int a = i * m + j;
+                int b = up * m + j;
+                int c = up * m + right;
+                int d = i * m + right;
+                int t0 = 2 * a;
+                int t1 = t0 + 1;
+                set(t0, a, b, c, 2 * (i * m + left) + 1, 2 * b + 1, t1);
+                set(t1, a, c, d, t0, 2 * d, 2 * (down * m + j));
+                valences[a] = 6;
+                vertexTriangles[a] = t0;
+            }
+        }
+        
+        /** Sets a triangle & it's neighbours.
+         * 
+         * @param t int, triangle.
+         * @param a int, first vertex.
+         * @param b int, second vertex.
+         * @param c int, third vertex.
+         * @param ab int, triangle across a to b.
+         * @param bc int, triangle across b to c.
+         * @param ca int, triangle across c to a.
+         */
+        private void set(int t, int a, int b, int c, int ab, int bc, int ca) {
+            triangles[3 * t] = a;
+            triangles[3 * t + 1] = b;
+            triangles[3 * t + 2] = c;
+            neighbours[3 * t] = ab;
+            neighbours[3 * t + 1] = bc;
+            neighbours[3 * t + 2] = ca;
+        }
+        
+        /** Flips the edge from corner k of triangle t if the flip is allowed, see randomTriangulation. All four 
+         * vertices of the flipped quad must lie in the rows strictly after first and before first + rows, which 
+         * nothing outside the stripe can touch.
+         * 
+         * @param t int, triangle.
+         * @param k int, corner starting the edge.
+         * @param first int, first (excluded) row of the stripe.
+         * @param rows int, rows in the stripe.
+         * @param minValence int, smallest valence allowed.
+         * @param maxValence int, largest valence allowed.
+         */
+        void tryFlip(int t, int k, int first, int rows, int minValence, int maxValence) {
+            int a = triangles[3 * t + k];
+            int b = triangles[3 * t + (k + 1) % 3];
+            int c = triangles[3 * t + (k + 2) % 3];
+            if(!inside(a, first, rows) || !inside(b, first, rows) || !inside(c, first, rows)) {
+                return;
+            }
+            int u = neighbours[3 * t + k];
+            int l = corner(u, b);
+            int d = triangles[3 * u + (l + 2) % 3];
+            if(!inside(d, first, rows) || valences[a] <= minValence || valences[b] <= minValence 
+                    || valences[c] >= maxValence || valences[d] >= maxValence) {
+                return;
+            }
+            int rowSpan = Math.abs(wrap(d / m - c / m, n));
+            int columnSpan = Math.abs(wrap(d % m - c % m, m));
+            if(rowSpan > 1 || columnSpan > MAX_COLUMN_SPAN || !convex(a, d, b, c) || connected(c, d)) {
+                return;
+            }
+            int bc = neighbours[3 * t + (k + 1) % 3];
+            int ca = neighbours[3 * t + (k + 2) % 3];
+            int ad = neighbours[3 * u + (l + 1) % 3];
+            int db = neighbours[3 * u + (l + 2) % 3];
+            set(t, c, a, d, ca, ad, u);
+            set(u, d, b, c, db, bc, t);
+            relink(ad, d, a, t);
+            relink(bc, c, b, u);
+            valences[a]--;
+            valences[b]--;
+            valences[c]++;
+            valences[d]++;
+            vertexTriangles[a] = t;
+            vertexTriangles[b] = u;
+        }
+        
+        /** Points the neighbour across the edge from v0 to v1 of triangle t at another triangle.
+         * 
+         * @param t int, triangle.
+         * @param v0 int, edge start.
+         * @param v1 int, edge end.
+         * @param neighbour int, new neighbour.
+         */
+        private void relink(int t, int v0, int v1, int neighbour) {
+            int k = corner(t, v0);
+            if(triangles[3 * t + (k + 1) % 3] != v1) {
+                throw new IllegalStateException("Triangle " + t + " has no edge " + v0 + " to " + v1);
+            }
+            neighbours[3 * t + k] = neighbour;
+        }
+        
+        /** Returns which corner of triangle t holds vertex v.
+         * 
+         * @param t int, triangle.
+         * @param v int, vertex.
+         * @return int, corner 0 to 2.
+         */
+        private int corner(int t, int v) {
+            return (triangles[3 * t] == v) ? 0 : (triangles[3 * t + 1] == v) ? 1 : 2;
+        }
+        
+        /** Returns true if an edge joins vertices v & w, walking around v's triangles.
+         * 
+         * @param v int, first vertex.
+         * @param w int, second vertex.
+         * @return boolean, true if joined.
+         */
+        private boolean connected(int v, int w) {
+            int start = vertexTriangles[v];
+            int t = start;
+            do {
+                int k = corner(t, v);
+                if(triangles[3 * t + (k + 1) % 3] == w) {
+                    return true;
+                }
+                t = neighbours[3 * t + (k + 2) % 3];
+            } while(t != start);
+            return false;
+        }
+        
+        /** Returns true if the lattice quad p0, p1, p2, p3 turns strictly anti-clockwise at every corner.
+         * 
+         * @param p0 int, first vertex.
+         * @param p1 int, second vertex.
+         * @param p2 int, third vertex.
+         * @param p3 int, fourth vertex.
+         * @return boolean, true if strictly convex.
+         */
+        private boolean convex(int p0, int p1, int p2, int p3) {
+            int[] quad = {p0, p1, p2, p3};
+            int[] rows = new int[4];
+            int[] columns = new int[4];
+            for(int i = 0; i < 4; i++) {
+                rows[i] = wrap(quad[i] / m - p0 / m, n);
+                columns[i] = wrap(quad[i] % m - p0 % m, m);
+            }
+            for(int i = 0; i < 4; i++) {
+                int j = (i + 1) % 4;
+                int l = (i + 2) % 4;
+                long cross = (long) (rows[j] - rows[i]) * (columns[l] - columns[j]) 
+                        - (long) (columns[j] - columns[i]) * (rows[l] - rows[j]);
+                if(cross <= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        /** Returns true if vertex v's row lies strictly inside a stripe.
+         * 
+         * @param v int, vertex.
+         * @param first int, first (excluded) row of the stripe.
+         * @param rows int, rows in the stripe.
+         * @return boolean, true if inside.
+         */
+        private boolean inside(int v, int first, int rows) {
+            int offset = (v / m - first + n) % n;
+            return offset > 0 && offset < rows;
+        }
+        
+        /** Wraps a lattice difference into the range (-size / 2, size / 2].
+         * 
+         * @param delta int, difference.
+         * @param size int, lattice size along that direction.
+         * @return int, wrapped difference.
+         */
+        private static int wrap(int delta, int size) {
+            delta %= size;
+            if(delta > size / 2) {
+                delta -= size;
+            } else if(delta <= -(size + 1) / 2) {
+                delta += size;
+            }
+            return delta;
+        }
+    }
+    
+}
+//End of class.
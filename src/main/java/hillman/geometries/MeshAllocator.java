@@ -0,0 +1,44 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+/**
+ * Creates empty MeshStorage objects of a given size. Passed to the indexed subdivision schemes to choose where each 
+ * level is stored.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public interface MeshAllocator {
+    
+    /** Allocator creating plain Java arrays on the heap. */
+    MeshAllocator HEAP = new MeshAllocator() {
+        @Override
+        public MeshStorage allocate(int vertexCount, int faceCount, int indexCount) {
+            return new HeapMeshStorage(vertexCount, faceCount, indexCount);
+        }
+    };
+    
+    /** Returns zero-filled storage of the input size.
+     * 
+     * @param vertexCount int, number of vertices.
+     * @param faceCount int, number of faces.
+     * @param indexCount int, number of face vertex indices.
+     * @return MeshStorage, new storage.
+     */
+    MeshStorage allocate(int vertexCount, int faceCount, int indexCount);
+    
+}
+//End of class.
@@ -0,0 +1,146 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates off-heap (direct) memory for DirectMeshStorage & releases all of it in one go when closed, rather than
+ * waiting for the garbage collector to find the buffers. Intended to hold a single subdivision level: allocate the 
+ * level, use it to build the next, then close the arena.
+ * 
+ * Closing detaches every storage created by the arena before the memory is freed, so a stray read afterwards fails
+ * with a NullPointerException instead of touching freed memory.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public class MeshArena implements MeshAllocator, AutoCloseable {
+    
+    /** Direct bytes currently held by all open arenas. */
+    private static final AtomicLong LIVE_BYTES = new AtomicLong();
+    
+    /** Buffers allocated by this arena. */
+    private final List<ByteBuffer> buffers = new ArrayList<>();
+    
+    /** Storages created by this arena. */
+    private final List<DirectMeshStorage> storages = new ArrayList<>();
+    
+    /** Bytes allocated by this arena. */
+    private long allocatedBytes;
+    
+    /** True once closed. */
+    private boolean closed;
+    
+    /** Creates off-heap storage of the input size owned by this arena.
+     * 
+     * @param vertexCount int, number of vertices.
+     * @param faceCount int, number of faces.
+     * @param indexCount int, number of face vertex indices.
+     * @return MeshStorage, new off-heap storage.
+     */
+    @Override
+    public synchronized MeshStorage allocate(int vertexCount, int faceCount, int indexCount) {
+        DirectMeshStorage storage = new DirectMeshStorage(this, vertexCount, faceCount, indexCount);
+        storages.add(storage);
+        return storage;
+    }
+    
+    /** Allocates a zeroed, native-order direct buffer owned by this arena.
+     * 
+     * @param bytes int, buffer size.
+     * @return ByteBuffer, new direct buffer.
+     */
+    synchronized ByteBuffer allocateBuffer(int bytes) {
+        if(closed) {
+            throw new IllegalStateException("Arena has been closed.");
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        buffers.add(buffer);
+        allocatedBytes += bytes;
+        LIVE_BYTES.addAndGet(bytes);
+        return buffer;
+    }
+    
+    /** Returns the number of bytes allocated by this arena.
+     * 
+     * @return long, allocated bytes.
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+    
+    /** Returns the number of direct bytes held by all arenas that have not yet been closed.
+     * 
+     * @return long, live off-heap bytes.
+     */
+    public static long getLiveBytes() {
+        return LIVE_BYTES.get();
+    }
+    
+    /** Detaches every storage created by this arena & frees it's memory immediately. Safe to call more than once. */
+    @Override
+    public synchronized void close() {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        for(DirectMeshStorage storage : storages) {
+            storage.detach();
+        }
+        for(ByteBuffer buffer : buffers) {
+            free(buffer);
+        }
+        storages.clear();
+        buffers.clear();
+        LIVE_BYTES.addAndGet(-allocatedBytes);
+    }
+    
+    /** Frees a direct buffer's memory straight away. Uses Unsafe.invokeCleaner where available (Java 9 onwards) or the
+     * buffer's own cleaner (Java 7 & 8). If neither can be reached the buffer is left for the garbage collector.
+     * 
+     * @param buffer ByteBuffer, direct buffer to free.
+     */
+    private static void free(ByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            return;
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            //Not Java 9+, try the Java 7 & 8 route.
+        }
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(buffer);
+            if(cleaner != null) {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        } catch(ReflectiveOperationException | RuntimeException e) {
+            //Leave it to the garbage collector.
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,163 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A set of faces cut out of an IndexedMesh as a mesh of it's own, remembering which source face & vertex each of 
+ * it's faces & vertices came from. Used to refine or evaluate part of a mesh: grow the faces of interest by the rings 
+ * the stencils need, extract them, work on the (small) region mesh & map the results back.
+ * 
+ * @author M Hillman
+ * @version 1.0 (26/02/2014)
+ */
+public class MeshRegion {
+    
+    /** The region as a mesh of it's own. */
+    private final IndexedMesh mesh;
+    
+    /** Source face of each region face. */
+    private final int[] sourceFaces;
+    
+    /** Source vertex of each region vertex. */
+    private final int[] sourceVertices;
+    
+    /** Creates a region.
+     * 
+     * @param mesh IndexedMesh, the region mesh.
+     * @param sourceFaces int[], source face of each region face.
+     * @param sourceVertices int[], source vertex of each region vertex.
+     */
+    private MeshRegion(IndexedMesh mesh, int[] sourceFaces, int[] sourceVertices) {
+        this.mesh = mesh;
+        this.sourceFaces = sourceFaces;
+        this.sourceVertices = sourceVertices;
+    }
+    
+    /** Cuts the input faces out of a mesh. Region faces keep the order of the input array & region vertices are 
+     * numbered by first appearance, so the same faces always give the same region.
+     * 
+     * @param source IndexedMesh to cut from.
+     * @param faces int[], source faces to keep.
+     * @return MeshRegion, the extracted region.
+     */
+    public static MeshRegion extract(IndexedMesh source, int[] faces) {
+        int indexCount = 0;
+        for(int f : faces) {
+            indexCount += source.getFaceSize(f);
+        }
+        EdgeMap vertexIds = new EdgeMap(indexCount);
+        int[] sourceVertices = new int[indexCount];
+        int[] offsets = new int[faces.length + 1];
+        int[] indices = new int[indexCount];
+        int vertexCount = 0;
+        int index = 0;
+        for(int i = 0; i < faces.length; i++) {
+            int offset = source.getFaceOffset(faces[i]);
+            int size = source.getFaceSize(faces[i]);
+            for(int k = 0; k < size; k++) {
+                int v = source.getIndex(offset + k);
+                int id = vertexIds.putIfAbsent(v, vertexCount);
+                if(id == EdgeMap.MISSING) {
+                    id = vertexCount;
+                    sourceVertices[vertexCount++] = v;
+                }
+                indices[index++] = id;
+            }
+            offsets[i + 1] = index;
+        }
+        float[] xs = new float[vertexCount], ys = new float[vertexCount], zs = new float[vertexCount];
+        for(int v = 0; v < vertexCount; v++) {
+            xs[v] = source.getX(sourceVertices[v]);
+            ys[v] = source.getY(sourceVertices[v]);
+            zs[v] = source.getZ(sourceVertices[v]);
+        }
+        return new MeshRegion(new IndexedMesh(xs, ys, zs, offsets, indices), faces.clone(), 
+                Arrays.copyOf(sourceVertices, vertexCount));
+    }
+    
+    /** Grows a set of faces by whole vertex rings: each ring adds every face sharing a vertex with the faces so far.
+     * 
+     * @param source IndexedMesh the faces belong to.
+     * @param adjacency VertexAdjacency of the mesh.
+     * @param faces int[], faces to grow from.
+     * @param rings int, number of rings to add.
+     * @return int[], the grown face set in ascending order.
+     */
+    public static int[] grow(IndexedMesh source, VertexAdjacency adjacency, int[] faces, int rings) {
+        BitSet included = new BitSet(source.getFaceCount());
+        int[] frontier = faces.clone();
+        for(int f : frontier) {
+            included.set(f);
+        }
+        for(int ring = 0; ring < rings && frontier.length > 0; ring++) {
+            int[] added = new int[16];
+            int count = 0;
+            for(int f : frontier) {
+                int offset = source.getFaceOffset(f);
+                for(int k = 0; k < source.getFaceSize(f); k++) {
+                    int v = source.getIndex(offset + k);
+                    for(int i = 0; i < adjacency.getFaceCount(v); i++) {
+                        int g = adjacency.getFace(v, i);
+                        if(!included.get(g)) {
+                            included.set(g);
+                            if(count == added.length) {
+                                added = Arrays.copyOf(added, 2 * count);
+                            }
+                            added[count++] = g;
+                        }
+                    }
+                }
+            }
+            frontier = Arrays.copyOf(added, count);
+        }
+        int[] grown = new int[included.cardinality()];
+        int i = 0;
+        for(int f = included.nextSetBit(0); f >= 0; f = included.nextSetBit(f + 1)) {
+            grown[i++] = f;
+        }
+        return grown;
+    }
+    
+    /** Returns the region as a mesh of it's own.
+     * 
+     * @return IndexedMesh, region mesh.
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+    
+    /** Returns the source face of a region face.
+     * 
+     * @param face int, region face.
+     * @return int, source face.
+     */
+    public int getSourceFace(int face) {
+        return sourceFaces[face];
+    }
+    
+    /** Returns the source vertex of a region vertex.
+     * 
+     * @param vertex int, region vertex.
+     * @return int, source vertex.
+     */
+    public int getSourceVertex(int vertex) {
+        return sourceVertices[vertex];
+    }
+    
+}
+//End of class.
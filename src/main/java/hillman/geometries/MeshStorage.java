@@ -0,0 +1,106 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+/**
+ * Backing store for the positions & indices of an IndexedMesh. This is the read (& write) API the indexed subdivision
+ * schemes work against, so the same scheme code runs over heap arrays or off-heap buffers.
+ * 
+ * Positions are addressed per vertex, faces as runs of the flat index list delimited by face offsets. There are 
+ * face count + 1 offsets, the last always equal to the index count.
+ * 
+ * @author M Hillman
+ * @version 1.0 (13/02/2014)
+ */
+public interface MeshStorage {
+    
+    /** Returns the number of vertices.
+     * 
+     * @return int, vertex count.
+     */
+    int getVertexCount();
+    
+    /** Returns the number of faces.
+     * 
+     * @return int, face count.
+     */
+    int getFaceCount();
+    
+    /** Returns the number of face vertex indices.
+     * 
+     * @return int, index count.
+     */
+    int getIndexCount();
+    
+    /** Returns the X component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, X component.
+     */
+    float getX(int vertex);
+    
+    /** Returns the Y component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, Y component.
+     */
+    float getY(int vertex);
+    
+    /** Returns the Z component of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return float, Z component.
+     */
+    float getZ(int vertex);
+    
+    /** Overwrites the position of a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @param x float, X component.
+     * @param y float, Y component.
+     * @param z float, Z component.
+     */
+    void setPosition(int vertex, float x, float y, float z);
+    
+    /** Returns the offset of a face's first index (or the index count for face == face count).
+     * 
+     * @param face int, face index.
+     * @return int, offset into the index list.
+     */
+    int getFaceOffset(int face);
+    
+    /** Overwrites the offset of a face's first index.
+     * 
+     * @param face int, face index (up to & including the face count).
+     * @param offset int, offset into the index list.
+     */
+    void setFaceOffset(int face, int offset);
+    
+    /** Returns the vertex index at a position in the flat index list.
+     * 
+     * @param offset int, offset into the index list.
+     * @return int, vertex index.
+     */
+    int getIndex(int offset);
+    
+    /** Overwrites the vertex index at a position in the flat index list.
+     * 
+     * @param offset int, offset into the index list.
+     * @param vertex int, vertex index.
+     */
+    void setIndex(int offset, int vertex);
+    
+}
+//End of class.
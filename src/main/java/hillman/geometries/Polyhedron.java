@@ -14,23 +14,33 @@
 */
 package hillman.geometries;
 
-import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
 /** Polyhedron
  * 
  * @author M Hillman
- * @version 1.0
+ * @version 1.1
  * 
  * Represents a three dimensional polyhedron with a number of flat faces & straight edges in Euclidean space.
+ * 
+ * The edge & vertex sets are derived from the faces, so they are built lazily on first request & cached until the
+ * face set changes. Faces should be added or removed through this class; if a Face3D already held by this polyhedron 
+ * is edited in place, call <code>invalidate()</code> so the derived sets are rebuilt.
  */
 public class Polyhedron {
     
     /** Set of faces that comprise this polyhedron. */
     private Set<Face3D> faces;
     
+    /** Cached set of unique (undirected) edges, null until first requested. */
+    private Set<Edge3D> edgeCache;
+    
+    /** Cached set of unique vertices, null until first requested. */
+    private Set<Vertex3D> vertexCache;
+    
     /** Constructor that initialises with an array list of Face3D objects.
      * 
      * @param faces Collection<Face3D>, desired array list of face objects.
@@ -42,45 +52,110 @@ public class Polyhedron {
         }
     }
     
-    /** Returns the Face3D set that comprises this polyhedron.
+    /** Returns the Face3D set that comprises this polyhedron. The returned set is read-only, use 
+     * <code>addFace</code> & <code>removeFace</code> to change it.
      * 
      * @return Set<Face3D>, face set.
      */
     public Set<Face3D> getFaceList() {
-        return faces;
+        return Collections.unmodifiableSet(faces);
+    }
+    
+    /** Adds a face to this polyhedron & drops the cached edge & vertex sets.
+     * 
+     * @param face Face3D to add.
+     * @return boolean, true if the face was not already present.
+     */
+    public boolean addFace(Face3D face) {
+        boolean added = faces.add(face);
+        if(added) {
+            invalidate();
+        }
+        return added;
+    }
+    
+    /** Removes a face from this polyhedron & drops the cached edge & vertex sets.
+     * 
+     * @param face Face3D to remove.
+     * @return boolean, true if the face was present.
+     */
+    public boolean removeFace(Face3D face) {
+        boolean removed = faces.remove(face);
+        if(removed) {
+            invalidate();
+        }
+        return removed;
+    }
+    
+    /** Discards the cached edge & vertex sets so they are rebuilt on next request. Must be called after
+     * editing the edges of a face that already belongs to this polyhedron.
+     */
+    public void invalidate() {
+        edgeCache = null;
+        vertexCache = null;
     }
     
-    /** Returns an hash set of all Edge3D objects that comprise this polyhedron. 
-     * Note: these are return in order of edge construction, without any duplicates.
+    /** Returns a read-only set of all Edge3D objects that comprise this polyhedron, with an edge & 
+     * it's reverse counted once. Built on first call & cached until the faces change.
      * 
-     * @return Set<Edge3D>, unique array list of Edge3D objects.
+     * @return Set<Edge3D>, unique set of Edge3D objects.
      */
     public Set<Edge3D> getEdgeList() {
-        Set<Edge3D> edgeList = new HashSet<>();
-        for(Face3D face : getFaceList()) {
-            for(Edge3D e : face.getEdgeList()) {
-                if(!edgeList.contains(e.reverse())) {
-                    edgeList.add(e);
+        if(edgeCache == null) {
+            Set<Edge3D> edgeList = new HashSet<>();
+            for(Face3D face : faces) {
+                for(Edge3D e : face.getEdgeList()) {
+                    if(!edgeList.contains(e.reverse())) {
+                        edgeList.add(e);
+                    }
                 }
             }
+            edgeCache = Collections.unmodifiableSet(edgeList);
         }
-        return edgeList;
+        return edgeCache;
     }
     
-    /** Returns an set of all Vertex3D objects that comprise this polyhedron.
-     * Note: these are return in order of edge construction, without any duplicates.
+    /** Returns a read-only set of all Vertex3D objects that comprise this polyhedron. Built on first call & 
+     * cached until the faces change.
      * 
-     * @return Set<Verte3D>, unique array list of Vertex3D objects.
+     * @return Set<Vertex3D>, unique set of Vertex3D objects.
      */
     public Set<Vertex3D> getVertexList() {
-        Set<Vertex3D> vertList = new HashSet<>();
-        for(Face3D f : getFaceList()) {
-            for(Edge3D e : f.getEdgeList()) {
-                vertList.add(e.getStart());
-                vertList.add(e.getEnd());
+        if(vertexCache == null) {
+            Set<Vertex3D> vertList = new HashSet<>();
+            for(Face3D f : faces) {
+                for(Edge3D e : f.getEdgeList()) {
+                    vertList.add(e.getStart());
+                    vertList.add(e.getEnd());
+                }
             }
+            vertexCache = Collections.unmodifiableSet(vertList);
         }
-        return vertList;
+        return vertexCache;
+    }
+    
+    /** Returns the number of unique vertices in this polyhedron.
+     * 
+     * @return int, vertex count.
+     */
+    public int getNumberOfVertices() {
+        return getVertexList().size();
+    }
+    
+    /** Returns the number of unique edges in this polyhedron.
+     * 
+     * @return int, edge count.
+     */
+    public int getNumberOfEdges() {
+        return getEdgeList().size();
+    }
+    
+    /** Returns the number of faces in this polyhedron.
+     * 
+     * @return int, face count.
+     */
+    public int getNumberOfFaces() {
+        return faces.size();
     }
     
     /** Returns a textual representation of this Polyhedron.
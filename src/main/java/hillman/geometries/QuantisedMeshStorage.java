@@ -0,0 +1,196 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import hillman.geometries.spatial.BoundingBox;
+
+/**
+ * MeshStorage holding quantised positions (see <code>Quantiser</code>) on the heap, decoded as they are read, so the 
+ * renderer & exporters use it like any other storage. Positions take 6 bytes a vertex at 16 bits & 8 bytes at 21 
+ * bits, against 12 as floats; indices are kept exactly.
+ * 
+ * @author M Hillman
+ * @version 1.0 (11/03/2014)
+ */
+public class QuantisedMeshStorage implements MeshStorage {
+    
+    /** Quantisation of the positions. */
+    private final Quantiser quantiser;
+    
+    /** Position codes at 16 bits (null at 21 bits). */
+    private final short[] x, y, z;
+    
+    /** Packed position codes at 21 bits (null at 16 bits). */
+    private final long[] packed;
+    
+    /** Face offsets (face count + 1 entries). */
+    private final int[] faceOffsets;
+    
+    /** Face vertex indices. */
+    private final int[] indices;
+    
+    /** Number of vertices. */
+    private final int vertexCount;
+    
+    /** Constructor that allocates storage of the input size with every position at the box's minimum corner.
+     * 
+     * @param vertexCount int, number of vertices.
+     * @param faceCount int, number of faces.
+     * @param indexCount int, number of face vertex indices.
+     * @param quantiser Quantiser for the positions.
+     */
+    public QuantisedMeshStorage(int vertexCount, int faceCount, int indexCount, Quantiser quantiser) {
+        this.quantiser = quantiser;
+        this.vertexCount = vertexCount;
+        if(quantiser.getBits() == Quantiser.SHORT_BITS) {
+            x = new short[vertexCount];
+            y = new short[vertexCount];
+            z = new short[vertexCount];
+            packed = null;
+        } else {
+            x = y = z = null;
+            packed = new long[vertexCount];
+        }
+        faceOffsets = new int[faceCount + 1];
+        faceOffsets[faceCount] = indexCount;
+        indices = new int[indexCount];
+    }
+    
+    /** Returns an allocator of storage quantised by the input quantiser. Every position written must lie in it's box.
+     * 
+     * @param quantiser Quantiser for the positions.
+     * @return MeshAllocator of quantised storage.
+     */
+    public static MeshAllocator allocator(final Quantiser quantiser) {
+        return new MeshAllocator() {
+            @Override
+            public MeshStorage allocate(int vertexCount, int faceCount, int indexCount) {
+                return new QuantisedMeshStorage(vertexCount, faceCount, indexCount, quantiser);
+            }
+        };
+    }
+    
+    /** Copies a mesh into quantised storage, relative to it's own bounding box & with the fewest bits meeting the 
+     * error bound.
+     * 
+     * @param mesh IndexedMesh to copy.
+     * @param maxError float, largest acceptable error of a position component.
+     * @return IndexedMesh, quantised copy.
+     * @throws IllegalArgumentException if even 21 bits exceed the error bound.
+     */
+    public static IndexedMesh quantise(IndexedMesh mesh, float maxError) {
+        Quantiser quantiser = Quantiser.forError(BoundingBox.of(mesh), maxError);
+        QuantisedMeshStorage storage = new QuantisedMeshStorage(mesh.getVertexCount(), mesh.getFaceCount(), 
+                mesh.getIndexCount(), quantiser);
+        for(int v = 0; v < mesh.getVertexCount(); v++) {
+            storage.setPosition(v, mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+        }
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            storage.setFaceOffset(f, mesh.getFaceOffset(f));
+        }
+        for(int i = 0; i < mesh.getIndexCount(); i++) {
+            storage.setIndex(i, mesh.getIndex(i));
+        }
+        return new IndexedMesh(storage);
+    }
+    
+    /** Returns the quantisation of the positions.
+     * 
+     * @return Quantiser of this storage.
+     */
+    public Quantiser getQuantiser() {
+        return quantiser;
+    }
+    
+    /** Returns the stored code of a position component, e.g. to write it out without decoding.
+     * 
+     * @param vertex int, vertex index.
+     * @param axis int, 0 for X, 1 for Y, 2 for Z.
+     * @return int, code.
+     */
+    public int getCode(int vertex, int axis) {
+        if(packed != null) {
+            return Quantiser.unpack(packed[vertex], axis);
+        }
+        short[] codes = (axis == 0) ? x : (axis == 1) ? y : z;
+        return codes[vertex] & 0xFFFF;
+    }
+    
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+    
+    @Override
+    public int getFaceCount() {
+        return faceOffsets.length - 1;
+    }
+    
+    @Override
+    public int getIndexCount() {
+        return indices.length;
+    }
+    
+    @Override
+    public float getX(int vertex) {
+        return quantiser.decode(0, getCode(vertex, 0));
+    }
+    
+    @Override
+    public float getY(int vertex) {
+        return quantiser.decode(1, getCode(vertex, 1));
+    }
+    
+    @Override
+    public float getZ(int vertex) {
+        return quantiser.decode(2, getCode(vertex, 2));
+    }
+    
+    @Override
+    public void setPosition(int vertex, float x, float y, float z) {
+        int codeX = quantiser.encode(0, x);
+        int codeY = quantiser.encode(1, y);
+        int codeZ = quantiser.encode(2, z);
+        if(packed != null) {
+            packed[vertex] = Quantiser.pack(codeX, codeY, codeZ);
+        } else {
+            this.x[vertex] = (short) codeX;
+            this.y[vertex] = (short) codeY;
+            this.z[vertex] = (short) codeZ;
+        }
+    }
+    
+    @Override
+    public int getFaceOffset(int face) {
+        return faceOffsets[face];
+    }
+    
+    @Override
+    public void setFaceOffset(int face, int offset) {
+        faceOffsets[face] = offset;
+    }
+    
+    @Override
+    public int getIndex(int offset) {
+        return indices[offset];
+    }
+    
+    @Override
+    public void setIndex(int offset, int vertex) {
+        indices[offset] = vertex;
+    }
+    
+}
+//End of class.
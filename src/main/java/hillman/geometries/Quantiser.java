@@ -0,0 +1,176 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+import hillman.geometries.spatial.BoundingBox;
+
+/** Fixed point quantisation of positions relative to a bounding box. Each component is stored as an unsigned code of
+ * 16 bits (three shorts, half the size of three floats) or 21 bits (all three packed into one long, two thirds of the
+ * size), spread evenly across the box, so the error of a decoded component is at most half a step of it's axis (plus
+ * the rounding of the decoded value to float).
+ * 
+ * @author M Hillman
+ * @version 1.0 (11/03/2014)
+ */
+public class Quantiser {
+    
+    /** Bits per component stored as one short per axis. */
+    public static final int SHORT_BITS = 16;
+    
+    /** Bits per component stored with all three axes packed into one long. */
+    public static final int PACKED_BITS = 21;
+    
+    /** Mask of one packed component. */
+    private static final long PACKED_MASK = (1L << PACKED_BITS) - 1;
+    
+    /** The box positions are quantised relative to. */
+    private final BoundingBox bounds;
+    
+    /** Bits per component. */
+    private final int bits;
+    
+    /** Largest code. */
+    private final int maxCode;
+    
+    /** Minimum of each axis. */
+    private final double[] min = new double[3];
+    
+    /** Size of one step along each axis. */
+    private final double[] step = new double[3];
+    
+    /** Steps per unit along each axis (0 for a flat axis). */
+    private final double[] scale = new double[3];
+    
+    /** Largest rounding error of a decoded float along each axis. */
+    private final double[] rounding = new double[3];
+    
+    /** Initialises a quantiser.
+     * 
+     * @param bounds BoundingBox holding every position to quantise.
+     * @param bits int, bits per component (SHORT_BITS or PACKED_BITS).
+     * @throws IllegalArgumentException if the bits are not supported.
+     */
+    public Quantiser(BoundingBox bounds, int bits) {
+        if(bits != SHORT_BITS && bits != PACKED_BITS) {
+            throw new IllegalArgumentException("Unsupported quantisation: " + bits + " bits");
+        }
+        this.bounds = bounds;
+        this.bits = bits;
+        this.maxCode = (1 << bits) - 1;
+        if(!bounds.isEmpty()) {
+            float[] low = {bounds.getMinX(), bounds.getMinY(), bounds.getMinZ()};
+            float[] high = {bounds.getMaxX(), bounds.getMaxY(), bounds.getMaxZ()};
+            for(int axis = 0; axis < 3; axis++) {
+                double extent = (double) high[axis] - low[axis];
+                min[axis] = low[axis];
+                step[axis] = extent / maxCode;
+                scale[axis] = (extent > 0.0) ? maxCode / extent : 0.0;
+                rounding[axis] = 0.5 * Math.ulp(Math.max(Math.abs(low[axis]), Math.abs(high[axis])));
+            }
+        }
+    }
+    
+    /** Returns the coarsest quantiser of a box whose error is within the input bound.
+     * 
+     * @param bounds BoundingBox holding every position to quantise.
+     * @param maxError float, largest acceptable error of a component.
+     * @return Quantiser, 16 bit if close enough, otherwise 21 bit.
+     * @throws IllegalArgumentException if even 21 bits exceed the error bound.
+     */
+    public static Quantiser forError(BoundingBox bounds, float maxError) {
+        Quantiser quantiser = new Quantiser(bounds, SHORT_BITS);
+        if(quantiser.getMaxError() > maxError) {
+            quantiser = new Quantiser(bounds, PACKED_BITS);
+            if(quantiser.getMaxError() > maxError) {
+                throw new IllegalArgumentException("Error bound of " + maxError + " needs more than " + PACKED_BITS 
+                        + " bits for " + bounds);
+            }
+        }
+        return quantiser;
+    }
+    
+    /** Returns the code of a position component, clamped to the box.
+     * 
+     * @param axis int, 0 for X, 1 for Y, 2 for Z.
+     * @param value float, component.
+     * @return int, code (0 to 2^bits - 1).
+     */
+    public int encode(int axis, float value) {
+        long code = Math.round((value - min[axis]) * scale[axis]);
+        return (int) Math.max(0, Math.min(maxCode, code));
+    }
+    
+    /** Returns the position component of a code.
+     * 
+     * @param axis int, 0 for X, 1 for Y, 2 for Z.
+     * @param code int, code.
+     * @return float, component.
+     */
+    public float decode(int axis, int code) {
+        return (float) (min[axis] + code * step[axis]);
+    }
+    
+    /** Packs three 21 bit codes into a long.
+     * 
+     * @param x int, X code.
+     * @param y int, Y code.
+     * @param z int, Z code.
+     * @return long, packed codes.
+     */
+    public static long pack(int x, int y, int z) {
+        return x | ((long) y << PACKED_BITS) | ((long) z << (2 * PACKED_BITS));
+    }
+    
+    /** Returns one code from three packed by <code>pack</code>.
+     * 
+     * @param packed long, packed codes.
+     * @param axis int, 0 for X, 1 for Y, 2 for Z.
+     * @return int, code.
+     */
+    public static int unpack(long packed, int axis) {
+        return (int) ((packed >>> (axis * PACKED_BITS)) & PACKED_MASK);
+    }
+    
+    /** Returns the largest error of a decoded component: half a step plus the rounding of the decoded float, on the 
+     * worst axis.
+     * 
+     * @return float, error bound.
+     */
+    public float getMaxError() {
+        double error = 0.0;
+        for(int axis = 0; axis < 3; axis++) {
+            error = Math.max(error, 0.5 * step[axis] + rounding[axis]);
+        }
+        return (float) error;
+    }
+    
+    /** Returns the box positions are quantised relative to.
+     * 
+     * @return BoundingBox, quantisation box.
+     */
+    public BoundingBox getBounds() {
+        return bounds;
+    }
+    
+    /** Returns the bits per component.
+     * 
+     * @return int, SHORT_BITS or PACKED_BITS.
+     */
+    public int getBits() {
+        return bits;
+    }
+    
+}
+//End of class.
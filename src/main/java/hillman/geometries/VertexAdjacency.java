@@ -0,0 +1,119 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries;
+
+/**
+ * This class holds, for every vertex of an IndexedMesh, the faces & edges that contain it, in compressed rows (one
+ * offsets array & one flat list each). Faces & edges are listed in increasing index order, so any sum taken over a
+ * vertex's neighbourhood is evaluated in the same order as a linear pass over the mesh would.
+ * 
+ * @author M Hillman
+ * @version 1.0 (20/02/2014)
+ */
+public class VertexAdjacency {
+    
+    /** Start of each vertex's faces in <code>faces</code> (vertex count + 1 entries). */
+    private final int[] faceOffsets;
+    
+    /** Faces containing each vertex. */
+    private final int[] faces;
+    
+    /** Start of each vertex's edges in <code>edges</code> (vertex count + 1 entries). */
+    private final int[] edgeOffsets;
+    
+    /** Edges containing each vertex. */
+    private final int[] edges;
+    
+    /** Builds the vertex adjacency of the input mesh.
+     * 
+     * @param mesh IndexedMesh to build adjacency for.
+     * @param edgeTable EdgeTable of the mesh.
+     */
+    public VertexAdjacency(IndexedMesh mesh, EdgeTable edgeTable) {
+        int vertexCount = mesh.getVertexCount();
+        faceOffsets = new int[vertexCount + 1];
+        edgeOffsets = new int[vertexCount + 1];
+        
+        for(int i = 0; i < mesh.getIndexCount(); i++) {
+            faceOffsets[mesh.getIndex(i) + 1]++;
+        }
+        for(int e = 0; e < edgeTable.getEdgeCount(); e++) {
+            edgeOffsets[edgeTable.getStart(e) + 1]++;
+            edgeOffsets[edgeTable.getEnd(e) + 1]++;
+        }
+        for(int v = 0; v < vertexCount; v++) {
+            faceOffsets[v + 1] += faceOffsets[v];
+            edgeOffsets[v + 1] += edgeOffsets[v];
+        }
+        
+        faces = new int[faceOffsets[vertexCount]];
+        edges = new int[edgeOffsets[vertexCount]];
+        int[] fill = new int[vertexCount];
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            int offset = mesh.getFaceOffset(f);
+            for(int k = 0; k < mesh.getFaceSize(f); k++) {
+                int v = mesh.getIndex(offset + k);
+                faces[faceOffsets[v] + fill[v]++] = f;
+            }
+        }
+        fill = new int[vertexCount];
+        for(int e = 0; e < edgeTable.getEdgeCount(); e++) {
+            int a = edgeTable.getStart(e);
+            int b = edgeTable.getEnd(e);
+            edges[edgeOffsets[a] + fill[a]++] = e;
+            edges[edgeOffsets[b] + fill[b]++] = e;
+        }
+    }
+    
+    /** Returns the number of faces containing a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return int, face valence.
+     */
+    public int getFaceCount(int vertex) {
+        return faceOffsets[vertex + 1] - faceOffsets[vertex];
+    }
+    
+    /** Returns one of the faces containing a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @param i int, position in the vertex's face list.
+     * @return int, face index.
+     */
+    public int getFace(int vertex, int i) {
+        return faces[faceOffsets[vertex] + i];
+    }
+    
+    /** Returns the number of edges containing a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @return int, edge valence.
+     */
+    public int getEdgeCount(int vertex) {
+        return edgeOffsets[vertex + 1] - edgeOffsets[vertex];
+    }
+    
+    /** Returns one of the edges containing a vertex.
+     * 
+     * @param vertex int, vertex index.
+     * @param i int, position in the vertex's edge list.
+     * @return int, edge index.
+     */
+    public int getEdge(int vertex, int i) {
+        return edges[edgeOffsets[vertex] + i];
+    }
+    
+}
+//End of class.
@@ -0,0 +1,394 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.io;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshStorage;
+import hillman.geometries.QuantisedMeshStorage;
+import hillman.geometries.Quantiser;
+import hillman.geometries.spatial.BoundingBox;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Reads & writes IndexedMesh objects in a compact little endian binary format laid out column by column, exactly 
+ * as IndexedMesh stores them:
+ * 
+ * <pre>
+ * int magic ("HMSH"), int version, int vertexCount, int faceCount, int indexCount,
+ * float x[vertexCount], float y[vertexCount], float z[vertexCount],
+ * int faceOffsets[faceCount + 1], int indices[indexCount]
+ * </pre>
+ * 
+ * Meshes in <code>QuantisedMeshStorage</code> are written as version 2, keeping their codes rather than floats: the 
+ * header gains int bits & float minX, minY, minZ, maxX, maxY, maxZ of the quantisation box, & the position columns 
+ * become short x[vertexCount], y[vertexCount], z[vertexCount] (padded to a multiple of 4 bytes) at 16 bits or one 
+ * long of packed codes per vertex at 21 bits. Version 2 files are decoded as they are read, like the storage.
+ * 
+ * Reading maps the file rather than parsing it, so a mesh of any size opens in constant time & is paged in by the
+ * operating system as it is used. The same layout can also be written to & read from streams, for sending meshes 
+ * over sockets; a stream is read exactly to the end of the mesh, leaving anything after it unread.
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/03/2014)
+ */
+public class BinaryMeshFormat {
+    
+    /** File magic, "HMSH". */
+    static final int MAGIC = 0x48534D48;
+    
+    /** Format version. */
+    static final int VERSION = 1;
+    
+    /** Format version with quantised positions. */
+    static final int VERSION_QUANTISED = 2;
+    
+    /** Header size in bytes. */
+    static final int HEADER_BYTES = 20;
+    
+    /** Header size in bytes with quantised positions. */
+    static final int QUANTISED_HEADER_BYTES = 48;
+    
+    /** Size of the buffer used to stream columns to disk. */
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    
+    /** Size of the buffers used to write to & read from streams. */
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
+    
+    /** Maps a binary mesh file. Positions may be changed on the returned mesh without altering the file.
+     * 
+     * @param file Path of the mesh file.
+     * @return IndexedMesh backed by the mapped file.
+     * @throws IOException if the file cannot be read or is not a mesh file.
+     */
+    public static IndexedMesh read(Path file) throws IOException {
+        return new IndexedMesh(new MappedMeshStorage(file));
+    }
+    
+    /** Writes an IndexedMesh to a binary mesh file, overwriting any existing file.
+     * 
+     * @param mesh IndexedMesh to write.
+     * @param file Path of the mesh file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(IndexedMesh mesh, Path file) throws IOException {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, 
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(mesh, channel, ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES));
+        }
+    }
+    
+    /** Writes an IndexedMesh to a stream in the binary mesh layout. The stream is not flushed or closed.
+     * 
+     * @param mesh IndexedMesh to write.
+     * @param out OutputStream to write to.
+     * @throws IOException if the stream cannot be written.
+     */
+    public static void write(IndexedMesh mesh, OutputStream out) throws IOException {
+        write(mesh, Channels.newChannel(out), ByteBuffer.allocate(STREAM_BUFFER_BYTES));
+    }
+    
+    /** Reads a mesh written by write(IndexedMesh, OutputStream) into new storage, stopping at the end of the mesh. 
+     * Quantised positions are decoded as they are read.
+     * 
+     * @param in InputStream to read from.
+     * @param allocator MeshAllocator creating the storage.
+     * @return IndexedMesh, the mesh read.
+     * @throws IOException if the stream cannot be read, ends early or does not hold a mesh.
+     */
+    public static IndexedMesh read(InputStream in, MeshAllocator allocator) throws IOException {
+        StreamReader reader = new StreamReader(Channels.newChannel(in), HEADER_BYTES);
+        ByteBuffer buffer = reader.require(HEADER_BYTES);
+        int magic = buffer.getInt();
+        int version = buffer.getInt();
+        int vertexCount = buffer.getInt();
+        int faceCount = buffer.getInt();
+        int indexCount = buffer.getInt();
+        if(magic != MAGIC || (version != VERSION && version != VERSION_QUANTISED) || vertexCount < 0 || faceCount < 0 
+                || indexCount < 0) {
+            throw new IOException("Stream does not hold a binary mesh");
+        }
+        Quantiser quantiser = null;
+        if(version == VERSION_QUANTISED) {
+            reader.expect(QUANTISED_HEADER_BYTES - HEADER_BYTES);
+            buffer = reader.require(QUANTISED_HEADER_BYTES - HEADER_BYTES);
+            int bits = buffer.getInt();
+            BoundingBox bounds = new BoundingBox(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), 
+                    buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            try {
+                quantiser = new Quantiser(bounds, bits);
+            } catch(IllegalArgumentException e) {
+                throw new IOException("Unsupported binary mesh quantisation", e);
+            }
+        }
+        reader.expect(getPositionBytes(vertexCount, (quantiser == null) ? 0 : quantiser.getBits()) 
+                + 4L * (faceCount + 1) + 4L * indexCount);
+        MeshStorage storage = allocator.allocate(vertexCount, faceCount, indexCount);
+        readPositions(reader, storage, quantiser);
+        for(int f = 0; f <= faceCount; f++) {
+            int offset = reader.require(4).getInt();
+            if(offset < 0 || offset > indexCount || (f == faceCount && offset != indexCount)) {
+                throw new IOException("Invalid face offset " + offset + " for face " + f);
+            }
+            if(f < faceCount) {
+                storage.setFaceOffset(f, offset);
+            }
+        }
+        for(int i = 0; i < indexCount; i++) {
+            int vertex = reader.require(4).getInt();
+            if(vertex < 0 || vertex >= vertexCount) {
+                throw new IOException("Invalid vertex index " + vertex);
+            }
+            storage.setIndex(i, vertex);
+        }
+        return new IndexedMesh(storage);
+    }
+    
+    /** Reads the position columns of a mesh stream into storage.
+     * 
+     * @param reader StreamReader positioned after the header.
+     * @param storage MeshStorage to fill.
+     * @param quantiser Quantiser of the positions, or null if they are floats.
+     * @throws IOException if the stream cannot be read or ends early.
+     */
+    private static void readPositions(StreamReader reader, MeshStorage storage, Quantiser quantiser) 
+            throws IOException {
+        int vertexCount = storage.getVertexCount();
+        if(quantiser != null && quantiser.getBits() == Quantiser.PACKED_BITS) {
+            for(int v = 0; v < vertexCount; v++) {
+                long packed = reader.require(8).getLong();
+                storage.setPosition(v, quantiser.decode(0, Quantiser.unpack(packed, 0)), 
+                        quantiser.decode(1, Quantiser.unpack(packed, 1)), quantiser.decode(2, Quantiser.unpack(packed, 2)));
+            }
+            return;
+        }
+        float[] xs = new float[vertexCount];
+        float[] ys = new float[vertexCount];
+        for(int axis = 0; axis < 3; axis++) {
+            for(int v = 0; v < vertexCount; v++) {
+                float value = (quantiser == null) ? reader.require(4).getFloat() 
+                        : quantiser.decode(axis, reader.require(2).getShort() & 0xFFFF);
+                if(axis == 0) {
+                    xs[v] = value;
+                } else if(axis == 1) {
+                    ys[v] = value;
+                } else {
+                    storage.setPosition(v, xs[v], ys[v], value);
+                }
+            }
+        }
+        if(quantiser != null && vertexCount % 2 != 0) {
+            reader.require(2).getShort();
+        }
+    }
+    
+    /** Writes an IndexedMesh through a channel.
+     * 
+     * @param mesh IndexedMesh to write.
+     * @param channel WritableByteChannel to write to.
+     * @param buffer ByteBuffer to stage writes in.
+     * @throws IOException if the write fails.
+     */
+    private static void write(IndexedMesh mesh, WritableByteChannel channel, ByteBuffer buffer) throws IOException {
+        Quantiser quantiser = getQuantiser(mesh);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(quantiser == null ? VERSION : VERSION_QUANTISED);
+        buffer.putInt(mesh.getVertexCount()).putInt(mesh.getFaceCount()).putInt(mesh.getIndexCount());
+        if(quantiser == null) {
+            for(int axis = 0; axis < 3; axis++) {
+                for(int v = 0; v < mesh.getVertexCount(); v++) {
+                    if(buffer.remaining() < 4) {
+                        flush(buffer, channel);
+                    }
+                    buffer.putFloat(axis == 0 ? mesh.getX(v) : axis == 1 ? mesh.getY(v) : mesh.getZ(v));
+                }
+            }
+        } else {
+            writeCodes(mesh, quantiser, buffer, channel);
+        }
+        for(int f = 0; f <= mesh.getFaceCount(); f++) {
+            if(buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+            buffer.putInt(mesh.getFaceOffset(f));
+        }
+        for(int i = 0; i < mesh.getIndexCount(); i++) {
+            if(buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+            buffer.putInt(mesh.getIndex(i));
+        }
+        flush(buffer, channel);
+    }
+    
+    /** Returns the size of the file the input mesh would be written to.
+     * 
+     * @param mesh IndexedMesh to measure.
+     * @return long, file size in bytes.
+     */
+    public static long getFileSize(IndexedMesh mesh) {
+        Quantiser quantiser = getQuantiser(mesh);
+        int bits = (quantiser == null) ? 0 : quantiser.getBits();
+        return (bits == 0 ? HEADER_BYTES : QUANTISED_HEADER_BYTES) + getPositionBytes(mesh.getVertexCount(), bits) 
+                + 4L * (mesh.getFaceCount() + 1) + 4L * mesh.getIndexCount();
+    }
+    
+    /** Returns the size of the position columns.
+     * 
+     * @param vertexCount int, number of vertices.
+     * @param bits int, bits per component (0 for floats).
+     * @return long, size in bytes.
+     */
+    static long getPositionBytes(int vertexCount, int bits) {
+        if(bits == Quantiser.SHORT_BITS) {
+            return (6L * vertexCount + 3) & ~3L;
+        }
+        return (bits == Quantiser.PACKED_BITS ? 8L : 12L) * vertexCount;
+    }
+    
+    /** Returns the quantisation of a mesh's storage.
+     * 
+     * @param mesh IndexedMesh to check.
+     * @return Quantiser, or null if the positions are floats.
+     */
+    private static Quantiser getQuantiser(IndexedMesh mesh) {
+        if(mesh.getStorage() instanceof QuantisedMeshStorage) {
+            return ((QuantisedMeshStorage) mesh.getStorage()).getQuantiser();
+        }
+        return null;
+    }
+    
+    /** Writes the rest of a quantised header & the position codes.
+     * 
+     * @param mesh IndexedMesh in QuantisedMeshStorage.
+     * @param quantiser Quantiser of the storage.
+     * @param buffer ByteBuffer holding the start of the header.
+     * @param channel WritableByteChannel to write to.
+     * @throws IOException if the write fails.
+     */
+    private static void writeCodes(IndexedMesh mesh, Quantiser quantiser, ByteBuffer buffer, 
+            WritableByteChannel channel) throws IOException {
+        QuantisedMeshStorage storage = (QuantisedMeshStorage) mesh.getStorage();
+        BoundingBox bounds = quantiser.getBounds();
+        buffer.putInt(quantiser.getBits());
+        buffer.putFloat(bounds.getMinX()).putFloat(bounds.getMinY()).putFloat(bounds.getMinZ());
+        buffer.putFloat(bounds.getMaxX()).putFloat(bounds.getMaxY()).putFloat(bounds.getMaxZ());
+        int vertexCount = mesh.getVertexCount();
+        if(quantiser.getBits() == Quantiser.SHORT_BITS) {
+            for(int axis = 0; axis < 3; axis++) {
+                for(int v = 0; v < vertexCount; v++) {
+                    if(buffer.remaining() < 2) {
+                        flush(buffer, channel);
+                    }
+                    buffer.putShort((short) storage.getCode(v, axis));
+                }
+            }
+            if(vertexCount % 2 != 0) {
+                if(buffer.remaining() < 2) {
+                    flush(buffer, channel);
+                }
+                buffer.putShort((short) 0);
+            }
+        } else {
+            for(int v = 0; v < vertexCount; v++) {
+                if(buffer.remaining() < 8) {
+                    flush(buffer, channel);
+                }
+                buffer.putLong(Quantiser.pack(storage.getCode(v, 0), storage.getCode(v, 1), storage.getCode(v, 2)));
+            }
+        }
+    }
+    
+    /** Writes out & empties a buffer.
+     * 
+     * @param buffer ByteBuffer to write.
+     * @param channel WritableByteChannel to write to.
+     * @throws IOException if the write fails.
+     */
+    private static void flush(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+    
+    /** Reads a stream through a small buffer without reading past the bytes it has been told to expect, so whatever 
+     * follows the mesh in the stream is left unread.
+     */
+    private static class StreamReader {
+        
+        /** Channel being read. */
+        private final ReadableByteChannel channel;
+        
+        /** Buffered bytes, ready to get from. */
+        private final ByteBuffer buffer;
+        
+        /** Bytes expected that have not been read from the channel yet. */
+        private long left;
+        
+        StreamReader(ReadableByteChannel channel, long expected) {
+            this.channel = channel;
+            this.buffer = ByteBuffer.allocate(STREAM_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            this.left = expected;
+            buffer.limit(0);
+        }
+        
+        /** Adds to the number of bytes the stream is expected to hold.
+         * 
+         * @param bytes long, extra bytes expected.
+         */
+        void expect(long bytes) {
+            left += bytes;
+        }
+        
+        /** Returns the buffer holding at least the input number of bytes, reading more if needed.
+         * 
+         * @param bytes int, bytes needed (at most the buffer size).
+         * @return ByteBuffer, the buffer positioned at those bytes.
+         * @throws IOException if the stream ends first.
+         */
+        ByteBuffer require(int bytes) throws IOException {
+            if(buffer.remaining() < bytes) {
+                buffer.compact();
+                buffer.limit(buffer.position() + (int) Math.min(buffer.remaining(), left));
+                if(buffer.limit() < bytes) {
+                    throw new IOException("Binary mesh is longer than it's header says");
+                }
+                while(buffer.position() < bytes) {
+                    int read = channel.read(buffer);
+                    if(read < 0) {
+                        throw new EOFException("Binary mesh stream ended early");
+                    }
+                    left -= read;
+                }
+                buffer.flip();
+            }
+            return buffer;
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,225 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.io;
+
+import hillman.geometries.MeshStorage;
+import hillman.geometries.Quantiser;
+import hillman.geometries.spatial.BoundingBox;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MeshStorage over a memory mapped BinaryMeshFormat file. Each column is mapped separately & copy on write, so 
+ * positions can be changed (e.g. to refit or smooth a cached level) without the change ever reaching the file. 
+ * Quantised (version 2) files are decoded as they are read & re-encoded as they are changed.
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/03/2014)
+ */
+public class MappedMeshStorage implements MeshStorage {
+    
+    /** Position columns of a float file (null if quantised). */
+    private final FloatBuffer x, y, z;
+    
+    /** Position code columns of a 16 bit quantised file (null otherwise). */
+    private final ShortBuffer codesX, codesY, codesZ;
+    
+    /** Packed position codes of a 21 bit quantised file (null otherwise). */
+    private final LongBuffer packed;
+    
+    /** Quantisation of the positions (null for a float file). */
+    private final Quantiser quantiser;
+    
+    /** Face offset & index columns. */
+    private final IntBuffer faceOffsets, indices;
+    
+    /** Sizes. */
+    private final int vertexCount, faceCount, indexCount;
+    
+    /** Maps a binary mesh file.
+     * 
+     * @param file Path of the mesh file.
+     * @throws IOException if the file cannot be read, is not a mesh file or has a column over 2GB.
+     */
+    MappedMeshStorage(Path file) throws IOException {
+        //Copy on write mappings need a writable channel, though nothing is ever written back.
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(BinaryMeshFormat.QUANTISED_HEADER_BYTES);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            while(header.hasRemaining() && channel.read(header) >= 0) {
+                //Keep reading until the header is full or the file ends.
+            }
+            header.flip();
+            if(header.remaining() < BinaryMeshFormat.HEADER_BYTES || header.getInt() != BinaryMeshFormat.MAGIC) {
+                throw new IOException("Not a binary mesh file: " + file);
+            }
+            int version = header.getInt();
+            if(version != BinaryMeshFormat.VERSION && version != BinaryMeshFormat.VERSION_QUANTISED) {
+                throw new IOException("Unsupported binary mesh version: " + file);
+            }
+            vertexCount = header.getInt();
+            faceCount = header.getInt();
+            indexCount = header.getInt();
+            long position = BinaryMeshFormat.HEADER_BYTES;
+            int bits = 0;
+            if(version == BinaryMeshFormat.VERSION_QUANTISED) {
+                if(header.remaining() < BinaryMeshFormat.QUANTISED_HEADER_BYTES - BinaryMeshFormat.HEADER_BYTES) {
+                    throw new IOException("Truncated binary mesh file: " + file);
+                }
+                bits = header.getInt();
+                BoundingBox bounds = new BoundingBox(header.getFloat(), header.getFloat(), header.getFloat(), 
+                        header.getFloat(), header.getFloat(), header.getFloat());
+                try {
+                    quantiser = new Quantiser(bounds, bits);
+                } catch(IllegalArgumentException e) {
+                    throw new IOException("Unsupported binary mesh quantisation: " + file, e);
+                }
+                position = BinaryMeshFormat.QUANTISED_HEADER_BYTES;
+            } else {
+                quantiser = null;
+            }
+            long expected = position + BinaryMeshFormat.getPositionBytes(vertexCount, bits) + 4L * (faceCount + 1) 
+                    + 4L * indexCount;
+            if(vertexCount < 0 || faceCount < 0 || indexCount < 0 || channel.size() < expected) {
+                throw new IOException("Truncated binary mesh file: " + file);
+            }
+            if(bits == 0) {
+                x = map(channel, position, vertexCount, 4).asFloatBuffer();
+                y = map(channel, position += 4L * vertexCount, vertexCount, 4).asFloatBuffer();
+                z = map(channel, position += 4L * vertexCount, vertexCount, 4).asFloatBuffer();
+                codesX = codesY = codesZ = null;
+                packed = null;
+            } else if(bits == Quantiser.SHORT_BITS) {
+                codesX = map(channel, position, vertexCount, 2).asShortBuffer();
+                codesY = map(channel, position + 2L * vertexCount, vertexCount, 2).asShortBuffer();
+                codesZ = map(channel, position + 4L * vertexCount, vertexCount, 2).asShortBuffer();
+                x = y = z = null;
+                packed = null;
+            } else {
+                packed = map(channel, position, vertexCount, 8).asLongBuffer();
+                x = y = z = null;
+                codesX = codesY = codesZ = null;
+            }
+            position = expected - 4L * (faceCount + 1) - 4L * indexCount;
+            faceOffsets = map(channel, position, faceCount + 1, 4).asIntBuffer();
+            indices = map(channel, position + 4L * (faceCount + 1), indexCount, 4).asIntBuffer();
+        }
+    }
+    
+    /** Maps one column.
+     * 
+     * @param channel FileChannel to map.
+     * @param position long, byte offset of the column.
+     * @param count int, number of elements.
+     * @param size int, bytes per element.
+     * @return ByteBuffer, little endian private mapping of the column.
+     * @throws IOException if the column cannot be mapped.
+     */
+    private static ByteBuffer map(FileChannel channel, long position, int count, int size) throws IOException {
+        if(count > Integer.MAX_VALUE / size) {
+            throw new IOException("Mesh column too large to map: " + count + " elements");
+        }
+        return channel.map(FileChannel.MapMode.PRIVATE, position, (long) size * count).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    @Override
+    public int getVertexCount() {
+        return vertexCount;
+    }
+    
+    @Override
+    public int getFaceCount() {
+        return faceCount;
+    }
+    
+    @Override
+    public int getIndexCount() {
+        return indexCount;
+    }
+    
+    /** Returns the stored code of a position component of a quantised file.
+     * 
+     * @param vertex int, vertex index.
+     * @param axis int, 0 for X, 1 for Y, 2 for Z.
+     * @return int, code.
+     */
+    private int getCode(int vertex, int axis) {
+        if(packed != null) {
+            return Quantiser.unpack(packed.get(vertex), axis);
+        }
+        ShortBuffer codes = (axis == 0) ? codesX : (axis == 1) ? codesY : codesZ;
+        return codes.get(vertex) & 0xFFFF;
+    }
+    
+    @Override
+    public float getX(int vertex) {
+        return (quantiser == null) ? x.get(vertex) : quantiser.decode(0, getCode(vertex, 0));
+    }
+    
+    @Override
+    public float getY(int vertex) {
+        return (quantiser == null) ? y.get(vertex) : quantiser.decode(1, getCode(vertex, 1));
+    }
+    
+    @Override
+    public float getZ(int vertex) {
+        return (quantiser == null) ? z.get(vertex) : quantiser.decode(2, getCode(vertex, 2));
+    }
+    
+    @Override
+    public void setPosition(int vertex, float x, float y, float z) {
+        if(quantiser == null) {
+            this.x.put(vertex, x);
+            this.y.put(vertex, y);
+            this.z.put(vertex, z);
+        } else if(packed != null) {
+            packed.put(vertex, Quantiser.pack(quantiser.encode(0, x), quantiser.encode(1, y), quantiser.encode(2, z)));
+        } else {
+            codesX.put(vertex, (short) quantiser.encode(0, x));
+            codesY.put(vertex, (short) quantiser.encode(1, y));
+            codesZ.put(vertex, (short) quantiser.encode(2, z));
+        }
+    }
+    
+    @Override
+    public int getFaceOffset(int face) {
+        return faceOffsets.get(face);
+    }
+    
+    @Override
+    public void setFaceOffset(int face, int offset) {
+        faceOffsets.put(face, offset);
+    }
+    
+    @Override
+    public int getIndex(int offset) {
+        return indices.get(offset);
+    }
+    
+    @Override
+    public void setIndex(int offset, int vertex) {
+        indices.put(offset, vertex);
+    }
+    
+}
+//End of class.
@@ -0,0 +1,866 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.io;
+
+import hillman.geometries.EdgeMap;
+import hillman.geometries.EdgeTable;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshStorage;
+import hillman.geometries.QuantisedMeshStorage;
+import hillman.geometries.Quantiser;
+import hillman.geometries.spatial.BoundingBox;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/** Compresses IndexedMesh objects for storage & transfer, encoding & decoding in a single streaming pass.
+ * 
+ * Connectivity is coded Edgebreaker style, by growing a decoded region face by face. Every edge of a decoded face
+ * whose other face has not been decoded is an open gate; gates are taken from a stack & the face across each is 
+ * written as it's size & whether it runs the same way round the gate as the face it was entered from (0 for a 
+ * boundary), followed by one symbol per corner not on the gate: a new vertex, one of the few vertices already joined 
+ * to the previous corner (or, for the last corner, the first) by an open edge - nearly always the first of them - or, 
+ * rarely, an explicit vertex id. On meshes of one face size the stream is a few distinct symbols repeated, which 
+ * deflate to a few bits per vertex. Recording the direction keeps every face's own corner order, so inconsistently 
+ * oriented meshes (like <code>PolyhedronFactory</code>'s square cube) are coded exactly.
+ * 
+ * Positions are quantised (see <code>Quantiser</code>) & every new vertex is written as the difference from a 
+ * parallelogram prediction off the face it was entered from, so smooth surfaces leave small residuals.
+ * 
+ * The stream is a little endian header - int magic ("HMCC"), int version, int vertexCount, int faceCount, 
+ * int indexCount, int bits, float minX, minY, minZ, maxX, maxY, maxZ of the quantisation box - followed by the 
+ * deflated symbols. The decoded mesh is the same surface with it's vertices & faces numbered in traversal order & 
+ * each face starting at it's entry gate; <code>MeshHash</code> is unchanged by the renumbering.
+ * 
+ * @author M Hillman
+ * @version 1.0 (12/03/2014)
+ */
+public class MeshCodec {
+    
+    /** Stream magic, "HMCC". */
+    static final int MAGIC = 0x43434D48;
+    
+    /** Stream version. */
+    static final int VERSION = 1;
+    
+    /** Header size in bytes. */
+    static final int HEADER_BYTES = 48;
+    
+    /** Open edge candidates addressable per side of a corner. */
+    private static final int CANDIDATES = 4;
+    
+    /** Corner symbol: a vertex not seen before, followed by it's residual. */
+    private static final int NEW = 0;
+    
+    /** Corner symbols: a vertex joined to the previous corner by an open edge, by position in it's open list. */
+    private static final int PREVIOUS = 1;
+    
+    /** Corner symbols: a vertex joined to the face's first corner by an open edge, by position in it's open list. */
+    private static final int FIRST = PREVIOUS + CANDIDATES;
+    
+    /** Corner symbol: any decoded vertex, followed by it's distance from the newest one. */
+    private static final int EXPLICIT = FIRST + CANDIDATES;
+    
+    /** Size of the stream buffers. */
+    private static final int BUFFER_BYTES = 1 << 16;
+    
+    /** Encodes a mesh, quantised to the input error bound (or to it's own quantisation if already quantised).
+     * 
+     * @param mesh IndexedMesh to encode (edge-manifold).
+     * @param maxError float, largest acceptable error of a position component.
+     * @param out OutputStream to write to, left open.
+     * @throws IOException if the stream cannot be written.
+     * @throws IllegalArgumentException if the mesh is non-manifold.
+     */
+    public static void encode(IndexedMesh mesh, float maxError, OutputStream out) throws IOException {
+        Quantiser quantiser;
+        if(mesh.getStorage() instanceof QuantisedMeshStorage) {
+            quantiser = ((QuantisedMeshStorage) mesh.getStorage()).getQuantiser();
+        } else {
+            quantiser = Quantiser.forError(BoundingBox.of(mesh), maxError);
+        }
+        EdgeTable edges = new EdgeTable(mesh);
+        if(edges.isNonManifold()) {
+            throw new IllegalArgumentException("Cannot encode a non-manifold mesh!");
+        }
+        
+        BoundingBox bounds = quantiser.getBounds();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(mesh.getVertexCount()).putInt(mesh.getFaceCount()).putInt(mesh.getIndexCount());
+        header.putInt(quantiser.getBits());
+        header.putFloat(bounds.getMinX()).putFloat(bounds.getMinY()).putFloat(bounds.getMinZ());
+        header.putFloat(bounds.getMaxX()).putFloat(bounds.getMaxY()).putFloat(bounds.getMaxZ());
+        out.write(header.array());
+        
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, BUFFER_BYTES);
+            BufferedOutputStream buffered = new BufferedOutputStream(deflated, BUFFER_BYTES);
+            new Encoder(mesh, edges, quantiser, buffered).run();
+            buffered.flush();
+            deflated.finish();
+        } finally {
+            deflater.end();
+        }
+    }
+    
+    /** Decodes a mesh. The compressed data is read in blocks, so bytes after the mesh may also be consumed.
+     * 
+     * @param in InputStream to read from, positioned at the header.
+     * @param allocator MeshAllocator for the decoded mesh.
+     * @return IndexedMesh, decoded mesh.
+     * @throws IOException if the stream cannot be read or is not a valid mesh stream.
+     */
+    public static IndexedMesh decode(InputStream in, MeshAllocator allocator) throws IOException {
+        byte[] bytes = new byte[HEADER_BYTES];
+        for(int read = 0; read < HEADER_BYTES; ) {
+            int count = in.read(bytes, read, HEADER_BYTES - read);
+            if(count < 0) {
+                throw new EOFException("Truncated mesh stream header");
+            }
+            read += count;
+        }
+        ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if(header.getInt() != MAGIC) {
+            throw new IOException("Not a mesh stream");
+        }
+        if(header.getInt() != VERSION) {
+            throw new IOException("Unsupported mesh stream version");
+        }
+        int vertexCount = header.getInt();
+        int faceCount = header.getInt();
+        int indexCount = header.getInt();
+        int bits = header.getInt();
+        if(vertexCount < 0 || faceCount < 0 || indexCount < 0) {
+            throw new IOException("Corrupt mesh stream header");
+        }
+        Quantiser quantiser;
+        try {
+            quantiser = new Quantiser(new BoundingBox(header.getFloat(), header.getFloat(), header.getFloat(), 
+                    header.getFloat(), header.getFloat(), header.getFloat()), bits);
+        } catch(IllegalArgumentException e) {
+            throw new IOException("Unsupported mesh stream quantisation", e);
+        }
+        
+        Inflater inflater = new Inflater();
+        try {
+            InputStream inflated = new BufferedInputStream(new InflaterInputStream(in, inflater, BUFFER_BYTES), 
+                    BUFFER_BYTES);
+            MeshStorage storage = allocator.allocate(vertexCount, faceCount, indexCount);
+            new Decoder(storage, quantiser, inflated).run();
+            if(inflated.read() >= 0 || !inflater.finished()) {
+                throw new IOException("Corrupt mesh stream: data after the mesh");
+            }
+            return new IndexedMesh(storage);
+        } finally {
+            inflater.end();
+        }
+    }
+    
+    /** Writes a variable length unsigned int, 7 bits a byte.
+     * 
+     * @param out OutputStream to write to.
+     * @param value int, value (treated as unsigned).
+     * @throws IOException if the write fails.
+     */
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+    
+    /** Reads a variable length unsigned int.
+     * 
+     * @param in InputStream to read from.
+     * @return int, value.
+     * @throws IOException if the stream ends or the value is malformed.
+     */
+    private static int readVarint(InputStream in) throws IOException {
+        int value = 0;
+        for(int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if(b < 0) {
+                throw new EOFException("Truncated mesh stream");
+            }
+            value |= (b & 0x7F) << shift;
+            if((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt mesh stream: malformed number");
+    }
+    
+    /** State shared by the encoder & decoder, which must evolve identically: the decoded positions (as codes), the 
+     * open edges & the gate stack.
+     */
+    private abstract static class Coder {
+        
+        /** Quantisation of the positions. */
+        final Quantiser quantiser;
+        
+        /** Position codes of each decoded vertex. */
+        final int[] codeX, codeY, codeZ;
+        
+        /** Number of decoded vertices. */
+        int vertices;
+        
+        /** Number of decoded faces. */
+        int faces;
+        
+        /** Open edges of the decoded region. */
+        final OpenEdges open;
+        
+        /** Gates, six ints each: u, v (the open edge, running u -> v in the face it came from), the corners before u 
+         * & after v in that face, & (for the encoder) the source corner offset of u & the source face. */
+        int[] gates = new int[96];
+        
+        /** Number of gates on the stack. */
+        int gateCount;
+        
+        /** Corners of the face being coded, as decoded vertex ids. */
+        int[] corners = new int[16];
+        
+        /** Prediction scratch. */
+        final int[] predicted = new int[3];
+        
+        Coder(Quantiser quantiser, int vertexCount, int indexCount) {
+            this.quantiser = quantiser;
+            this.codeX = new int[vertexCount];
+            this.codeY = new int[vertexCount];
+            this.codeZ = new int[vertexCount];
+            this.open = new OpenEdges(vertexCount, indexCount);
+        }
+        
+        /** Makes room for a face's corners.
+         * 
+         * @param size int, face size.
+         */
+        void reserve(int size) {
+            if(corners.length < size) {
+                corners = new int[Math.max(size, 2 * corners.length)];
+            }
+        }
+        
+        /** Adds a coded face's edges to the region, pushing a gate for each one left open.
+         * 
+         * @param size int, face size (corners holds it's vertices).
+         * @param offsets int[], source corner offset of each corner (null when decoding).
+         * @param face int, source face (-1 when decoding).
+         * @throws IOException if an edge already has two faces in the region.
+         */
+        void addFace(int size, int[] offsets, int face) throws IOException {
+            for(int k = size - 1; k >= 0; k--) {
+                int u = corners[k];
+                int v = corners[(k + 1) % size];
+                if(open.add(u, v)) {
+                    if(gates.length < 6 * (gateCount + 1)) {
+                        gates = Arrays.copyOf(gates, 2 * gates.length);
+                    }
+                    int g = 6 * gateCount++;
+                    gates[g] = u;
+                    gates[g + 1] = v;
+                    gates[g + 2] = corners[(k + size - 1) % size];
+                    gates[g + 3] = corners[(k + 2) % size];
+                    gates[g + 4] = (offsets == null) ? -1 : offsets[k];
+                    gates[g + 5] = face;
+                }
+            }
+            faces++;
+        }
+        
+        /** Predicts corner i (1 to k) of the k unknown corners of a face entered through a gate, continuing the entry 
+         * face across the gate's second corner (the one the unknown corners follow) along the first half & across it's 
+         * first corner along the second (both for a middle corner).
+         * 
+         * @param gate int, offset of the gate in the gate array.
+         * @param flipped boolean, true if the face runs the same way round the gate as the entry face.
+         * @param i int, corner number.
+         * @param k int, number of unknown corners.
+         */
+        void predict(int gate, boolean flipped, int i, int k) {
+            int u = gates[gate], v = gates[gate + 1], pu = gates[gate + 2], nv = gates[gate + 3];
+            int a = flipped ? u : v, pa = flipped ? pu : nv;
+            int b = flipped ? v : u, pb = flipped ? nv : pu;
+            int[] ax = {codeX[a], codeY[a], codeZ[a]}, bx = {codeX[b], codeY[b], codeZ[b]};
+            int[] pax = {codeX[pa], codeY[pa], codeZ[pa]}, pbx = {codeX[pb], codeY[pb], codeZ[pb]};
+            for(int axis = 0; axis < 3; axis++) {
+                int sideB = 2 * bx[axis] - pbx[axis];
+                int sideA = 2 * ax[axis] - pax[axis];
+                if(2 * i < k + 1) {
+                    predicted[axis] = sideB;
+                } else if(2 * i > k + 1) {
+                    predicted[axis] = sideA;
+                } else {
+                    predicted[axis] = (sideA + sideB) >> 1;
+                }
+            }
+        }
+        
+        /** Predicts a vertex with no entry face from the newest decoded vertex. */
+        void predictFromNewest() {
+            int newest = vertices - 1;
+            predicted[0] = (newest < 0) ? 0 : codeX[newest];
+            predicted[1] = (newest < 0) ? 0 : codeY[newest];
+            predicted[2] = (newest < 0) ? 0 : codeZ[newest];
+        }
+    }
+    
+    /** Writes a mesh's symbols. */
+    private static class Encoder extends Coder {
+        
+        /** Mesh being encoded. */
+        private final IndexedMesh mesh;
+        
+        /** Edges of the mesh. */
+        private final EdgeTable edges;
+        
+        /** Symbol stream. */
+        private final OutputStream out;
+        
+        /** Decoded id of each source vertex (-1 until coded). */
+        private final int[] ids;
+        
+        /** True for coded source faces. */
+        private final boolean[] coded;
+        
+        /** Source corner offset of each corner of the face being coded. */
+        private int[] offsets = new int[16];
+        
+        Encoder(IndexedMesh mesh, EdgeTable edges, Quantiser quantiser, OutputStream out) {
+            super(quantiser, mesh.getVertexCount(), mesh.getIndexCount());
+            this.mesh = mesh;
+            this.edges = edges;
+            this.out = out;
+            this.ids = new int[mesh.getVertexCount()];
+            Arrays.fill(ids, -1);
+            this.coded = new boolean[mesh.getFaceCount()];
+        }
+        
+        /** Encodes the whole mesh: each connected region from a seed face, then any vertices in no face.
+         * 
+         * @throws IOException if the stream cannot be written.
+         */
+        void run() throws IOException {
+            int seed = 0;
+            while(true) {
+                while(gateCount > 0) {
+                    int gate = 6 * --gateCount;
+                    if(!open.isOpen(gates[gate], gates[gate + 1])) {
+                        continue;
+                    }
+                    int edge = edges.getCornerEdge(gates[gate + 4]);
+                    if(edges.isBoundary(edge)) {
+                        writeVarint(out, 0);
+                        continue;
+                    }
+                    int face = (edges.getFace0(edge) == gates[gate + 5]) ? edges.getFace1(edge) : edges.getFace0(edge);
+                    codeEntered(gate, face);
+                }
+                while(seed < coded.length && coded[seed]) {
+                    seed++;
+                }
+                if(seed == coded.length) {
+                    writeVarint(out, 0);
+                    break;
+                }
+                codeSeed(seed);
+            }
+            for(int v = 0; v < ids.length; v++) {
+                if(ids[v] < 0) {
+                    predictFromNewest();
+                    codeNew(v);
+                }
+            }
+        }
+        
+        /** Codes a face entered through a gate.
+         * 
+         * @param gate int, offset of the gate in the gate array.
+         * @param face int, source face across the gate.
+         * @throws IOException if the stream cannot be written.
+         */
+        private void codeEntered(int gate, int face) throws IOException {
+            int offset = mesh.getFaceOffset(face);
+            int size = mesh.getFaceSize(face);
+            int u = gates[gate], v = gates[gate + 1];
+            int start = -1;
+            boolean flipped = false;
+            for(int k = 0; k < size && start < 0; k++) {
+                int first = ids[mesh.getIndex(offset + k)];
+                int second = ids[mesh.getIndex(offset + (k + 1) % size)];
+                if(first == v && second == u) {
+                    start = k;
+                } else if(first == u && second == v) {
+                    start = k;
+                    flipped = true;
+                }
+            }
+            writeVarint(out, 2 * size + (flipped ? 1 : 0));
+            reserve(size);
+            offsets = (offsets.length < size) ? new int[corners.length] : offsets;
+            for(int k = 0; k < size; k++) {
+                offsets[k] = offset + (start + k) % size;
+            }
+            corners[0] = flipped ? u : v;
+            corners[1] = flipped ? v : u;
+            for(int i = 1; i <= size - 2; i++) {
+                int vertex = mesh.getIndex(offsets[i + 1]);
+                if(ids[vertex] < 0) {
+                    predict(gate, flipped, i, size - 2);
+                }
+                corners[i + 1] = codeCorner(vertex, corners[i], (i == size - 2) ? corners[0] : -1);
+            }
+            addFace(size, offsets, face);
+            coded[face] = true;
+        }
+        
+        /** Codes the first face of a connected region.
+         * 
+         * @param face int, source face.
+         * @throws IOException if the stream cannot be written.
+         */
+        private void codeSeed(int face) throws IOException {
+            int offset = mesh.getFaceOffset(face);
+            int size = mesh.getFaceSize(face);
+            writeVarint(out, size);
+            reserve(size);
+            offsets = (offsets.length < size) ? new int[corners.length] : offsets;
+            for(int k = 0; k < size; k++) {
+                offsets[k] = offset + k;
+                int vertex = mesh.getIndex(offset + k);
+                if(ids[vertex] < 0) {
+                    predictFromNewest();
+                }
+                corners[k] = codeCorner(vertex, (k == 0) ? -1 : corners[k - 1], 
+                        (k == size - 1 && k > 0) ? corners[0] : -1);
+            }
+            addFace(size, offsets, face);
+            coded[face] = true;
+        }
+        
+        /** Writes the symbol of a corner.
+         * 
+         * @param vertex int, source vertex at the corner.
+         * @param previous int, decoded vertex at the previous corner (-1 if none).
+         * @param next int, decoded vertex at the next corner if known, i.e. the first corner (-1 if not).
+         * @return int, decoded id of the vertex.
+         * @throws IOException if the stream cannot be written.
+         */
+        private int codeCorner(int vertex, int previous, int next) throws IOException {
+            int id = ids[vertex];
+            if(id < 0) {
+                out.write(NEW);
+                return codeNew(vertex);
+            }
+            int candidate = (previous < 0) ? -1 : open.indexOf(previous, id, CANDIDATES);
+            if(candidate >= 0) {
+                out.write(PREVIOUS + candidate);
+                return id;
+            }
+            candidate = (next < 0) ? -1 : open.indexOf(next, id, CANDIDATES);
+            if(candidate >= 0) {
+                out.write(FIRST + candidate);
+                return id;
+            }
+            out.write(EXPLICIT);
+            writeVarint(out, vertices - 1 - id);
+            return id;
+        }
+        
+        /** Numbers a new vertex & writes it's residual from the current prediction.
+         * 
+         * @param vertex int, source vertex.
+         * @return int, decoded id of the vertex.
+         * @throws IOException if the stream cannot be written.
+         */
+        private int codeNew(int vertex) throws IOException {
+            int id = vertices++;
+            ids[vertex] = id;
+            codeX[id] = quantiser.encode(0, mesh.getX(vertex));
+            codeY[id] = quantiser.encode(1, mesh.getY(vertex));
+            codeZ[id] = quantiser.encode(2, mesh.getZ(vertex));
+            writeResidual(codeX[id] - predicted[0]);
+            writeResidual(codeY[id] - predicted[1]);
+            writeResidual(codeZ[id] - predicted[2]);
+            return id;
+        }
+        
+        /** Writes a signed residual, zigzag coded so small magnitudes take one byte.
+         * 
+         * @param residual int, residual.
+         * @throws IOException if the stream cannot be written.
+         */
+        private void writeResidual(int residual) throws IOException {
+            writeVarint(out, (residual << 1) ^ (residual >> 31));
+        }
+    }
+    
+    /** Reads a mesh's symbols, mirroring the encoder. */
+    private static class Decoder extends Coder {
+        
+        /** Storage to decode into. */
+        private final MeshStorage storage;
+        
+        /** Symbol stream. */
+        private final InputStream in;
+        
+        /** Number of indices written. */
+        private int indices;
+        
+        Decoder(MeshStorage storage, Quantiser quantiser, InputStream in) {
+            super(quantiser, storage.getVertexCount(), storage.getIndexCount());
+            this.storage = storage;
+            this.in = in;
+        }
+        
+        /** Decodes the whole mesh.
+         * 
+         * @throws IOException if the stream cannot be read or does not match the header.
+         */
+        void run() throws IOException {
+            while(true) {
+                while(gateCount > 0) {
+                    int gate = 6 * --gateCount;
+                    if(!open.isOpen(gates[gate], gates[gate + 1])) {
+                        continue;
+                    }
+                    int symbol = readVarint(in);
+                    if(symbol == 0) {
+                        continue;
+                    }
+                    int size = checkSize(symbol >>> 1);
+                    boolean flipped = (symbol & 1) != 0;
+                    reserve(size);
+                    corners[0] = flipped ? gates[gate] : gates[gate + 1];
+                    corners[1] = flipped ? gates[gate + 1] : gates[gate];
+                    for(int i = 1; i <= size - 2; i++) {
+                        corners[i + 1] = decodeCorner(gate, flipped, i, size - 2, corners[i], 
+                                (i == size - 2) ? corners[0] : -1);
+                    }
+                    emitFace(size);
+                }
+                int size = readVarint(in);
+                if(size == 0) {
+                    break;
+                }
+                checkSize(size);
+                reserve(size);
+                for(int k = 0; k < size; k++) {
+                    corners[k] = decodeCorner(-1, false, 0, 0, (k == 0) ? -1 : corners[k - 1], 
+                            (k == size - 1 && k > 0) ? corners[0] : -1);
+                }
+                emitFace(size);
+            }
+            while(vertices < codeX.length) {
+                predictFromNewest();
+                decodeNew();
+            }
+            if(faces != storage.getFaceCount() || indices != storage.getIndexCount()) {
+                throw new IOException("Corrupt mesh stream: " + faces + " faces & " + indices + " indices decoded");
+            }
+        }
+        
+        /** Checks a face size fits the header.
+         * 
+         * @param size int, face size.
+         * @return int, the size.
+         * @throws IOException if the size is invalid.
+         */
+        private int checkSize(int size) throws IOException {
+            if(size < 3 || size > storage.getIndexCount() - indices || faces == storage.getFaceCount()) {
+                throw new IOException("Corrupt mesh stream: face of " + size + " corners");
+            }
+            return size;
+        }
+        
+        /** Reads the symbol of a corner.
+         * 
+         * @param gate int, offset of the entry gate (-1 for a seed face).
+         * @param flipped boolean, true if the face runs the same way round the gate as the entry face.
+         * @param i int, corner number among the unknown corners.
+         * @param k int, number of unknown corners.
+         * @param previous int, vertex at the previous corner (-1 if none).
+         * @param next int, vertex at the next corner if known, i.e. the first corner (-1 if not).
+         * @return int, vertex at the corner.
+         * @throws IOException if the symbol is invalid.
+         */
+        private int decodeCorner(int gate, boolean flipped, int i, int k, int previous, int next) throws IOException {
+            int symbol = in.read();
+            int vertex = -1;
+            if(symbol == NEW) {
+                if(gate < 0) {
+                    predictFromNewest();
+                } else {
+                    predict(gate, flipped, i, k);
+                }
+                return decodeNew();
+            } else if(symbol >= PREVIOUS && symbol < FIRST && previous >= 0) {
+                vertex = open.get(previous, symbol - PREVIOUS);
+            } else if(symbol >= FIRST && symbol < EXPLICIT && next >= 0) {
+                vertex = open.get(next, symbol - FIRST);
+            } else if(symbol == EXPLICIT) {
+                vertex = vertices - 1 - readVarint(in);
+            } else if(symbol < 0) {
+                throw new EOFException("Truncated mesh stream");
+            }
+            if(vertex < 0 || vertex >= vertices) {
+                throw new IOException("Corrupt mesh stream: invalid corner symbol " + symbol);
+            }
+            return vertex;
+        }
+        
+        /** Reads a new vertex's residual & stores it's position.
+         * 
+         * @return int, id of the vertex.
+         * @throws IOException if the stream ends or holds more vertices than the header.
+         */
+        private int decodeNew() throws IOException {
+            if(vertices == codeX.length) {
+                throw new IOException("Corrupt mesh stream: too many vertices");
+            }
+            int id = vertices++;
+            codeX[id] = predicted[0] + readResidual();
+            codeY[id] = predicted[1] + readResidual();
+            codeZ[id] = predicted[2] + readResidual();
+            storage.setPosition(id, quantiser.decode(0, codeX[id]), quantiser.decode(1, codeY[id]), 
+                    quantiser.decode(2, codeZ[id]));
+            return id;
+        }
+        
+        /** Reads a zigzag coded residual.
+         * 
+         * @return int, residual.
+         * @throws IOException if the stream ends.
+         */
+        private int readResidual() throws IOException {
+            int value = readVarint(in);
+            return (value >>> 1) ^ -(value & 1);
+        }
+        
+        /** Writes the decoded face to the storage & adds it to the region.
+         * 
+         * @param size int, face size.
+         * @throws IOException if an edge already has two faces in the region.
+         */
+        private void emitFace(int size) throws IOException {
+            storage.setFaceOffset(faces, indices);
+            for(int k = 0; k < size; k++) {
+                storage.setIndex(indices++, corners[k]);
+            }
+            addFace(size, null, -1);
+        }
+    }
+    
+    /** The open edges of a decoded region: those with one decoded face. Each is listed at both of it's vertices, 
+     * newest first, so the candidates for a corner are found by walking a short list.
+     */
+    private static class OpenEdges {
+        
+        /** Map value of an open edge. */
+        private static final int OPEN = 0;
+        
+        /** Map value of an edge with both faces decoded. */
+        private static final int CLOSED = 1;
+        
+        /** State of each decoded edge. */
+        private final EdgeMap edges;
+        
+        /** First node of each vertex's list of open edges. */
+        private final int[] heads;
+        
+        /** Vertex at the far end of each list node. */
+        private int[] nodeVertex;
+        
+        /** Next node in each list (-1 at the end). */
+        private int[] nodeNext;
+        
+        /** First free node (-1 if none). */
+        private int free = -1;
+        
+        /** Nodes used so far. */
+        private int nodeCount;
+        
+        OpenEdges(int vertexCount, int indexCount) {
+            edges = new EdgeMap(indexCount);
+            heads = new int[vertexCount];
+            Arrays.fill(heads, -1);
+            nodeVertex = new int[64];
+            nodeNext = new int[64];
+        }
+        
+        /** Returns true if the edge between two vertices is open.
+         * 
+         * @param u int, first vertex.
+         * @param v int, second vertex.
+         * @return boolean, true if open.
+         */
+        boolean isOpen(int u, int v) {
+            return edges.get(u, v) == OPEN;
+        }
+        
+        /** Adds an edge of a decoded face, opening it or closing it if already open.
+         * 
+         * @param u int, first vertex.
+         * @param v int, second vertex.
+         * @return boolean, true if the edge is now open.
+         * @throws IOException if the edge already has two decoded faces.
+         */
+        boolean add(int u, int v) throws IOException {
+            long key = EdgeMap.key(u, v);
+            int state = edges.get(key);
+            if(state == EdgeMap.MISSING && u != v) {
+                edges.put(key, OPEN);
+                heads[u] = link(heads[u], v);
+                heads[v] = link(heads[v], u);
+                return true;
+            }
+            if(state != OPEN) {
+                throw new IOException("Edge " + u + " - " + v + " decoded more than twice");
+            }
+            edges.put(key, CLOSED);
+            heads[u] = unlink(heads[u], v);
+            heads[v] = unlink(heads[v], u);
+            return false;
+        }
+        
+        /** Returns one of the vertices joined to a vertex by an open edge.
+         * 
+         * @param vertex int, vertex.
+         * @param index int, position in it's list, newest first.
+         * @return int, joined vertex (-1 if the list is shorter).
+         */
+        int get(int vertex, int index) {
+            int node = heads[vertex];
+            for(int i = 0; node >= 0; i++, node = nodeNext[node]) {
+                if(i == index) {
+                    return nodeVertex[node];
+                }
+            }
+            return -1;
+        }
+        
+        /** Finds a vertex near the front of a vertex's list of open edges.
+         * 
+         * @param vertex int, vertex whose list to search.
+         * @param other int, vertex to find.
+         * @param limit int, positions to search.
+         * @return int, position (-1 if not within the limit).
+         */
+        int indexOf(int vertex, int other, int limit) {
+            int node = heads[vertex];
+            for(int i = 0; i < limit && node >= 0; i++, node = nodeNext[node]) {
+                if(nodeVertex[node] == other) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        
+        /** Puts a vertex at the front of a list.
+         * 
+         * @param head int, first node of the list.
+         * @param vertex int, vertex to add.
+         * @return int, new first node.
+         */
+        private int link(int head, int vertex) {
+            int node = free;
+            if(node >= 0) {
+                free = nodeNext[node];
+            } else {
+                if(nodeCount == nodeVertex.length) {
+                    nodeVertex = Arrays.copyOf(nodeVertex, 2 * nodeCount);
+                    nodeNext = Arrays.copyOf(nodeNext, 2 * nodeCount);
+                }
+                node = nodeCount++;
+            }
+            nodeVertex[node] = vertex;
+            nodeNext[node] = head;
+            return node;
+        }
+        
+        /** Removes a vertex from a list.
+         * 
+         * @param head int, first node of the list.
+         * @param vertex int, vertex to remove.
+         * @return int, new first node.
+         */
+        private int unlink(int head, int vertex) {
+            int previous = -1;
+            for(int node = head; node >= 0; previous = node, node = nodeNext[node]) {
+                if(nodeVertex[node] == vertex) {
+                    int next = nodeNext[node];
+                    nodeNext[node] = free;
+                    free = node;
+                    if(previous < 0) {
+                        return next;
+                    }
+                    nodeNext[previous] = next;
+                    return head;
+                }
+            }
+            return head;
+        }
+    }
+    
+    /** Encodes an OBJ file to a mesh stream file or decodes one back, printing the size of the result.
+     * 
+     * @param args String[], "encode" input.obj output [max error] or "decode" input output.obj.
+     * @throws Exception if a file cannot be read or written.
+     */
+    public static void main(String[] args) throws Exception {
+        if(args.length < 3 || !(args[0].equals("encode") || args[0].equals("decode"))) {
+            System.err.println("Usage: MeshCodec encode <input.obj> <output> [max error] | decode <input> <output.obj>");
+            System.exit(1);
+        }
+        Path input = Paths.get(args[1]);
+        Path output = Paths.get(args[2]);
+        if(args[0].equals("encode")) {
+            IndexedMesh mesh = ObjFormat.read(input);
+            float maxError = (args.length > 3) ? Float.parseFloat(args[3]) : 1e-4f;
+            try(OutputStream out = Files.newOutputStream(output)) {
+                encode(mesh, maxError, out);
+            }
+            long bytes = Files.size(output);
+            System.out.println(String.format("%d vertices, %d faces -> %d bytes (%.2f bits per vertex)", 
+                    mesh.getVertexCount(), mesh.getFaceCount(), bytes, 8.0 * bytes / Math.max(1, mesh.getVertexCount())));
+        } else {
+            IndexedMesh mesh;
+            try(InputStream in = Files.newInputStream(input)) {
+                mesh = decode(in, MeshAllocator.HEAP);
+            }
+            ObjFormat.write(mesh, output);
+            System.out.println(mesh.getVertexCount() + " vertices, " + mesh.getFaceCount() + " faces decoded");
+        }
+    }
+    
+}
+//End of class.
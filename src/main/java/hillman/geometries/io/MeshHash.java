@@ -0,0 +1,156 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.io;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.Polyhedron;
+
+/** Computes 128 bit content hashes of meshes. <code>hash</code> depends only on a mesh's shape: the faces (as 
+ * oriented loops of vertex positions) & nothing else. Vertex numbering, face order & which corner a face starts at are
+ * all irrelevant, so the same mesh read from different files, or rebuilt from a HashSet backed Polyhedron in another 
+ * JVM, hashes the same.
+ * 
+ * That makes it the wrong key for stored results, as refining the same shape numbered differently gives a result 
+ * numbered differently, summed in a different order. <code>hashExact</code> also depends on the numbering & order, so
+ * meshes with equal exact hashes refine to bit-identical results.
+ * 
+ * Each vertex is hashed from the bits of it's position, each face from it's vertex hashes starting at the least 
+ * rotation, & the face hashes are summed so their order does not matter. Everything is a single linear pass.
+ * 
+ * @author M Hillman
+ * @version 1.0 (03/03/2014)
+ */
+public class MeshHash {
+    
+    /** Seeds of the two 64 bit lanes. */
+    private static final long SEED_A = 0x9E3779B97F4A7C15L, SEED_B = 0xC2B2AE3D27D4EB4FL;
+    
+    /** Hashes a polyhedron.
+     * 
+     * @param polyhedron Polyhedron to hash.
+     * @return String, 32 hex digit content hash.
+     */
+    public static String hash(Polyhedron polyhedron) {
+        return hash(IndexedMesh.fromPolyhedron(polyhedron));
+    }
+    
+    /** Hashes an indexed mesh.
+     * 
+     * @param mesh IndexedMesh to hash.
+     * @return String, 32 hex digit content hash.
+     */
+    public static String hash(IndexedMesh mesh) {
+        long[] vertices = new long[mesh.getVertexCount()];
+        for(int v = 0; v < vertices.length; v++) {
+            long h = mix(SEED_A ^ getBits(mesh.getX(v)));
+            h = mix(h ^ getBits(mesh.getY(v)));
+            vertices[v] = mix(h ^ getBits(mesh.getZ(v)));
+        }
+        long sumA = 0L, sumB = 0L;
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            int size = mesh.getFaceSize(f);
+            int start = getLeastRotation(mesh, vertices, f);
+            long a = SEED_A + size, b = SEED_B + size;
+            for(int k = 0; k < size; k++) {
+                long h = vertices[mesh.getFaceVertex(f, (start + k) % size)];
+                a = mix(a ^ h);
+                b = mix(b + Long.rotateLeft(h, 29));
+            }
+            sumA += a;
+            sumB += b;
+        }
+        long a = mix(sumA ^ mesh.getFaceCount());
+        long b = mix(sumB ^ ((long) mesh.getIndexCount() << 32));
+        return String.format("%016x%016x", a, b);
+    }
+    
+    /** Hashes an indexed mesh exactly: every position in vertex order, then every face's size & indices in face 
+     * order. Any renumbering, reordering or rotation of a face changes the hash.
+     * 
+     * @param mesh IndexedMesh to hash.
+     * @return String, 32 hex digit exact hash.
+     */
+    public static String hashExact(IndexedMesh mesh) {
+        long a = SEED_A + mesh.getVertexCount(), b = SEED_B + mesh.getFaceCount();
+        for(int v = 0; v < mesh.getVertexCount(); v++) {
+            long h = mix(SEED_A ^ getBits(mesh.getX(v)));
+            h = mix(h ^ getBits(mesh.getY(v)));
+            h = mix(h ^ getBits(mesh.getZ(v)));
+            a = mix(a ^ h);
+            b = mix(b + Long.rotateLeft(h, 29));
+        }
+        for(int f = 0; f < mesh.getFaceCount(); f++) {
+            int size = mesh.getFaceSize(f);
+            a = mix(a ^ size);
+            b = mix(b + Long.rotateLeft(size, 29));
+            for(int k = 0; k < size; k++) {
+                long h = mesh.getFaceVertex(f, k);
+                a = mix(a ^ h);
+                b = mix(b + Long.rotateLeft(h, 29));
+            }
+        }
+        return String.format("%016x%016x", a, b);
+    }
+    
+    /** Returns the corner a face's loop starts at when rotated so it's sequence of vertex hashes is least.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param vertices long[], vertex hashes.
+     * @param f int, face index.
+     * @return int, starting corner.
+     */
+    private static int getLeastRotation(IndexedMesh mesh, long[] vertices, int f) {
+        int size = mesh.getFaceSize(f);
+        int best = 0;
+        for(int start = 1; start < size; start++) {
+            for(int k = 0; k < size; k++) {
+                long candidate = vertices[mesh.getFaceVertex(f, (start + k) % size)];
+                long current = vertices[mesh.getFaceVertex(f, (best + k) % size)];
+                if(candidate != current) {
+                    if(candidate < current) {
+                        best = start;
+                    }
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+    
+    /** Returns the bits of a coordinate, with -0 & 0 (and all NaNs) made equal.
+     * 
+     * @param value float, coordinate.
+     * @return long, canonical bits.
+     */
+    private static long getBits(float value) {
+        return Float.floatToIntBits(value + 0.0f);
+    }
+    
+    /** 64 bit finaliser from MurmurHash3.
+     * 
+     * @param h long, value to mix.
+     * @return long, mixed value.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,134 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.io;
+
+import hillman.geometries.IndexedMesh;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/** Reads & writes IndexedMesh objects in the Wavefront OBJ text format. Only vertex positions (<code>v</code>) and
+ * faces (<code>f</code>) are used; texture coordinates, normals, groups & materials are ignored on read.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/02/2014)
+ */
+public class ObjFormat {
+    
+    /** Reads an OBJ file into an IndexedMesh.
+     * 
+     * @param file Path of the OBJ file.
+     * @return IndexedMesh, the parsed mesh.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    public static IndexedMesh read(Path file) throws IOException {
+        float[] positions = new float[3 * 64];
+        int vertexCount = 0;
+        int[] offsets = new int[65];
+        int faceCount = 0;
+        int[] indices = new int[256];
+        int indexCount = 0;
+        
+        try(BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while((line = reader.readLine()) != null) {
+                lineNumber++;
+                String[] tokens = line.trim().split("\\s+");
+                try {
+                    if(tokens[0].equals("v")) {
+                        if(3 * vertexCount + 3 > positions.length) {
+                            positions = Arrays.copyOf(positions, positions.length * 2);
+                        }
+                        positions[3 * vertexCount] = Float.parseFloat(tokens[1]);
+                        positions[3 * vertexCount + 1] = Float.parseFloat(tokens[2]);
+                        positions[3 * vertexCount + 2] = Float.parseFloat(tokens[3]);
+                        vertexCount++;
+                    } else if(tokens[0].equals("f")) {
+                        if(faceCount + 2 > offsets.length) {
+                            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+                        }
+                        offsets[faceCount++] = indexCount;
+                        for(int i = 1; i < tokens.length; i++) {
+                            if(indexCount == indices.length) {
+                                indices = Arrays.copyOf(indices, indices.length * 2);
+                            }
+                            indices[indexCount++] = parseIndex(tokens[i], vertexCount);
+                        }
+                    }
+                } catch(NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Malformed OBJ at " + file + ":" + lineNumber, e);
+                }
+            }
+        }
+        offsets[faceCount] = indexCount;
+        
+        float[] x = new float[vertexCount];
+        float[] y = new float[vertexCount];
+        float[] z = new float[vertexCount];
+        for(int i = 0; i < vertexCount; i++) {
+            x[i] = positions[3 * i];
+            y[i] = positions[3 * i + 1];
+            z[i] = positions[3 * i + 2];
+        }
+        return new IndexedMesh(x, y, z, Arrays.copyOf(offsets, faceCount + 1), Arrays.copyOf(indices, indexCount));
+    }
+    
+    /** Writes an IndexedMesh to an OBJ file, overwriting any existing file.
+     * 
+     * @param mesh IndexedMesh to write.
+     * @param file Path of the OBJ file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(IndexedMesh mesh, Path file) throws IOException {
+        try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(64);
+            for(int v = 0; v < mesh.getVertexCount(); v++) {
+                line.setLength(0);
+                line.append("v ").append(mesh.getX(v)).append(' ').append(mesh.getY(v)).append(' ').append(mesh.getZ(v));
+                writer.write(line.toString());
+                writer.newLine();
+            }
+            for(int f = 0; f < mesh.getFaceCount(); f++) {
+                line.setLength(0);
+                line.append('f');
+                for(int k = 0; k < mesh.getFaceSize(f); k++) {
+                    line.append(' ').append(mesh.getFaceVertex(f, k) + 1);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+    
+    /** Parses a face vertex token (<code>v</code>, <code>v/vt</code>, <code>v//vn</code> or <code>v/vt/vn</code>) into
+     * a zero based vertex index, resolving negative (relative) indices.
+     * 
+     * @param token String, face vertex token.
+     * @param vertexCount int, vertices read so far.
+     * @return int, zero based vertex index.
+     */
+    private static int parseIndex(String token, int vertexCount) {
+        int slash = token.indexOf('/');
+        int index = Integer.parseInt(slash < 0 ? token : token.substring(0, slash));
+        return (index < 0) ? vertexCount + index : index - 1;
+    }
+    
+}
+//End of class.
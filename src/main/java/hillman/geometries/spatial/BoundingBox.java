@@ -0,0 +1,164 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.spatial;
+
+import hillman.geometries.IndexedMesh;
+
+/** An axis aligned bounding box. Boxes are immutable; <code>EMPTY</code> contains nothing & is the identity for 
+ * <code>union</code>.
+ * 
+ * @author M Hillman
+ * @version 1.0 (06/03/2014)
+ */
+public class BoundingBox {
+    
+    /** Box containing nothing. */
+    public static final BoundingBox EMPTY = new BoundingBox(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, 
+            Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+    
+    /** Minimum corner. */
+    private final float minX, minY, minZ;
+    
+    /** Maximum corner. */
+    private final float maxX, maxY, maxZ;
+    
+    /** Initialises a box from it's corners.
+     * 
+     * @param minX float, minimum X.
+     * @param minY float, minimum Y.
+     * @param minZ float, minimum Z.
+     * @param maxX float, maximum X.
+     * @param maxY float, maximum Y.
+     * @param maxZ float, maximum Z.
+     */
+    public BoundingBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+    
+    /** Returns the box around every vertex of a mesh.
+     * 
+     * @param mesh IndexedMesh to bound.
+     * @return BoundingBox, bounds of the mesh (EMPTY if it has no vertices).
+     */
+    public static BoundingBox of(IndexedMesh mesh) {
+        if(mesh.getVertexCount() == 0) {
+            return EMPTY;
+        }
+        float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, 
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for(int v = 0; v < mesh.getVertexCount(); v++) {
+            include(box, mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+        }
+        return new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+    }
+    
+    /** Grows a box held as {minX, minY, minZ, maxX, maxY, maxZ} to include a point.
+     * 
+     * @param box float[], box to grow.
+     * @param x float, X coordinate.
+     * @param y float, Y coordinate.
+     * @param z float, Z coordinate.
+     */
+    public static void include(float[] box, float x, float y, float z) {
+        box[0] = Math.min(box[0], x);
+        box[1] = Math.min(box[1], y);
+        box[2] = Math.min(box[2], z);
+        box[3] = Math.max(box[3], x);
+        box[4] = Math.max(box[4], y);
+        box[5] = Math.max(box[5], z);
+    }
+    
+    /** Returns the smallest box containing both this box & the input box.
+     * 
+     * @param other BoundingBox to include.
+     * @return BoundingBox, union of the boxes.
+     */
+    public BoundingBox union(BoundingBox other) {
+        return new BoundingBox(Math.min(minX, other.minX), Math.min(minY, other.minY), Math.min(minZ, other.minZ), 
+                Math.max(maxX, other.maxX), Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+    
+    /** Returns true if the box contains nothing.
+     * 
+     * @return boolean, true if empty.
+     */
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY || minZ > maxZ;
+    }
+    
+    /** Returns the minimum X.
+     * 
+     * @return float, minimum X.
+     */
+    public float getMinX() {
+        return minX;
+    }
+    
+    /** Returns the minimum Y.
+     * 
+     * @return float, minimum Y.
+     */
+    public float getMinY() {
+        return minY;
+    }
+    
+    /** Returns the minimum Z.
+     * 
+     * @return float, minimum Z.
+     */
+    public float getMinZ() {
+        return minZ;
+    }
+    
+    /** Returns the maximum X.
+     * 
+     * @return float, maximum X.
+     */
+    public float getMaxX() {
+        return maxX;
+    }
+    
+    /** Returns the maximum Y.
+     * 
+     * @return float, maximum Y.
+     */
+    public float getMaxY() {
+        return maxY;
+    }
+    
+    /** Returns the maximum Z.
+     * 
+     * @return float, maximum Z.
+     */
+    public float getMaxZ() {
+        return maxZ;
+    }
+    
+    /** Returns a textual representation of this box.
+     * 
+     * @return String, "[min, max]".
+     */
+    @Override
+    public String toString() {
+        return "[(" + minX + ", " + minY + ", " + minZ + "), (" + maxX + ", " + maxY + ", " + maxZ + ")]";
+    }
+    
+}
+//End of class.
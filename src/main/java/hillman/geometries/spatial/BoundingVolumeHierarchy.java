@@ -0,0 +1,805 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.spatial;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.VertexAdjacency;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** A bounding volume hierarchy over the faces of an IndexedMesh, for ray casts (picking), box queries (region 
+ * selection) & nearest surface point queries in logarithmic rather than linear time.
+ * 
+ * The tree is built top down with the surface area heuristic, evaluated over 16 centroid bins per axis, & large 
+ * subtrees are built in parallel on a ForkJoinPool. Nodes live in flat arrays (six floats of bounds each, plus first
+ * child / first face, face count & parent) & a child always has a higher index than it's parent, so the whole tree can
+ * be refit after vertices move with one backwards pass, or just the paths above the moved faces with 
+ * <code>refit(int[])</code>. Refitting keeps queries correct but not optimal; rebuild after large deformations.
+ * 
+ * Polygons are treated as triangle fans around their first vertex.
+ * 
+ * @author M Hillman
+ * @version 1.0 (28/02/2014)
+ */
+public class BoundingVolumeHierarchy {
+    
+    /** Number of centroid bins per axis when evaluating splits. */
+    private static final int BINS = 16;
+    
+    /** Largest leaf the SAH is allowed to choose; bigger nodes are always split. */
+    private static final int MAX_LEAF_SIZE = 8;
+    
+    /** Cost of visiting a node, relative to testing one face. */
+    private static final float TRAVERSAL_COST = 1.0f;
+    
+    /** Number of faces below which a subtree is built on the current thread. */
+    private static final int PARALLEL_THRESHOLD = 4096;
+    
+    /** Pool used when none is supplied. */
+    private static final ForkJoinPool POOL = new ForkJoinPool();
+    
+    /** Mesh the hierarchy is built over. */
+    private final IndexedMesh mesh;
+    
+    /** Faces in leaf order; each leaf owns a contiguous range. */
+    private final int[] faces;
+    
+    /** Node bounds: minX, minY, minZ, maxX, maxY, maxZ per node. */
+    private final float[] bounds;
+    
+    /** First child (internal nodes, the second child follows it) or first face in <code>faces</code> (leaves). */
+    private final int[] first;
+    
+    /** Number of faces in a leaf, 0 for internal nodes. */
+    private final int[] count;
+    
+    /** Parent of each node, -1 for the root. */
+    private final int[] parent;
+    
+    /** Leaf holding each face. */
+    private final int[] leafOf;
+    
+    /** Number of nodes in use. */
+    private final int nodes;
+    
+    /** Builds a hierarchy over every face of a mesh on the shared pool.
+     * 
+     * @param mesh IndexedMesh to index.
+     */
+    public BoundingVolumeHierarchy(IndexedMesh mesh) {
+        this(mesh, POOL);
+    }
+    
+    /** Builds a hierarchy over every face of a mesh, building large subtrees in parallel on the input pool.
+     * 
+     * @param mesh IndexedMesh to index.
+     * @param pool ForkJoinPool to build on.
+     */
+    public BoundingVolumeHierarchy(IndexedMesh mesh, ForkJoinPool pool) {
+        this.mesh = mesh;
+        int faceCount = mesh.getFaceCount();
+        int capacity = Math.max(1, 2 * faceCount - 1);
+        faces = new int[faceCount];
+        bounds = new float[6 * capacity];
+        first = new int[capacity];
+        count = new int[capacity];
+        parent = new int[capacity];
+        leafOf = new int[faceCount];
+        
+        float[] faceBounds = new float[6 * faceCount];
+        float[] centroids = new float[3 * faceCount];
+        for(int f = 0; f < faceCount; f++) {
+            faces[f] = f;
+            getFaceBounds(f, faceBounds, 6 * f);
+            for(int axis = 0; axis < 3; axis++) {
+                centroids[3 * f + axis] = (faceBounds[6 * f + axis] + faceBounds[6 * f + 3 + axis]) / 2.0f;
+            }
+        }
+        parent[0] = -1;
+        if(faceCount == 0) {
+            setEmpty(bounds, 0);
+            nodes = 1;
+        } else {
+            AtomicInteger allocated = new AtomicInteger(1);
+            pool.invoke(new BuildTask(0, 0, faceCount, faceBounds, centroids, allocated));
+            nodes = allocated.get();
+        }
+    }
+    
+    /** Returns the mesh the hierarchy indexes.
+     * 
+     * @return IndexedMesh, indexed mesh.
+     */
+    public IndexedMesh getMesh() {
+        return mesh;
+    }
+    
+    /** Returns the number of nodes in the tree.
+     * 
+     * @return int, node count.
+     */
+    public int getNodeCount() {
+        return nodes;
+    }
+    
+    /** Casts a ray & returns the closest face it hits in front of the origin.
+     * 
+     * @param ox float, origin X.
+     * @param oy float, origin Y.
+     * @param oz float, origin Z.
+     * @param dx float, direction X.
+     * @param dy float, direction Y.
+     * @param dz float, direction Z.
+     * @return SurfaceHit, the closest hit (distance in units of the direction's length), or null if none.
+     */
+    public SurfaceHit intersect(float ox, float oy, float oz, float dx, float dy, float dz) {
+        if(faces.length == 0) {
+            return null;
+        }
+        float[] origin = {ox, oy, oz};
+        float[] inverse = {1.0f / dx, 1.0f / dy, 1.0f / dz};
+        float[] direction = {dx, dy, dz};
+        float best = Float.POSITIVE_INFINITY;
+        int bestFace = -1;
+        
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            if(getEntry(node, origin, inverse, best) == Float.POSITIVE_INFINITY) {
+                continue;
+            }
+            if(count[node] > 0) {
+                for(int i = first[node]; i < first[node] + count[node]; i++) {
+                    float t = intersectFace(faces[i], origin, direction, best);
+                    if(t < best) {
+                        best = t;
+                        bestFace = faces[i];
+                    }
+                }
+            } else {
+                int left = first[node];
+                float leftEntry = getEntry(left, origin, inverse, best);
+                float rightEntry = getEntry(left + 1, origin, inverse, best);
+                if(top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                if(leftEntry <= rightEntry) {
+                    stack[top++] = left + 1;
+                    stack[top++] = left;
+                } else {
+                    stack[top++] = left;
+                    stack[top++] = left + 1;
+                }
+            }
+        }
+        if(bestFace < 0) {
+            return null;
+        }
+        return new SurfaceHit(bestFace, best, ox + best * dx, oy + best * dy, oz + best * dz);
+    }
+    
+    /** Returns every face whose bounding box overlaps the query box.
+     * 
+     * @param minX float, box minimum X.
+     * @param minY float, box minimum Y.
+     * @param minZ float, box minimum Z.
+     * @param maxX float, box maximum X.
+     * @param maxY float, box maximum Y.
+     * @param maxZ float, box maximum Z.
+     * @return int[], overlapping faces.
+     */
+    public int[] query(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        if(faces.length == 0) {
+            return new int[0];
+        }
+        float[] box = {minX, minY, minZ, maxX, maxY, maxZ};
+        float[] faceBox = new float[6];
+        int[] found = new int[16];
+        int size = 0;
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            if(!overlaps(bounds, 6 * node, box, 0)) {
+                continue;
+            }
+            if(count[node] > 0) {
+                for(int i = first[node]; i < first[node] + count[node]; i++) {
+                    getFaceBounds(faces[i], faceBox, 0);
+                    if(overlaps(faceBox, 0, box, 0)) {
+                        if(size == found.length) {
+                            found = Arrays.copyOf(found, 2 * size);
+                        }
+                        found[size++] = faces[i];
+                    }
+                }
+            } else {
+                if(top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                stack[top++] = first[node];
+                stack[top++] = first[node] + 1;
+            }
+        }
+        return Arrays.copyOf(found, size);
+    }
+    
+    /** Returns the closest point of the surface to a query point.
+     * 
+     * @param px float, query X.
+     * @param py float, query Y.
+     * @param pz float, query Z.
+     * @return SurfaceHit, the closest point & it's face, or null if the mesh has no faces.
+     */
+    public SurfaceHit nearest(float px, float py, float pz) {
+        if(faces.length == 0) {
+            return null;
+        }
+        float[] point = {px, py, pz};
+        float[] closest = new float[3];
+        float[] candidate = new float[3];
+        float best = Float.POSITIVE_INFINITY;
+        int bestFace = -1;
+        
+        int[] stack = new int[64];
+        int top = 0;
+        stack[top++] = 0;
+        while(top > 0) {
+            int node = stack[--top];
+            if(getDistanceSquared(node, point) >= best) {
+                continue;
+            }
+            if(count[node] > 0) {
+                for(int i = first[node]; i < first[node] + count[node]; i++) {
+                    float d = getClosestOnFace(faces[i], point, candidate);
+                    if(d < best) {
+                        best = d;
+                        bestFace = faces[i];
+                        System.arraycopy(candidate, 0, closest, 0, 3);
+                    }
+                }
+            } else {
+                int left = first[node];
+                if(top + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stack.length);
+                }
+                if(getDistanceSquared(left, point) <= getDistanceSquared(left + 1, point)) {
+                    stack[top++] = left + 1;
+                    stack[top++] = left;
+                } else {
+                    stack[top++] = left;
+                    stack[top++] = left + 1;
+                }
+            }
+        }
+        if(bestFace < 0) {
+            return null;
+        }
+        return new SurfaceHit(bestFace, (float) Math.sqrt(best), closest[0], closest[1], closest[2]);
+    }
+    
+    /** Refits every node to the mesh's current vertex positions, keeping the tree's structure. */
+    public void refit() {
+        if(faces.length == 0) {
+            return;
+        }
+        for(int node = nodes - 1; node >= 0; node--) {
+            refitNode(node);
+        }
+    }
+    
+    /** Refits the leaves holding the input faces & their ancestors, stopping each upward walk where a node's bounds 
+     * no longer change.
+     * 
+     * @param movedFaces int[], faces with moved vertices.
+     */
+    public void refit(int[] movedFaces) {
+        for(int f : movedFaces) {
+            int node = leafOf[f];
+            while(node >= 0 && refitNode(node)) {
+                node = parent[node];
+            }
+        }
+    }
+    
+    /** Refits the faces around the input vertices (see <code>refit(int[])</code>).
+     * 
+     * @param movedVertices int[], vertices that have moved.
+     * @param adjacency VertexAdjacency of the mesh.
+     */
+    public void refitVertices(int[] movedVertices, VertexAdjacency adjacency) {
+        for(int v : movedVertices) {
+            int[] around = new int[adjacency.getFaceCount(v)];
+            for(int i = 0; i < around.length; i++) {
+                around[i] = adjacency.getFace(v, i);
+            }
+            refit(around);
+        }
+    }
+    
+    /** Recomputes one node's bounds from it's faces (leaf) or children (internal node).
+     * 
+     * @param node int, node index.
+     * @return boolean, true if the bounds changed.
+     */
+    private boolean refitNode(int node) {
+        float[] updated = new float[6];
+        setEmpty(updated, 0);
+        if(count[node] > 0) {
+            float[] faceBox = new float[6];
+            for(int i = first[node]; i < first[node] + count[node]; i++) {
+                getFaceBounds(faces[i], faceBox, 0);
+                include(updated, 0, faceBox, 0);
+            }
+        } else {
+            include(updated, 0, bounds, 6 * first[node]);
+            include(updated, 0, bounds, 6 * (first[node] + 1));
+        }
+        boolean changed = false;
+        for(int i = 0; i < 6; i++) {
+            if(bounds[6 * node + i] != updated[i]) {
+                bounds[6 * node + i] = updated[i];
+                changed = true;
+            }
+        }
+        return changed;
+    }
+    
+    /** Returns the ray parameter at which a ray enters a node's box (slab test), or positive infinity if it misses 
+     * the box or only reaches it beyond <code>limit</code>.
+     * 
+     * @param node int, node index.
+     * @param origin float[], ray origin.
+     * @param inverse float[], reciprocal of the ray direction.
+     * @param limit float, furthest parameter of interest.
+     * @return float, entry parameter.
+     */
+    private float getEntry(int node, float[] origin, float[] inverse, float limit) {
+        float near = 0.0f;
+        float far = limit;
+        for(int axis = 0; axis < 3; axis++) {
+            float t1 = (bounds[6 * node + axis] - origin[axis]) * inverse[axis];
+            float t2 = (bounds[6 * node + 3 + axis] - origin[axis]) * inverse[axis];
+            if(t1 > t2) {
+                float swap = t1;
+                t1 = t2;
+                t2 = swap;
+            }
+            //NaN (a zero direction on the slab's plane) fails both tests & leaves the interval unchanged.
+            if(t1 > near) {
+                near = t1;
+            }
+            if(t2 < far) {
+                far = t2;
+            }
+            if(near > far) {
+                return Float.POSITIVE_INFINITY;
+            }
+        }
+        return near;
+    }
+    
+    /** Intersects a ray with a face's fan triangles (Moller-Trumbore).
+     * 
+     * @param f int, face index.
+     * @param origin float[], ray origin.
+     * @param direction float[], ray direction.
+     * @param limit float, furthest parameter of interest.
+     * @return float, closest hit parameter below the limit, or positive infinity.
+     */
+    private float intersectFace(int f, float[] origin, float[] direction, float limit) {
+        float best = Float.POSITIVE_INFINITY;
+        int a = mesh.getFaceVertex(f, 0);
+        float ax = mesh.getX(a), ay = mesh.getY(a), az = mesh.getZ(a);
+        for(int k = 1; k + 1 < mesh.getFaceSize(f); k++) {
+            int b = mesh.getFaceVertex(f, k);
+            int c = mesh.getFaceVertex(f, k + 1);
+            float e1x = mesh.getX(b) - ax, e1y = mesh.getY(b) - ay, e1z = mesh.getZ(b) - az;
+            float e2x = mesh.getX(c) - ax, e2y = mesh.getY(c) - ay, e2z = mesh.getZ(c) - az;
+            float px = direction[1] * e2z - direction[2] * e2y;
+            float py = direction[2] * e2x - direction[0] * e2z;
+            float pz = direction[0] * e2y - direction[1] * e2x;
+            float det = e1x * px + e1y * py + e1z * pz;
+            if(det == 0.0f) {
+                continue;
+            }
+            float inv = 1.0f / det;
+            float tx = origin[0] - ax, ty = origin[1] - ay, tz = origin[2] - az;
+            float u = (tx * px + ty * py + tz * pz) * inv;
+            if(u < 0.0f || u > 1.0f) {
+                continue;
+            }
+            float qx = ty * e1z - tz * e1y;
+            float qy = tz * e1x - tx * e1z;
+            float qz = tx * e1y - ty * e1x;
+            float v = (direction[0] * qx + direction[1] * qy + direction[2] * qz) * inv;
+            if(v < 0.0f || u + v > 1.0f) {
+                continue;
+            }
+            float t = (e2x * qx + e2y * qy + e2z * qz) * inv;
+            if(t >= 0.0f && t < limit && t < best) {
+                best = t;
+            }
+        }
+        return best;
+    }
+    
+    /** Returns the squared distance from a point to a node's box (0 inside).
+     * 
+     * @param node int, node index.
+     * @param point float[], query point.
+     * @return float, squared distance.
+     */
+    private float getDistanceSquared(int node, float[] point) {
+        float distance = 0.0f;
+        for(int axis = 0; axis < 3; axis++) {
+            float min = bounds[6 * node + axis];
+            float max = bounds[6 * node + 3 + axis];
+            float d = (point[axis] < min) ? min - point[axis] : (point[axis] > max) ? point[axis] - max : 0.0f;
+            distance += d * d;
+        }
+        return distance;
+    }
+    
+    /** Finds the closest point of a face's fan triangles to a query point.
+     * 
+     * @param f int, face index.
+     * @param point float[], query point.
+     * @param out float[], receives the closest point.
+     * @return float, squared distance to the closest point.
+     */
+    private float getClosestOnFace(int f, float[] point, float[] out) {
+        float best = Float.POSITIVE_INFINITY;
+        float[] candidate = new float[3];
+        int a = mesh.getFaceVertex(f, 0);
+        for(int k = 1; k + 1 < mesh.getFaceSize(f); k++) {
+            getClosestOnTriangle(point, a, mesh.getFaceVertex(f, k), mesh.getFaceVertex(f, k + 1), candidate);
+            float dx = candidate[0] - point[0], dy = candidate[1] - point[1], dz = candidate[2] - point[2];
+            float d = dx * dx + dy * dy + dz * dz;
+            if(d < best) {
+                best = d;
+                System.arraycopy(candidate, 0, out, 0, 3);
+            }
+        }
+        return best;
+    }
+    
+    /** Finds the closest point of a triangle to a query point, by the Voronoi region of the triangle's vertices, 
+     * edges & face that the point falls in.
+     * 
+     * @param p float[], query point.
+     * @param a int, first vertex.
+     * @param b int, second vertex.
+     * @param c int, third vertex.
+     * @param out float[], receives the closest point.
+     */
+    private void getClosestOnTriangle(float[] p, int a, int b, int c, float[] out) {
+        float ax = mesh.getX(a), ay = mesh.getY(a), az = mesh.getZ(a);
+        float abx = mesh.getX(b) - ax, aby = mesh.getY(b) - ay, abz = mesh.getZ(b) - az;
+        float acx = mesh.getX(c) - ax, acy = mesh.getY(c) - ay, acz = mesh.getZ(c) - az;
+        float apx = p[0] - ax, apy = p[1] - ay, apz = p[2] - az;
+        float d1 = abx * apx + aby * apy + abz * apz;
+        float d2 = acx * apx + acy * apy + acz * apz;
+        if(d1 <= 0.0f && d2 <= 0.0f) {
+            setPoint(out, ax, ay, az, abx, aby, abz, 0.0f, acx, acy, acz, 0.0f);
+            return;
+        }
+        float bpx = p[0] - mesh.getX(b), bpy = p[1] - mesh.getY(b), bpz = p[2] - mesh.getZ(b);
+        float d3 = abx * bpx + aby * bpy + abz * bpz;
+        float d4 = acx * bpx + acy * bpy + acz * bpz;
+        if(d3 >= 0.0f && d4 <= d3) {
+            setPoint(out, ax, ay, az, abx, aby, abz, 1.0f, acx, acy, acz, 0.0f);
+            return;
+        }
+        float vc = d1 * d4 - d3 * d2;
+        if(vc <= 0.0f && d1 >= 0.0f && d3 <= 0.0f) {
+            setPoint(out, ax, ay, az, abx, aby, abz, d1 / (d1 - d3), acx, acy, acz, 0.0f);
+            return;
+        }
+        float cpx = p[0] - mesh.getX(c), cpy = p[1] - mesh.getY(c), cpz = p[2] - mesh.getZ(c);
+        float d5 = abx * cpx + aby * cpy + abz * cpz;
+        float d6 = acx * cpx + acy * cpy + acz * cpz;
+        if(d6 >= 0.0f && d5 <= d6) {
+            setPoint(out, ax, ay, az, abx, aby, abz, 0.0f, acx, acy, acz, 1.0f);
+            return;
+        }
+        float vb = d5 * d2 - d1 * d6;
+        if(vb <= 0.0f && d2 >= 0.0f && d6 <= 0.0f) {
+            setPoint(out, ax, ay, az, abx, aby, abz, 0.0f, acx, acy, acz, d2 / (d2 - d6));
+            return;
+        }
+        float va = d3 * d6 - d5 * d4;
+        if(va <= 0.0f && (d4 - d3) >= 0.0f && (d5 - d6) >= 0.0f) {
+            float w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            setPoint(out, ax, ay, az, abx, aby, abz, 1.0f - w, acx, acy, acz, w);
+            return;
+        }
+        float denominator = 1.0f / (va + vb + vc);
+        setPoint(out, ax, ay, az, abx, aby, abz, vb * denominator, acx, acy, acz, vc * denominator);
+    }
+    
+    /** Writes a + s * ab + t * ac.
+     * 
+     * @param out float[], receives the point.
+     * @param ax float, base point X.
+     * @param ay float, base point Y.
+     * @param az float, base point Z.
+     * @param abx float, first edge X.
+     * @param aby float, first edge Y.
+     * @param abz float, first edge Z.
+     * @param s float, first edge weight.
+     * @param acx float, second edge X.
+     * @param acy float, second edge Y.
+     * @param acz float, second edge Z.
+     * @param t float, second edge weight.
+     */
+    private static void setPoint(float[] out, float ax, float ay, float az, float abx, float aby, float abz, float s, 
+            float acx, float acy, float acz, float t) {
+        out[0] = ax + s * abx + t * acx;
+        out[1] = ay + s * aby + t * acy;
+        out[2] = az + s * abz + t * acz;
+    }
+    
+    /** Computes a face's bounding box from the mesh's current positions.
+     * 
+     * @param f int, face index.
+     * @param out float[], receives minX, minY, minZ, maxX, maxY, maxZ.
+     * @param offset int, position in <code>out</code> to write to.
+     */
+    private void getFaceBounds(int f, float[] out, int offset) {
+        setEmpty(out, offset);
+        for(int k = 0; k < mesh.getFaceSize(f); k++) {
+            int v = mesh.getFaceVertex(f, k);
+            float x = mesh.getX(v), y = mesh.getY(v), z = mesh.getZ(v);
+            out[offset] = Math.min(out[offset], x);
+            out[offset + 1] = Math.min(out[offset + 1], y);
+            out[offset + 2] = Math.min(out[offset + 2], z);
+            out[offset + 3] = Math.max(out[offset + 3], x);
+            out[offset + 4] = Math.max(out[offset + 4], y);
+            out[offset + 5] = Math.max(out[offset + 5], z);
+        }
+    }
+    
+    /** Sets a box to empty (minimums at +infinity, maximums at -infinity).
+     * 
+     * @param box float[], box array.
+     * @param offset int, position of the box.
+     */
+    private static void setEmpty(float[] box, int offset) {
+        Arrays.fill(box, offset, offset + 3, Float.POSITIVE_INFINITY);
+        Arrays.fill(box, offset + 3, offset + 6, Float.NEGATIVE_INFINITY);
+    }
+    
+    /** Grows a box to include another.
+     * 
+     * @param box float[], box to grow.
+     * @param offset int, position of the box to grow.
+     * @param other float[], box to include.
+     * @param otherOffset int, position of the box to include.
+     */
+    private static void include(float[] box, int offset, float[] other, int otherOffset) {
+        for(int axis = 0; axis < 3; axis++) {
+            box[offset + axis] = Math.min(box[offset + axis], other[otherOffset + axis]);
+            box[offset + 3 + axis] = Math.max(box[offset + 3 + axis], other[otherOffset + 3 + axis]);
+        }
+    }
+    
+    /** Returns true if two boxes overlap (touching counts).
+     * 
+     * @param a float[], first box array.
+     * @param offsetA int, position of the first box.
+     * @param b float[], second box array.
+     * @param offsetB int, position of the second box.
+     * @return boolean, true if they overlap.
+     */
+    private static boolean overlaps(float[] a, int offsetA, float[] b, int offsetB) {
+        for(int axis = 0; axis < 3; axis++) {
+            if(a[offsetA + axis] > b[offsetB + 3 + axis] || b[offsetB + axis] > a[offsetA + 3 + axis]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /** Returns the surface area of a box, 0 if it is empty.
+     * 
+     * @param box float[], box array.
+     * @param offset int, position of the box.
+     * @return float, surface area.
+     */
+    private static float getArea(float[] box, int offset) {
+        float dx = box[offset + 3] - box[offset];
+        float dy = box[offset + 4] - box[offset + 1];
+        float dz = box[offset + 5] - box[offset + 2];
+        if(dx < 0.0f || dy < 0.0f || dz < 0.0f) {
+            return 0.0f;
+        }
+        return 2.0f * (dx * dy + dy * dz + dz * dx);
+    }
+    
+    /** Builds the subtree of one node, forking the two halves when both are large. */
+    private class BuildTask extends RecursiveAction {
+        
+        /** Serialisation version, as ForkJoinTask is Serializable. */
+        private static final long serialVersionUID = 1L;
+        
+        /** Node to build. */
+        private final int node;
+        
+        /** Range of <code>faces</code> the node covers (start inclusive, end exclusive). */
+        private final int start, end;
+        
+        /** Bounds of every face. */
+        private final float[] faceBounds;
+        
+        /** Centroid of every face's bounds. */
+        private final float[] centroids;
+        
+        /** Next free node index. */
+        private final AtomicInteger allocated;
+        
+        BuildTask(int node, int start, int end, float[] faceBounds, float[] centroids, AtomicInteger allocated) {
+            this.node = node;
+            this.start = start;
+            this.end = end;
+            this.faceBounds = faceBounds;
+            this.centroids = centroids;
+            this.allocated = allocated;
+        }
+        
+        @Override
+        protected void compute() {
+            int n = end - start;
+            setEmpty(bounds, 6 * node);
+            float[] centroidBounds = new float[6];
+            setEmpty(centroidBounds, 0);
+            for(int i = start; i < end; i++) {
+                include(bounds, 6 * node, faceBounds, 6 * faces[i]);
+                for(int axis = 0; axis < 3; axis++) {
+                    float c = centroids[3 * faces[i] + axis];
+                    centroidBounds[axis] = Math.min(centroidBounds[axis], c);
+                    centroidBounds[3 + axis] = Math.max(centroidBounds[3 + axis], c);
+                }
+            }
+            if(n <= 1) {
+                makeLeaf();
+                return;
+            }
+            
+            //Surface area heuristic over binned centroids: cost = traversal + sum(area(child) * faces(child)) / area.
+            float nodeArea = getArea(bounds, 6 * node);
+            float bestCost = Float.POSITIVE_INFINITY;
+            int bestAxis = -1;
+            int bestSplit = -1;
+            int[] binCount = new int[BINS];
+            float[] binBounds = new float[6 * BINS];
+            float[] sweep = new float[6];
+            float[] leftArea = new float[BINS];
+            int[] leftCount = new int[BINS];
+            for(int axis = 0; axis < 3; axis++) {
+                float min = centroidBounds[axis];
+                float extent = centroidBounds[3 + axis] - min;
+                if(extent <= 0.0f) {
+                    continue;
+                }
+                Arrays.fill(binCount, 0);
+                for(int b = 0; b < BINS; b++) {
+                    setEmpty(binBounds, 6 * b);
+                }
+                for(int i = start; i < end; i++) {
+                    int b = getBin(faces[i], axis, min, extent);
+                    binCount[b]++;
+                    include(binBounds, 6 * b, faceBounds, 6 * faces[i]);
+                }
+                setEmpty(sweep, 0);
+                int running = 0;
+                for(int b = 0; b < BINS - 1; b++) {
+                    include(sweep, 0, binBounds, 6 * b);
+                    running += binCount[b];
+                    leftArea[b] = getArea(sweep, 0);
+                    leftCount[b] = running;
+                }
+                setEmpty(sweep, 0);
+                running = 0;
+                for(int b = BINS - 1; b > 0; b--) {
+                    include(sweep, 0, binBounds, 6 * b);
+                    running += binCount[b];
+                    int split = b - 1;
+                    if(leftCount[split] == 0 || running == 0) {
+                        continue;
+                    }
+                    float cost = TRAVERSAL_COST 
+                            + (leftArea[split] * leftCount[split] + getArea(sweep, 0) * running) / nodeArea;
+                    if(cost < bestCost) {
+                        bestCost = cost;
+                        bestAxis = axis;
+                        bestSplit = split;
+                    }
+                }
+            }
+            
+            int middle;
+            if(bestAxis < 0) {
+                if(n <= MAX_LEAF_SIZE) {
+                    makeLeaf();
+                    return;
+                }
+                middle = start + n / 2;
+            } else {
+                if(bestCost >= n && n <= MAX_LEAF_SIZE) {
+                    makeLeaf();
+                    return;
+                }
+                float min = centroidBounds[bestAxis];
+                float extent = centroidBounds[3 + bestAxis] - min;
+                int i = start;
+                int j = end - 1;
+                while(i <= j) {
+                    if(getBin(faces[i], bestAxis, min, extent) <= bestSplit) {
+                        i++;
+                    } else {
+                        int swap = faces[i];
+                        faces[i] = faces[j];
+                        faces[j--] = swap;
+                    }
+                }
+                middle = i;
+            }
+            
+            int left = allocated.getAndAdd(2);
+            first[node] = left;
+            count[node] = 0;
+            parent[left] = node;
+            parent[left + 1] = node;
+            BuildTask leftTask = new BuildTask(left, start, middle, faceBounds, centroids, allocated);
+            BuildTask rightTask = new BuildTask(left + 1, middle, end, faceBounds, centroids, allocated);
+            if(n > PARALLEL_THRESHOLD) {
+                invokeAll(leftTask, rightTask);
+            } else {
+                leftTask.compute();
+                rightTask.compute();
+            }
+        }
+        
+        /** Returns the bin of a face's centroid along an axis.
+         * 
+         * @param f int, face index.
+         * @param axis int, split axis.
+         * @param min float, lowest centroid along the axis.
+         * @param extent float, centroid extent along the axis.
+         * @return int, bin index.
+         */
+        private int getBin(int f, int axis, float min, float extent) {
+            int b = (int) ((centroids[3 * f + axis] - min) * BINS / extent);
+            return Math.min(BINS - 1, Math.max(0, b));
+        }
+        
+        /** Makes the node a leaf over it's face range. */
+        private void makeLeaf() {
+            first[node] = start;
+            count[node] = end - start;
+            for(int i = start; i < end; i++) {
+                leafOf[faces[i]] = node;
+            }
+        }
+    }
+    
+}
+//End of class.
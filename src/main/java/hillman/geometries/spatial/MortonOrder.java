@@ -0,0 +1,183 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.spatial;
+
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.MeshAllocator;
+import hillman.geometries.MeshStorage;
+import java.util.Arrays;
+
+/** Reorders a mesh's vertices & faces along a Morton (Z-order) space filling curve, so elements that are close in 
+ * space are close in memory. A mesh rebuilt from a Polyhedron comes out in HashSet order, where every neighbourhood 
+ * access of the next subdivision level is a cache miss; after reordering, the vertices of a face & the faces around 
+ * a vertex sit in nearby cache lines, & render buffers built from the faces are spatially coherent.
+ * 
+ * Positions are quantised to 21 bits per axis within the mesh bounds & interleaved into 63 bit codes, which are
+ * sorted with an LSD radix sort, so a reorder is linear in the size of the mesh. Each face keeps it's corner order 
+ * (& so it's orientation); only the numbering changes.
+ * 
+ * @author M Hillman
+ * @version 1.0 (07/03/2014)
+ */
+public class MortonOrder {
+    
+    /** Bits per axis. */
+    public static final int BITS = 21;
+    
+    /** Largest quantised coordinate. */
+    private static final int MAX_CELL = (1 << BITS) - 1;
+    
+    /** Returns a copy of the mesh with vertices & faces in Morton order.
+     * 
+     * @param mesh IndexedMesh to reorder (left untouched).
+     * @param allocator MeshAllocator for the result.
+     * @return IndexedMesh, reordered copy.
+     */
+    public static IndexedMesh reorder(IndexedMesh mesh, MeshAllocator allocator) {
+        int vertexCount = mesh.getVertexCount();
+        int faceCount = mesh.getFaceCount();
+        BoundingBox box = BoundingBox.of(mesh);
+        
+        long[] codes = new long[vertexCount];
+        for(int v = 0; v < vertexCount; v++) {
+            codes[v] = encode(box, mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+        }
+        int[] vertexOrder = sort(codes);
+        int[] rank = new int[vertexCount];
+        for(int i = 0; i < vertexCount; i++) {
+            rank[vertexOrder[i]] = i;
+        }
+        
+        codes = new long[faceCount];
+        for(int f = 0; f < faceCount; f++) {
+            float x = 0.0f, y = 0.0f, z = 0.0f;
+            int size = mesh.getFaceSize(f);
+            for(int k = 0; k < size; k++) {
+                int v = mesh.getFaceVertex(f, k);
+                x += mesh.getX(v);
+                y += mesh.getY(v);
+                z += mesh.getZ(v);
+            }
+            codes[f] = encode(box, x / size, y / size, z / size);
+        }
+        int[] faceOrder = sort(codes);
+        
+        MeshStorage out = allocator.allocate(vertexCount, faceCount, mesh.getIndexCount());
+        for(int i = 0; i < vertexCount; i++) {
+            int v = vertexOrder[i];
+            out.setPosition(i, mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+        }
+        int offset = 0;
+        for(int i = 0; i < faceCount; i++) {
+            int f = faceOrder[i];
+            out.setFaceOffset(i, offset);
+            int from = mesh.getFaceOffset(f);
+            int size = mesh.getFaceSize(f);
+            for(int k = 0; k < size; k++) {
+                out.setIndex(offset++, rank[mesh.getIndex(from + k)]);
+            }
+        }
+        out.setFaceOffset(faceCount, offset);
+        return new IndexedMesh(out);
+    }
+    
+    /** Returns the Morton code of a point within a box.
+     * 
+     * @param box BoundingBox the codes span.
+     * @param x float, X coordinate.
+     * @param y float, Y coordinate.
+     * @param z float, Z coordinate.
+     * @return long, 63 bit Morton code.
+     */
+    public static long encode(BoundingBox box, float x, float y, float z) {
+        return spread(quantise(x, box.getMinX(), box.getMaxX())) 
+                | (spread(quantise(y, box.getMinY(), box.getMaxY())) << 1) 
+                | (spread(quantise(z, box.getMinZ(), box.getMaxZ())) << 2);
+    }
+    
+    /** Returns the indices of the input codes in ascending code order (stable), by an 8 bit LSD radix sort that skips 
+     * bytes every code shares.
+     * 
+     * @param codes long[], non-negative codes.
+     * @return int[], indices in sorted order.
+     */
+    public static int[] sort(long[] codes) {
+        int n = codes.length;
+        int[] order = new int[n];
+        int[] scratch = new int[n];
+        long[] keys = codes.clone();
+        long[] keyScratch = new long[n];
+        for(int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        int[] counts = new int[257];
+        for(int shift = 0; shift < 64; shift += 8) {
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < n; i++) {
+                counts[(int) ((keys[i] >>> shift) & 0xFF) + 1]++;
+            }
+            if(n == 0 || counts[(int) ((keys[0] >>> shift) & 0xFF) + 1] == n) {
+                continue;
+            }
+            for(int b = 0; b < 256; b++) {
+                counts[b + 1] += counts[b];
+            }
+            for(int i = 0; i < n; i++) {
+                int slot = counts[(int) ((keys[i] >>> shift) & 0xFF)]++;
+                keyScratch[slot] = keys[i];
+                scratch[slot] = order[i];
+            }
+            long[] swapKeys = keys;
+            keys = keyScratch;
+            keyScratch = swapKeys;
+            int[] swap = order;
+            order = scratch;
+            scratch = swap;
+        }
+        return order;
+    }
+    
+    /** Quantises a coordinate to <code>BITS</code> bits within a range.
+     * 
+     * @param value float, coordinate.
+     * @param min float, range minimum.
+     * @param max float, range maximum.
+     * @return int, cell in [0, 2^BITS).
+     */
+    private static int quantise(float value, float min, float max) {
+        if(!(max > min)) {
+            return 0;
+        }
+        double cell = (value - min) / (double) (max - min) * MAX_CELL;
+        return (int) Math.max(0.0, Math.min(MAX_CELL, cell));
+    }
+    
+    /** Spreads the low 21 bits of a value so there are two zero bits between each.
+     * 
+     * @param value int, 21 bit value.
+     * @return long, spread bits.
+     */
+    private static long spread(int value) {
+        long x = value & 0x1FFFFFL;
+        x = (x | (x << 32)) & 0x1F00000000FFFFL;
+        x = (x | (x << 16)) & 0x1F0000FF0000FFL;
+        x = (x | (x << 8)) & 0x100F00F00F00F00FL;
+        x = (x | (x << 4)) & 0x10C30C30C30C30C3L;
+        x = (x | (x << 2)) & 0x1249249249249249L;
+        return x;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,96 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.geometries.spatial;
+
+/** The result of a surface query: the face found, the point on it & it's distance from the query (the ray parameter 
+ * for ray casts, the Euclidean distance for nearest point queries).
+ * 
+ * @author M Hillman
+ * @version 1.0 (28/02/2014)
+ */
+public class SurfaceHit {
+    
+    /** Face that was hit. */
+    private final int face;
+    
+    /** Distance from the query. */
+    private final float distance;
+    
+    /** Point on the face. */
+    private final float x, y, z;
+    
+    /** Creates a hit.
+     * 
+     * @param face int, face index.
+     * @param distance float, distance from the query.
+     * @param x float, X coordinate of the point.
+     * @param y float, Y coordinate of the point.
+     * @param z float, Z coordinate of the point.
+     */
+    public SurfaceHit(int face, float distance, float x, float y, float z) {
+        this.face = face;
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+    
+    /** Returns the face that was hit.
+     * 
+     * @return int, face index.
+     */
+    public int getFace() {
+        return face;
+    }
+    
+    /** Returns the distance from the query.
+     * 
+     * @return float, ray parameter or Euclidean distance.
+     */
+    public float getDistance() {
+        return distance;
+    }
+    
+    /** Returns the X coordinate of the point.
+     * 
+     * @return float, X.
+     */
+    public float getX() {
+        return x;
+    }
+    
+    /** Returns the Y coordinate of the point.
+     * 
+     * @return float, Y.
+     */
+    public float getY() {
+        return y;
+    }
+    
+    /** Returns the Z coordinate of the point.
+     * 
+     * @return float, Z.
+     */
+    public float getZ() {
+        return z;
+    }
+    
+    @Override
+    public String toString() {
+        return "Face " + face + " at (" + x + ", " + y + ", " + z + "), distance " + distance;
+    }
+    
+}
+//End of class.
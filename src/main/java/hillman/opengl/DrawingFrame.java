@@ -16,9 +16,10 @@ package hillman.opengl;
 
 import hillman.algorithms.subdivision.SubdivisionHandler;
 import com.jogamp.opengl.util.FPSAnimator;
-import hillman.geometries.Edge3D;
-import hillman.geometries.Face3D;
 import hillman.geometries.Polyhedron;
+import hillman.opengl.scene.Scene;
+import hillman.opengl.scene.SceneInstance;
+import hillman.opengl.scene.SceneMesh;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
@@ -26,6 +27,8 @@ import java.awt.Font;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import javax.media.opengl.GL;
 import javax.media.opengl.GL2;
 import javax.media.opengl.GLAutoDrawable;
@@ -37,7 +40,10 @@ import javax.swing.JLabel;
 
 
 /** Represents an Swing JFrame containing a GLCanvas to visualise OpenGl drawings. Also contains a list of
- * Polyhedron objects to draw to screen.
+ * Polyhedron objects to draw to screen. Each is drawn through a <code>Scene</code> from a chunked 
+ * <code>SceneMesh</code> built once per polyhedron, culled against the view frustum every frame, & can be instanced
+ * at further transforms without copying it's geometry. A subdivision in progress streams it's faces into a mesh of
+ * it's own, which is drawn as it fills in.
  * 
  * @author M Hillman
  * @version 1.0 (25/11/2013)
@@ -47,6 +53,19 @@ public class DrawingFrame extends JFrame implements GLEventListener {
     /** ArrayList to store Polyhedron objects. */
     private ArrayList<Polyhedron> polyhedrons;
     
+    /** Scene holding every drawn instance. */
+    private Scene scene;
+    
+    /** Geometry of each polyhedron, built on first use (or adopted from a finished stream). */
+    private Map<Polyhedron, SceneMesh> meshes;
+    
+    /** Untransformed instance of each on-screen polyhedron, added on first draw. */
+    private Map<Polyhedron, SceneInstance> instances;
+    
+    /** Mesh of the level currently being streamed in & it's instance, null if none. */
+    private SceneMesh stream;
+    private SceneInstance streamInstance;
+    
     /** GLCanvas for drawing OpenGL objects to screen. */
     private GLCanvas canvas;
     
@@ -57,14 +76,19 @@ public class DrawingFrame extends JFrame implements GLEventListener {
     private JLabel messageLabel;
     
     /** Initialises a GLCanvas within a JFrame & adds a WindowListener to halt the program
-     * if the window is closed.
+     * if the window is closed. JOGL's native libraries are loaded here, on first use.
      * 
      * @param title String, desired frame title. 
+     * @throws IllegalStateException if the native libraries cannot be loaded.
      */
     public DrawingFrame(String title) {
         super(title);
+        LibrarySetup.initialise();
         
         polyhedrons = new ArrayList<>();
+        scene = new Scene();
+        meshes = new IdentityHashMap<>();
+        instances = new IdentityHashMap<>();
         canvas = new GLCanvas();
         
         messageLabel = new JLabel();
@@ -111,18 +135,85 @@ public class DrawingFrame extends JFrame implements GLEventListener {
         return polyhedrons.get(polyhedrons.size() - 1);
     }
     
-    /** Clears all currently drawn polyhedrons. */
-    public void clearPolyhedrons() {
+    /** Clears all currently drawn polyhedrons & instances. */
+    public synchronized void clearPolyhedrons() {
         polyhedrons.clear();
+        meshes.clear();
+        instances.clear();
+        scene.clear();
+        stream = null;
+        streamInstance = null;
     }
     /** Adds the input Polyhedron to the ArrayList of currently drawn polyhedrons.
      * 
      * @param poly Polyhedron to append to ArrayList.
      */
-    public void addPolyhedron(Polyhedron poly) {
+    public synchronized void addPolyhedron(Polyhedron poly) {
         polyhedrons.add(poly);
     }
     
+    /** Draws the input Polyhedron again at a further transform, sharing it's geometry with every other instance of 
+     * it. The polyhedron itself need not be on screen.
+     * 
+     * @param poly Polyhedron to instance.
+     * @param transform float[16], column major model transform.
+     * @return SceneInstance, the new instance (move it with <code>setTransform</code>).
+     */
+    public synchronized SceneInstance addInstance(Polyhedron poly, float[] transform) {
+        return scene.add(getMesh(poly), transform);
+    }
+    
+    /** Returns the scene drawn by this frame.
+     * 
+     * @return Scene, the drawn instances.
+     */
+    public Scene getScene() {
+        return scene;
+    }
+    
+    /** Clears the screen & starts a new stream mesh, which is drawn as faces are appended to it. Pass the result to
+     * a subdivision as it's <code>FaceBatchListener</code>.
+     * 
+     * @return SceneMesh to stream faces into.
+     */
+    public synchronized SceneMesh beginStream() {
+        clearPolyhedrons();
+        stream = new SceneMesh();
+        streamInstance = scene.add(stream);
+        return stream;
+    }
+    
+    /** Ends the current stream, adding the finished polyhedron & keeping the streamed mesh as it's geometry so 
+     * nothing is rebuilt. If nothing was streamed (e.g. the level came from a cache) the mesh is built on first draw.
+     * 
+     * @param poly Polyhedron the stream produced.
+     */
+    public synchronized void endStream(Polyhedron poly) {
+        if(stream != null && !stream.isEmpty()) {
+            meshes.put(poly, stream);
+            instances.put(poly, streamInstance);
+        } else if(streamInstance != null) {
+            scene.remove(streamInstance);
+        }
+        stream = null;
+        streamInstance = null;
+        polyhedrons.add(poly);
+    }
+    
+    /** Returns the geometry of a polyhedron, building it on first use.
+     * 
+     * @param poly Polyhedron to look up.
+     * @return SceneMesh, the polyhedron's geometry.
+     */
+    private SceneMesh getMesh(Polyhedron poly) {
+        SceneMesh mesh = meshes.get(poly);
+        if(mesh == null) {
+            mesh = SceneMesh.fromPolyhedron(poly);
+            meshes.put(poly, mesh);
+        }
+        return mesh;
+    }
+    
     /** Displays message in the GLCanvas (with some crude left-side padding).
      * 
      * @param message message to display.
@@ -138,13 +229,13 @@ public class DrawingFrame extends JFrame implements GLEventListener {
             builder.append("");
         } else {
             builder.append("Vertices: ");
-            builder.append(getLastPolyhedron().getVertexList().size());
+            builder.append(getLastPolyhedron().getNumberOfVertices());
             builder.append(", ");
             builder.append("Edges: ");
-            builder.append(getLastPolyhedron().getEdgeList().size());
+            builder.append(getLastPolyhedron().getNumberOfEdges());
             builder.append(", ");
             builder.append("Faces: ");
-            builder.append(getLastPolyhedron().getFaceList().size());
+            builder.append(getLastPolyhedron().getNumberOfFaces());
         }
         drawString(builder.toString());
     }
@@ -169,9 +260,10 @@ public class DrawingFrame extends JFrame implements GLEventListener {
         animator.start();
     }
 
-    /** Main OpenGl drawing method. Clears the Color & Depth buffers before continuing to draw each Polyhedron based on
-     * it's comprising Face3D, Edge3D and Vertex3D objects. Flushes OpenGl work to the GPU after all polyhedrons have
-     * been drawn.
+    /** Main OpenGl drawing method. Clears the Color & Depth buffers before continuing to draw the scene: each 
+     * Polyhedron from it's chunked mesh (built the first time it is drawn), any further instances & any level still 
+     * streaming in, skipping whatever lies outside the view. Flushes OpenGl work to the GPU after everything has been
+     * drawn.
      * 
      * @param drawable the GLDrawable object.
      */
@@ -179,25 +271,26 @@ public class DrawingFrame extends JFrame implements GLEventListener {
     public void display(GLAutoDrawable drawable) {
         GL gl = drawable.getGL();
         GL2 gl2 = gl.getGL2();
+        FrameEvent event = new FrameEvent();
+        event.begin();
         gl.glClear(GL.GL_COLOR_BUFFER_BIT | GL.GL_DEPTH_BUFFER_BIT);
         
         gl2.glRotatef(1.0f, 0.0f, 1.0f, 0.0f); 
         gl.glLineWidth(1.0f);
         gl2.glColor3f(0.0f, 0.0f, 0.0f);
         
-        for(Polyhedron poly : polyhedrons) {
-            
-            for(Face3D face : poly.getFaceList()) {
-                
-                gl2.glBegin(GL.GL_LINES);
-                for(Edge3D edge : face.getEdgeList()) {
-                    gl2.glVertex3f(edge.getStart().getX(), edge.getStart().getY(), edge.getStart().getZ());
-                    gl2.glVertex3f(edge.getEnd().getX(), edge.getEnd().getY(), edge.getEnd().getZ());
-                } 
-                gl2.glEnd();
+        synchronized(this) {
+            for(Polyhedron poly : polyhedrons) {
+                if(!instances.containsKey(poly)) {
+                    instances.put(poly, scene.add(getMesh(poly)));
+                }
             }
+            scene.draw(gl2, event);
+            //The rotation above is applied to the projection stack, so make it current again for the next frame.
+            gl2.glMatrixMode(GL2.GL_PROJECTION);
         }
         gl.glFlush();
+        event.commit();
     }
 
     /** Called by the drawable during the first repaint after the GlCanvas has been resized. Not used here as resizing
@@ -0,0 +1,89 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl;
+
+import hillman.events.Event;
+
+/** Event recorded for every frame rendered by a DrawingFrame: the instances & chunks drawn & culled, the line 
+ * segments drawn & the time spent issuing them.
+ * 
+ * @author M Hillman
+ * @version 1.0 (05/03/2014)
+ */
+public class FrameEvent extends Event {
+    
+    /** Instances drawn & culled. */
+    private int instances, culledInstances;
+    
+    /** Chunks drawn & culled. */
+    private int chunks, culledChunks;
+    
+    /** Line segments drawn. */
+    private long primitives;
+    
+    /** Counts an instance that was at least partly visible. */
+    public void addInstance() {
+        instances++;
+    }
+    
+    /** Counts an instance culled as a whole. */
+    public void addCulledInstance() {
+        culledInstances++;
+    }
+    
+    /** Counts a drawn chunk.
+     * 
+     * @param segments int, line segments in the chunk.
+     */
+    public void addChunk(int segments) {
+        chunks++;
+        primitives += segments;
+    }
+    
+    /** Counts a culled chunk. */
+    public void addCulledChunk() {
+        culledChunks++;
+    }
+    
+    /** Returns the number of line segments drawn.
+     * 
+     * @return long, primitives drawn.
+     */
+    public long getPrimitives() {
+        return primitives;
+    }
+    
+    /** Returns the number of chunks culled within visible instances.
+     * 
+     * @return int, chunks culled.
+     */
+    public int getCulledChunks() {
+        return culledChunks;
+    }
+    
+    @Override
+    protected String getName() {
+        return "RenderFrame";
+    }
+    
+    @Override
+    protected void appendFields(StringBuilder builder) {
+        builder.append("instances=").append(instances).append(" culledInstances=").append(culledInstances);
+        builder.append(" chunks=").append(chunks).append(" culledChunks=").append(culledChunks);
+        builder.append(" primitives=").append(primitives);
+    }
+    
+}
+//End of class.
@@ -14,72 +14,63 @@
 */
 package hillman.opengl;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.lang.reflect.Field;
-import java.util.Arrays;
-import javax.swing.JOptionPane;
+import javax.media.opengl.GLProfile;
 
 /**
- * Detects OS manufacturer & arch to set the library path (primarily for JOGL and GlueGen libraries).
+ * Initialises JOGL & it's native libraries (JOGL & GlueGen) the first time a window needs them, rather than at 
+ * start up, so geometry, subdivision & batch code never touches native code at all.
+ * 
+ * Natives are loaded by JOGL's own loader, which finds them in the natives jars on the class path (as pulled in by
+ * the <code>-main</code> Maven artifacts) or on <code>java.library.path</code>. When neither is present, launch with
+ * <code>-Djava.library.path</code> pointing at the bundled folder given by <code>getBundledPath()</code>.
  * 
  * @author M Hillman
  * @version 1.0 (27/11/2013)
  */
 public class LibrarySetup {
-
-    /** Determines Operating System & hardware architecture to set the Java library path to the appropriate folder.
-     * Primarily used to point towards the correct JOGL & GlueGen native libraries. */
-    public static void setPath() {
-        boolean sixtyFourBitOS = false;
-        boolean sixtyFourBitJVM = false;
-        
-        sixtyFourBitJVM = System.getProperty("os.arch").contains("64");
-        String path = new File("").getAbsolutePath() + "/lib/";
-        
-        if(System.getProperty("os.name").toLowerCase().contains("window")) {
-            path += "windows/";
-            sixtyFourBitOS = (System.getenv("ProgramFiles(x86)") != null);
-        } else {
-            path += "linux/";
-            try {
-                Process proc = Runtime.getRuntime().exec("uname -a");
-                BufferedReader br = new BufferedReader(new InputStreamReader(proc.getInputStream()));
-                String line = "";
-                while((line = br.readLine()) != null) {
-                    if(line.contains("x86_64")) {
-                        sixtyFourBitOS = true;
-                    }
-                }
-                proc.destroy();
-            } catch(IOException e) { }
+    
+    /** True once JOGL has been initialised. */
+    private static boolean initialised;
+    
+    /** Initialises JOGL, loading it's native libraries. Does nothing after the first successful call.
+     * 
+     * @throws IllegalStateException if the native libraries cannot be loaded.
+     */
+    public static synchronized void initialise() {
+        if(initialised) {
+            return;
         }
-        
         try {
-            final Field usrPathsField = ClassLoader.class.getDeclaredField("usr_paths");
-            usrPathsField.setAccessible(true);
-            final String[] paths = (String[])usrPathsField.get(null);
-            final String[] newPaths = Arrays.copyOf(paths, paths.length + 1);
-
-            if(sixtyFourBitOS && sixtyFourBitJVM) {
-                path += "64/";
-                newPaths[newPaths.length - 1] = path;
-                usrPathsField.set(null, newPaths);
-            } else if(!sixtyFourBitOS && !sixtyFourBitJVM) {
-                path += "32/";
-                newPaths[newPaths.length - 1] = path;
-                usrPathsField.set(null, newPaths);
-            } else {
-                JOptionPane.showMessageDialog(null, "Cannot determine OS/Architecture for native libraries. Please contact M Hillman.");
-                System.exit(0);
-            }
-        } catch(NoSuchFieldException | SecurityException | IllegalArgumentException | IllegalAccessException e) {
-            JOptionPane.showMessageDialog(null, "Cannot determine OS/Architecture for native libraries. Please contact M Hillman.");
-            System.exit(0);
+            GLProfile.initSingleton();
+        } catch(RuntimeException | LinkageError e) {
+            throw new IllegalStateException("Cannot load the JOGL native libraries. Add the JOGL natives jars to the "
+                    + "class path or launch with -Djava.library.path=" + getBundledPath(), e);
         }
+        initialised = true;
+    }
+    
+    /** Returns true once JOGL has been initialised.
+     * 
+     * @return boolean, true if the native libraries are loaded.
+     */
+    public static synchronized boolean isInitialised() {
+        return initialised;
+    }
+    
+    /** Returns the folder of bundled native libraries matching this JVM: <code>lib/&lt;os&gt;/&lt;32|64&gt;/</code> 
+     * under the working directory. The JVM's own data model decides the bitness, as a 32 bit JVM can only load 32 
+     * bit libraries whatever the OS.
+     * 
+     * @return String, absolute path of the bundled natives folder.
+     */
+    public static String getBundledPath() {
+        String os = System.getProperty("os.name").toLowerCase().contains("window") ? "windows" : "linux";
+        String model = System.getProperty("sun.arch.data.model");
+        boolean sixtyFourBit = (model != null) ? model.equals("64") : System.getProperty("os.arch").contains("64");
+        return new File("").getAbsolutePath() + File.separator + "lib" + File.separator + os + File.separator 
+                + (sixtyFourBit ? "64" : "32") + File.separator;
     }
     
 }
-//End of class.
\ No newline at end of file
+//End of class.
@@ -0,0 +1,197 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl;
+
+import hillman.algorithms.subdivision.FaceBatchListener;
+import hillman.geometries.Edge3D;
+import hillman.geometries.Face3D;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.Polyhedron;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import javax.media.opengl.GL;
+import javax.media.opengl.GL2;
+
+/** A growable direct buffer of line segment end points (one segment per face edge), drawn with a single vertex array
+ * call instead of walking a Polyhedron's object graph every frame. Faces can be appended in batches from a 
+ * subdivision thread while the buffer is being drawn, which is how a level is shown filling in as it is produced.
+ * 
+ * @author M Hillman
+ * @version 1.0 (22/02/2014)
+ */
+public class LineBuffer implements FaceBatchListener {
+    
+    /** Floats per line segment (two XYZ end points). */
+    private static final int SEGMENT_FLOATS = 6;
+    
+    /** Segment end points, XYZ interleaved. */
+    private FloatBuffer vertices;
+    
+    /** Number of floats written. */
+    private int size;
+    
+    /** Creates an empty line buffer. */
+    public LineBuffer() {
+        vertices = allocate(16 * SEGMENT_FLOATS);
+    }
+    
+    /** Builds a line buffer holding every face edge of a polyhedron.
+     * 
+     * @param polyhedron Polyhedron to convert.
+     * @return LineBuffer, the polyhedron's edges.
+     */
+    public static LineBuffer fromPolyhedron(Polyhedron polyhedron) {
+        LineBuffer buffer = new LineBuffer();
+        int edges = 0;
+        for(Face3D face : polyhedron.getFaceList()) {
+            edges += face.getNumberOfEdges();
+        }
+        buffer.ensureCapacity(edges * SEGMENT_FLOATS);
+        for(Face3D face : polyhedron.getFaceList()) {
+            for(Edge3D edge : face.getEdgeList()) {
+                buffer.put(edge.getStart().getX(), edge.getStart().getY(), edge.getStart().getZ());
+                buffer.put(edge.getEnd().getX(), edge.getEnd().getY(), edge.getEnd().getZ());
+            }
+        }
+        return buffer;
+    }
+    
+    /** Reserves room for a level of roughly the input number of (quad sized) faces.
+     * 
+     * @param faceCount int, number of faces in the level.
+     */
+    @Override
+    public synchronized void levelStarted(int faceCount) {
+        ensureCapacity(size + 4 * faceCount * SEGMENT_FLOATS);
+    }
+    
+    /** Appends the edges of a batch of faces.
+     * 
+     * @param mesh IndexedMesh holding the faces.
+     * @param from int, first face (inclusive).
+     * @param to int, last face (exclusive).
+     */
+    @Override
+    public synchronized void facesProduced(IndexedMesh mesh, int from, int to) {
+        ensureCapacity(size + (mesh.getFaceOffset(to) - mesh.getFaceOffset(from)) * SEGMENT_FLOATS);
+        for(int f = from; f < to; f++) {
+            putFace(mesh, f);
+        }
+    }
+    
+    /** Appends the edges of an arbitrary selection of faces.
+     * 
+     * @param mesh IndexedMesh holding the faces.
+     * @param faces int[], face indices.
+     * @param from int, first entry of <code>faces</code> (inclusive).
+     * @param to int, last entry of <code>faces</code> (exclusive).
+     */
+    public synchronized void addFaces(IndexedMesh mesh, int[] faces, int from, int to) {
+        int corners = 0;
+        for(int i = from; i < to; i++) {
+            corners += mesh.getFaceSize(faces[i]);
+        }
+        ensureCapacity(size + corners * SEGMENT_FLOATS);
+        for(int i = from; i < to; i++) {
+            putFace(mesh, faces[i]);
+        }
+    }
+    
+    /** Writes the edges of one face.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param f int, face index.
+     */
+    private void putFace(IndexedMesh mesh, int f) {
+        int faceSize = mesh.getFaceSize(f);
+        for(int k = 0; k < faceSize; k++) {
+            int a = mesh.getFaceVertex(f, k);
+            int b = mesh.getFaceVertex(f, (k + 1) % faceSize);
+            put(mesh.getX(a), mesh.getY(a), mesh.getZ(a));
+            put(mesh.getX(b), mesh.getY(b), mesh.getZ(b));
+        }
+    }
+    
+    /** Returns true if no segments have been written.
+     * 
+     * @return boolean, true if empty.
+     */
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+    
+    /** Returns the number of line segments held.
+     * 
+     * @return int, segment count.
+     */
+    public synchronized int getSegmentCount() {
+        return size / SEGMENT_FLOATS;
+    }
+    
+    /** Draws every segment written so far as GL_LINES.
+     * 
+     * @param gl2 GL2 context to draw with.
+     */
+    public synchronized void draw(GL2 gl2) {
+        if(size == 0) {
+            return;
+        }
+        gl2.glEnableClientState(GL2.GL_VERTEX_ARRAY);
+        gl2.glVertexPointer(3, GL.GL_FLOAT, 0, vertices);
+        gl2.glDrawArrays(GL.GL_LINES, 0, size / 3);
+        gl2.glDisableClientState(GL2.GL_VERTEX_ARRAY);
+    }
+    
+    /** Writes one XYZ end point.
+     * 
+     * @param x float, X coordinate.
+     * @param y float, Y coordinate.
+     * @param z float, Z coordinate.
+     */
+    private void put(float x, float y, float z) {
+        vertices.put(size, x);
+        vertices.put(size + 1, y);
+        vertices.put(size + 2, z);
+        size += 3;
+    }
+    
+    /** Grows the buffer (at least doubling it) so it can hold the input number of floats.
+     * 
+     * @param floats int, required capacity in floats.
+     */
+    private void ensureCapacity(int floats) {
+        if(floats <= vertices.capacity()) {
+            return;
+        }
+        FloatBuffer grown = allocate(Math.max(floats, 2 * vertices.capacity()));
+        FloatBuffer written = vertices.duplicate();
+        written.limit(size);
+        grown.put(written);
+        grown.rewind();
+        vertices = grown;
+    }
+    
+    /** Allocates a native ordered direct float buffer, as required for OpenGL vertex arrays.
+     * 
+     * @param floats int, capacity in floats.
+     * @return FloatBuffer, the new buffer.
+     */
+    private static FloatBuffer allocate(int floats) {
+        return ByteBuffer.allocateDirect(4 * floats).order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+    
+}
+//End of class.
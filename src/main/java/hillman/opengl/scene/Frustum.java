@@ -0,0 +1,117 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl.scene;
+
+import hillman.geometries.spatial.BoundingBox;
+
+/** The six clipping planes of a view volume, extracted from a combined (projection x modelview x model) matrix so 
+ * boxes can be tested in the model's own space without transforming them. Matrices are 4x4, column major, as OpenGL
+ * stores them.
+ * 
+ * @author M Hillman
+ * @version 1.0 (06/03/2014)
+ */
+public class Frustum {
+    
+    /** Box lies entirely outside the frustum. */
+    public static final int OUTSIDE = 0;
+    
+    /** Box straddles at least one plane. */
+    public static final int INTERSECTS = 1;
+    
+    /** Box lies entirely inside the frustum. */
+    public static final int INSIDE = 2;
+    
+    /** Planes (a, b, c, d), inside where ax + by + cz + d >= 0: left, right, bottom, top, near, far. */
+    private final float[] planes = new float[24];
+    
+    /** Number of usable planes (degenerate planes, e.g. a near plane at 0, are dropped). */
+    private final int planeCount;
+    
+    /** Extracts the planes of a combined matrix.
+     * 
+     * @param matrix float[16], column major clip matrix.
+     */
+    public Frustum(float[] matrix) {
+        int count = 0;
+        for(int i = 0; i < 6; i++) {
+            int row = i / 2;
+            float sign = (i % 2 == 0) ? 1.0f : -1.0f;
+            float a = matrix[3] + sign * matrix[row];
+            float b = matrix[7] + sign * matrix[4 + row];
+            float c = matrix[11] + sign * matrix[8 + row];
+            float d = matrix[15] + sign * matrix[12 + row];
+            float length = (float) Math.sqrt(a * a + b * b + c * c);
+            if(length > 0.0f) {
+                planes[4 * count] = a / length;
+                planes[4 * count + 1] = b / length;
+                planes[4 * count + 2] = c / length;
+                planes[4 * count + 3] = d / length;
+                count++;
+            }
+        }
+        planeCount = count;
+    }
+    
+    /** Classifies a box against the frustum. Conservative: a box near a corner of the frustum may be reported as 
+     * intersecting when it is in fact outside, but never the other way round.
+     * 
+     * @param box BoundingBox to test.
+     * @return int, OUTSIDE, INTERSECTS or INSIDE.
+     */
+    public int classify(BoundingBox box) {
+        if(box.isEmpty()) {
+            return OUTSIDE;
+        }
+        int result = INSIDE;
+        for(int i = 0; i < planeCount; i++) {
+            float a = planes[4 * i], b = planes[4 * i + 1], c = planes[4 * i + 2], d = planes[4 * i + 3];
+            //Corner furthest along the plane normal, then the nearest.
+            float far = a * (a >= 0 ? box.getMaxX() : box.getMinX()) + b * (b >= 0 ? box.getMaxY() : box.getMinY()) 
+                    + c * (c >= 0 ? box.getMaxZ() : box.getMinZ()) + d;
+            if(far < 0.0f) {
+                return OUTSIDE;
+            }
+            float near = a * (a >= 0 ? box.getMinX() : box.getMaxX()) + b * (b >= 0 ? box.getMinY() : box.getMaxY()) 
+                    + c * (c >= 0 ? box.getMinZ() : box.getMaxZ()) + d;
+            if(near < 0.0f) {
+                result = INTERSECTS;
+            }
+        }
+        return result;
+    }
+    
+    /** Multiplies two column major 4x4 matrices.
+     * 
+     * @param a float[16], left matrix.
+     * @param b float[16], right matrix.
+     * @return float[16], a x b.
+     */
+    public static float[] multiply(float[] a, float[] b) {
+        float[] result = new float[16];
+        for(int column = 0; column < 4; column++) {
+            for(int row = 0; row < 4; row++) {
+                float sum = 0.0f;
+                for(int k = 0; k < 4; k++) {
+                    sum += a[4 * k + row] * b[4 * column + k];
+                }
+                result[4 * column + row] = sum;
+            }
+        }
+        return result;
+    }
+    
+}
+//End of class.
@@ -0,0 +1,113 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl.scene;
+
+import hillman.opengl.FrameEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.media.opengl.GL2;
+
+/** The set of mesh instances drawn by a DrawingFrame. Each frame the current projection & modelview matrices are 
+ * read back & every instance is culled against the view frustum on the CPU: instances wholly outside are skipped,
+ * instances wholly inside are drawn in full & the rest are culled chunk by chunk.
+ * 
+ * @author M Hillman
+ * @version 1.0 (06/03/2014)
+ */
+public class Scene {
+    
+    /** Instances, in drawing order. */
+    private final List<SceneInstance> instances = new ArrayList<>();
+    
+    /** Adds an untransformed instance of a mesh.
+     * 
+     * @param mesh SceneMesh to draw.
+     * @return SceneInstance, the new instance.
+     */
+    public synchronized SceneInstance add(SceneMesh mesh) {
+        return add(mesh, SceneInstance.IDENTITY);
+    }
+    
+    /** Adds an instance of a mesh.
+     * 
+     * @param mesh SceneMesh to draw.
+     * @param transform float[16], column major model transform.
+     * @return SceneInstance, the new instance.
+     */
+    public synchronized SceneInstance add(SceneMesh mesh, float[] transform) {
+        SceneInstance instance = new SceneInstance(mesh, transform);
+        instances.add(instance);
+        return instance;
+    }
+    
+    /** Removes an instance.
+     * 
+     * @param instance SceneInstance to remove.
+     * @return boolean, true if it was in the scene.
+     */
+    public synchronized boolean remove(SceneInstance instance) {
+        return instances.remove(instance);
+    }
+    
+    /** Removes every instance. */
+    public synchronized void clear() {
+        instances.clear();
+    }
+    
+    /** Returns a copy of the instances.
+     * 
+     * @return List<SceneInstance>, instances in drawing order.
+     */
+    public synchronized List<SceneInstance> getInstances() {
+        return new ArrayList<>(instances);
+    }
+    
+    /** Draws every visible instance, counting drawn & culled instances & chunks on the frame event. Transforms are
+     * applied on the modelview stack, which is left as the current matrix mode.
+     * 
+     * @param gl2 GL2 context to draw with.
+     * @param event FrameEvent to count on.
+     */
+    public synchronized void draw(GL2 gl2, FrameEvent event) {
+        float[] projection = new float[16];
+        float[] modelview = new float[16];
+        gl2.glGetFloatv(GL2.GL_PROJECTION_MATRIX, projection, 0);
+        gl2.glGetFloatv(GL2.GL_MODELVIEW_MATRIX, modelview, 0);
+        float[] view = Frustum.multiply(projection, modelview);
+        gl2.glMatrixMode(GL2.GL_MODELVIEW);
+        
+        for(SceneInstance instance : instances) {
+            float[] transform = instance.getTransform();
+            boolean identity = instance.isIdentity();
+            Frustum frustum = new Frustum(identity ? view : Frustum.multiply(view, transform));
+            int containment = frustum.classify(instance.getMesh().getBounds());
+            if(containment == Frustum.OUTSIDE) {
+                event.addCulledInstance();
+                continue;
+            }
+            event.addInstance();
+            if(!identity) {
+                gl2.glPushMatrix();
+                gl2.glMultMatrixf(transform, 0);
+            }
+            instance.getMesh().draw(gl2, frustum, containment == Frustum.INSIDE, event);
+            if(!identity) {
+                gl2.glPopMatrix();
+            }
+        }
+    }
+    
+}
+//End of class.
@@ -0,0 +1,101 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl.scene;
+
+import java.util.Arrays;
+
+/** One placement of a SceneMesh in a Scene: the shared geometry plus a model transform (4x4, column major). Any 
+ * number of instances can share a mesh.
+ * 
+ * @author M Hillman
+ * @version 1.0 (06/03/2014)
+ */
+public class SceneInstance {
+    
+    /** The identity transform. */
+    static final float[] IDENTITY = {1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1};
+    
+    /** Shared geometry. */
+    private final SceneMesh mesh;
+    
+    /** Model transform. */
+    private float[] transform;
+    
+    /** True if the transform is the identity, so no matrix needs to be pushed when drawing. */
+    private boolean identity;
+    
+    /** Places a mesh.
+     * 
+     * @param mesh SceneMesh to draw.
+     * @param transform float[16], column major model transform (copied).
+     */
+    SceneInstance(SceneMesh mesh, float[] transform) {
+        this.mesh = mesh;
+        setTransform(transform);
+    }
+    
+    /** Returns the shared geometry.
+     * 
+     * @return SceneMesh, geometry.
+     */
+    public SceneMesh getMesh() {
+        return mesh;
+    }
+    
+    /** Returns a copy of the model transform.
+     * 
+     * @return float[16], column major model transform.
+     */
+    public synchronized float[] getTransform() {
+        return transform.clone();
+    }
+    
+    /** Moves the instance.
+     * 
+     * @param transform float[16], column major model transform (copied).
+     */
+    public synchronized void setTransform(float[] transform) {
+        if(transform.length != 16) {
+            throw new IllegalArgumentException("Transform must be a 4x4 matrix.");
+        }
+        this.transform = transform.clone();
+        this.identity = Arrays.equals(transform, IDENTITY);
+    }
+    
+    /** Returns true if the transform is the identity.
+     * 
+     * @return boolean, true if untransformed.
+     */
+    public synchronized boolean isIdentity() {
+        return identity;
+    }
+    
+    /** Returns a translation matrix, for convenience when placing instances.
+     * 
+     * @param x float, X offset.
+     * @param y float, Y offset.
+     * @param z float, Z offset.
+     * @return float[16], column major translation.
+     */
+    public static float[] translation(float x, float y, float z) {
+        float[] matrix = IDENTITY.clone();
+        matrix[12] = x;
+        matrix[13] = y;
+        matrix[14] = z;
+        return matrix;
+    }
+    
+}
+//End of class.
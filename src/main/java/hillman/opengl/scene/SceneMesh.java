@@ -0,0 +1,229 @@
+/**
+* Algorithms Project - Maven based Java project used to showcase various common algorithm implementations.
+* Copyright 2013 - 2014 (c) Michael Hillman (thisishillman.co.uk)
+* 
+* This file is part of the larger, Algorithms project. The Algorithms project is 
+* free software: you can redistribute it and/or modify it under the terms of the GNU General 
+* Public License as published by the Free Software Foundation, either version 3 of the License, 
+* or (at your option) any later version. This project is distributed in the hope that 
+* it will be useful for educational purposes, but WITHOUT ANY WARRANTY; without even the implied 
+* warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for more details.
+* 
+* You should have received a copy of the GNU General Public License along with the Algorithms project. 
+* If not, see the gnu website.
+*/
+package hillman.opengl.scene;
+
+import hillman.algorithms.subdivision.FaceBatchListener;
+import hillman.geometries.IndexedMesh;
+import hillman.geometries.Polyhedron;
+import hillman.geometries.spatial.BoundingBox;
+import hillman.opengl.FrameEvent;
+import hillman.opengl.LineBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import javax.media.opengl.GL2;
+
+/** Renderable geometry of one mesh, split into chunks of a few thousand faces that each have their own LineBuffer &
+ * bounding box, so the parts of a large mesh outside the view are skipped chunk by chunk. A SceneMesh is shared by
+ * every SceneInstance that draws it, so instancing never duplicates geometry.
+ * 
+ * A complete mesh is chunked by binning faces on a uniform grid over it's bounds. A mesh being streamed in (as the
+ * FaceBatchListener of a subdivision) gets one chunk per batch instead, which is drawn as soon as it arrives.
+ * 
+ * @author M Hillman
+ * @version 1.0 (06/03/2014)
+ */
+public class SceneMesh implements FaceBatchListener {
+    
+    /** Target number of faces per chunk. */
+    public static final int CHUNK_FACES = 4096;
+    
+    /** Chunk line buffers. */
+    private final List<LineBuffer> buffers = new ArrayList<>();
+    
+    /** Chunk bounds, parallel to <code>buffers</code>. */
+    private final List<BoundingBox> boxes = new ArrayList<>();
+    
+    /** Bounds of the whole mesh. */
+    private BoundingBox bounds = BoundingBox.EMPTY;
+    
+    /** Builds the chunked geometry of a polyhedron.
+     * 
+     * @param polyhedron Polyhedron to convert.
+     * @return SceneMesh, the polyhedron's geometry.
+     */
+    public static SceneMesh fromPolyhedron(Polyhedron polyhedron) {
+        return fromMesh(IndexedMesh.fromPolyhedron(polyhedron));
+    }
+    
+    /** Builds the chunked geometry of an indexed mesh, binning faces by centroid on a uniform grid sized to give 
+     * about <code>CHUNK_FACES</code> faces per cell.
+     * 
+     * @param mesh IndexedMesh to convert.
+     * @return SceneMesh, the mesh's geometry.
+     */
+    public static SceneMesh fromMesh(IndexedMesh mesh) {
+        SceneMesh scene = new SceneMesh();
+        int faceCount = mesh.getFaceCount();
+        if(faceCount <= CHUNK_FACES) {
+            scene.facesProduced(mesh, 0, faceCount);
+            return scene;
+        }
+        BoundingBox box = BoundingBox.of(mesh);
+        int resolution = (int) Math.ceil(Math.cbrt((double) faceCount / CHUNK_FACES));
+        float[] min = {box.getMinX(), box.getMinY(), box.getMinZ()};
+        float[] scale = {
+            resolution / Math.max(box.getMaxX() - box.getMinX(), Float.MIN_NORMAL),
+            resolution / Math.max(box.getMaxY() - box.getMinY(), Float.MIN_NORMAL),
+            resolution / Math.max(box.getMaxZ() - box.getMinZ(), Float.MIN_NORMAL)
+        };
+        
+        //Counting sort of faces by cell.
+        int[] cells = new int[faceCount];
+        int[] starts = new int[resolution * resolution * resolution + 1];
+        float[] centroid = new float[3];
+        for(int f = 0; f < faceCount; f++) {
+            getCentroid(mesh, f, centroid);
+            int cell = 0;
+            for(int axis = 0; axis < 3; axis++) {
+                int i = (int) ((centroid[axis] - min[axis]) * scale[axis]);
+                cell = cell * resolution + Math.max(0, Math.min(resolution - 1, i));
+            }
+            cells[f] = cell;
+            starts[cell + 1]++;
+        }
+        for(int c = 0; c < resolution * resolution * resolution; c++) {
+            starts[c + 1] += starts[c];
+        }
+        int[] order = new int[faceCount];
+        int[] next = starts.clone();
+        for(int f = 0; f < faceCount; f++) {
+            order[next[cells[f]]++] = f;
+        }
+        for(int c = 0; c < resolution * resolution * resolution; c++) {
+            if(starts[c] < starts[c + 1]) {
+                scene.addChunk(mesh, order, starts[c], starts[c + 1]);
+            }
+        }
+        return scene;
+    }
+    
+    /** Nothing to prepare; chunks are created per batch.
+     * 
+     * @param faceCount int, number of faces in the level.
+     */
+    @Override
+    public void levelStarted(int faceCount) {
+        //Unused!
+    }
+    
+    /** Adds a batch of faces as new chunks of at most <code>CHUNK_FACES</code> faces each.
+     * 
+     * @param mesh IndexedMesh holding the faces.
+     * @param from int, first face (inclusive).
+     * @param to int, last face (exclusive).
+     */
+    @Override
+    public void facesProduced(IndexedMesh mesh, int from, int to) {
+        for(int start = from; start < to; start += CHUNK_FACES) {
+            int end = Math.min(to, start + CHUNK_FACES);
+            int[] faces = new int[end - start];
+            for(int i = 0; i < faces.length; i++) {
+                faces[i] = start + i;
+            }
+            addChunk(mesh, faces, 0, faces.length);
+        }
+    }
+    
+    /** Builds & adds one chunk.
+     * 
+     * @param mesh IndexedMesh holding the faces.
+     * @param faces int[], face indices.
+     * @param from int, first entry of <code>faces</code> (inclusive).
+     * @param to int, last entry of <code>faces</code> (exclusive).
+     */
+    private void addChunk(IndexedMesh mesh, int[] faces, int from, int to) {
+        LineBuffer buffer = new LineBuffer();
+        buffer.addFaces(mesh, faces, from, to);
+        float[] box = {Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, 
+            Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        for(int i = from; i < to; i++) {
+            for(int k = 0; k < mesh.getFaceSize(faces[i]); k++) {
+                int v = mesh.getFaceVertex(faces[i], k);
+                BoundingBox.include(box, mesh.getX(v), mesh.getY(v), mesh.getZ(v));
+            }
+        }
+        BoundingBox chunkBounds = new BoundingBox(box[0], box[1], box[2], box[3], box[4], box[5]);
+        synchronized(this) {
+            buffers.add(buffer);
+            boxes.add(chunkBounds);
+            bounds = bounds.union(chunkBounds);
+        }
+    }
+    
+    /** Draws every chunk not outside the frustum, counting drawn & culled chunks on the frame event.
+     * 
+     * @param gl2 GL2 context to draw with.
+     * @param frustum Frustum in this mesh's space.
+     * @param inside boolean, true if the whole mesh is known to be inside the frustum.
+     * @param event FrameEvent to count chunks on.
+     */
+    public synchronized void draw(GL2 gl2, Frustum frustum, boolean inside, FrameEvent event) {
+        for(int i = 0; i < buffers.size(); i++) {
+            if(!inside && frustum.classify(boxes.get(i)) == Frustum.OUTSIDE) {
+                event.addCulledChunk();
+                continue;
+            }
+            LineBuffer buffer = buffers.get(i);
+            buffer.draw(gl2);
+            event.addChunk(buffer.getSegmentCount());
+        }
+    }
+    
+    /** Returns the bounds of the whole mesh.
+     * 
+     * @return BoundingBox, mesh bounds.
+     */
+    public synchronized BoundingBox getBounds() {
+        return bounds;
+    }
+    
+    /** Returns the number of chunks.
+     * 
+     * @return int, chunk count.
+     */
+    public synchronized int getChunkCount() {
+        return buffers.size();
+    }
+    
+    /** Returns true if the mesh has no chunks.
+     * 
+     * @return boolean, true if empty.
+     */
+    public synchronized boolean isEmpty() {
+        return buffers.isEmpty();
+    }
+    
+    /** Writes the centroid of a face.
+     * 
+     * @param mesh IndexedMesh holding the face.
+     * @param f int, face index.
+     * @param out float[3], receives the centroid.
+     */
+    private static void getCentroid(IndexedMesh mesh, int f, float[] out) {
+        float x = 0.0f, y = 0.0f, z = 0.0f;
+        int size = mesh.getFaceSize(f);
+        for(int k = 0; k < size; k++) {
+            int v = mesh.getFaceVertex(f, k);
+            x += mesh.getX(v);
+            y += mesh.getY(v);
+            z += mesh.getZ(v);
+        }
+        out[0] = x / size;
+        out[1] = y / size;
+        out[2] = z / size;
+    }
+    
+}
+//End of class.